@@ -0,0 +1,106 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.book;
+
+import com.mikegoodspeed.supercheckers.datastructures.Move;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+
+/**
+ * How often a move was played from a position of the {@link OpeningExplorer}, and how the games
+ * went.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class ExplorerMove {
+
+	private Move move = null;
+	private long games = 0;
+	private long xWins = 0;
+	private long oWins = 0;
+	private long draws = 0;
+
+	/**
+	 * @param move
+	 * @param games the number of games the move was played in, finished or not
+	 * @param xWins the number of those games Team.X won
+	 * @param oWins the number of those games Team.O won
+	 * @param draws the number of those games that were drawn
+	 */
+	public ExplorerMove(Move move, long games, long xWins, long oWins, long draws) {
+		this.move = move;
+		this.games = games;
+		this.xWins = xWins;
+		this.oWins = oWins;
+		this.draws = draws;
+	}
+
+	/**
+	 * @return the number of drawn games
+	 */
+	public long getDraws() {
+		return draws;
+	}
+
+	/**
+	 * @return the number of games the move was played in, finished or not
+	 */
+	public long getGames() {
+		return games;
+	}
+
+	/**
+	 * @return the move
+	 */
+	public Move getMove() {
+		return move;
+	}
+
+	/**
+	 * The score of a team in the finished games, counting a draw as half a win.
+	 *
+	 * @param team Team.X or Team.O
+	 * @return the score from 0 to 1, or 0.5 if no game was finished
+	 */
+	public double getScore(Team team) {
+		long finished = xWins + oWins + draws;
+		return finished == 0 ? 0.5 : (getWins(team) + 0.5 * draws) / finished;
+	}
+
+	/**
+	 * @param team Team.X or Team.O
+	 * @return the number of games the team won
+	 */
+	public long getWins(Team team) {
+		if (Team.X.equals(team)) {
+			return xWins;
+		} else if (Team.O.equals(team)) {
+			return oWins;
+		}
+		return 0;
+	}
+
+	@Override
+	public String toString() {
+		return move + ": " + games + " games, " + xWins + "/" + draws + "/" + oWins;
+	}
+}
@@ -0,0 +1,256 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.book;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.Move;
+import com.mikegoodspeed.supercheckers.datastructures.PackedMove;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+
+/**
+ * A read-only opening book, memory-mapped from a file so one copy is shared by every game and
+ * thread.
+ * <p>
+ * The file is a header followed by two tables, all big-endian:
+ * <pre>
+ * header:    | magic (4) | version (4) | positions (4) | moves (4) |
+ * positions: | key (8) | first move (4) | move count (4) |   sorted by key
+ * moves:     | packed move (8) | weight (4) |
+ * </pre>
+ * The key is the position's Zobrist {@link Board#hash() hash}, which includes the team to move.
+ * A position is found by binary search over the mapped positions table, and one of its moves is
+ * chosen at random in proportion to the weights.  Books are written by {@link OpeningBookBuilder}.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class OpeningBook {
+
+	/**
+	 * Location of the book shipped with the game, as a resource or relative to the working
+	 * directory.
+	 */
+	public static final String DEFAULT_PATH = "books/opening.book";
+	/**
+	 * First four bytes of every book file, "SCBK".
+	 */
+	static final int MAGIC = 0x5343424B;
+	/**
+	 * Version of the book file format.
+	 */
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 16;
+	static final int POSITION_BYTES = 16;
+	static final int MOVE_BYTES = 12;
+
+	private static OpeningBook defaultBook = null;
+	private static boolean defaultLoaded = false;
+
+	private final ByteBuffer buffer;
+	private final int positions;
+	private final int moves;
+	private final int movesStart;
+
+	/**
+	 * Read a book from a buffer holding a whole book file.
+	 *
+	 * @param buffer
+	 * @throws IOException if the buffer does not hold a book
+	 */
+	OpeningBook(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not an opening book");
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException("Unsupported opening book version " + buffer.getInt(4));
+		}
+		positions = buffer.getInt(8);
+		moves = buffer.getInt(12);
+		movesStart = HEADER_BYTES + positions * POSITION_BYTES;
+		if (positions < 0 || moves < 0
+				|| (long) movesStart + (long) moves * MOVE_BYTES != buffer.capacity()) {
+			throw new IOException("Opening book is truncated or corrupt");
+		}
+	}
+
+	/**
+	 * Map a book file into memory.  The file stays mapped, and must not be changed, for as long
+	 * as the book is in use.
+	 *
+	 * @param file
+	 * @return the book
+	 * @throws IOException if the file cannot be read or does not hold a book
+	 */
+	public static OpeningBook open(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new OpeningBook(buffer);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Returns the book shipped with the game, which is mapped once and shared afterwards.
+	 *
+	 * @return the book, or null if it cannot be found or read
+	 */
+	public static synchronized OpeningBook getDefault() {
+		if (!defaultLoaded) {
+			defaultLoaded = true;
+			File file = new File(DEFAULT_PATH);
+			URL url = OpeningBook.class.getResource("/" + DEFAULT_PATH);
+			if (url != null && "file".equals(url.getProtocol())) {
+				try {
+					file = new File(url.toURI());
+				} catch (URISyntaxException e) {}
+			}
+			if (file.isFile()) {
+				try {
+					defaultBook = open(file);
+				} catch (IOException e) {
+					System.err.println("Cannot read opening book " + file + ": " + e.getMessage());
+				}
+			}
+		}
+		return defaultBook;
+	}
+
+	/**
+	 * Choose a book move at random, in proportion to the moves' weights.
+	 *
+	 * @param board the position
+	 * @param team the team to move
+	 * @param random source of the choice
+	 * @return a valid move, or null if the position is not in the book
+	 */
+	public Move getMove(Board board, Team team, SplittableRandom random) {
+		int position = find(board, team);
+		if (position < 0) {
+			return null;
+		}
+		int first = getFirstMove(position);
+		int count = getMoveCount(position);
+		long total = 0;
+		for (int i = 0; i < count; i++) {
+			total += getWeight(first + i);
+		}
+		if (total <= 0) {
+			return null;
+		}
+		long choice = random.nextLong(total);
+		for (int i = 0; i < count; i++) {
+			choice -= getWeight(first + i);
+			if (choice < 0) {
+				Move move = PackedMove.toMove(getPackedMove(first + i), null);
+				// Keys are hashes, so check the move in case of a collision.
+				return board.isValidMove(team, move) ? move : null;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Determines if a position is in the book.
+	 *
+	 * @param board the position
+	 * @param team the team to move
+	 * @return true if the book has moves for the position, false otherwise
+	 */
+	public boolean contains(Board board, Team team) {
+		return find(board, team) >= 0;
+	}
+
+	/**
+	 * Find a position in the book.
+	 *
+	 * @param board the position
+	 * @param team the team to move, which must be the board's turn
+	 * @return the index of the position, or -1 if it is not in the book
+	 */
+	int find(Board board, Team team) {
+		if (!team.equals(board.getTurn())) {
+			return -1;
+		}
+		long key = board.hash();
+		int low = 0;
+		int high = positions - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			long middleKey = getKey(middle);
+			if (middleKey < key) {
+				low = middle + 1;
+			} else if (middleKey > key) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	long getKey(int position) {
+		return buffer.getLong(HEADER_BYTES + position * POSITION_BYTES);
+	}
+
+	int getFirstMove(int position) {
+		return buffer.getInt(HEADER_BYTES + position * POSITION_BYTES + 8);
+	}
+
+	int getMoveCount(int position) {
+		return buffer.getInt(HEADER_BYTES + position * POSITION_BYTES + 12);
+	}
+
+	long getPackedMove(int move) {
+		return buffer.getLong(movesStart + move * MOVE_BYTES);
+	}
+
+	int getWeight(int move) {
+		return buffer.getInt(movesStart + move * MOVE_BYTES + 8);
+	}
+
+	/**
+	 * @return the number of moves in the book, over all positions
+	 */
+	public int getMoves() {
+		return moves;
+	}
+
+	/**
+	 * @return the number of positions in the book
+	 */
+	public int size() {
+		return positions;
+	}
+}
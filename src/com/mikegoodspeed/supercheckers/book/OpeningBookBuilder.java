@@ -0,0 +1,310 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.book;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.MoveList;
+import com.mikegoodspeed.supercheckers.datastructures.PackedMove;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+import com.mikegoodspeed.supercheckers.search.Evaluator;
+import com.mikegoodspeed.supercheckers.search.Searcher;
+import com.mikegoodspeed.supercheckers.search.TranspositionTable;
+
+/**
+ * Builds an {@link OpeningBook} offline by searching the early plies of the game.
+ * <p>
+ * Positions are explored a ply at a time from the start of the game.  Every move of a position is
+ * scored with a search of the position after it, and the best moves within a margin of the best
+ * score become the position's book moves, weighted so better moves are played more often.  The
+ * positions after the book moves make up the next ply.  The positions of each ply are searched in
+ * parallel, each thread with its own transposition table, cleared before every position so the
+ * book is the same whatever the number of threads.
+ * <p>
+ * Run from the command line as
+ * <code>OpeningBookBuilder [file [plies [depth [width [threads]]]]]</code>.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class OpeningBookBuilder {
+
+	/**
+	 * Default number of plies covered by the book.
+	 */
+	public static final int PLIES = 12;
+	/**
+	 * Default depth of the search of each move, counting the move itself.
+	 */
+	public static final int DEPTH = 5;
+	/**
+	 * Default most moves kept for each position.
+	 */
+	public static final int WIDTH = 2;
+	/**
+	 * Moves scoring more than this much worse than the best move are left out of the book.
+	 */
+	public static final int MARGIN = 50;
+	/**
+	 * Size of each thread's transposition table in megabytes.
+	 */
+	private static final int HASH_SIZE = 16;
+	private static final long KEEP_ALIVE_SECONDS = 60;
+
+	/**
+	 * @param args file, plies, depth, width and threads, each optional
+	 * @throws IOException if the book cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		File file = new File(args.length > 0 ? args[0] : OpeningBook.DEFAULT_PATH);
+		int plies = args.length > 1 ? Integer.parseInt(args[1]) : PLIES;
+		int depth = args.length > 2 ? Integer.parseInt(args[2]) : DEPTH;
+		int width = args.length > 3 ? Integer.parseInt(args[3]) : WIDTH;
+		int threads = args.length > 4 ? Integer.parseInt(args[4])
+				: Runtime.getRuntime().availableProcessors();
+		OpeningBookBuilder builder = new OpeningBookBuilder(plies, depth, width, threads);
+		long start = System.currentTimeMillis();
+		builder.build();
+		builder.write(file);
+		System.out.println("Wrote " + builder.size() + " positions to " + file + " in "
+			+ (System.currentTimeMillis() - start) / 1000 + " s");
+	}
+
+	/**
+	 * Book moves of one position.
+	 */
+	private static class Entry {
+		long[] moves;
+		int[] weights;
+	}
+
+	private final int plies;
+	private final int depth;
+	private final int width;
+	private final int threads;
+	private final Map<Long, Entry> entries = new TreeMap<Long, Entry>();
+	private int moveCount = 0;
+	private final ThreadLocal<Searcher> searchers = new ThreadLocal<Searcher>() {
+		protected Searcher initialValue() {
+			return new Searcher(new TranspositionTable(HASH_SIZE));
+		}
+	};
+
+	/**
+	 * Create a builder.
+	 *
+	 * @param plies number of plies covered by the book
+	 * @param depth depth of the search of each move, counting the move itself
+	 * @param width most moves kept for each position
+	 * @param threads number of positions searched at once
+	 */
+	public OpeningBookBuilder(int plies, int depth, int width, int threads) {
+		this.plies = plies;
+		this.depth = Math.max(1, depth);
+		this.width = Math.max(1, width);
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Search the positions of the book.
+	 *
+	 * @throws IllegalStateException if a search failed or was interrupted
+	 */
+	public void build() throws IllegalStateException {
+		entries.clear();
+		moveCount = 0;
+		List<Board> level = new ArrayList<Board>();
+		level.add(new Board());
+		Set<Long> seen = new HashSet<Long>();
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS,
+			TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "Supercheckers Book Builder");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		try {
+			for (int ply = 0; ply < plies && !level.isEmpty(); ply++) {
+				List<Future<Entry>> results = new ArrayList<Future<Entry>>();
+				for (final Board position : level) {
+					results.add(pool.submit(new Callable<Entry>() {
+						public Entry call() {
+							return analyze(position);
+						}
+					}));
+				}
+				List<Board> next = new ArrayList<Board>();
+				for (int i = 0; i < level.size(); i++) {
+					Board position = level.get(i);
+					Entry entry = getResult(results.get(i));
+					if (entry.moves.length == 0) {
+						continue;
+					}
+					entries.put(Long.valueOf(position.hash()), entry);
+					moveCount += entry.moves.length;
+					for (long move : entry.moves) {
+						Board child = position.clone();
+						child.doMove(position.getTurn(), move, null);
+						if (!child.isGameOver() && seen.add(Long.valueOf(child.hash()))) {
+							next.add(child);
+						}
+					}
+				}
+				level = next;
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static Entry getResult(Future<Entry> result) throws IllegalStateException {
+		try {
+			return result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while building the book", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Book search failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Score every move of a position and choose its book moves.
+	 *
+	 * @param position
+	 * @return the book moves, which may be none
+	 */
+	private Entry analyze(Board position) {
+		Team team = position.getTurn();
+		Searcher searcher = searchers.get();
+		searcher.getTable().clear();
+		MoveList moves = new MoveList();
+		position.generateMoves(team, moves);
+		int[] scores = new int[moves.size()];
+		int best = -Evaluator.WIN;
+		for (int i = 0; i < moves.size(); i++) {
+			Board child = position.clone();
+			child.doMove(team, moves, i);
+			if (child.isGameOver()) {
+				scores[i] = Evaluator.evaluateGameOver(child, team, 1);
+			} else if (depth == 1) {
+				scores[i] = Evaluator.evaluate(child, team);
+			} else if (searcher.search(child, team.getOpponent(), depth - 1, 0, 0) == null) {
+				scores[i] = Evaluator.DRAW;
+			} else {
+				scores[i] = -searcher.getScore();
+			}
+			best = Math.max(best, scores[i]);
+		}
+		// Keep the best moves within the margin, best first, ties in generated order.
+		long[] kept = new long[Math.min(width, moves.size())];
+		int[] weights = new int[kept.length];
+		int count = 0;
+		boolean[] used = new boolean[moves.size()];
+		while (count < kept.length) {
+			int choice = -1;
+			for (int i = 0; i < moves.size(); i++) {
+				if (!used[i] && !PackedMove.isChained(moves.get(i))
+						&& best - scores[i] <= MARGIN
+						&& (choice < 0 || scores[i] > scores[choice])) {
+					choice = i;
+				}
+			}
+			if (choice < 0) {
+				break;
+			}
+			used[choice] = true;
+			kept[count] = moves.get(choice);
+			weights[count] = MARGIN + 1 - (best - scores[choice]);
+			count++;
+		}
+		Entry entry = new Entry();
+		entry.moves = new long[count];
+		entry.weights = new int[count];
+		System.arraycopy(kept, 0, entry.moves, 0, count);
+		System.arraycopy(weights, 0, entry.weights, 0, count);
+		return entry;
+	}
+
+	/**
+	 * Write the book built so far.
+	 *
+	 * @param file
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(File file) throws IOException {
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null) {
+			parent.mkdirs();
+		}
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+			new FileOutputStream(file)));
+		try {
+			out.writeInt(OpeningBook.MAGIC);
+			out.writeInt(OpeningBook.VERSION);
+			out.writeInt(entries.size());
+			out.writeInt(moveCount);
+			// Entries are in signed key order, the order of the book's binary search.
+			int first = 0;
+			for (Map.Entry<Long, Entry> entry : entries.entrySet()) {
+				out.writeLong(entry.getKey().longValue());
+				out.writeInt(first);
+				out.writeInt(entry.getValue().moves.length);
+				first += entry.getValue().moves.length;
+			}
+			for (Entry entry : entries.values()) {
+				for (int i = 0; i < entry.moves.length; i++) {
+					out.writeLong(entry.moves[i]);
+					out.writeInt(entry.weights[i]);
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * @return the number of positions in the book built so far
+	 */
+	public int size() {
+		return entries.size();
+	}
+}
@@ -0,0 +1,250 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.book;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.Move;
+import com.mikegoodspeed.supercheckers.datastructures.PackedMove;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+
+/**
+ * Read-only statistics of the moves played from the early positions of stored games,
+ * memory-mapped from a file.
+ * <p>
+ * The file has the layout of an {@link OpeningBook}, with counts of games in place of weights,
+ * all big-endian:
+ * <pre>
+ * header:    | magic (4) | version (4) | positions (4) | moves (4) |
+ * positions: | key (8) | first move (4) | move count (4) |   sorted by key
+ * moves:     | packed move (8) | games (8) | X wins (8) | O wins (8) | draws (8) |
+ * </pre>
+ * The key is the position's Zobrist {@link Board#hash() hash}, which includes the team to move.
+ * Counts are 64 bits, since every game of a corpus passes through the starting position.
+ * Moves too long to pack without a chain buffer are not counted.  Explorer files are written by
+ * {@link OpeningExplorerBuilder}.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class OpeningExplorer {
+
+	/**
+	 * Location of the explorer shown by the game, as a resource or relative to the working
+	 * directory.
+	 */
+	public static final String DEFAULT_PATH = "books/explorer.stats";
+	/**
+	 * First four bytes of every explorer file, "SCEX".
+	 */
+	static final int MAGIC = 0x53434558;
+	/**
+	 * Version of the explorer file format.
+	 */
+	static final int VERSION = 2;
+	static final int HEADER_BYTES = 16;
+	static final int POSITION_BYTES = 16;
+	static final int MOVE_BYTES = 40;
+
+	private static OpeningExplorer defaultExplorer = null;
+	private static boolean defaultLoaded = false;
+
+	private final ByteBuffer buffer;
+	private final int positions;
+	private final int moves;
+	private final int movesStart;
+
+	/**
+	 * Read an explorer from a buffer holding a whole explorer file.
+	 *
+	 * @param buffer
+	 * @throws IOException if the buffer does not hold an explorer
+	 */
+	OpeningExplorer(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not an opening explorer");
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException("Unsupported opening explorer version " + buffer.getInt(4));
+		}
+		positions = buffer.getInt(8);
+		moves = buffer.getInt(12);
+		movesStart = HEADER_BYTES + positions * POSITION_BYTES;
+		if (positions < 0 || moves < 0
+				|| (long) movesStart + (long) moves * MOVE_BYTES != buffer.capacity()) {
+			throw new IOException("Opening explorer is truncated or corrupt");
+		}
+	}
+
+	/**
+	 * Map an explorer file into memory.  The file stays mapped, and must not be changed, for as
+	 * long as the explorer is in use.
+	 *
+	 * @param file
+	 * @return the explorer
+	 * @throws IOException if the file cannot be read or does not hold an explorer
+	 */
+	public static OpeningExplorer open(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new OpeningExplorer(buffer);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Returns the explorer shown by the game, which is mapped once and shared afterwards.
+	 *
+	 * @return the explorer, or null if it cannot be found or read
+	 */
+	public static synchronized OpeningExplorer getDefault() {
+		if (!defaultLoaded) {
+			defaultLoaded = true;
+			File file = new File(DEFAULT_PATH);
+			URL url = OpeningExplorer.class.getResource("/" + DEFAULT_PATH);
+			if (url != null && "file".equals(url.getProtocol())) {
+				try {
+					file = new File(url.toURI());
+				} catch (URISyntaxException e) {}
+			}
+			if (file.isFile()) {
+				try {
+					defaultExplorer = open(file);
+				} catch (IOException e) {
+					System.err.println("Cannot read opening explorer " + file + ": "
+						+ e.getMessage());
+				}
+			}
+		}
+		return defaultExplorer;
+	}
+
+	/**
+	 * Determines if a position is in the explorer.
+	 *
+	 * @param board the position, with its own team to move
+	 * @return true if the explorer has moves for the position, false otherwise
+	 */
+	public boolean contains(Board board) {
+		return find(board.hash()) >= 0;
+	}
+
+	/**
+	 * Find a position in the explorer.
+	 *
+	 * @param key the position's hash
+	 * @return the index of the position, or -1 if it is not in the explorer
+	 */
+	int find(long key) {
+		int low = 0;
+		int high = positions - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			long middleKey = getKey(middle);
+			if (middleKey < key) {
+				low = middle + 1;
+			} else if (middleKey > key) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Get the moves played from a position.
+	 *
+	 * @param board the position, with its own team to move
+	 * @return the valid moves, most played first, or none if the position is not in the explorer
+	 */
+	public List<ExplorerMove> getMoves(Board board) {
+		List<ExplorerMove> result = new ArrayList<ExplorerMove>();
+		int position = find(board.hash());
+		if (position < 0) {
+			return result;
+		}
+		Team team = board.getTurn();
+		int first = getFirstMove(position);
+		for (int i = first; i < first + getMoveCount(position); i++) {
+			Move move = PackedMove.toMove(getPackedMove(i), null);
+			// Keys are hashes, so check the move in case of a collision.
+			if (board.isValidMove(team, move)) {
+				int offset = movesStart + i * MOVE_BYTES;
+				result.add(new ExplorerMove(move, buffer.getLong(offset + 8),
+					buffer.getLong(offset + 16), buffer.getLong(offset + 24),
+					buffer.getLong(offset + 32)));
+			}
+		}
+		Collections.sort(result, new Comparator<ExplorerMove>() {
+			public int compare(ExplorerMove a, ExplorerMove b) {
+				return Long.compare(b.getGames(), a.getGames());
+			}
+		});
+		return result;
+	}
+
+	long getKey(int position) {
+		return buffer.getLong(HEADER_BYTES + position * POSITION_BYTES);
+	}
+
+	int getFirstMove(int position) {
+		return buffer.getInt(HEADER_BYTES + position * POSITION_BYTES + 8);
+	}
+
+	int getMoveCount(int position) {
+		return buffer.getInt(HEADER_BYTES + position * POSITION_BYTES + 12);
+	}
+
+	long getPackedMove(int move) {
+		return buffer.getLong(movesStart + move * MOVE_BYTES);
+	}
+
+	/**
+	 * @return the number of moves in the explorer, over all positions
+	 */
+	public int getMoves() {
+		return moves;
+	}
+
+	/**
+	 * @return the number of positions in the explorer
+	 */
+	public int size() {
+		return positions;
+	}
+}
@@ -0,0 +1,675 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.book;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.ChainBuffer;
+import com.mikegoodspeed.supercheckers.datastructures.PackedMove;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+import com.mikegoodspeed.supercheckers.record.GameCorpus;
+import com.mikegoodspeed.supercheckers.record.GameRecord;
+import com.mikegoodspeed.supercheckers.record.ReplayListener;
+
+/**
+ * Builds an {@link OpeningExplorer} from the games of a corpus.
+ * <p>
+ * The corpus is read once, on all threads at once.  Each thread replays the early moves of its
+ * games and counts them in its own table, keyed by position and move, so threads share nothing
+ * while counting.  When a table is three quarters full it is sorted and written to a run file
+ * next to the explorer, and emptied.  Once every game is counted the runs are merged, adding up
+ * the counts of equal entries, into the sorted tables of the explorer.  At most
+ * {@link #MERGE_RUNS} runs are merged at once; while there are more, groups of them are merged
+ * into longer runs first.  Memory and open files are therefore bounded by the table size for
+ * each thread and a small buffer for each run merged at once, whatever the size of the corpus.
+ * <p>
+ * Run from the command line as
+ * <code>OpeningExplorerBuilder corpus [file [plies [threads]]]</code>.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class OpeningExplorerBuilder {
+
+	/**
+	 * Default number of plies of each game counted.
+	 */
+	public static final int PLIES = 16;
+	/**
+	 * Default size of each thread's table in megabytes.
+	 */
+	public static final int MEMORY = 16;
+	/**
+	 * Default largest number of runs merged at once.
+	 */
+	public static final int MERGE_RUNS = 64;
+
+	private static final int ENTRY_BYTES = 48;
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int RUN_BUFFER_SIZE = 1 << 14;
+	private static final int CHUNK_GAMES = 256;
+	private static final int INSERTION_SORT = 16;
+	private static final long KEEP_ALIVE_SECONDS = 60;
+
+	/**
+	 * @param args the directory of the corpus, then file, plies and threads, each optional
+	 * @throws IOException if the corpus cannot be read or the explorer cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("usage: OpeningExplorerBuilder corpus [file [plies [threads]]]");
+			return;
+		}
+		GameCorpus corpus = GameCorpus.open(new File(args[0]));
+		File file = new File(args.length > 1 ? args[1] : OpeningExplorer.DEFAULT_PATH);
+		OpeningExplorerBuilder builder = new OpeningExplorerBuilder(corpus);
+		if (args.length > 2) {
+			builder.setPlies(Integer.parseInt(args[2]));
+		}
+		if (args.length > 3) {
+			builder.setThreads(Integer.parseInt(args[3]));
+		}
+		long start = System.currentTimeMillis();
+		builder.build(file);
+		builder.shutdown();
+		System.out.println("Wrote " + builder.size() + " positions of " + corpus.size()
+			+ " games to " + file + " in " + (System.currentTimeMillis() - start) + " ms");
+	}
+
+	/**
+	 * One thread's counts, in an open addressing table keyed by position and packed move.  Each
+	 * entry has four counts, of games, X wins, O wins and draws, and is free while its count of
+	 * games is zero.  Counts are longs, as every game of the corpus passes through the starting
+	 * position.
+	 */
+	private static class Counters {
+		final long[] keys;
+		final long[] moves;
+		final long[] counts;
+		int size = 0;
+
+		Counters(int capacity) {
+			keys = new long[capacity];
+			moves = new long[capacity];
+			counts = new long[4 * capacity];
+		}
+
+		/**
+		 * Count a move.
+		 *
+		 * @param key the position's hash
+		 * @param move the packed move
+		 * @param result 1 if X won the game, 2 if O won, 3 for a draw, 0 if it is unfinished
+		 * @return true if the table is full
+		 */
+		boolean add(long key, long move, int result) {
+			int mask = keys.length - 1;
+			long mix = (key ^ (move * 0x9E3779B97F4A7C15L)) * 0xC2B2AE3D27D4EB4FL;
+			int slot = (int) (mix >>> 32) & mask;
+			while (counts[4 * slot] != 0 && (keys[slot] != key || moves[slot] != move)) {
+				slot = (slot + 1) & mask;
+			}
+			if (counts[4 * slot] == 0) {
+				keys[slot] = key;
+				moves[slot] = move;
+				size++;
+			}
+			counts[4 * slot]++;
+			if (result != 0) {
+				counts[4 * slot + result]++;
+			}
+			return size >= keys.length / 4 * 3;
+		}
+
+		/**
+		 * Write the entries to a run file in order and empty the table.
+		 *
+		 * @param file
+		 * @throws IOException
+		 */
+		void spill(File file) throws IOException {
+			int used = 0;
+			for (int slot = 0; slot < keys.length; slot++) {
+				if (counts[4 * slot] != 0) {
+					keys[used] = keys[slot];
+					moves[used] = moves[slot];
+					System.arraycopy(counts, 4 * slot, counts, 4 * used, 4);
+					used++;
+				}
+			}
+			sort(0, used);
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file), BUFFER_SIZE));
+			try {
+				for (int i = 0; i < used; i++) {
+					out.writeLong(keys[i]);
+					out.writeLong(moves[i]);
+					for (int j = 0; j < 4; j++) {
+						out.writeLong(counts[4 * i + j]);
+					}
+				}
+			} finally {
+				out.close();
+			}
+			Arrays.fill(counts, 0);
+			size = 0;
+		}
+
+		private void sort(int from, int to) {
+			while (to - from > INSERTION_SORT) {
+				int low = from;
+				int middle = (from + to - 1) >>> 1;
+				int high = to - 1;
+				if (less(middle, low)) {
+					swap(middle, low);
+				}
+				if (less(high, middle)) {
+					swap(high, middle);
+					if (less(middle, low)) {
+						swap(middle, low);
+					}
+				}
+				long pivotKey = keys[middle];
+				long pivotMove = moves[middle];
+				int i = from - 1;
+				int j = to;
+				while (true) {
+					do {
+						i++;
+					} while (keys[i] < pivotKey || keys[i] == pivotKey && moves[i] < pivotMove);
+					do {
+						j--;
+					} while (keys[j] > pivotKey || keys[j] == pivotKey && moves[j] > pivotMove);
+					if (i >= j) {
+						break;
+					}
+					swap(i, j);
+				}
+				if (j + 1 - from < to - j - 1) {
+					sort(from, j + 1);
+					from = j + 1;
+				} else {
+					sort(j + 1, to);
+					to = j + 1;
+				}
+			}
+			for (int i = from + 1; i < to; i++) {
+				for (int j = i; j > from && less(j, j - 1); j--) {
+					swap(j, j - 1);
+				}
+			}
+		}
+
+		private boolean less(int a, int b) {
+			return keys[a] < keys[b] || keys[a] == keys[b] && moves[a] < moves[b];
+		}
+
+		private void swap(int a, int b) {
+			long key = keys[a];
+			keys[a] = keys[b];
+			keys[b] = key;
+			long move = moves[a];
+			moves[a] = moves[b];
+			moves[b] = move;
+			for (int i = 0; i < 4; i++) {
+				long count = counts[4 * a + i];
+				counts[4 * a + i] = counts[4 * b + i];
+				counts[4 * b + i] = count;
+			}
+		}
+	}
+
+	/**
+	 * A run file being merged, positioned at its next entry.
+	 */
+	private static class Run {
+		final DataInputStream in;
+		long remaining;
+		long key;
+		long move;
+		final long[] counts = new long[4];
+
+		Run(File file) throws IOException {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file),
+				RUN_BUFFER_SIZE));
+			remaining = file.length() / ENTRY_BYTES;
+		}
+
+		/**
+		 * @return false if the run is finished
+		 * @throws IOException
+		 */
+		boolean next() throws IOException {
+			if (remaining-- <= 0) {
+				return false;
+			}
+			key = in.readLong();
+			move = in.readLong();
+			for (int i = 0; i < 4; i++) {
+				counts[i] = in.readLong();
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Runs being merged, giving their entries in order with the counts of equal entries added up.
+	 */
+	private static class Merge {
+		final PriorityQueue<Run> queue;
+		long key;
+		long move;
+		final long[] counts = new long[4];
+
+		Merge(List<File> files) throws IOException {
+			queue = new PriorityQueue<Run>(Math.max(1, files.size()), new Comparator<Run>() {
+				public int compare(Run a, Run b) {
+					if (a.key != b.key) {
+						return a.key < b.key ? -1 : 1;
+					}
+					return a.move < b.move ? -1 : a.move > b.move ? 1 : 0;
+				}
+			});
+			try {
+				for (File file : files) {
+					Run run = new Run(file);
+					if (run.next()) {
+						queue.add(run);
+					} else {
+						run.in.close();
+					}
+				}
+			} catch (IOException e) {
+				close();
+				throw e;
+			}
+		}
+
+		/**
+		 * @return false if every run is finished
+		 * @throws IOException
+		 */
+		boolean next() throws IOException {
+			Run run = queue.poll();
+			if (run == null) {
+				return false;
+			}
+			key = run.key;
+			move = run.move;
+			Arrays.fill(counts, 0);
+			while (true) {
+				for (int i = 0; i < 4; i++) {
+					counts[i] += run.counts[i];
+				}
+				if (run.next()) {
+					queue.add(run);
+				} else {
+					run.in.close();
+				}
+				run = queue.peek();
+				if (run == null || run.key != key || run.move != move) {
+					return true;
+				}
+				queue.poll();
+			}
+		}
+
+		void close() throws IOException {
+			for (Run run : queue) {
+				run.in.close();
+			}
+			queue.clear();
+		}
+	}
+
+	private final GameCorpus corpus;
+	private int plies = PLIES;
+	private int memory = MEMORY;
+	private int minGames = 1;
+	private int mergeRuns = MERGE_RUNS;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int positions = 0;
+	private int spilled = 0;
+	private final List<File> runs = new ArrayList<File>();
+	private ThreadPoolExecutor pool = null;
+	private int poolThreads = 0;
+
+	/**
+	 * @param corpus the games to count
+	 */
+	public OpeningExplorerBuilder(GameCorpus corpus) {
+		this.corpus = corpus;
+	}
+
+	/**
+	 * Count the games and write the explorer.
+	 *
+	 * @param file
+	 * @throws IOException if the file or a run cannot be written, or the explorer would be larger
+	 *             than 2 GB
+	 * @throws IllegalArgumentException if a game record is damaged
+	 */
+	public void build(File file) throws IOException, IllegalArgumentException {
+		final File directory = file.getAbsoluteFile().getParentFile();
+		directory.mkdirs();
+		runs.clear();
+		positions = 0;
+		spilled = 0;
+		try {
+			final AtomicLong next = new AtomicLong();
+			Callable<Void> worker = new Callable<Void>() {
+				public Void call() throws IOException {
+					count(next, directory);
+					return null;
+				}
+			};
+			int helpers = Math.max(1, threads) - 1;
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (int i = 0; i < helpers; i++) {
+				futures.add(getPool(helpers).submit(worker));
+			}
+			worker.call();
+			for (Future<Void> future : futures) {
+				getResult(future);
+			}
+			merge(file);
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			throw (RuntimeException) e;
+		} finally {
+			for (File run : runs) {
+				run.delete();
+			}
+			runs.clear();
+		}
+	}
+
+	private static void getResult(Future<Void> future) throws IOException {
+		try {
+			future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while building the explorer", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			} else if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("Explorer build failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Count the moves of games, taking them in chunks until there are none left, spilling the
+	 * table to run files as it fills.
+	 */
+	private void count(AtomicLong next, File directory) throws IOException {
+		int capacity = Integer.highestOneBit(Math.max(1024, (int) Math.min(Integer.MAX_VALUE / 4,
+			(long) memory * (1 << 20) / ENTRY_BYTES)));
+		final Counters counters = new Counters(capacity);
+		final long[] key = new long[1];
+		final int[] result = new int[1];
+		final boolean[] full = new boolean[1];
+		ReplayListener listener = new ReplayListener() {
+			public void moveReplayed(Board board, int ply, long move, ChainBuffer chains) {
+				if (!PackedMove.isChained(move)) {
+					full[0] |= counters.add(key[0], move, result[0]);
+				}
+				key[0] = board.hash();
+			}
+		};
+		long start = new Board().hash();
+		long size = corpus.size();
+		for (long first = next.getAndAdd(CHUNK_GAMES); first < size; first =
+			next.getAndAdd(CHUNK_GAMES)) {
+			for (long id = first; id < Math.min(first + CHUNK_GAMES, size); id++) {
+				GameRecord record = corpus.get(id);
+				Team winner = record.getResult();
+				result[0] = winner == null ? 0 : Team.X.equals(winner) ? 1
+						: Team.O.equals(winner) ? 2 : 3;
+				key[0] = start;
+				record.replay(new Board(), Math.min(plies, record.getPlies()), listener);
+				if (full[0]) {
+					spill(counters, directory);
+					full[0] = false;
+				}
+			}
+		}
+		if (counters.size > 0) {
+			spill(counters, directory);
+		}
+	}
+
+	private void spill(Counters counters, File directory) throws IOException {
+		File run = File.createTempFile("explorer", ".run", directory);
+		synchronized (runs) {
+			runs.add(run);
+			spilled++;
+		}
+		counters.spill(run);
+	}
+
+	/**
+	 * Merge the runs into the explorer file, adding up the counts of equal entries.  While there
+	 * are too many runs to merge at once, the oldest are merged into a new run.  The two tables
+	 * are written to temporary files as they are merged, and copied after the header once their
+	 * sizes are known.
+	 */
+	private void merge(File file) throws IOException {
+		File directory = file.getAbsoluteFile().getParentFile();
+		int fanIn = Math.max(2, mergeRuns);
+		while (runs.size() > fanIn) {
+			List<File> group = new ArrayList<File>(runs.subList(0, fanIn));
+			File run = File.createTempFile("explorer", ".run", directory);
+			runs.add(run);
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(run), BUFFER_SIZE));
+			Merge merge = null;
+			try {
+				merge = new Merge(group);
+				while (merge.next()) {
+					out.writeLong(merge.key);
+					out.writeLong(merge.move);
+					for (int i = 0; i < 4; i++) {
+						out.writeLong(merge.counts[i]);
+					}
+				}
+			} finally {
+				if (merge != null) {
+					merge.close();
+				}
+				out.close();
+			}
+			for (File each : group) {
+				each.delete();
+			}
+			runs.subList(0, fanIn).clear();
+		}
+		List<File> merged = new ArrayList<File>(runs);
+		File positionFile = File.createTempFile("explorer", ".run", directory);
+		runs.add(positionFile);
+		File moveFile = File.createTempFile("explorer", ".run", directory);
+		runs.add(moveFile);
+		DataOutputStream positionOut = new DataOutputStream(new BufferedOutputStream(
+			new FileOutputStream(positionFile), BUFFER_SIZE));
+		DataOutputStream moveOut = new DataOutputStream(new BufferedOutputStream(
+			new FileOutputStream(moveFile), BUFFER_SIZE));
+		long moves = 0;
+		Merge merge = null;
+		try {
+			merge = new Merge(merged);
+			long first = 0;
+			long positionKey = 0;
+			while (merge.next()) {
+				if (merge.counts[0] < minGames) {
+					continue;
+				}
+				if (moves > first && merge.key != positionKey) {
+					writePosition(positionOut, positionKey, first, moves);
+					first = moves;
+				}
+				positionKey = merge.key;
+				moveOut.writeLong(merge.move);
+				for (int i = 0; i < 4; i++) {
+					moveOut.writeLong(merge.counts[i]);
+				}
+				moves++;
+			}
+			if (moves > first) {
+				writePosition(positionOut, positionKey, first, moves);
+			}
+		} finally {
+			if (merge != null) {
+				merge.close();
+			}
+			positionOut.close();
+			moveOut.close();
+		}
+		if (OpeningExplorer.HEADER_BYTES + positionFile.length() + moveFile.length()
+				> Integer.MAX_VALUE) {
+			throw new IOException("Opening explorer too large, count fewer plies");
+		}
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+			new FileOutputStream(file), BUFFER_SIZE));
+		try {
+			out.writeInt(OpeningExplorer.MAGIC);
+			out.writeInt(OpeningExplorer.VERSION);
+			out.writeInt(positions);
+			out.writeInt((int) moves);
+			Files.copy(positionFile.toPath(), out);
+			Files.copy(moveFile.toPath(), out);
+		} finally {
+			out.close();
+		}
+	}
+
+	private void writePosition(DataOutputStream out, long key, long first, long end)
+			throws IOException {
+		out.writeLong(key);
+		out.writeInt((int) first);
+		out.writeInt((int) (end - first));
+		positions++;
+	}
+
+	/**
+	 * @return the pool running helper threads, created on first use
+	 */
+	private ThreadPoolExecutor getPool(int threads) {
+		if (pool == null || poolThreads < threads) {
+			shutdown();
+			poolThreads = threads;
+			pool = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "Supercheckers Explorer Builder");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+			pool.allowCoreThreadTimeOut(true);
+		}
+		return pool;
+	}
+
+	/**
+	 * @param memory the size of each thread's table in megabytes
+	 */
+	public void setMemory(int memory) {
+		this.memory = memory;
+	}
+
+	/**
+	 * @param mergeRuns the largest number of runs merged at once, at least 2
+	 */
+	public void setMergeRuns(int mergeRuns) {
+		this.mergeRuns = mergeRuns;
+	}
+
+	/**
+	 * @param minGames the fewest games a move must be played in to be kept
+	 */
+	public void setMinGames(int minGames) {
+		this.minGames = minGames;
+	}
+
+	/**
+	 * @param plies the number of plies of each game counted
+	 */
+	public void setPlies(int plies) {
+		this.plies = plies;
+	}
+
+	/**
+	 * @param threads the number of threads counting games
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * Stop the helper threads.  The builder can still be used, and starts new threads if needed.
+	 */
+	public void shutdown() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+
+	/**
+	 * @return the number of runs the last build spilled while counting
+	 */
+	int getRuns() {
+		return spilled;
+	}
+
+	/**
+	 * @return the number of positions in the explorer last built
+	 */
+	public int size() {
+		return positions;
+	}
+}
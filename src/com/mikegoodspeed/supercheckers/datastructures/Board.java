@@ -21,6 +21,17 @@ package com.mikegoodspeed.supercheckers.datastructures;
 /**
  * Supercheckers board object.
  * <p>
+ * The board is stored as two bitboards, one <code>long</code> per team, where bit
+ * <code>row * 8 + col</code> is set if the team occupies that spot.  Empty and middle spots are
+ * derived from these masks, so copying, comparing and scanning the board never allocates.
+ * <p>
+ * The board also keeps a 64-bit Zobrist key of its position and the team to move, updated
+ * incrementally as spots change.  See {@link #hash()}.
+ * <p>
+ * Moves can be taken back: {@link #doMove(Team, Move)} returns an undo record which
+ * {@link #undoMove(long)} uses to restore the board exactly, so callers can try moves on the board
+ * itself instead of on a clone.
+ * <p>
  * project Supercheckers <br />
  * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
  *
@@ -51,61 +62,292 @@ public class Board implements Cloneable {
 	 */
 	public static int MID_MAX = 5;
 
-	private Team board[][] = null;
+	/**
+	 * Mask of the 4 spots adjacent to the north side of the middle (row 1).
+	 */
+	static final long NORTH_MASK = 0x0000000000003C00L;
+	/**
+	 * Mask of the 4 spots adjacent to the south side of the middle (row 6).
+	 */
+	static final long SOUTH_MASK = 0x003C000000000000L;
+	/**
+	 * Mask of the 4 spots adjacent to the east side of the middle (column 1).
+	 */
+	static final long EAST_MASK = 0x0000020202020000L;
+	/**
+	 * Mask of the 4 spots adjacent to the west side of the middle (column 6).
+	 */
+	static final long WEST_MASK = 0x0000404040400000L;
+	/**
+	 * Mask of the spots occupied by team X on a new board.
+	 */
+	static final long X_START = 0xAA5582418241AA55L;
+	/**
+	 * Mask of the spots occupied by team O on a new board.
+	 */
+	static final long O_START = 0x55AA4182418255AAL;
+
+	/**
+	 * Undo record returned when a move does not change the board.  Undoing it does nothing.
+	 */
+	public static final long NO_UNDO = 0L;
+
+	private static final Team[] TEAMS = Team.values();
+
+	/**
+	 * Zobrist keys, indexed by team ordinal and spot.  The seed is fixed so keys are stable across
+	 * runs and can be stored on disk.
+	 */
+	private static final long[][] ZOBRIST = new long[2][64];
+	/**
+	 * Zobrist key added while team O is to move.
+	 */
+	private static final long ZOBRIST_O_TO_MOVE;
+	/**
+	 * Zobrist key of a new board.
+	 */
+	private static final long START_HASH;
+
+	static {
+		java.util.Random random = new java.util.Random(0x5C5C5C5C5C5C5C5CL);
+		for (int team = 0; team < ZOBRIST.length; team++) {
+			for (int spot = 0; spot < 64; spot++) {
+				ZOBRIST[team][spot] = random.nextLong();
+			}
+		}
+		ZOBRIST_O_TO_MOVE = random.nextLong();
+		long hash = 0L;
+		for (int spot = 0; spot < 64; spot++) {
+			if ((X_START & (1L << spot)) != 0) {
+				hash ^= ZOBRIST[Team.X.ordinal()][spot];
+			} else if ((O_START & (1L << spot)) != 0) {
+				hash ^= ZOBRIST[Team.O.ordinal()][spot];
+			}
+		}
+		START_HASH = hash;
+	}
+
+	private long x = 0L;
+	private long o = 0L;
+	private long hash = 0L;
+	private Team turn = Team.X;
+	private long[] undoCaptures = new long[64];
+	private int undoDepth = 0;
+	private int ply = 0;
+	private int[] jumpSpots = new int[16];
+	private long[] jumpCaptures = new long[16];
 
 	/**
 	 * Constructor to create a new board
 	 */
 	public Board() {
-		this.board = new Team[MAX + 1][MAX + 1];
 		reset();
 	}
 
+	/**
+	 * Returns the mask of a single spot, specified by a row and a column.
+	 *
+	 * @param row
+	 * @param col
+	 * @return the spot's mask
+	 */
+	static long bit(int row, int col) {
+		return 1L << ((row << 3) | col);
+	}
+
 	/**
 	 * Clear the board (testing use only).
 	 */
 	void clear() {
-		for (int row = MIN; row <= MAX; row++) {
-			for (int col = MIN; col <= MAX; col++) {
-				insert(Team.NOBODY, row, col);
-			}
-		}
+		x = 0L;
+		o = 0L;
+		hash = Team.O.equals(turn) ? ZOBRIST_O_TO_MOVE : 0L;
 	}
 
 	@Override
 	public Board clone() {
 		Board b = new Board();
-		for (int row = MIN; row <= MAX; row++) {
-			for (int col = MIN; col <= MAX; col++) {
-				b.insert(get(row, col), row, col);
-			}
-		}
+		b.x = x;
+		b.o = o;
+		b.hash = hash;
+		b.turn = turn;
+		b.ply = ply;
 		return b;
 	}
 
 	/**
 	 * Perform a move on a board. This does not take into account if the move is valid.
+	 * <p>
+	 * The returned undo record holds the move's origin and destination, the moving team, the
+	 * previous turn and the position of the captured spots on this board's undo stack.  Passing it
+	 * to {@link #undoMove(long)} restores the board exactly, provided the move started on one of
+	 * the team's spots and moves made after it have been undone first.
 	 *
 	 * @param team
 	 * @param move
+	 * @return the undo record, or NO_UNDO if the board was not changed
 	 * @see #isValidMove(Team, Move)
 	 */
-	public void doMove(Team team, Move move) {
+	public long doMove(Team team, Move move) {
 		if (team != null && move != null && move.size() > 1) {
+			long record = pushUndo(team, move.getRow(0), move.getCol(0));
 			boolean isJump =
 				isValidJump(team, move.getRow(0), move.getCol(0), move.getRow(1), move.getCol(1));
-			int jumpedRow;
-			int jumpedCol;
 			for (int i = 1; i < move.size(); i++) {
-				jumpedRow = (move.getRow(i - 1) + move.getRow(i)) / 2;
-				jumpedCol = (move.getCol(i - 1) + move.getCol(i)) / 2;
-				if (isJump && !team.equals(get(jumpedRow, jumpedCol))) {
-					insert(Team.NOBODY, jumpedRow, jumpedCol);
-				}
-				insert(Team.NOBODY, move.getRow(i - 1), move.getCol(i - 1));
-				insert(team, move.getRow(i), move.getCol(i));
+				hop(team, move.getRow(i - 1), move.getCol(i - 1), move.getRow(i), move.getCol(i),
+					isJump);
+			}
+			return commitUndo(record, move.getRow(move.size() - 1), move.getCol(move.size() - 1));
+		}
+		return NO_UNDO;
+	}
+
+	/**
+	 * Perform a move from a move list on a board.  This does not take into account if the move is
+	 * valid.
+	 *
+	 * @param team
+	 * @param moves
+	 * @param index index of the move in the list
+	 * @return the undo record, or NO_UNDO if the board was not changed
+	 * @see #doMove(Team, Move)
+	 */
+	public long doMove(Team team, MoveList moves, int index) {
+		return doMove(team, moves.get(index), moves.getChains());
+	}
+
+	/**
+	 * Perform a packed move on a board.  This does not take into account if the move is valid.
+	 *
+	 * @param team
+	 * @param move the packed move
+	 * @param chains buffer holding the move if it is chained, may be null otherwise
+	 * @return the undo record, or NO_UNDO if the board was not changed
+	 * @see #doMove(Team, Move)
+	 * @see PackedMove
+	 */
+	public long doMove(Team team, long move, ChainBuffer chains) {
+		int length = PackedMove.length(move);
+		if (team != null && length > 1) {
+			int start = PackedMove.getSpot(move, 0, chains);
+			int end = PackedMove.getSpot(move, 1, chains);
+			long record = pushUndo(team, start >>> 3, start & 7);
+			boolean isJump = isValidJump(team, start >>> 3, start & 7, end >>> 3, end & 7);
+			for (int i = 1; i < length; i++) {
+				end = PackedMove.getSpot(move, i, chains);
+				hop(team, start >>> 3, start & 7, end >>> 3, end & 7, isJump);
+				start = end;
+			}
+			return commitUndo(record, end >>> 3, end & 7);
+		}
+		return NO_UNDO;
+	}
+
+	/**
+	 * Move a team from one spot to another, removing the jumped over opponent if it is a jump.
+	 *
+	 * @param team
+	 * @param rowStart
+	 * @param colStart
+	 * @param rowEnd
+	 * @param colEnd
+	 * @param isJump
+	 */
+	private void hop(Team team, int rowStart, int colStart, int rowEnd, int colEnd, boolean isJump) {
+		if (isJump) {
+			int jumpedRow = (rowStart + rowEnd) / 2;
+			int jumpedCol = (colStart + colEnd) / 2;
+			if (!team.equals(get(jumpedRow, jumpedCol))) {
+				insert(Team.NOBODY, jumpedRow, jumpedCol);
 			}
 		}
+		insert(Team.NOBODY, rowStart, colStart);
+		insert(team, rowEnd, colEnd);
+	}
+
+	/**
+	 * Start an undo record for a move by the given team from the given spot.  The opponent's mask
+	 * is saved on the undo stack until the move is committed.
+	 *
+	 * @param team
+	 * @param row
+	 * @param col
+	 * @return the partial undo record
+	 * @see #commitUndo(long, int, int)
+	 */
+	private long pushUndo(Team team, int row, int col) {
+		if (undoDepth == undoCaptures.length) {
+			long[] grown = new long[undoCaptures.length * 2];
+			System.arraycopy(undoCaptures, 0, grown, 0, undoDepth);
+			undoCaptures = grown;
+		}
+		undoCaptures[undoDepth] = getMask(team.getOpponent());
+		undoDepth++;
+		return ((long) undoDepth << 16) | (turn.ordinal() << 14) | (team.ordinal() << 12)
+			| (row << 3) | col;
+	}
+
+	/**
+	 * Finish an undo record once the move has ended on the given spot.  The saved opponent's mask
+	 * is replaced by the mask of captured spots, and the turn passes to the opponent.
+	 *
+	 * @param record
+	 * @param row
+	 * @param col
+	 * @return the complete undo record
+	 */
+	private long commitUndo(long record, int row, int col) {
+		Team team = TEAMS[(int) (record >>> 12) & 3];
+		undoCaptures[undoDepth - 1] &= ~getMask(team.getOpponent());
+		setTurn(team.getOpponent());
+		ply++;
+		return record | (((row << 3) | col) << 6);
+	}
+
+	/**
+	 * Take back a move, as returned by {@link #doMove(Team, Move)}.  Moves must be undone in the
+	 * reverse order they were made.
+	 *
+	 * @param record the undo record of the most recent move not yet undone
+	 * @throws IllegalStateException if a later move has not been undone yet
+	 */
+	public void undoMove(long record) throws IllegalStateException {
+		if (record == NO_UNDO) {
+			return;
+		}
+		int depth = (int) (record >>> 16);
+		if (depth != undoDepth) {
+			throw new IllegalStateException("Moves must be undone in reverse order");
+		}
+		Team team = TEAMS[(int) (record >>> 12) & 3];
+		int origin = (int) record & 63;
+		int destination = (int) (record >>> 6) & 63;
+		set(Team.NOBODY, destination);
+		set(team, origin);
+		Team opponent = team.getOpponent();
+		long captured = undoCaptures[depth - 1];
+		while (captured != 0) {
+			set(opponent, Long.numberOfTrailingZeros(captured));
+			captured &= captured - 1;
+		}
+		setTurn(TEAMS[(int) (record >>> 14) & 3]);
+		undoDepth = depth - 1;
+		ply--;
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	/**
+	 * Returns the 64-bit Zobrist key of this board's position, including the team to move.  Equal
+	 * boards always have equal keys.
+	 *
+	 * @return the position key
+	 */
+	public long hash() {
+		return hash;
 	}
 
 	@Override
@@ -117,14 +359,110 @@ public class Board implements Cloneable {
 		if (getClass() != obj.getClass())
 			return false;
 		final Board other = (Board) obj;
-		for (int row = MIN; row <= MAX; row++) {
-			for (int col = MIN; col <= MAX; col++) {
-				if (!get(row, col).equals(other.get(row, col))) {
-					return false;
-				}
+		return x == other.x && o == other.o && turn == other.turn;
+	}
+
+	/**
+	 * Generate every legal move for a team on this board and add it to the given sink.
+	 * <p>
+	 * Moves follow the same rules as {@link #isAvailableSpot(Team, Move, int, int)} and
+	 * {@link #isValidMove(Team, Move)}: the opening moves must start on the spots allowed on the
+	 * first and second move, a slide is a single step, and every jump series is added along with
+	 * each of its shorter beginnings.  A jump series ends as soon as it leaves the board in a game
+	 * over state.  A jump series is not continued onto a spot it already visited without capturing
+	 * anything since, as that would repeat a position and could go on forever.
+	 * <p>
+	 * Spots are passed to the sink as indexes, <code>row * 8 + col</code>, in an array that is
+	 * reused for every move, so nothing is allocated.  The sink must not generate moves on this
+	 * board while it is being called.
+	 *
+	 * @param team
+	 * @param sink
+	 */
+	public void generateMoves(Team team, MoveSink sink) {
+		if (team == null || Team.NOBODY.equals(team)) {
+			// Nobody can not move.
+			return;
+		}
+		long own = getMask(team);
+		long opponent = getMask(team.getOpponent());
+		long empty = ~(own | opponent);
+		long starts = getStartMask(team);
+		while (starts != 0) {
+			int from = Long.numberOfTrailingZeros(starts);
+			starts &= starts - 1;
+			jumpSpots[0] = from;
+			jumpCaptures[0] = 0L;
+			long targets = BoardTables.SLIDE_MASK[from] & empty;
+			while (targets != 0) {
+				jumpSpots[1] = Long.numberOfTrailingZeros(targets);
+				targets &= targets - 1;
+				sink.add(jumpSpots, 2);
+			}
+			generateJumps(own, opponent, 1, sink);
+		}
+	}
+
+	/**
+	 * Add every jump series continuing from the last of the given number of spots in jumpSpots.
+	 *
+	 * @param own the moving team's mask, with the moving spot at its current position
+	 * @param opponent the opponent's mask
+	 * @param length number of spots in the jump series so far
+	 * @param sink
+	 */
+	private void generateJumps(long own, long opponent, int length, MoveSink sink) {
+		if (length + 1 > jumpSpots.length) {
+			int[] grownSpots = new int[jumpSpots.length * 2];
+			long[] grownCaptures = new long[jumpCaptures.length * 2];
+			System.arraycopy(jumpSpots, 0, grownSpots, 0, length);
+			System.arraycopy(jumpCaptures, 0, grownCaptures, 0, length);
+			jumpSpots = grownSpots;
+			jumpCaptures = grownCaptures;
+		}
+		int from = jumpSpots[length - 1];
+		long captured = jumpCaptures[length - 1];
+		long occupied = own | opponent;
+		for (int direction = 0; direction < BoardTables.DIRECTIONS; direction++) {
+			int to = BoardTables.JUMP[direction][from];
+			if (to < 0) {
+				continue;
+			}
+			long jumped = 1L << BoardTables.JUMPED[direction][from];
+			if ((occupied & jumped) == 0 || (occupied & (1L << to)) != 0) {
+				// Jumps must jump over a spot and land on an empty spot.
+				continue;
+			}
+			long nextCaptured = captured | (opponent & jumped);
+			if (isRepeatedJump(to, nextCaptured, length)) {
+				continue;
+			}
+			long nextOwn = (own & ~(1L << from)) | (1L << to);
+			long nextOpponent = opponent & ~jumped;
+			jumpSpots[length] = to;
+			jumpCaptures[length] = nextCaptured;
+			sink.add(jumpSpots, length + 1);
+			if (!isGameOver(nextOwn, nextOpponent)) {
+				generateJumps(nextOwn, nextOpponent, length + 1, sink);
+			}
+		}
+	}
+
+	/**
+	 * Determines if a jump series already visited a spot with the same captured spots.
+	 *
+	 * @param spot
+	 * @param captured
+	 * @param length number of spots in the jump series so far
+	 * @return true if the jump would repeat a position, false otherwise
+	 */
+	private boolean isRepeatedJump(int spot, long captured, int length) {
+		for (int i = length - 1; i >= 0 && jumpCaptures[i] == captured; i--) {
+			if (jumpSpots[i] == spot) {
+				return true;
 			}
 		}
-		return true;
+		return false;
 	}
 
 	/**
@@ -135,7 +473,117 @@ public class Board implements Cloneable {
 	 * @return the team
 	 */
 	public Team get(int row, int col) {
-		return board[row][col];
+		if (!isValidSpot(row, col)) {
+			throw new ArrayIndexOutOfBoundsException("(" + row + "," + col + ")");
+		}
+		long spot = bit(row, col);
+		if ((x & spot) != 0) {
+			return Team.X;
+		}
+		if ((o & spot) != 0) {
+			return Team.O;
+		}
+		return Team.NOBODY;
+	}
+
+	/**
+	 * Returns the mask of spots occupied by a team.  The mask of Team.NOBODY is the mask of empty
+	 * spots.
+	 *
+	 * @param team
+	 * @return the team's mask
+	 */
+	public long getMask(Team team) {
+		switch (team) {
+			case X:
+				return x;
+			case O:
+				return o;
+			default:
+				return ~(x | o);
+		}
+	}
+
+	/**
+	 * Returns the number of spots adjacent to the middle of the board occupied by a team.
+	 *
+	 * @param team
+	 * @return the number of adjacent spots, or the number of empty adjacent spots for Team.NOBODY
+	 */
+	public int getAdjacentCount(Team team) {
+		return Long.bitCount(getMask(team) & BoardTables.ADJACENT_MASK);
+	}
+
+	/**
+	 * Returns the number of spots in the middle of the board occupied by a team.
+	 *
+	 * @param team
+	 * @return the number of middle spots, or the number of empty middle spots for Team.NOBODY
+	 */
+	public int getMiddleCount(Team team) {
+		return Long.bitCount(getMask(team) & BoardTables.MIDDLE_MASK);
+	}
+
+	/**
+	 * Returns the number of spots on the board occupied by a team.
+	 *
+	 * @param team
+	 * @return the number of spots, or the number of empty spots for Team.NOBODY
+	 */
+	public int getPieceCount(Team team) {
+		return Long.bitCount(getMask(team));
+	}
+
+	/**
+	 * Returns the number of moves made since the board was reset, less the moves undone.
+	 *
+	 * @return the ply
+	 */
+	public int getPly() {
+		return ply;
+	}
+
+	/**
+	 * Returns the mask of spots a team's move may start on.  On the first move only spots adjacent
+	 * to the middle may move, and on the second move only spots on the opposite side of the middle
+	 * from the first move may move.
+	 *
+	 * @param team
+	 * @return the mask of starting spots
+	 */
+	private long getStartMask(Team team) {
+		long mask = getMask(team);
+		if (isFirstMove()) {
+			return mask & BoardTables.ADJACENT_MASK;
+		} else if (isSecondMove()) {
+			long empty = ~(x | o);
+			if ((empty & NORTH_MASK) != 0) {
+				// Move from South
+				return mask & SOUTH_MASK;
+			} else if ((empty & SOUTH_MASK) != 0) {
+				// Move from North
+				return mask & NORTH_MASK;
+			} else if ((empty & WEST_MASK) != 0) {
+				// Move from East
+				return mask & EAST_MASK;
+			} else if ((empty & EAST_MASK) != 0) {
+				// Move from West
+				return mask & WEST_MASK;
+			}
+			// Should not happen.
+			return 0L;
+		}
+		return mask;
+	}
+
+	/**
+	 * Returns the team whose turn it is.  A new board starts with team X, and every move passes the
+	 * turn to the opponent of the team that moved.
+	 *
+	 * @return the team to move
+	 */
+	public Team getTurn() {
+		return turn;
 	}
 
 	/**
@@ -144,31 +592,15 @@ public class Board implements Cloneable {
 	 * @return the Team of the winner, Team.EMPTY if a draw, or null if the game is not over.
 	 */
 	public Team getWinner() {
-		int x = 0;
-		int o = 0;
-		int empty = 0;
-		for (int row = MID_MIN; row <= MID_MAX; row++) {
-			for (int col = MID_MIN; col <= MID_MAX; col++) {
-				switch (get(row, col)) {
-					case X:
-						x++;
-						break;
-					case O:
-						o++;
-						break;
-					case NOBODY:
-						empty++;
-						break;
-				}
-			}
-		}
-		if (empty == 16) {
+		long middleX = x & BoardTables.MIDDLE_MASK;
+		long middleO = o & BoardTables.MIDDLE_MASK;
+		if (middleX == 0 && middleO == 0) {
 			return Team.NOBODY; // Tie
 		}
-		if (o == 0) {
+		if (middleO == 0) {
 			return Team.X; // X wins
 		}
-		if (x == 0) {
+		if (middleX == 0) {
 			return Team.O; // O wins
 		}
 		return null; // Game is not over.
@@ -182,7 +614,34 @@ public class Board implements Cloneable {
 	 * @param col
 	 */
 	void insert(Team team, int row, int col) {
-		board[row][col] = team;
+		if (!isValidSpot(row, col)) {
+			throw new ArrayIndexOutOfBoundsException("(" + row + "," + col + ")");
+		}
+		set(team, (row << 3) | col);
+	}
+
+	/**
+	 * Insert a team to a given spot, specified by its index.
+	 *
+	 * @param team
+	 * @param index
+	 */
+	private void set(Team team, int index) {
+		long spot = 1L << index;
+		if ((x & spot) != 0) {
+			hash ^= ZOBRIST[Team.X.ordinal()][index];
+		} else if ((o & spot) != 0) {
+			hash ^= ZOBRIST[Team.O.ordinal()][index];
+		}
+		x &= ~spot;
+		o &= ~spot;
+		if (Team.X.equals(team)) {
+			x |= spot;
+			hash ^= ZOBRIST[Team.X.ordinal()][index];
+		} else if (Team.O.equals(team)) {
+			o |= spot;
+			hash ^= ZOBRIST[Team.O.ordinal()][index];
+		}
 	}
 
 	/**
@@ -193,10 +652,7 @@ public class Board implements Cloneable {
 	 * @return true if given spo is adjacent, false otherwise
 	 */
 	public boolean isAdjacentToMiddle(int row, int col) {
-		return (row == MID_MIN - 1 && col >= MID_MIN && col <= MID_MAX)
-		|| (row == MID_MAX + 1 && col >= MID_MIN && col <= MID_MAX)
-		|| (col == MID_MIN - 1 && row >= MID_MIN && row <= MID_MAX)
-		|| (col == MID_MAX + 1 && row >= MID_MIN && row <= MID_MAX);
+		return isValidSpot(row, col) && (BoardTables.ADJACENT_MASK & bit(row, col)) != 0;
 	}
 
 	/**
@@ -215,43 +671,10 @@ public class Board implements Cloneable {
 			return false;
 		}
 		if (currentMove == null || currentMove.size() == 0) {
-			if (isFirstMove()) {
-				return isAdjacentToMiddle(row, col) && team.equals(get(row, col));
-			} else if (isSecondMove()) {
-				boolean p1North = Team.NOBODY.equals(get(1, 2)) || Team.NOBODY.equals(get(1, 3))
-				|| Team.NOBODY.equals(get(1, 4)) || Team.NOBODY.equals(get(1, 5));
-				boolean p1South = Team.NOBODY.equals(get(6, 2)) || Team.NOBODY.equals(get(6, 3))
-				|| Team.NOBODY.equals(get(6, 4)) || Team.NOBODY.equals(get(6, 5));
-				boolean p1East = Team.NOBODY.equals(get(2, 6)) || Team.NOBODY.equals(get(3, 6))
-				|| Team.NOBODY.equals(get(4, 6)) || Team.NOBODY.equals(get(5, 6));
-				boolean p1West = Team.NOBODY.equals(get(2, 1)) || Team.NOBODY.equals(get(3, 1))
-				|| Team.NOBODY.equals(get(4, 1)) || Team.NOBODY.equals(get(5, 1));
-				if (p1North) {
-					// Move from South
-					return row == 6 && col >= MID_MIN && col <= MID_MAX
-					&& team.equals(get(row, col));
-				} else if (p1South) {
-					// Move from North
-					return row == 1 && col >= MID_MIN && col <= MID_MAX
-					&& team.equals(get(row, col));
-				} else if (p1East) {
-					// Move from West
-					return row >= MID_MIN && row <= MID_MAX && col == 1
-					&& team.equals(get(row, col));
-				} else if (p1West) {
-					// Move from East
-					return row >= MID_MIN && row <= MID_MAX && col == 6
-					&& team.equals(get(row, col));
-				}
-				// Should not happen.
-				return false;
-			}
-			// Moves must start on the current Team
-			return team.equals(get(row, col));
+			// Moves must start on the current Team, subject to the opening rules
+			return isValidSpot(row, col) && (getStartMask(team) & bit(row, col)) != 0;
 		}
-		Move proposedMove = currentMove.clone();
-		proposedMove.add(row, col);
-		return isValidMove(team, proposedMove);
+		return isValidMove(team, currentMove, true, row, col);
 	}
 
 	/**
@@ -260,7 +683,7 @@ public class Board implements Cloneable {
 	 * @return true if the game is on move one, false otherwise.
 	 */
 	public boolean isFirstMove() {
-		return equals(new Board());
+		return isNewGame();
 	}
 
 	/**
@@ -270,21 +693,22 @@ public class Board implements Cloneable {
 	 * @return true if the game is over, false otherwise
 	 */
 	public boolean isGameOver() {
-		int p1 = 0;
-		int p2 = 0;
-		for (int row = MID_MIN; row <= MID_MAX; row++) {
-			for (int col = MID_MIN; col <= MID_MAX; col++) {
-				switch (get(row, col)) {
-					case X:
-						p1++;
-						break;
-					case O:
-						p2++;
-						break;
-				}
-			}
-		}
-		return !isSecondMove() && (p1 == 0 || p2 == 0);
+		return isGameOver(x, o);
+	}
+
+	/**
+	 * Determines if the board given by two team masks is in a game over state.
+	 *
+	 * @param team1 mask of one team
+	 * @param team2 mask of the other team
+	 * @return true if the game is over, false otherwise
+	 */
+	private static boolean isGameOver(long team1, long team2) {
+		long occupied = team1 | team2;
+		boolean secondMove = Long.bitCount(occupied & BoardTables.MIDDLE_MASK) == 1
+			&& Long.bitCount(occupied & ~BoardTables.MIDDLE_MASK) == 47;
+		return !secondMove && ((team1 & BoardTables.MIDDLE_MASK) == 0
+			|| (team2 & BoardTables.MIDDLE_MASK) == 0);
 	}
 
 	/**
@@ -295,7 +719,7 @@ public class Board implements Cloneable {
 	 * @return true if the spot is in the middle, false otherwise
 	 */
 	public boolean isInMiddle(int row, int col) {
-		return row >= MID_MIN && row <= MID_MAX && col >= MID_MIN && col <= MID_MAX;
+		return isValidSpot(row, col) && (BoardTables.MIDDLE_MASK & bit(row, col)) != 0;
 	}
 
 	/**
@@ -304,7 +728,7 @@ public class Board implements Cloneable {
 	 * @return true if this game is a new game, false otherwise
 	 */
 	public boolean isNewGame() {
-		return equals(new Board());
+		return x == X_START && o == O_START && Team.X.equals(turn);
 	}
 
 	/**
@@ -313,20 +737,9 @@ public class Board implements Cloneable {
 	 * @return true if the game is on move two, false otherwise.
 	 */
 	public boolean isSecondMove() {
-		int in = 0;
-		int out = 0;
-		for (int row = MIN; row <= MAX; row++) {
-			for (int col = MIN; col <= MAX; col++) {
-				if (!Team.NOBODY.equals(get(row, col))) {
-					if (isInMiddle(row, col)) {
-						in++;
-					} else {
-						out++;
-					}
-				}
-			}
-		}
-		return in == 1 && out == 47;
+		long occupied = x | o;
+		return Long.bitCount(occupied & BoardTables.MIDDLE_MASK) == 1
+			&& Long.bitCount(occupied & ~BoardTables.MIDDLE_MASK) == 47;
 	}
 
 	/**
@@ -349,22 +762,20 @@ public class Board implements Cloneable {
 			// The board and all spots must be valid.
 			return false;
 		}
-		if (!team.equals(get(rowStart, colStart)) || !Team.NOBODY.equals(get(rowEnd, colEnd))) {
+		int start = (rowStart << 3) | colStart;
+		int end = (rowEnd << 3) | colEnd;
+		long empty = ~(x | o);
+		if ((getMask(team) & (1L << start)) == 0 || (empty & (1L << end)) == 0) {
 			// The team must be valid, and the jump must start on a spot on the given team and end
 			// on an empty spot.
 			return false;
 		}
-		if (Team.NOBODY.equals(get((rowStart + rowEnd) / 2, (colStart + colEnd) / 2))) {
-			// Jumps must not jump over a space.
+		if ((BoardTables.JUMP_MASK[start] & (1L << end)) == 0) {
+			// Jumps must be two spots north, south, east or west.
 			return false;
 		}
-		boolean north = rowStart - rowEnd == 2;
-		boolean south = rowStart - rowEnd == -2;
-		boolean east = colStart - colEnd == 2;
-		boolean west = colStart - colEnd == -2;
-		boolean vertical = rowStart - rowEnd != 0;
-		boolean horizontal = colStart - colEnd != 0;
-		return ((north || south) && !horizontal) || ((east || west) && !vertical);
+		// Jumps must not jump over a space.
+		return (empty & (1L << ((start + end) >>> 1))) == 0;
 	}
 
 	/**
@@ -375,47 +786,68 @@ public class Board implements Cloneable {
 	 * @return true if move is valid, false otherwise
 	 */
 	public boolean isValidMove(Team team, Move move) {
-//		System.out.println("validating " + move);
+		return isValidMove(team, move, false, 0, 0);
+	}
+
+	/**
+	 * Determines if a given move, optionally followed by one more spot, is valid based on a
+	 * specific team and this board.  Jump series are tried out on this board and undone, so
+	 * nothing is allocated.
+	 *
+	 * @param team
+	 * @param move
+	 * @param extend true if the spot specified by row and col follows the move
+	 * @param row
+	 * @param col
+	 * @return true if move is valid, false otherwise
+	 */
+	private boolean isValidMove(Team team, Move move, boolean extend, int row, int col) {
 		if (team == null || move == null) {
 			// Parameters must not be null.
 			return false;
 		}
-		if (move.size() < 2) {
+		int size = extend ? move.size() + 1 : move.size();
+		if (size < 2) {
 			// Parameters must be valid.
 			return false;
 		}
-		if (isValidSlide(team, move.getRow(0), move.getCol(0), move.getRow(1), move.getCol(1))) {
+		int rowStart = move.getRow(0);
+		int colStart = move.getCol(0);
+		int rowEnd = move.size() > 1 ? move.getRow(1) : row;
+		int colEnd = move.size() > 1 ? move.getCol(1) : col;
+		if (isValidSlide(team, rowStart, colStart, rowEnd, colEnd)) {
 			// If the move is a slide, it must only be a slide.
-			return move.size() == 2;
+			return size == 2;
+		}
+		if (Team.NOBODY.equals(team) || !isValidJump(team, rowStart, colStart, rowEnd, colEnd)) {
+			// Moves that are not slides must start with a valid jump.
+			return false;
 		}
 		// Test to see if the move is a legal jump series.
-		Board boardClone = clone();
-		int rowStart = move.getRow(0);
-		int colStart = move.getCol(0);
-		int rowEnd;
-		int colEnd;
-		for (int i = 1; i < move.size(); i++) {
-			rowEnd = move.getRow(i);
-			colEnd = move.getCol(i);
-			if (!boardClone.isValidJump(team, rowStart, colStart, rowEnd, colEnd)) {
+		long record = pushUndo(team, rowStart, colStart);
+		boolean valid = true;
+		for (int i = 1; i < size; i++) {
+			rowEnd = i < move.size() ? move.getRow(i) : row;
+			colEnd = i < move.size() ? move.getCol(i) : col;
+			if (!isValidJump(team, rowStart, colStart, rowEnd, colEnd)) {
 				// All moves in a jump series must be a valid jump.
-				return false;
-			}
-			Move mTest = new Move();
-			mTest.add(rowStart, colStart);
-			mTest.add(rowEnd, colEnd);
-			boardClone.doMove(team, mTest);
-			if (boardClone.isGameOver() && i != move.size() - 1) {
-				// Jump series can not leave the board in a game over state before finishing.
-				return false;
+				valid = false;
+				break;
 			}
+			hop(team, rowStart, colStart, rowEnd, colEnd, true);
 			rowStart = rowEnd;
 			colStart = colEnd;
+			if (isGameOver() && i != size - 1) {
+				// Jump series can not leave the board in a game over state before finishing.
+				valid = false;
+				break;
+			}
 		}
-		// All tests passed!
-		return true;
+		undoMove(commitUndo(record, rowStart, colStart));
+		return valid;
 	}
 
+
 	/**
 	 * Determines if the the move, specified by two (row, col) pairs, is a valid slide for the
 	 * specified team on this board.
@@ -436,19 +868,57 @@ public class Board implements Cloneable {
 			// The board and all spots must be valid.
 			return false;
 		}
-		if (Team.NOBODY.equals(team) || !team.equals(get(rowStart, colStart))
-				|| !Team.NOBODY.equals(get(rowEnd, colEnd))) {
+		int start = (rowStart << 3) | colStart;
+		long end = bit(rowEnd, colEnd);
+		if (Team.NOBODY.equals(team) || (getMask(team) & (1L << start)) == 0
+				|| ((x | o) & end) != 0) {
 			// The team must be valid, and the slide must start on a spot on the given team and end
 			// on an empty spot.
 			return false;
 		}
-		boolean north = rowStart - rowEnd == 1;
-		boolean south = rowStart - rowEnd == -1;
-		boolean east = colStart - colEnd == 1;
-		boolean west = colStart - colEnd == -1;
-		boolean vertical = rowStart - rowEnd != 0;
-		boolean horizontal = colStart - colEnd != 0;
-		return ((north || south) && !horizontal) || ((east || west) && !vertical);
+		return (BoardTables.SLIDE_MASK[start] & end) != 0;
+	}
+
+	/**
+	 * Set up an arbitrary position, given as one mask per team.  The undo history is cleared and
+	 * the ply starts again at 0.
+	 *
+	 * @param xMask mask of the spots occupied by team X
+	 * @param oMask mask of the spots occupied by team O, which must not overlap xMask
+	 * @param team the team to move
+	 * @throws IllegalArgumentException if the masks overlap
+	 */
+	public void setPosition(long xMask, long oMask, Team team) throws IllegalArgumentException {
+		if ((xMask & oMask) != 0) {
+			throw new IllegalArgumentException("Teams overlap at " + Long.toHexString(xMask & oMask));
+		}
+		x = 0L;
+		o = 0L;
+		hash = 0L;
+		turn = Team.X;
+		while (xMask != 0) {
+			set(Team.X, Long.numberOfTrailingZeros(xMask));
+			xMask &= xMask - 1;
+		}
+		while (oMask != 0) {
+			set(Team.O, Long.numberOfTrailingZeros(oMask));
+			oMask &= oMask - 1;
+		}
+		setTurn(team);
+		undoDepth = 0;
+		ply = 0;
+	}
+
+	/**
+	 * Set the team whose turn it is.
+	 *
+	 * @param team
+	 */
+	void setTurn(Team team) {
+		if (Team.O.equals(turn) != Team.O.equals(team)) {
+			hash ^= ZOBRIST_O_TO_MOVE;
+		}
+		turn = team;
 	}
 
 	/**
@@ -501,19 +971,13 @@ public class Board implements Cloneable {
 	 * Reset the board to its default state.
 	 */
 	public void reset() {
-		for (int row = 0; row < 8; row++) {
-			for (int col = 0; col < 8; col++) {
-				if (isInMiddle(row, col)) {
-					insert(Team.NOBODY, row, col);
-				} else {
-					if ((row + col) % 2 == 0) {
-						insert(Team.X, row, col);
-					} else { // if ((row + col) % 2 == 1)
-						insert(Team.O, row, col);
-					}
-				}
-			}
-		}
+		// X occupies the outside spots where (row + col) is even, O where it is odd.
+		x = X_START;
+		o = O_START;
+		hash = START_HASH;
+		turn = Team.X;
+		undoDepth = 0;
+		ply = 0;
 	}
 
 	@Override
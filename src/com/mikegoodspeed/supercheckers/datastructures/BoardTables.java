@@ -0,0 +1,121 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.datastructures;
+
+/**
+ * Precomputed board geometry for every spot.
+ * <p>
+ * Spots are indexes, <code>row * 8 + col</code>.  For each spot and direction the tables give the
+ * neighbouring spot a slide ends on, the spot a jump lands on and the spot it jumps over, or -1 if
+ * the move would leave the board.  Masks have bit <code>row * 8 + col</code> set for each spot
+ * they contain.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public final class BoardTables {
+
+	/**
+	 * Direction towards row MIN.
+	 */
+	public static final int NORTH = 0;
+	/**
+	 * Direction towards row MAX.
+	 */
+	public static final int SOUTH = 1;
+	/**
+	 * Direction towards column MIN.
+	 */
+	public static final int EAST = 2;
+	/**
+	 * Direction towards column MAX.
+	 */
+	public static final int WEST = 3;
+	/**
+	 * The number of directions.
+	 */
+	public static final int DIRECTIONS = 4;
+
+	/**
+	 * Mask of the 16 spots in the middle of the board.
+	 */
+	public static final long MIDDLE_MASK = 0x00003C3C3C3C0000L;
+	/**
+	 * Mask of the 16 spots adjacent to the middle of the board.
+	 */
+	public static final long ADJACENT_MASK = 0x003C424242423C00L;
+
+	/**
+	 * Spot a slide from a spot in a direction ends on, indexed by direction and spot.
+	 */
+	public static final int[][] SLIDE = new int[DIRECTIONS][64];
+	/**
+	 * Spot a jump from a spot in a direction lands on, indexed by direction and spot.
+	 */
+	public static final int[][] JUMP = new int[DIRECTIONS][64];
+	/**
+	 * Spot a jump from a spot in a direction jumps over, indexed by direction and spot.
+	 */
+	public static final int[][] JUMPED = new int[DIRECTIONS][64];
+	/**
+	 * Mask of the spots a slide from a spot can end on, indexed by spot.
+	 */
+	public static final long[] SLIDE_MASK = new long[64];
+	/**
+	 * Mask of the spots a jump from a spot can land on, indexed by spot.
+	 */
+	public static final long[] JUMP_MASK = new long[64];
+
+	static {
+		int[] rowSteps = { -1, 1, 0, 0 };
+		int[] colSteps = { 0, 0, -1, 1 };
+		for (int spot = 0; spot < 64; spot++) {
+			int row = spot >>> 3;
+			int col = spot & 7;
+			for (int direction = 0; direction < DIRECTIONS; direction++) {
+				int slideRow = row + rowSteps[direction];
+				int slideCol = col + colSteps[direction];
+				int jumpRow = row + 2 * rowSteps[direction];
+				int jumpCol = col + 2 * colSteps[direction];
+				SLIDE[direction][spot] = -1;
+				JUMP[direction][spot] = -1;
+				JUMPED[direction][spot] = -1;
+				if (isOnBoard(slideRow, slideCol)) {
+					SLIDE[direction][spot] = (slideRow << 3) | slideCol;
+					SLIDE_MASK[spot] |= 1L << SLIDE[direction][spot];
+				}
+				if (isOnBoard(jumpRow, jumpCol)) {
+					JUMP[direction][spot] = (jumpRow << 3) | jumpCol;
+					JUMPED[direction][spot] = SLIDE[direction][spot];
+					JUMP_MASK[spot] |= 1L << JUMP[direction][spot];
+				}
+			}
+		}
+	}
+
+	private BoardTables() {
+	}
+
+	private static boolean isOnBoard(int row, int col) {
+		return row >= 0 && row < 8 && col >= 0 && col < 8;
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.datastructures;
+
+/**
+ * Storage for the spots of jump series too long to pack into a single <code>long</code>.
+ * <p>
+ * Spots are appended to one growing byte array, and the packed move returned for a series refers
+ * to its offset and length.  Clearing the buffer invalidates every packed move that refers to it.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ * @see PackedMove
+ */
+public class ChainBuffer {
+
+	private byte[] spots = null;
+	private int size = 0;
+
+	/**
+	 * Constructor to create a new, empty chain buffer.
+	 */
+	public ChainBuffer() {
+		spots = new byte[256];
+	}
+
+	/**
+	 * Store the spots of a Move.
+	 *
+	 * @param move
+	 * @return the packed move referring to the stored spots
+	 */
+	public long add(Move move) {
+		int offset = reserve(move.size());
+		for (int i = 0; i < move.size(); i++) {
+			spots[offset + i] = (byte) ((move.getRow(i) << 3) | move.getCol(i));
+		}
+		return pack(offset, move.size());
+	}
+
+	/**
+	 * Store the spots of a move given as spot indexes.
+	 *
+	 * @param moveSpots the move's spots, in order
+	 * @param length the number of spots in the move
+	 * @return the packed move referring to the stored spots
+	 */
+	public long add(int[] moveSpots, int length) {
+		int offset = reserve(length);
+		for (int i = 0; i < length; i++) {
+			spots[offset + i] = (byte) moveSpots[i];
+		}
+		return pack(offset, length);
+	}
+
+	/**
+	 * Remove all stored spots.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Get a stored spot.
+	 *
+	 * @param offset offset of a stored move
+	 * @param index index of a spot within the move
+	 * @return the spot index
+	 */
+	int get(int offset, int index) {
+		return spots[offset + index];
+	}
+
+	private long pack(int offset, int length) {
+		return ((long) length << 36) | ((offset & 0xFFFFFFFFL) << 4) | PackedMove.CHAINED;
+	}
+
+	private int reserve(int length) {
+		if (length > 0xFFFF) {
+			throw new IllegalArgumentException("Move of " + length + " spots is too long");
+		}
+		if (size + length > spots.length) {
+			byte[] grown = new byte[Math.max(spots.length * 2, size + length)];
+			System.arraycopy(spots, 0, grown, 0, size);
+			spots = grown;
+		}
+		int offset = size;
+		size += length;
+		return offset;
+	}
+
+	/**
+	 * Find the number of spots stored.
+	 *
+	 * @return the number of spots
+	 */
+	public int size() {
+		return size;
+	}
+}
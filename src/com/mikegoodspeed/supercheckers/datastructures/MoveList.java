@@ -0,0 +1,149 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.datastructures;
+
+/**
+ * A reusable list of moves, stored as packed moves with a chain buffer for long jump series.
+ * Clearing and refilling the list does not allocate once it has grown to the largest number of
+ * moves it has held.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class MoveList implements MoveSink {
+
+	private long[] moves = new long[64];
+	private ChainBuffer chains = new ChainBuffer();
+	private int size = 0;
+
+	/**
+	 * Constructor to create a new, empty move list.
+	 */
+	public MoveList() {
+	}
+
+	public void add(int[] moveSpots, int length) {
+		if (size == moves.length) {
+			long[] grown = new long[moves.length * 2];
+			System.arraycopy(moves, 0, grown, 0, size);
+			moves = grown;
+		}
+		moves[size] = PackedMove.pack(moveSpots, length, chains);
+		size++;
+	}
+
+	/**
+	 * Remove all moves from the list.
+	 */
+	public void clear() {
+		size = 0;
+		chains.clear();
+	}
+
+	/**
+	 * Get a move of the list as a packed move.  Long jump series refer to the list's chain
+	 * buffer, which stays valid until the list is cleared.
+	 *
+	 * @param index index of a move
+	 * @return the packed move
+	 * @throws IndexOutOfBoundsException if index is out of range (index < 0 || index >= size())
+	 * @see #getChains()
+	 */
+	public long get(int index) throws IndexOutOfBoundsException {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return moves[index];
+	}
+
+	/**
+	 * @return the chain buffer holding the list's long jump series
+	 */
+	public ChainBuffer getChains() {
+		return chains;
+	}
+
+	/**
+	 * Get the col of a spot of a move.
+	 *
+	 * @param index index of a move
+	 * @param spot index of a spot within the move
+	 * @return the col of the selected spot
+	 */
+	public int getCol(int index, int spot) {
+		return getSpot(index, spot) & 7;
+	}
+
+	/**
+	 * Returns a move of the list as a Move.
+	 *
+	 * @param index index of a move
+	 * @return a new Move with the move's spots
+	 * @throws IndexOutOfBoundsException if index is out of range (index < 0 || index >= size())
+	 */
+	public Move getMove(int index) throws IndexOutOfBoundsException {
+		return PackedMove.toMove(get(index), chains);
+	}
+
+	/**
+	 * Get the row of a spot of a move.
+	 *
+	 * @param index index of a move
+	 * @param spot index of a spot within the move
+	 * @return the row of the selected spot
+	 */
+	public int getRow(int index, int spot) {
+		return getSpot(index, spot) >>> 3;
+	}
+
+	/**
+	 * Get a spot of a move as a spot index (<code>row * 8 + col</code>).
+	 *
+	 * @param index index of a move
+	 * @param spot index of a spot within the move
+	 * @return the selected spot index
+	 * @throws IndexOutOfBoundsException if index is out of range (index < 0 || index >= size())
+	 */
+	public int getSpot(int index, int spot) throws IndexOutOfBoundsException {
+		return PackedMove.getSpot(get(index), spot, chains);
+	}
+
+	/**
+	 * Find the number of spots in a move.
+	 *
+	 * @param index index of a move
+	 * @return the number of spots in the selected move
+	 * @throws IndexOutOfBoundsException if index is out of range (index < 0 || index >= size())
+	 */
+	public int length(int index) throws IndexOutOfBoundsException {
+		return PackedMove.length(get(index));
+	}
+
+	/**
+	 * Find the number of moves in the list.
+	 *
+	 * @return the number of moves
+	 */
+	public int size() {
+		return size;
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.datastructures;
+
+/**
+ * Receiver of moves found by {@link Board#generateMoves(Team, MoveSink)}.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public interface MoveSink {
+
+	/**
+	 * Add a move, given as spot indexes (<code>row * 8 + col</code>).  The array is reused by the
+	 * caller, so it must be copied if it is kept.
+	 *
+	 * @param spots the move's spots, in order
+	 * @param length the number of spots in the move
+	 */
+	public void add(int[] spots, int length);
+}
@@ -0,0 +1,163 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.datastructures;
+
+/**
+ * Moves packed into a single <code>long</code>, so they can be stored by the million without
+ * creating objects.
+ * <p>
+ * The low 4 bits hold the number of spots, and each spot follows as a 6 bit index
+ * (<code>row * 8 + col</code>), so a move of up to {@link #MAX_INLINE} spots fits entirely in the
+ * <code>long</code>.  Longer jump series are stored in a {@link ChainBuffer}, and the packed move
+ * holds the length field {@link #CHAINED}, the series' offset in the buffer and its number of
+ * spots.
+ * <pre>
+ * inline:  | spot 9 (6) | ... | spot 1 (6) | spot 0 (6) | length (4) |
+ * chained: | unused (12) | length (16) | offset (32) | 1111 |
+ * </pre>
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public final class PackedMove {
+
+	/**
+	 * The packed empty move.
+	 */
+	public static final long EMPTY = 0L;
+	/**
+	 * The largest number of spots stored in the packed move itself.
+	 */
+	public static final int MAX_INLINE = 10;
+	/**
+	 * Length field of a move stored in a chain buffer.
+	 */
+	static final int CHAINED = 15;
+
+	private PackedMove() {
+	}
+
+	/**
+	 * Packs the spots of a Move.
+	 *
+	 * @param move
+	 * @param chains buffer for moves longer than MAX_INLINE spots, may be null if there are none
+	 * @return the packed move
+	 * @throws IllegalArgumentException if the move is too long and chains is null
+	 */
+	public static long fromMove(Move move, ChainBuffer chains) throws IllegalArgumentException {
+		if (move.size() > MAX_INLINE) {
+			if (chains == null) {
+				throw new IllegalArgumentException("No chain buffer for " + move);
+			}
+			return chains.add(move);
+		}
+		long packed = move.size();
+		for (int i = 0; i < move.size(); i++) {
+			packed |= (long) ((move.getRow(i) << 3) | move.getCol(i)) << (4 + 6 * i);
+		}
+		return packed;
+	}
+
+	/**
+	 * Get a spot of a packed move as a spot index (<code>row * 8 + col</code>).
+	 *
+	 * @param move the packed move
+	 * @param index index of a spot
+	 * @param chains buffer holding chained moves, may be null if the move is not chained
+	 * @return the selected spot index
+	 * @throws IndexOutOfBoundsException if index is out of range (index < 0 || index >= length)
+	 */
+	public static int getSpot(long move, int index, ChainBuffer chains)
+			throws IndexOutOfBoundsException {
+		if (index < 0 || index >= length(move)) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + length(move));
+		}
+		if (isChained(move)) {
+			return chains.get((int) (move >>> 4), index);
+		}
+		return (int) (move >>> (4 + 6 * index)) & 63;
+	}
+
+	/**
+	 * Determines if a packed move is stored in a chain buffer.
+	 *
+	 * @param move the packed move
+	 * @return true if the spots are in a chain buffer, false if they are in the move itself
+	 */
+	public static boolean isChained(long move) {
+		return ((int) move & 15) == CHAINED;
+	}
+
+	/**
+	 * Find the number of spots in a packed move.
+	 *
+	 * @param move the packed move
+	 * @return the number of spots
+	 */
+	public static int length(long move) {
+		if (isChained(move)) {
+			return (int) (move >>> 36) & 0xFFFF;
+		}
+		return (int) move & 15;
+	}
+
+	/**
+	 * Packs a move given as spot indexes.
+	 *
+	 * @param spots the move's spots, in order
+	 * @param length the number of spots in the move
+	 * @param chains buffer for moves longer than MAX_INLINE spots, may be null if there are none
+	 * @return the packed move
+	 * @throws IllegalArgumentException if the move is too long and chains is null
+	 */
+	public static long pack(int[] spots, int length, ChainBuffer chains)
+			throws IllegalArgumentException {
+		if (length > MAX_INLINE) {
+			if (chains == null) {
+				throw new IllegalArgumentException("No chain buffer for a move of " + length);
+			}
+			return chains.add(spots, length);
+		}
+		long packed = length;
+		for (int i = 0; i < length; i++) {
+			packed |= (long) spots[i] << (4 + 6 * i);
+		}
+		return packed;
+	}
+
+	/**
+	 * Unpacks a packed move into a new Move.
+	 *
+	 * @param move the packed move
+	 * @param chains buffer holding chained moves, may be null if the move is not chained
+	 * @return the move
+	 */
+	public static Move toMove(long move, ChainBuffer chains) {
+		Move m = new Move();
+		for (int i = 0; i < length(move); i++) {
+			int spot = getSpot(move, i, chains);
+			m.add(spot >>> 3, spot & 7);
+		}
+		return m;
+	}
+}
@@ -18,10 +18,9 @@
  */
 package com.mikegoodspeed.supercheckers.datastructures;
 
-import com.mikegoodspeed.supercheckers.players.Player;
-
 /**
- * A listing of players as an enumeration.
+ * A listing of the seats at a game as an enumeration.  The players in each seat belong to a game
+ * session, so any number of games can be played at once.
  * <p>
  * project Supercheckers <br />
  * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
@@ -32,63 +31,12 @@ import com.mikegoodspeed.supercheckers.players.Player;
 public enum Players {
 
 	/**
-	 * Player 1
+	 * Player 1, who moves first
 	 */
-	PLAYER1 {
-		public Player get() {
-			return p1;
-		}
-
-		public void set(Player p) {
-			p1 = p;
-		}
-	},
+	PLAYER1,
 
 	/**
 	 * Player 2
 	 */
-	PLAYER2 {
-		public Player get() {
-			return p2;
-		}
-
-		public void set(Player p) {
-			p2 = p;
-		}
-	};
-
-	private static Player p1 = null;
-	private static Player p2 = null;
-
-	/**
-	 * Retrieve a player from an enumeration.
-	 *
-	 * @return Player associated with an enumeration
-	 */
-	public abstract Player get();
-
-	/**
-	 * Get player by a specified team
-	 *
-	 * @param team team associated with a player
-	 * @return associated player, or null if none found
-	 */
-	public static Players getByTeam(Team team) {
-		if (team == null) {
-			return null;
-		}
-		if (team.equals(p1.getTeam())) {
-			return PLAYER1;
-		} else if (team.equals(p2.getTeam())) {
-			return PLAYER2;
-		}
-		return null;
-	}
-
-	/**
-	 * Assign a player to an enumeration.
-	 *
-	 * @param p Player to be assigned.
-	 */
-	public abstract void set(Player p);
+	PLAYER2;
 }
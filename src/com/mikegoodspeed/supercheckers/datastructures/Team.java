@@ -18,8 +18,6 @@
  */
 package com.mikegoodspeed.supercheckers.datastructures;
 
-import javax.swing.ImageIcon;
-
 /**
  * Teams as an enumeration.
  * <p>
@@ -34,26 +32,22 @@ public enum Team {
 	/**
 	 * Team 1: X
 	 */
-	X('X', "images/outside_green.jpg", "images/inside_green.jpg"),
+	X('X'),
 
 	/**
 	 * Team 2: O
 	 */
-	O('O', "images/outside_orange.jpg", "images/inside_orange.jpg"),
+	O('O'),
 
 	/**
 	 * Empty team: (space)
 	 */
-	NOBODY(' ', "images/outside_empty.jpg", "images/inside_empty.jpg");
+	NOBODY(' ');
 
 	private char representation;
-	private String outsideImagePath;
-	private String insideImagePath;
 
-	private Team(char representation, String outsideImagePath, String insideImagePath) {
+	private Team(char representation) {
 		this.representation = representation;
-		this.outsideImagePath = outsideImagePath;
-		this.insideImagePath = insideImagePath;
 	}
 
 	/**
@@ -66,17 +60,19 @@ public enum Team {
 	}
 
 	/**
-	 * Returns the ImageIcon of the team, depending on if it is in the middle of the board or not.
+	 * Returns the opposing team.
 	 *
-	 * @param isInMiddle true if spot is in the middle of the board
-	 * @return image representation of the team
+	 * @return Team.O for Team.X, Team.X for Team.O, and Team.NOBODY for Team.NOBODY
 	 */
-	public ImageIcon getIcon(boolean isInMiddle) {
-		String path = isInMiddle ? insideImagePath : outsideImagePath;
-		if (Team.class.getResource("/" + path) == null) {
-			return new ImageIcon(path);
-		} else {
-			return new ImageIcon(Team.class.getResource("/" + path));
+	public Team getOpponent() {
+		switch (this) {
+			case X:
+				return O;
+			case O:
+				return X;
+			default:
+				return NOBODY;
 		}
 	}
+
 }
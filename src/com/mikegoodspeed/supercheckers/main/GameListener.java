@@ -0,0 +1,60 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.main;
+
+import com.mikegoodspeed.supercheckers.datastructures.Move;
+import com.mikegoodspeed.supercheckers.datastructures.Players;
+import com.mikegoodspeed.supercheckers.players.Player;
+
+/**
+ * Receives the progress of a game session.  Methods are called on the thread playing the game.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public interface GameListener {
+
+	/**
+	 * Called before a player is asked for a move.
+	 *
+	 * @param session
+	 * @param player the player to move
+	 */
+	public void turnStarted(GameSession session, Player player);
+
+	/**
+	 * Called after a move has been made on the session's board.
+	 *
+	 * @param session
+	 * @param player the player who moved
+	 * @param move
+	 */
+	public void movePlayed(GameSession session, Player player, Move move);
+
+	/**
+	 * Called when the game is over.
+	 *
+	 * @param session
+	 * @param winner the seat of the winning player, or null for a draw
+	 */
+	public void gameOver(GameSession session, Players winner);
+}
@@ -0,0 +1,233 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.main;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.Move;
+import com.mikegoodspeed.supercheckers.datastructures.MoveList;
+import com.mikegoodspeed.supercheckers.datastructures.Players;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+import com.mikegoodspeed.supercheckers.players.HumanPlayer;
+import com.mikegoodspeed.supercheckers.players.Player;
+
+/**
+ * A single game of Supercheckers between two players.  A session owns its board, its players,
+ * whose turn it is and the result, so any number of sessions can be played at once, each on its
+ * own thread.  Nothing here touches AWT or Swing, so games can be simulated on a headless
+ * machine; a window follows a session through a {@link GameListener}.
+ * <p>
+ * A player with no legal move, or a game that runs past the ply limit, ends in a draw.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class GameSession {
+
+	/**
+	 * Default number of plies after which a game is called a draw.
+	 */
+	public static final int MAX_PLIES = 1000;
+
+	private static final AtomicLong nextId = new AtomicLong();
+
+	private final long id = nextId.getAndIncrement();
+	private Board board = null;
+	private Player[] players = null;
+	private GameListener listener = null;
+	private MoveList moves = new MoveList();
+	private int maxPlies = MAX_PLIES;
+	private volatile int plies = 0;
+	private volatile Team result = null;
+
+	/**
+	 * Create a session for two players.  Both players must have been created with the given board.
+	 *
+	 * @param board the board both players look at
+	 * @param player1 the player who moves first
+	 * @param player2 the player who moves second
+	 */
+	public GameSession(Board board, Player player1, Player player2) {
+		this.board = board;
+		this.players = new Player[] { player1, player2 };
+	}
+
+	/**
+	 * @return the board
+	 */
+	public Board getBoard() {
+		return board;
+	}
+
+	/**
+	 * Get the seat of the player on a specified team.
+	 *
+	 * @param team team associated with a player
+	 * @return associated player, or null if none found
+	 */
+	public Players getByTeam(Team team) {
+		for (Players seat : Players.values()) {
+			if (get(seat).getTeam().equals(team)) {
+				return seat;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param seat
+	 * @return the player in a seat
+	 */
+	public Player get(Players seat) {
+		return players[seat.ordinal()];
+	}
+
+	/**
+	 * @return a number identifying this session, unique within the process
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * @return the number of plies played in the last game
+	 */
+	public int getPlies() {
+		return plies;
+	}
+
+	/**
+	 * @return the winning team, Team.NOBODY for a draw, or null if the game has not finished
+	 */
+	public Team getResult() {
+		return result;
+	}
+
+	/**
+	 * @return the seat of the player to move
+	 */
+	public Players getTurn() {
+		return Players.values()[plies % 2];
+	}
+
+	/**
+	 * @return the seat of the winning player, or null for a draw or a game that has not finished
+	 */
+	public Players getWinner() {
+		return result == null ? null : getByTeam(result);
+	}
+
+	/**
+	 * @return true if the game has finished
+	 */
+	public boolean isOver() {
+		return result != null;
+	}
+
+	/**
+	 * Play a single game from the current board position until it is over.
+	 *
+	 * @return the winning team, Team.NOBODY for a draw, or null if the thread was interrupted
+	 * @throws IllegalStateException if a computer player returns an invalid move
+	 */
+	public Team play() throws IllegalStateException {
+		plies = 0;
+		result = null;
+		Team winner = Team.NOBODY; // too long
+		while (plies < maxPlies) {
+			boolean moved = playTurn(get(getTurn()));
+			if (Thread.currentThread().isInterrupted()) {
+				return null;
+			}
+			if (!moved) {
+				break; // no legal moves
+			}
+			plies++;
+			if (board.isGameOver()) {
+				winner = board.getWinner();
+				break;
+			}
+		}
+		result = winner;
+		if (listener != null) {
+			listener.gameOver(this, getWinner());
+		}
+		return winner;
+	}
+
+	/**
+	 * Play a turn for a given player.  A human player is asked again after an invalid move.
+	 *
+	 * @param player the player expected to make a move
+	 * @return false if the player had no legal move or the thread was interrupted, true otherwise
+	 * @throws IllegalStateException if a computer player returns an invalid move
+	 */
+	private boolean playTurn(Player player) throws IllegalStateException {
+		moves.clear();
+		board.generateMoves(player.getTeam(), moves);
+		if (moves.size() == 0) {
+			return false;
+		}
+		if (listener != null) {
+			listener.turnStarted(this, player);
+		}
+		Move move = player.getMove();
+		while (!board.isValidMove(player.getTeam(), move)) {
+			if (Thread.currentThread().isInterrupted()) {
+				return false;
+			}
+			if (!(player instanceof HumanPlayer)) {
+				throw new IllegalStateException("Invalid " + player.getTeam().get() + " move: "
+					+ move);
+			}
+			if (listener != null) {
+				listener.turnStarted(this, player);
+			}
+			move = player.getMove();
+		}
+		board.doMove(player.getTeam(), move);
+		if (listener != null) {
+			listener.movePlayed(this, player, move);
+		}
+		return true;
+	}
+
+	/**
+	 * @param listener the listener told about turns, moves and the result, or null for none
+	 */
+	public void setListener(GameListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * @param maxPlies the number of plies after which a game is called a draw
+	 */
+	public void setMaxPlies(int maxPlies) {
+		this.maxPlies = maxPlies;
+	}
+
+	@Override
+	public String toString() {
+		return "Game " + id + ": " + players[0] + " vs " + players[1];
+	}
+}
@@ -0,0 +1,162 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.main;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+
+/**
+ * Plays any number of game sessions at once, each on its own thread.  Where the runtime has
+ * virtual threads, every session gets one, so thousands of games waiting on players cost
+ * little; otherwise sessions run on a pool that starts a daemon thread for each waiting session
+ * and lets idle threads expire.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class GameSessionManager {
+
+	private static final long KEEP_ALIVE_SECONDS = 60;
+
+	private final ConcurrentMap<Long, GameSession> sessions =
+			new ConcurrentHashMap<Long, GameSession>();
+	private ExecutorService executor = null;
+	private boolean virtual = false;
+
+	/**
+	 * Create a session manager.
+	 */
+	public GameSessionManager() {
+		executor = newVirtualThreadExecutor();
+		virtual = executor != null;
+		if (!virtual) {
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+				KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+				new ThreadFactory() {
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "Supercheckers Game");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+			executor = pool;
+		}
+	}
+
+	/**
+	 * The virtual thread executor is looked up by name so the game still runs on older runtimes.
+	 *
+	 * @return an executor starting a virtual thread per task, or null if there are none
+	 */
+	private static ExecutorService newVirtualThreadExecutor() {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		} catch (Exception e) {
+			// Missing, or a preview feature that is not enabled
+			return null;
+		}
+	}
+
+	/**
+	 * @return the number of sessions being played
+	 */
+	public int getActiveCount() {
+		return sessions.size();
+	}
+
+	/**
+	 * @param id
+	 * @return the session being played with an id, or null if there is none
+	 */
+	public GameSession getSession(long id) {
+		return sessions.get(id);
+	}
+
+	/**
+	 * @return the sessions being played
+	 */
+	public List<GameSession> getSessions() {
+		return new ArrayList<GameSession>(sessions.values());
+	}
+
+	/**
+	 * @return true if sessions run on virtual threads
+	 */
+	public boolean isVirtual() {
+		return virtual;
+	}
+
+	/**
+	 * Start playing a session.
+	 *
+	 * @param session a session whose game has not started
+	 * @return the result of the game, as returned by {@link GameSession#play()}
+	 * @throws RejectedExecutionException if the manager has been shut down
+	 */
+	public Future<Team> submit(final GameSession session) throws RejectedExecutionException {
+		sessions.put(session.getId(), session);
+		try {
+			return executor.submit(new Callable<Team>() {
+				public Team call() {
+					try {
+						return session.play();
+					} finally {
+						sessions.remove(session.getId());
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			sessions.remove(session.getId());
+			throw e;
+		}
+	}
+
+	/**
+	 * Stop accepting sessions.  Sessions already submitted are played to the end.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	/**
+	 * Stop accepting sessions and interrupt the sessions being played.  Interrupted sessions
+	 * end without a result.
+	 */
+	public void shutdownNow() {
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.main;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.record.GameCorpus;
+import com.mikegoodspeed.supercheckers.ui.GameBoardFrm;
+
+/**
+ * Shows a game from a corpus in a window, to step through its moves.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class Replay {
+
+	/**
+	 * @param args the directory of the corpus and the id of the game, 0 if not given
+	 * @throws IOException if the corpus cannot be read
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("usage: Replay corpus [id]");
+			return;
+		}
+		GameCorpus corpus = GameCorpus.open(new File(args[0]));
+		long id = args.length > 1 ? Long.parseLong(args[1]) : 0;
+		if (id < 0 || id >= corpus.size()) {
+			System.err.println("No game " + id + " in a corpus of " + corpus.size());
+			return;
+		}
+		GameBoardFrm window = new GameBoardFrm(new Board());
+		window.setTitle("Supercheckers - Game " + id);
+		window.replay(corpus.get(id));
+		window.setVisible(true);
+	}
+}
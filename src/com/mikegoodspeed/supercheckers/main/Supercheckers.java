@@ -18,6 +18,7 @@
  */
 package com.mikegoodspeed.supercheckers.main;
 
+import com.mikegoodspeed.supercheckers.book.OpeningBook;
 import com.mikegoodspeed.supercheckers.datastructures.Board;
 import com.mikegoodspeed.supercheckers.datastructures.Move;
 import com.mikegoodspeed.supercheckers.datastructures.Players;
@@ -25,10 +26,12 @@ import com.mikegoodspeed.supercheckers.datastructures.Team;
 import com.mikegoodspeed.supercheckers.players.EasyComputerPlayer;
 import com.mikegoodspeed.supercheckers.players.HumanPlayer;
 import com.mikegoodspeed.supercheckers.players.Player;
+import com.mikegoodspeed.supercheckers.tablebase.Tablebase;
 import com.mikegoodspeed.supercheckers.ui.GameBoardFrm;
 
 /**
- * Supercheckers main class
+ * Supercheckers main class, which shows a game session in a window.  The computer players play
+ * from the opening book and tablebase shipped with the game, if they can be found.
  * <p>
  * project Supercheckers <br />
  * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
@@ -36,84 +39,51 @@ import com.mikegoodspeed.supercheckers.ui.GameBoardFrm;
  * @author Mike Goodspeed
  * @version $Id$
  */
-public class Supercheckers extends Thread {
+public class Supercheckers implements GameListener {
 
 	/**
 	 * @param args all arguments are ignored
 	 */
 	public static void main(String[] args) {
-		new Supercheckers();
+		new Supercheckers(new GameSessionManager());
 	}
 
-	private Board board = null;
 	private GameBoardFrm window = null;
 
 	/**
-	 * Constructor to create a new game of Supercheckers.
+	 * Constructor to create a new game of Supercheckers and start playing it.
+	 *
+	 * @param manager the manager to play the game on
 	 */
-	public Supercheckers() {
-		super("Supercheckers Main");
-		board = new Board();
+	public Supercheckers(GameSessionManager manager) {
+		Board board = new Board();
 		window = new GameBoardFrm(board);
 		window.setVisible(true);
-		this.start(); // calls run() in a new thread
-	}
-
-	/**
-	 * Play a single game of Supercheckers.
-	 */
-	private void playGame() {
-		board.reset();
-		Players.PLAYER1.set(new EasyComputerPlayer(window, board, Team.X));
-		Players.PLAYER2.set(new EasyComputerPlayer(window, board, Team.O));
-		window.updateBoard(board);
-		window.setPlayers(Players.PLAYER1.get(), Players.PLAYER2.get());
-		boolean gameOver = false;
-		while (!gameOver) {
-			gameOver = playRound();
+		EasyComputerPlayer player1 = new EasyComputerPlayer(board, Team.X);
+		EasyComputerPlayer player2 = new EasyComputerPlayer(board, Team.O);
+		for (EasyComputerPlayer player : new EasyComputerPlayer[] { player1, player2 }) {
+			player.setBook(OpeningBook.getDefault());
+			player.setTablebase(Tablebase.getDefault());
 		}
-		window.announceWinner(Players.getByTeam(board.getWinner()));
+		GameSession session = new GameSession(board, player1, player2);
+		session.setListener(this);
+		window.updateBoard(board);
+		window.setPlayers(session.get(Players.PLAYER1), session.get(Players.PLAYER2));
+		manager.submit(session);
 	}
 
-	/**
-	 * Play a single round of supercheckers, where each player gets to make one valid move.
-	 *
-	 * @return true if game is over, false otherwise
-	 */
-	private boolean playRound() {
-		boolean gameOver = false;
-		for (Players currentPlayer : Players.values()) {
-			gameOver = playTurn(currentPlayer.get());
-			if (gameOver) {
-				return true; // Game over
-			}
-		}
-		return false; // Round over (game continues)
+	public void turnStarted(GameSession session, Player player) {
+		window.setTurn(player);
+		window.updateBoard(session.getBoard());
+		window.setProgressBarEnabled(!(player instanceof HumanPlayer));
 	}
 
-	/**
-	 * Play a turn for a given player.
-	 *
-	 * @param player the player expected to make a move
-	 * @return true if game is over, false otherwise
-	 */
-	private boolean playTurn(Player player) {
-		Move move;
-		window.setTurn(player);
-		do {
-			window.updateBoard(board);
-			if (!(player instanceof HumanPlayer)) {
-				window.setProgressBarEnabled(true);
-			}
-			move = player.getMove();
-		} while (!board.isValidMove(player.getTeam(), move));
+	public void movePlayed(GameSession session, Player player, Move move) {
 		window.setProgressBarEnabled(false);
-		board.doMove(player.getTeam(), move);
-		window.updateBoard(board);
-		return board.isGameOver(); // return game over status
+		window.updateBoard(session.getBoard());
 	}
 
-	public void run() {
-		playGame();
+	public void gameOver(GameSession session, Players winner) {
+		window.announceWinner(winner);
 	}
 }
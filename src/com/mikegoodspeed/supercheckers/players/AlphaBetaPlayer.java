@@ -0,0 +1,188 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.players;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.Move;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+import com.mikegoodspeed.supercheckers.search.LazySmpSearcher;
+import com.mikegoodspeed.supercheckers.search.MoveSearcher;
+import com.mikegoodspeed.supercheckers.search.Searcher;
+import com.mikegoodspeed.supercheckers.search.TranspositionTable;
+
+/**
+ * Computer player that searches for its move with iterative deepening alpha-beta, within a time or
+ * node budget for each move.  The more time it is given, the deeper it looks.  Search results are
+ * kept in a transposition table between moves.  With more than one thread, the threads share the
+ * table and search the same position (see {@link LazySmpSearcher}).  Any other
+ * {@link MoveSearcher} can be given instead, such as the deterministic
+ * {@link com.mikegoodspeed.supercheckers.search.YoungBrothersSearcher}.  Positions in the endgame
+ * tablebase are played from it without searching.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class AlphaBetaPlayer extends Player {
+
+	/**
+	 * Default time budget for each move in milliseconds.
+	 */
+	public static final long MOVE_TIME = 1000;
+	/**
+	 * Default transposition table size in megabytes.
+	 */
+	public static final int HASH_SIZE = 16;
+
+	private MoveSearcher searcher = null;
+	private long moveTime = MOVE_TIME;
+	private long maxNodes = 0;
+	private int maxDepth = Searcher.MAX_DEPTH;
+
+	/**
+	 * Constructor for a player with the default time budget.
+	 *
+	 * @param board
+	 * @param team
+	 */
+	public AlphaBetaPlayer(Board board, Team team) {
+		this(board, team, MOVE_TIME, 0);
+	}
+
+	/**
+	 * Constructor for a player with a given budget.  At least one of the budgets should be set, or
+	 * the player searches to MAX_DEPTH.
+	 *
+	 * @param board
+	 * @param team
+	 * @param moveTime time budget for each move in milliseconds, or 0 for no limit
+	 * @param maxNodes node budget for each move, or 0 for no limit
+	 */
+	public AlphaBetaPlayer(Board board, Team team, long moveTime, long maxNodes) {
+		this(board, team, moveTime, maxNodes, HASH_SIZE);
+	}
+
+	/**
+	 * Constructor for a player with a given budget and transposition table size.
+	 *
+	 * @param board
+	 * @param team
+	 * @param moveTime time budget for each move in milliseconds, or 0 for no limit
+	 * @param maxNodes node budget for each move, or 0 for no limit
+	 * @param hashSize transposition table size in megabytes, or 0 for no table
+	 */
+	public AlphaBetaPlayer(Board board, Team team, long moveTime, long maxNodes, int hashSize) {
+		this(board, team, moveTime, maxNodes, hashSize, 1);
+	}
+
+	/**
+	 * Constructor for a player searching with several threads.
+	 *
+	 * @param board
+	 * @param team
+	 * @param moveTime time budget for each move in milliseconds, or 0 for no limit
+	 * @param maxNodes node budget of the main thread for each move, or 0 for no limit
+	 * @param hashSize transposition table size in megabytes, at least 1 with more than one thread
+	 * @param threads number of search threads
+	 */
+	public AlphaBetaPlayer(Board board, Team team, long moveTime, long maxNodes, int hashSize,
+			int threads) {
+		super(board, team);
+		this.moveTime = moveTime;
+		this.maxNodes = maxNodes;
+		if (threads > 1) {
+			hashSize = Math.max(1, hashSize);
+		}
+		TranspositionTable table = hashSize > 0 ? new TranspositionTable(hashSize) : null;
+		searcher = new LazySmpSearcher(table, threads);
+	}
+
+	/**
+	 * Constructor for a player using a given search.
+	 *
+	 * @param board
+	 * @param team
+	 * @param searcher the search to run for each move
+	 * @param moveTime time budget for each move in milliseconds, or 0 for no limit
+	 * @param maxNodes node budget for each move, or 0 for no limit
+	 */
+	public AlphaBetaPlayer(Board board, Team team, MoveSearcher searcher, long moveTime,
+			long maxNodes) {
+		super(board, team);
+		this.searcher = searcher;
+		this.moveTime = moveTime;
+		this.maxNodes = maxNodes;
+	}
+
+	public Move getMove() {
+		Move move = getTablebaseMove();
+		if (move != null) {
+			return move;
+		}
+		return searcher.search(getBoard(), getTeam(), maxDepth, moveTime, maxNodes);
+	}
+
+	/**
+	 * @return the deepest iteration completed for the last move
+	 */
+	public int getDepth() {
+		return searcher.getDepth();
+	}
+
+	/**
+	 * @return the number of nodes searched for the last move, by all threads
+	 */
+	public long getNodes() {
+		return searcher.getNodes();
+	}
+
+	/**
+	 * @return the number of nodes searched per second for the last move, by all threads
+	 */
+	public long getNodesPerSecond() {
+		return searcher.getNodes() * 1000 / Math.max(1, searcher.getTime());
+	}
+
+	/**
+	 * @return the number of search threads
+	 */
+	public int getThreads() {
+		return searcher.getThreads();
+	}
+
+	/**
+	 * @return the score of the last move, positive if this player is ahead
+	 */
+	public int getScore() {
+		return searcher.getScore();
+	}
+
+	/**
+	 * @param maxDepth the deepest iteration to search
+	 */
+	public void setMaxDepth(int maxDepth) {
+		this.maxDepth = maxDepth;
+	}
+
+	public String toString() {
+		return "Alpha-Beta";
+	}
+}
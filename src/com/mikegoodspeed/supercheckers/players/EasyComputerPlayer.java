@@ -18,16 +18,26 @@
  */
 package com.mikegoodspeed.supercheckers.players;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
+import com.mikegoodspeed.supercheckers.book.OpeningBook;
 import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.BoardTables;
 import com.mikegoodspeed.supercheckers.datastructures.Move;
+import com.mikegoodspeed.supercheckers.datastructures.MoveList;
 import com.mikegoodspeed.supercheckers.datastructures.Team;
-import com.mikegoodspeed.supercheckers.ui.GameBoardFrm;
 
 /**
  * Easy Computer Player
  * <p>
+ * All random choices come from a single SplittableRandom, so a game between players that share a
+ * seeded generator can be replayed exactly.  The think delay only slows the player down for people
+ * watching; it can be turned off for simulations without changing which moves are chosen.
+ * <p>
+ * Openings are played from the opening book given with {@link #setBook(OpeningBook)}, choosing
+ * among the book moves at random.  Out of the book, or without one, the player uses simple
+ * strategy.
+ * <p>
  * project Supercheckers <br />
  * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
  *
@@ -36,595 +46,136 @@ import com.mikegoodspeed.supercheckers.ui.GameBoardFrm;
  */
 public class EasyComputerPlayer extends Player {
 
+	/**
+	 * Order in which directions are tried: down, right, up and left.
+	 */
+	private static final int[] DIRECTION_ORDER =
+		{ BoardTables.SOUTH, BoardTables.WEST, BoardTables.NORTH, BoardTables.EAST };
+	/**
+	 * Order in which directions are tried when sliding inward: up, left, down and right.
+	 */
+	private static final int[] INWARD_ORDER =
+		{ BoardTables.NORTH, BoardTables.EAST, BoardTables.SOUTH, BoardTables.WEST };
+	/**
+	 * Mask of every spot on the board.
+	 */
+	private static final long ANYWHERE = -1L;
+	/**
+	 * Mask of the spots on the edge of the board.
+	 */
+	private static final long EDGE_MASK = 0xFF818181818181FFL;
+	/**
+	 * Default think delay in milliseconds.  The player waits one to three times this long.
+	 */
+	public static final int THINK_DELAY = 750;
+
 	Team myTeam = null;
 	Team opponentTeam = null;
+	private SplittableRandom random = null;
+	private int thinkDelay = THINK_DELAY;
+	private OpeningBook book = null;
 
 	/**
-	 * Constructor for an easy computer player
+	 * Constructor for an easy computer player that pauses before each move, as if thinking.
 	 * 
-	 * @param window
 	 * @param board
 	 * @param team
 	 */
-	public EasyComputerPlayer(GameBoardFrm window, Board board, Team team) {
-		super(window, board, team);
+	public EasyComputerPlayer(Board board, Team team) {
+		this(board, team, new SplittableRandom());
+		thinkDelay = THINK_DELAY;
+	}
+
+	/**
+	 * Constructor for an easy computer player that moves without delay and takes every random
+	 * choice from the given generator.  Give both players of a game the same seeded generator to
+	 * make the game reproducible.
+	 * 
+	 * @param board
+	 * @param team
+	 * @param random source of all random choices
+	 */
+	public EasyComputerPlayer(Board board, Team team, SplittableRandom random) {
+		super(board, team);
 		myTeam = team;
 		opponentTeam = Team.X.equals(team) ? Team.O : Team.X;
+		this.random = random;
+		thinkDelay = 0;
 	}
 
 	public Move getMove() {
-		try {
-			Thread.sleep((new Random().nextInt(3) + 1) * 750); // randomize waiting time
-		} catch (Exception e) {}
-
-		Move move = new Move();
-		if (getBoard().isFirstMove()) {
-			// If we are first to go in the first round then randomly slide into the middle.
-			Random randomNumber = new Random();
-			if (Team.X.equals(myTeam)) {
-				switch (randomNumber.nextInt(8)) {
-					case 0:
-						move = new Move();
-						move.add(1, 3);
-						move.add(2, 3);
-						break;
-					case 1:
-						move = new Move();
-						move.add(1, 5);
-						move.add(2, 5);
-						break;
-					case 2:
-						move = new Move();
-						move.add(2, 6);
-						move.add(2, 5);
-						break;
-					case 3:
-						move = new Move();
-						move.add(3, 1);
-						move.add(3, 2);
-						break;
-					case 4:
-						move = new Move();
-						move.add(4, 6);
-						move.add(4, 5);
-						break;
-					case 5:
-						move = new Move();
-						move.add(5, 1);
-						move.add(5, 2);
-						break;
-					case 6:
-						move = new Move();
-						move.add(6, 2);
-						move.add(5, 2);
-						break;
-					case 7:
-						move = new Move();
-						move.add(6, 4);
-						move.add(5, 4);
-						break;
-				}
-			} else { // if (Team.O.equals(myTeam))
-				switch (randomNumber.nextInt(8)) {
-					case 0:
-						move = new Move();
-						move.add(1, 2);
-						move.add(2, 2);
-						break;
-					case 1:
-						move = new Move();
-						move.add(1, 4);
-						move.add(2, 4);
-						break;
-					case 2:
-						move = new Move();
-						move.add(2, 1);
-						move.add(2, 2);
-						break;
-					case 3:
-						move = new Move();
-						move.add(3, 6);
-						move.add(3, 5);
-						break;
-					case 4:
-						move = new Move();
-						move.add(4, 1);
-						move.add(4, 2);
-						break;
-					case 5:
-						move = new Move();
-						move.add(5, 6);
-						move.add(5, 5);
-						break;
-					case 6:
-						move = new Move();
-						move.add(6, 3);
-						move.add(5, 3);
-						break;
-					case 7:
-						move = new Move();
-						move.add(6, 5);
-						move.add(5, 5);
-						break;
-				}
+		int delay = (random.nextInt(3) + 1) * thinkDelay; // randomize waiting time
+		if (delay > 0) {
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt(); // let the game see it
 			}
-			return move;
-		} else if (getBoard().isSecondMove()) {
-			// If we are second to go in the second round, then randomly slide in from the opposite
-			// side of the center that the opponent came from.
-			// Find the side that our opponent slid in from.
-			Random randomNumber = new Random();
-			int emptyCellRow = 0;
-			int emptyCellCol = 0;
-			for (int row = 1; row <= 6; row++) {
-				for (int col = 1; col <= 6; col++) {
-					if (row == 1 || row == 6 || col == 1 || col == 6) {// adjacent to middle
-						if (getBoard().get(row, col).equals(Team.NOBODY)) {
-							emptyCellRow = row;
-							emptyCellCol = col;
-						}
-					}
-				}
+		}
+
+		if (book != null) {
+			Move bookMove = book.getMove(getBoard(), myTeam, random);
+			if (bookMove != null) {
+				return bookMove;
 			}
-			if (emptyCellCol == 6) { // empty on right side
-				if (Team.X.equals(myTeam)) {
-					switch (randomNumber.nextInt(2)) {
-						case 0:
-							move = new Move();
-							move.add(3, 1);
-							move.add(3, 2);
-							break;
-						case 1:
-							move = new Move();
-							move.add(5, 1);
-							move.add(5, 2);
-							break;
-					}
-				} else { // if (TEAM2.equals(myTeam)) {
-					switch (randomNumber.nextInt(2)) {
-						case 0:
-							move = new Move();
-							move.add(2, 1);
-							move.add(2, 2);
-							break;
-						case 1:
-							move = new Move();
-							move.add(4, 1);
-							move.add(4, 2);
-							break;
-					}
-				}
-			} else if (emptyCellRow == 1) { // empty on top side
-				if (Team.X.equals(myTeam)) {
-					switch (randomNumber.nextInt(2)) {
-						case 0:
-							move = new Move();
-							move.add(6, 2);
-							move.add(5, 2);
-							break;
-						case 1:
-							move = new Move();
-							move.add(6, 4);
-							move.add(5, 4);
-							break;
-					}
-				} else { // if (TEAM2.equals(myTeam)) {
-					switch (randomNumber.nextInt(2)) {
-						case 0:
-							move = new Move();
-							move.add(6, 3);
-							move.add(5, 3);
-							break;
-						case 1:
-							move = new Move();
-							move.add(6, 5);
-							move.add(5, 5);
-							break;
-					}
-				}
-			} else if (emptyCellCol == 1) { // empty on left side
-				if (Team.X.equals(myTeam)) {
-					switch (randomNumber.nextInt(2)) {
-						case 0:
-							move = new Move();
-							move.add(2, 6);
-							move.add(2, 5);
-							break;
-						case 1:
-							move = new Move();
-							move.add(4, 6);
-							move.add(4, 5);
-							break;
-					}
-				} else { // if (TEAM2.equals(myTeam)) {
-					switch (randomNumber.nextInt(2)) {
-						case 0:
-							move = new Move();
-							move.add(3, 6);
-							move.add(3, 5);
-							break;
-						case 1:
-							move = new Move();
-							move.add(5, 6);
-							move.add(5, 5);
-							break;
-					}
-				}
-			} else { // if (emptyCellRow == 6) { // empty on bottom side
-				if (Team.X.equals(myTeam)) {
-					switch (randomNumber.nextInt(2)) {
-						case 0:
-							move = new Move();
-							move.add(1, 3);
-							move.add(2, 3);
-							break;
-						case 1:
-							move = new Move();
-							move.add(1, 5);
-							move.add(2, 5);
-							break;
-					}
-				} else { // if (TEAM2.equals(myTeam)) {
-					switch (randomNumber.nextInt(2)) {
-						case 0:
-							move = new Move();
-							move.add(1, 2);
-							move.add(2, 2);
-							break;
-						case 1:
-							move = new Move();
-							move.add(1, 4);
-							move.add(2, 4);
-							break;
-					}
-				}
+		}
+		Move move = new Move();
+		if (getBoard().isFirstMove() || getBoard().isSecondMove()) {
+			// Out of the book in the first round, so randomly slide into the middle.
+			MoveList moves = new MoveList();
+			getBoard().generateMoves(myTeam, moves);
+			if (moves.size() != 0) {
+				move = moves.getMove(random.nextInt(moves.size()));
 			}
 			return move;
 		} else {
 			// Now that the first round is over, use strategy.
-			Move secondChoice = new Move();
 
 			// try to jump an opponent inside (without leaving the middle)
-			for (int row = 2; row <= 5; row++) {
-				for (int col = 2; col <= 5; col++) {
-					if (row < 4) { // able to jump up
-						if (getBoard().isValidJump(myTeam, row, col, row + 2, col)) {
-							if (getBoard().get(row + 1, col).equals(opponentTeam)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row + 2, col);
-							}
-						}
-					}
-					if (col < 4) { // able to jump right
-						if (getBoard().isValidJump(myTeam, row, col, row, col + 2)) {
-							if (getBoard().get(row, col + 1).equals(opponentTeam)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row, col + 2);
-							}
-						}
-					}
-					if (row > 3) { // able to jump down
-						if (getBoard().isValidJump(myTeam, row, col, row - 2, col)) {
-							if (getBoard().get(row - 1, col).equals(opponentTeam)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row - 2, col);
-							}
-						}
-					}
-					if (col > 3) { // able to jump left
-						if (getBoard().isValidJump(myTeam, row, col, row, col - 2)) {
-							if (getBoard().get(row, col - 1).equals(opponentTeam)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row, col - 2);
-							}
-						}
-					}
-				}
+			long middle = BoardTables.MIDDLE_MASK;
+			while (middle != 0) {
+				int spot = Long.numberOfTrailingZeros(middle);
+				move = jumpOpponent(spot, BoardTables.MIDDLE_MASK, move);
+				middle &= middle - 1;
 			}
 			if (move.size() != 0) {
 				return move; // if a better move was found, do it
 			}
-			if (secondChoice.size() != 0) {
-				return secondChoice; // second choice move
-			}
-
-			// try to jump an opponent or a teammate to get inside
-			for (int row = 6; row <= 7; row++) {
-				for (int col = 2; col <= 5; col++) {
-					if (getBoard().isValidSlide(myTeam, row, col, row - 2, col)) {
-						if (getBoard().get(row - 1, col).equals(opponentTeam)) {
-							move = new Move();
-							move.add(row, col);
-							move.add(row - 2, col);
-						} else if (getBoard().get(row - 1, col).equals(myTeam)) {
-							secondChoice = new Move();
-							secondChoice.add(row, col);
-							secondChoice.add(row - 2, col);
-						}
-					}
-				}
-			}
-			for (int row = 2; row <= 5; row++) {
-				for (int col = 6; col <= 7; col++) {
-					if (getBoard().isValidSlide(myTeam, row, col, row, col - 2)) {
-						if (getBoard().get(row, col - 1).equals(opponentTeam)) {
-							move = new Move();
-							move.add(row, col);
-							move.add(row, col - 2);
-						} else if (getBoard().get(row, col - 1).equals(myTeam)) {
-							secondChoice = new Move();
-							secondChoice.add(row, col);
-							secondChoice.add(row, col - 2);
-						}
-					}
-				}
-			}
-			for (int row = 0; row <= 1; row++) {
-				for (int col = 2; col <= 5; col++) {
-					if (getBoard().isValidSlide(myTeam, row, col, row + 2, col)) {
-						if (getBoard().get(row + 1, col).equals(opponentTeam)) {
-							move = new Move();
-							move.add(row, col);
-							move.add(row + 2, col);
-						} else if (getBoard().get(row + 1, col).equals(myTeam)) {
-							secondChoice = new Move();
-							secondChoice.add(row, col);
-							secondChoice.add(row + 2, col);
-						}
-					}
-				}
-			}
-			for (int row = 2; row <= 5; row++) {
-				for (int col = 0; col <= 1; col++) {
-					if (getBoard().isValidSlide(myTeam, row, col, row, col + 2)) {
-						if (getBoard().get(row, col + 1).equals(opponentTeam)) {
-							move = new Move();
-							move.add(row, col);
-							move.add(row, col + 2);
-						} else if (getBoard().get(row, col + 1).equals(myTeam)) {
-							secondChoice = new Move();
-							secondChoice.add(row, col);
-							secondChoice.add(row, col + 2);
-						}
-					}
-				}
-			}
-			if (move.size() != 0) {
-				return move; // if a better move was found, do it
-			}
-			if (secondChoice.size() != 0) {
-				return secondChoice; // second choice move
-			}
 
 			// try to slide inside
-			for (int col = 2; col <= 5; col++) {
-				if (getBoard().isValidSlide(myTeam, 6, col, 5, col)) {
-					move = new Move();
-					move.add(6, col);
-					move.add(5, col);
-				}
-			}
-			for (int row = 2; row <= 5; row++) {
-				if (getBoard().isValidSlide(myTeam, row, 6, row, 5)) {
-					move = new Move();
-					move.add(row, 6);
-					move.add(row, 5);
-				}
-			}
-			for (int col = 2; col <= 5; col++) {
-				if (getBoard().isValidSlide(myTeam, 1, col, 2, col)) {
-					move = new Move();
-					move.add(1, col);
-					move.add(2, col);
-				}
-			}
-			for (int row = 2; row <= 5; row++) {
-				if (getBoard().isValidSlide(myTeam, row, 1, row, 2)) {
-					move = new Move();
-					move.add(row, 1);
-					move.add(row, 2);
-				}
-			}
+			move = slideInward(~BoardTables.MIDDLE_MASK, BoardTables.MIDDLE_MASK, move);
 			if (move.size() != 0) {
 				return move; // if a move was found, do it
 			}
 
 			// try to slide in from the edges
-			for (int col = 1; col <= 6; col++) {
-				if (getBoard().isValidSlide(myTeam, 7, col, 6, col)) {
-					move = new Move();
-					move.add(7, col);
-					move.add(6, col);
-				}
-			}
-			for (int row = 1; row <= 6; row++) {
-				if (getBoard().isValidSlide(myTeam, row, 7, row, 6)) {
-					move = new Move();
-					move.add(row, 7);
-					move.add(row, 6);
-				}
-			}
-			for (int col = 1; col <= 6; col++) {
-				if (getBoard().isValidSlide(myTeam, 0, col, 1, col)) {
-					move = new Move();
-					move.add(0, col);
-					move.add(1, col);
-				}
-			}
-			for (int row = 1; row <= 6; row++) {
-				if (getBoard().isValidSlide(myTeam, row, 0, row, 1)) {
-					move = new Move();
-					move.add(row, 0);
-					move.add(row, 1);
-				}
-			}
+			move = slideInward(EDGE_MASK, ~EDGE_MASK, move);
 			if (move.size() != 0) {
 				return move; // if a move was found, do it
 			}
 
 			// create random numbers for random jumping
-			Random randomNumber = new Random();
-			int randomRow = randomNumber.nextInt(8);
-			int randomCol = randomNumber.nextInt(8);
-			int randomDirection = randomNumber.nextInt(4);
+			int randomRow = random.nextInt(8);
+			int randomCol = random.nextInt(8);
+			int randomDirection = random.nextInt(4);
 
 			// try to randomly jump an opponent
 			for (int row = randomRow; row <= 7; row++) {
 				for (int col = randomCol; col <= 7; col++) {
-					if (row <= 5) { // able to jump down
-						if (getBoard().isValidJump(myTeam, row, col, row + 2, col)) {
-							if (getBoard().get(row + 1, col).equals(opponentTeam)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row + 2, col);
-							}
-						}
-					}
-					if (col <= 5) { // able to jump right
-						if (getBoard().isValidJump(myTeam, row, col, row, col + 2)) {
-							if (getBoard().get(row, col + 1).equals(opponentTeam)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row, col + 2);
-							}
-						}
-					}
-					if (row >= 2) { // able to jump up
-						if (getBoard().isValidJump(myTeam, row, col, row - 2, col)) {
-							if (getBoard().get(row - 1, col).equals(opponentTeam)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row - 2, col);
-							}
-						}
-					}
-					if (col >= 2) { // able to jump left
-						if (getBoard().isValidJump(myTeam, row, col, row, col - 2)) {
-							if (getBoard().get(row, col - 1).equals(opponentTeam)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row, col - 2);
-							}
-						}
-					}
+					move = jumpOpponent((row << 3) | col, ANYWHERE, move);
 				}
 				for (int col = 0; col <= randomCol - 1; col++) {
-					if (row <= 5) { // able to jump down
-						if (getBoard().isValidJump(myTeam, row, col, row + 2, col)) {
-							if (getBoard().get(row + 1, col).equals(opponentTeam)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row + 2, col);
-							}
-						}
-					}
-					if (col <= 5) { // able to jump right
-						if (getBoard().isValidJump(myTeam, row, col, row, col + 2)) {
-							if (getBoard().get(row, col + 1).equals(opponentTeam)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row, col + 2);
-							}
-						}
-					}
-					if (row >= 2) { // able to jump up
-						if (getBoard().isValidJump(myTeam, row, col, row - 2, col)) {
-							if (getBoard().get(row - 1, col).equals(opponentTeam)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row - 2, col);
-							}
-						}
-					}
-					if (col >= 2) { // able to jump left
-						if (getBoard().isValidJump(myTeam, row, col, row, col - 2)) {
-							if (getBoard().get(row, col - 1).equals(opponentTeam)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row, col - 2);
-							}
-						}
-					}
+					move = jumpOpponent((row << 3) | col, ANYWHERE, move);
 				}
 			}
 			for (int row = 0; row <= randomRow - 1; row++) {
 				if (randomCol < 7) {
 					for (int col = randomCol; col <= 7; col++) {
-						if (row <= 5) { // able to jump down
-							if (getBoard().isValidJump(myTeam, row, col, row + 2, col)) {
-								if (getBoard().get(row + 1, col).equals(opponentTeam)) {
-									move = new Move();
-									move.add(row, col);
-									move.add(row + 2, col);
-								}
-							}
-						}
-						if (col <= 5) { // able to jump right
-							if (getBoard().isValidJump(myTeam, row, col, row, col + 2)) {
-								if (getBoard().get(row, col + 1).equals(opponentTeam)) {
-									move = new Move();
-									move.add(row, col);
-									move.add(row, col + 2);
-								}
-							}
-						}
-						if (row >= 2) { // able to jump up
-							if (getBoard().isValidJump(myTeam, row, col, row - 2, col)) {
-								if (getBoard().get(row - 1, col).equals(opponentTeam)) {
-									move = new Move();
-									move.add(row, col);
-									move.add(row - 2, col);
-								}
-							}
-						}
-						if (col >= 2) { // able to jump left
-							if (getBoard().isValidJump(myTeam, row, col, row, col - 2)) {
-								if (getBoard().get(row, col - 1).equals(opponentTeam)) {
-									move = new Move();
-									move.add(row, col);
-									move.add(row, col - 2);
-								}
-							}
-						}
+						move = jumpOpponent((row << 3) | col, ANYWHERE, move);
 					}
 				}
 				for (int col = 0; col <= randomCol - 1; col++) {
-					if (row <= 5) // able to jump down
-						if (getBoard().isValidJump(myTeam, row, col, row + 2, col)) {
-							if (getBoard().get(row + 1, col).equals(opponentTeam)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row + 2, col);
-							}
-						}
-					if (col <= 5) // able to jump right
-						if (getBoard().isValidJump(myTeam, row, col, row, col + 2)) {
-							if (getBoard().get(row, col + 1).equals(opponentTeam)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row, col + 2);
-							}
-						}
-					if (row >= 2) // able to jump up
-						if (getBoard().isValidJump(myTeam, row, col, row - 2, col)) {
-							if (getBoard().get(row - 1, col).equals(opponentTeam)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row - 2, col);
-							}
-						}
-					if (col >= 2) // able to jump left
-						if (getBoard().isValidJump(myTeam, row, col, row, col - 2)) {
-							if (getBoard().get(row, col - 1).equals(opponentTeam)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row, col - 2);
-							}
-						}
+					move = jumpOpponent((row << 3) | col, ANYWHERE, move);
 				}
 			}
 			if (move.size() != 0) {
@@ -632,167 +183,118 @@ public class EasyComputerPlayer extends Player {
 			}
 
 			// create new random numbers for random sliding
-			randomRow = randomNumber.nextInt(8);
-			randomCol = randomNumber.nextInt(8);
-			randomDirection = randomNumber.nextInt(4);
+			randomRow = random.nextInt(8);
+			randomCol = random.nextInt(8);
+			randomDirection = random.nextInt(4);
 
 			// try to randomly slide anywhere (base case)
 			for (int row = randomRow; row < 8; row++) {
 				for (int col = randomCol; col < 8; col++) {
-					for (int i = 0; i <= 3; i++) { // times through with a direction
-						if (randomDirection == 0 && row <= 6) { // able to slide down
-							if (getBoard().isValidSlide(myTeam, row, col, row + 1, col)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row + 1, col);
-							}
-						}
-						if (randomDirection == 1 && col <= 6) { // able to slide right
-							if (getBoard().isValidSlide(myTeam, row, col, row, col + 1)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row, col + 1);
-							}
-						}
-						if (randomDirection == 2 && row >= 1) { // able to slide up
-							if (getBoard().isValidSlide(myTeam, row, col, row - 1, col)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row - 1, col);
-							}
-						}
-						if (randomDirection == 3 && col >= 1) { // able to slide left
-							if (getBoard().isValidSlide(myTeam, row, col, row, col - 1)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row, col - 1);
-							}
-						}
-						if (randomDirection != 3) {
-							randomDirection++; // increment random direction
-						} else {
-							randomDirection = 0; // loop it back to the top
-						}
-					}
+					move = slide((row << 3) | col, randomDirection, move);
 				}
 				for (int col = 0; col <= randomCol - 1; col++) {
-					for (int i = 0; i <= 3; i++) { // times through with a direction
-						if (randomDirection == 0 && row <= 6) { // able to slide down
-							if (getBoard().isValidSlide(myTeam, row, col, row + 1, col)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row + 1, col);
-							}
-						}
-						if (randomDirection == 1 && col <= 6) { // able to slide right
-							if (getBoard().isValidSlide(myTeam, row, col, row, col + 1)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row, col + 1);
-							}
-						}
-						if (randomDirection == 2 && row >= 1) { // able to slide up
-							if (getBoard().isValidSlide(myTeam, row, col, row - 1, col)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row - 1, col);
-							}
-						}
-						if (randomDirection == 3 && col >= 1) { // able to slide left
-							if (getBoard().isValidSlide(myTeam, row, col, row, col - 1)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row, col - 1);
-							}
-						}
-						if (randomDirection != 3) {
-							randomDirection++; // increment random direction
-						} else {
-							randomDirection = 0; // loop it back to the top
-						}
-					}
+					move = slide((row << 3) | col, randomDirection, move);
 				}
 			}
 			for (int row = 0; row <= randomRow - 1; row++) {
 				for (int col = randomCol; col <= 7; col++) {
-					for (int i = 0; i <= 3; i++) { // times through with a direction
-						if (randomDirection == 0 && row <= 6) { // able to slide down
-							if (getBoard().isValidSlide(myTeam, row, col, row + 1, col)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row + 1, col);
-							}
-						}
-						if (randomDirection == 1 && col <= 6) { // able to slide right
-							if (getBoard().isValidSlide(myTeam, row, col, row, col + 1)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row, col + 1);
-							}
-						}
-						if (randomDirection == 2 && row >= 1) { // able to slide up
-							if (getBoard().isValidSlide(myTeam, row, col, row - 1, col)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row - 1, col);
-							}
-						}
-						if (randomDirection == 3 && col >= 1) { // able to slide left
-							if (getBoard().isValidSlide(myTeam, row, col, row, col - 1)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row, col - 1);
-							}
-						}
-						if (randomDirection != 3) {
-							randomDirection++; // increment random direction
-						} else {
-							randomDirection = 0; // loop it back to the top
-						}
-					}
+					move = slide((row << 3) | col, randomDirection, move);
 				}
 				for (int col = 0; col <= randomCol - 1; col++) {
-					for (int i = 0; i <= 3; i++) { // times through with a direction
-						if (randomDirection == 0 && row <= 6) { // able to slide down
-							if (getBoard().isValidSlide(myTeam, row, col, row + 1, col)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row + 1, col);
-							}
-						}
-						if (randomDirection == 1 && col <= 6) {// able to slide right
-							if (getBoard().isValidSlide(myTeam, row, col, row, col + 1)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row, col + 1);
-							}
-						}
-						if (randomDirection == 2 && row >= 1) { // able to slide up
-							if (getBoard().isValidSlide(myTeam, row, col, row - 1, col)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row - 1, col);
-							}
-						}
-						if (randomDirection == 3 && col >= 1) { // able to slide left
-							if (getBoard().isValidSlide(myTeam, row, col, row, col - 1)) {
-								move = new Move();
-								move.add(row, col);
-								move.add(row, col - 1);
-							}
-						}
-						if (randomDirection != 3) {
-							randomDirection++; // increment random direction
-						} else {
-							randomDirection = 0; // loop it back to the top
-						}
-					}
+					move = slide((row << 3) | col, randomDirection, move);
 				}
 			}
 			return move; // return whatever we got
 		}
 	}
 
+	/**
+	 * @param book the opening book to play from, or null to play without one
+	 */
+	public void setBook(OpeningBook book) {
+		this.book = book;
+	}
+
+	/**
+	 * @param thinkDelay think delay in milliseconds, or 0 to move immediately
+	 */
+	public void setThinkDelay(int thinkDelay) {
+		this.thinkDelay = thinkDelay;
+	}
+
+	/**
+	 * Try to jump an opponent from a spot in each direction in turn, keeping the last jump found.
+	 *
+	 * @param spot index of the starting spot (<code>row * 8 + col</code>)
+	 * @param landings mask of the spots the jump may land on
+	 * @param move the move to return if no jump is found
+	 * @return the last jump found, or move if there is none
+	 */
+	private Move jumpOpponent(int spot, long landings, Move move) {
+		for (int direction : DIRECTION_ORDER) {
+			int landing = BoardTables.JUMP[direction][spot];
+			if (landing < 0 || (landings & (1L << landing)) == 0) {
+				continue;
+			}
+			int jumped = BoardTables.JUMPED[direction][spot];
+			if (getBoard().isValidJump(myTeam, spot >>> 3, spot & 7, landing >>> 3, landing & 7)
+					&& getBoard().get(jumped >>> 3, jumped & 7).equals(opponentTeam)) {
+				move = new Move();
+				move.add(spot >>> 3, spot & 7);
+				move.add(landing >>> 3, landing & 7);
+			}
+		}
+		return move;
+	}
+
+	/**
+	 * Try to slide from a spot in each direction in turn, starting with the given one and keeping
+	 * the last slide found.
+	 *
+	 * @param spot index of the starting spot (<code>row * 8 + col</code>)
+	 * @param firstDirection index in DIRECTION_ORDER of the first direction to try
+	 * @param move the move to return if no slide is found
+	 * @return the last slide found, or move if there is none
+	 */
+	private Move slide(int spot, int firstDirection, Move move) {
+		for (int i = 0; i < BoardTables.DIRECTIONS; i++) {
+			int direction = DIRECTION_ORDER[(firstDirection + i) % BoardTables.DIRECTIONS];
+			int end = BoardTables.SLIDE[direction][spot];
+			if (end >= 0
+					&& getBoard().isValidSlide(myTeam, spot >>> 3, spot & 7, end >>> 3, end & 7)) {
+				move = new Move();
+				move.add(spot >>> 3, spot & 7);
+				move.add(end >>> 3, end & 7);
+			}
+		}
+		return move;
+	}
+
+	/**
+	 * Try to slide from a group of spots onto another, a direction at a time in INWARD_ORDER and
+	 * spot by spot within a direction, keeping the last slide found.
+	 *
+	 * @param starts mask of the spots to slide from
+	 * @param ends mask of the spots the slide may end on
+	 * @param move the move to return if no slide is found
+	 * @return the last slide found, or move if there is none
+	 */
+	private Move slideInward(long starts, long ends, Move move) {
+		for (int direction : INWARD_ORDER) {
+			for (long from = starts; from != 0; from &= from - 1) {
+				int spot = Long.numberOfTrailingZeros(from);
+				int end = BoardTables.SLIDE[direction][spot];
+				if (end >= 0 && (ends & (1L << end)) != 0 && getBoard().isValidSlide(myTeam,
+						spot >>> 3, spot & 7, end >>> 3, end & 7)) {
+					move = new Move();
+					move.add(spot >>> 3, spot & 7);
+					move.add(end >>> 3, end & 7);
+				}
+			}
+		}
+		return move;
+	}
+
 	public String toString() {
 		return "Easy Computer";
 	}
@@ -34,19 +34,27 @@ import com.mikegoodspeed.supercheckers.ui.GameBoardFrm;
  */
 public class HumanPlayer extends Player {
 
+	private GameBoardFrm window = null;
+
 	/**
 	 * @param window
 	 * @param board
 	 * @param team
 	 */
 	public HumanPlayer(GameBoardFrm window, Board board, Team team) {
-		super(window, board, team);
+		super(board, team);
+		this.window = window;
 	}
 
 	public Move getMove() {
-		getWindow().waitForInput();
-		Move move = getWindow().getMove();
-		return move;
+		return getWindow().waitForInput();
+	}
+
+	/**
+	 * @return the window
+	 */
+	protected GameBoardFrm getWindow() {
+		return window;
 	}
 
 	public String toString() {
@@ -0,0 +1,111 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.players;
+
+import java.util.SplittableRandom;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.Move;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+import com.mikegoodspeed.supercheckers.search.MonteCarloSearcher;
+
+/**
+ * Computer player that chooses its move by Monte Carlo tree search, within a time or playout
+ * budget for each move.  It needs no evaluation function, and plays stronger with more threads.
+ * Positions in the endgame tablebase are played from it without searching.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class MonteCarloPlayer extends Player {
+
+	/**
+	 * Default time budget for each move in milliseconds.
+	 */
+	public static final long MOVE_TIME = 1000;
+
+	private MonteCarloSearcher searcher = null;
+	private long moveTime = MOVE_TIME;
+	private long maxPlayouts = 0;
+
+	/**
+	 * Constructor for a single threaded player with the default time budget.
+	 *
+	 * @param board
+	 * @param team
+	 */
+	public MonteCarloPlayer(Board board, Team team) {
+		this(board, team, MOVE_TIME, 0, 1, new SplittableRandom());
+	}
+
+	/**
+	 * Constructor for a player with a given budget.  With a playout budget and a seeded
+	 * generator, the player's moves can be reproduced.
+	 *
+	 * @param board
+	 * @param team
+	 * @param moveTime time budget for each move in milliseconds, or 0 for no limit
+	 * @param maxPlayouts playout budget for each move, or 0 for no limit
+	 * @param threads number of search threads
+	 * @param random source of the random playouts
+	 */
+	public MonteCarloPlayer(Board board, Team team, long moveTime, long maxPlayouts, int threads,
+			SplittableRandom random) {
+		super(board, team);
+		this.moveTime = moveTime;
+		this.maxPlayouts = maxPlayouts;
+		searcher = new MonteCarloSearcher(threads, MonteCarloSearcher.TREE_CAPACITY, random);
+	}
+
+	public Move getMove() {
+		Move move = getTablebaseMove();
+		if (move != null) {
+			return move;
+		}
+		return searcher.search(getBoard(), getTeam(), moveTime, maxPlayouts);
+	}
+
+	/**
+	 * @return the deepest tree node reached for the last move
+	 */
+	public int getDepth() {
+		return searcher.getDepth();
+	}
+
+	/**
+	 * @return the number of playouts run for the last move
+	 */
+	public long getPlayouts() {
+		return searcher.getPlayouts();
+	}
+
+	/**
+	 * @return the expected result of the last move, from 0 for a loss to 1 for a win
+	 */
+	public double getWinRate() {
+		return searcher.getWinRate();
+	}
+
+	public String toString() {
+		return "Monte Carlo";
+	}
+}
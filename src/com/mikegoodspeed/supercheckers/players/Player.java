@@ -21,10 +21,15 @@ package com.mikegoodspeed.supercheckers.players;
 import com.mikegoodspeed.supercheckers.datastructures.Board;
 import com.mikegoodspeed.supercheckers.datastructures.Move;
 import com.mikegoodspeed.supercheckers.datastructures.Team;
-import com.mikegoodspeed.supercheckers.ui.GameBoardFrm;
+import com.mikegoodspeed.supercheckers.tablebase.Tablebase;
 
 /**
- * Abstract Player Class, to be used as the superclass for actual players.
+ * Abstract Player Class, to be used as the superclass for actual players.  Players only need a
+ * board and a team, so computer players can run without a window.
+ * <p>
+ * Every player can look up endgame positions in a tablebase given with
+ * {@link #setTablebase(Tablebase)}.  Players have none by default, so their moves never depend on
+ * which files can be found from the working directory.
  * <p>
  * project Supercheckers <br />
  * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
@@ -34,17 +39,15 @@ import com.mikegoodspeed.supercheckers.ui.GameBoardFrm;
  */
 public abstract class Player {
 
-	private GameBoardFrm window = null;
 	private Board board = null;
 	private Team team = null;
+	private Tablebase tablebase = null;
 
 	/**
-	 * @param window
 	 * @param board
 	 * @param team
 	 */
-	public Player(GameBoardFrm window, Board board, Team team) {
-		this.window = window;
+	public Player(Board board, Team team) {
 		this.board = board;
 		this.team = team;
 	}
@@ -63,19 +66,29 @@ public abstract class Player {
 	 */
 	public abstract Move getMove();
 
+	/**
+	 * Look up the current position in the endgame tablebase.
+	 *
+	 * @return the move with the best result, or null if there is no tablebase or the position is
+	 *         not in it
+	 */
+	protected Move getTablebaseMove() {
+		return tablebase == null ? null : tablebase.getMove(board, team);
+	}
+
 	/**
 	 * @return the team
 	 */
 	public Team getTeam() {
 		return team;
 	}
-	
-	public abstract String toString();
 
 	/**
-	 * @return the window
+	 * @param tablebase the endgame tablebase to play from, or null to play without one
 	 */
-	protected GameBoardFrm getWindow() {
-		return window;
+	public void setTablebase(Tablebase tablebase) {
+		this.tablebase = tablebase;
 	}
+
+	public abstract String toString();
 }
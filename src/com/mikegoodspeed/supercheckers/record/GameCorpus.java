@@ -0,0 +1,249 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.record;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A read-only store of game records on disk, for reaching any game by its id without reading
+ * the games before it.
+ * <p>
+ * A corpus is a directory of segments.  Each segment is a stream of records as written by
+ * {@link GameRecordWriter}, named <code>games-NNNNN.scgr</code>, with an index named
+ * <code>games-NNNNN.idx</code> holding the offset of each record in the segment as a big-endian
+ * long.  Game ids count on from one segment to the next.  Both files of every segment are mapped
+ * into memory, so looking up a game is a search over the segments and a single index read, and a
+ * record refers to its moves in the mapped file without copying them.
+ * <p>
+ * Segments are appended to by {@link GameCorpusWriter}.  Index entries whose record is not yet
+ * completely on disk are left out, so a corpus can be opened while it is being written.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class GameCorpus implements Closeable {
+
+	private static final String PREFIX = "games-";
+	private static final String DATA_SUFFIX = ".scgr";
+	private static final String INDEX_SUFFIX = ".idx";
+	private static final int INDEX_BYTES = 8;
+
+	/**
+	 * Open a corpus.
+	 *
+	 * @param directory the directory of the corpus
+	 * @return the corpus, which is empty if the directory holds no segments
+	 * @throws IOException if a segment cannot be read or is not a stream of game records
+	 */
+	public static GameCorpus open(File directory) throws IOException {
+		int segmentCount = getSegmentCount(directory);
+		GameCorpus corpus = new GameCorpus(segmentCount);
+		for (int i = 0; i < segmentCount; i++) {
+			corpus.map(i, getDataFile(directory, i), getIndexFile(directory, i));
+		}
+		return corpus;
+	}
+
+	/**
+	 * @param directory
+	 * @param segment
+	 * @return the file holding a segment's records
+	 */
+	static File getDataFile(File directory, int segment) {
+		return new File(directory, String.format("%s%05d%s", PREFIX, segment, DATA_SUFFIX));
+	}
+
+	/**
+	 * @param directory
+	 * @param segment
+	 * @return the file holding a segment's index
+	 */
+	static File getIndexFile(File directory, int segment) {
+		return new File(directory, String.format("%s%05d%s", PREFIX, segment, INDEX_SUFFIX));
+	}
+
+	/**
+	 * @param directory
+	 * @return the number of segments, numbered from 0 without gaps
+	 */
+	static int getSegmentCount(File directory) {
+		int count = 0;
+		while (getDataFile(directory, count).isFile()) {
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Find the end of a record.
+	 *
+	 * @param data the segment
+	 * @param offset the offset of the record's length
+	 * @return the offset after the record, or -1 if the record is not complete
+	 * @throws IOException
+	 */
+	static long getRecordEnd(FileChannel data, long offset) throws IOException {
+		ByteBuffer bytes = ByteBuffer.allocate(5);
+		while (bytes.hasRemaining() && data.read(bytes, offset + bytes.position()) > 0) {
+			continue;
+		}
+		bytes.flip();
+		try {
+			int length = GameRecord.readVarInt(bytes);
+			long end = offset + bytes.position() + length;
+			return end <= data.size() ? end : -1;
+		} catch (RuntimeException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Count the complete records of a segment.
+	 *
+	 * @param data the segment
+	 * @param index the segment's index
+	 * @return the number of index entries whose record is complete
+	 * @throws IOException
+	 */
+	static int getRecordCount(FileChannel data, FileChannel index) throws IOException {
+		int count = (int) Math.min(index.size() / INDEX_BYTES, Integer.MAX_VALUE);
+		ByteBuffer entry = ByteBuffer.allocate(INDEX_BYTES);
+		while (count > 0) {
+			entry.clear();
+			index.read(entry, (long) (count - 1) * INDEX_BYTES);
+			if (getRecordEnd(data, entry.getLong(0)) >= 0) {
+				break;
+			}
+			count--;
+		}
+		return count;
+	}
+
+	private MappedByteBuffer[] segments = null;
+	private LongBuffer[] indexes = null;
+	private long[] firstIds = null;
+	private long size = 0;
+
+	private GameCorpus(int segmentCount) {
+		segments = new MappedByteBuffer[segmentCount];
+		indexes = new LongBuffer[segmentCount];
+		firstIds = new long[segmentCount + 1];
+	}
+
+	/**
+	 * Map a segment.  Segments must be mapped in order.
+	 */
+	private void map(int segment, File dataFile, File indexFile) throws IOException {
+		RandomAccessFile data = new RandomAccessFile(dataFile, "r");
+		try {
+			RandomAccessFile index = new RandomAccessFile(indexFile, "r");
+			try {
+				FileChannel dataChannel = data.getChannel();
+				FileChannel indexChannel = index.getChannel();
+				if (dataChannel.size() > Integer.MAX_VALUE) {
+					throw new IOException("Segment too large: " + dataFile);
+				}
+				int count = getRecordCount(dataChannel, indexChannel);
+				segments[segment] = dataChannel.map(FileChannel.MapMode.READ_ONLY, 0,
+					dataChannel.size());
+				indexes[segment] = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0,
+					(long) count * INDEX_BYTES).asLongBuffer();
+				if (segments[segment].limit() < GameRecordWriter.HEADER_BYTES
+						|| segments[segment].getInt(0) != GameRecordWriter.MAGIC
+						|| segments[segment].getInt(4) != GameRecordWriter.VERSION) {
+					throw new IOException("Not a game record segment: " + dataFile);
+				}
+				firstIds[segment + 1] = firstIds[segment] + count;
+				size = firstIds[segment + 1];
+			} finally {
+				index.close();
+			}
+		} finally {
+			data.close();
+		}
+	}
+
+	/**
+	 * Drop the mapped segments.  The memory is released once no record refers to it.
+	 */
+	public void close() {
+		segments = new MappedByteBuffer[0];
+		indexes = new LongBuffer[0];
+		firstIds = new long[1];
+		size = 0;
+	}
+
+	/**
+	 * Get a game.
+	 *
+	 * @param id the id of the game, from 0 to size() - 1
+	 * @return the record, referring to the moves in the mapped segment
+	 * @throws IndexOutOfBoundsException if there is no game with the id
+	 * @throws IllegalArgumentException if the record is damaged
+	 */
+	public GameRecord get(long id) throws IndexOutOfBoundsException, IllegalArgumentException {
+		if (id < 0 || id >= size) {
+			throw new IndexOutOfBoundsException("No game " + id + " of " + size);
+		}
+		int segment = Arrays.binarySearch(firstIds, id);
+		if (segment < 0) {
+			segment = -segment - 2;
+		} else {
+			while (firstIds[segment + 1] == id) {
+				segment++; // skip empty segments
+			}
+		}
+		ByteBuffer in = segments[segment].duplicate();
+		in.position((int) indexes[segment].get((int) (id - firstIds[segment])));
+		int length = GameRecord.readVarInt(in);
+		in.limit(in.position() + length);
+		return GameRecord.read(in);
+	}
+
+	/**
+	 * @return the ids of the first game of each segment, followed by the number of games
+	 */
+	public List<Long> getSegmentStarts() {
+		List<Long> starts = new ArrayList<Long>();
+		for (long firstId : firstIds) {
+			starts.add(firstId);
+		}
+		return starts;
+	}
+
+	/**
+	 * @return the number of games
+	 */
+	public long size() {
+		return size;
+	}
+}
@@ -0,0 +1,201 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.record;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Appends game records to a {@link GameCorpus}.  A new segment is started when the current one
+ * passes a size limit, which keeps every segment small enough to map.
+ * <p>
+ * Records are written before their index entries.  When a corpus is opened for appending, index
+ * entries and records that were not completely written are removed, so a writer that stopped
+ * part way through leaves a usable corpus.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class GameCorpusWriter implements Closeable, Flushable {
+
+	/**
+	 * Default and largest size in bytes after which a new segment is started.  Segments are
+	 * mapped, so they must stay under 2 GB with the record that passes the limit.
+	 */
+	public static final long SEGMENT_BYTES = 1L << 30;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private File directory = null;
+	private long segmentBytes = SEGMENT_BYTES;
+	private int segment = 0;
+	private long firstId = 0;
+	private int count = 0;
+	private GameRecordWriter data = null;
+	private DataOutputStream index = null;
+
+	/**
+	 * Open a corpus for appending, creating it if needed.
+	 *
+	 * @param directory the directory of the corpus
+	 * @throws IOException if the corpus cannot be opened
+	 */
+	public GameCorpusWriter(File directory) throws IOException {
+		this(directory, SEGMENT_BYTES);
+	}
+
+	/**
+	 * Open a corpus for appending, creating it if needed.
+	 *
+	 * @param directory the directory of the corpus
+	 * @param segmentBytes size in bytes after which a new segment is started, at most
+	 *        SEGMENT_BYTES
+	 * @throws IOException if the corpus cannot be opened
+	 * @throws IllegalArgumentException if segments of the size could not be mapped
+	 */
+	public GameCorpusWriter(File directory, long segmentBytes) throws IOException,
+			IllegalArgumentException {
+		if (segmentBytes <= 0 || segmentBytes > SEGMENT_BYTES) {
+			throw new IllegalArgumentException("Bad segment size " + segmentBytes);
+		}
+		this.directory = directory;
+		this.segmentBytes = segmentBytes;
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create " + directory);
+		}
+		int segmentCount = GameCorpus.getSegmentCount(directory);
+		segment = Math.max(0, segmentCount - 1);
+		for (int i = 0; i < segment; i++) {
+			firstId += recover(i);
+		}
+		count = segmentCount == 0 ? 0 : recover(segment);
+		start();
+	}
+
+	/**
+	 * Remove the index entries and records of a segment that were not completely written.
+	 *
+	 * @param segment
+	 * @return the number of complete records
+	 * @throws IOException if the segment is not a stream of game records
+	 */
+	private int recover(int segment) throws IOException {
+		File dataFile = GameCorpus.getDataFile(directory, segment);
+		RandomAccessFile data = new RandomAccessFile(dataFile, "rw");
+		RandomAccessFile index = null;
+		try {
+			index = new RandomAccessFile(GameCorpus.getIndexFile(directory, segment), "rw");
+			FileChannel dataChannel = data.getChannel();
+			FileChannel indexChannel = index.getChannel();
+			if (dataChannel.size() < GameRecordWriter.HEADER_BYTES) {
+				// Not even the header was written
+				dataChannel.truncate(0);
+				indexChannel.truncate(0);
+				return 0;
+			}
+			if (data.readInt() != GameRecordWriter.MAGIC
+					|| data.readInt() != GameRecordWriter.VERSION) {
+				throw new IOException("Not a game record segment: " + dataFile);
+			}
+			int count = GameCorpus.getRecordCount(dataChannel, indexChannel);
+			long end = GameRecordWriter.HEADER_BYTES;
+			if (count > 0) {
+				ByteBuffer entry = ByteBuffer.allocate(8);
+				indexChannel.read(entry, (count - 1) * 8L);
+				end = GameCorpus.getRecordEnd(dataChannel, entry.getLong(0));
+			}
+			indexChannel.truncate(count * 8L);
+			dataChannel.truncate(end);
+			return count;
+		} finally {
+			if (index != null) {
+				index.close();
+			}
+			data.close();
+		}
+	}
+
+	/**
+	 * Open the current segment for appending.
+	 */
+	private void start() throws IOException {
+		File dataFile = GameCorpus.getDataFile(directory, segment);
+		data = new GameRecordWriter(new FileOutputStream(dataFile, true), dataFile.length());
+		index = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(
+			GameCorpus.getIndexFile(directory, segment), true), BUFFER_SIZE));
+	}
+
+	/**
+	 * Append a game.
+	 *
+	 * @param record
+	 * @return the id of the game
+	 * @throws IOException
+	 */
+	public long append(GameRecord record) throws IOException {
+		if (count > 0 && data.getBytes() >= segmentBytes) {
+			close();
+			firstId += count;
+			count = 0;
+			segment++;
+			start();
+		}
+		index.writeLong(data.write(record));
+		count++;
+		return firstId + count - 1;
+	}
+
+	/**
+	 * Write the buffered games and close the files.
+	 *
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		data.close();
+		index.close();
+	}
+
+	/**
+	 * Write the buffered games, records before index entries.
+	 *
+	 * @throws IOException
+	 */
+	public void flush() throws IOException {
+		data.flush();
+		index.flush();
+	}
+
+	/**
+	 * @return the number of games in the corpus, including buffered ones
+	 */
+	public long size() {
+		return firstId + count;
+	}
+}
@@ -0,0 +1,373 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.record;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.ChainBuffer;
+import com.mikegoodspeed.supercheckers.datastructures.Move;
+import com.mikegoodspeed.supercheckers.datastructures.PackedMove;
+import com.mikegoodspeed.supercheckers.datastructures.Players;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+import com.mikegoodspeed.supercheckers.main.GameListener;
+import com.mikegoodspeed.supercheckers.main.GameSession;
+import com.mikegoodspeed.supercheckers.players.Player;
+
+/**
+ * A stored game: the names of both players, the seed the game was played from, the result and
+ * the moves, played from a new board.
+ * <p>
+ * Records are stored as a header followed by the moves.  Numbers are unsigned varints (7 bits a
+ * byte, low bits first, the top bit set on all but the last byte), and the seed is zigzag encoded
+ * first.  Each move is its number of spots, its first spot (<code>row * 8 + col</code>), and the
+ * zigzag encoded difference of each further spot from the one before, so nearly every move takes
+ * one byte a spot.
+ * <pre>
+ * | seed | result | plies | player 1 | player 2 | moves |
+ * </pre>
+ * Names are a length and UTF-8 bytes, and the result is 0 for an unfinished game, 1 if X won,
+ * 2 if O won and 3 for a draw.  A record read back refers to the bytes it was read from, so
+ * records of a mapped file are never copied.
+ * <p>
+ * A record can be filled in by following a session as its listener.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class GameRecord implements GameListener {
+
+	private static final Team[] RESULTS = { null, Team.X, Team.O, Team.NOBODY };
+
+	/**
+	 * Read a record.
+	 *
+	 * @param in the bytes of the record, from its position to its limit
+	 * @return the record, referring to the moves in the given buffer
+	 * @throws IllegalArgumentException if the bytes are not a valid record
+	 */
+	public static GameRecord read(ByteBuffer in) throws IllegalArgumentException {
+		try {
+			long seed = readVarLong(in);
+			seed = (seed >>> 1) ^ -(seed & 1);
+			int result = readVarInt(in);
+			if (result >= RESULTS.length) {
+				throw new IllegalArgumentException("Bad result " + result);
+			}
+			int plies = readVarInt(in);
+			String player1 = readString(in);
+			String player2 = readString(in);
+			GameRecord record = new GameRecord(player1, player2, seed);
+			record.result = RESULTS[result];
+			record.plies = plies;
+			record.moves = in.slice();
+			return record;
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("Bad game record", e);
+		}
+	}
+
+	private static String readString(ByteBuffer in) {
+		byte[] bytes = new byte[readVarInt(in)];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Read an unsigned varint.
+	 *
+	 * @param in
+	 * @return the number
+	 * @throws IllegalArgumentException if it is longer than an int
+	 */
+	public static int readVarInt(ByteBuffer in) throws IllegalArgumentException {
+		long value = readVarLong(in);
+		if (value >>> 32 != 0) {
+			throw new IllegalArgumentException("Varint too long");
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Read an unsigned varint.
+	 *
+	 * @param in
+	 * @return the number
+	 * @throws IllegalArgumentException if it is longer than a long
+	 */
+	public static long readVarLong(ByteBuffer in) throws IllegalArgumentException {
+		long value = 0;
+		for (int shift = 0;; shift += 7) {
+			if (shift > 63) {
+				throw new IllegalArgumentException("Varint too long");
+			}
+			byte b = in.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+	}
+
+	private String player1 = null;
+	private String player2 = null;
+	private long seed = 0;
+	private Team result = null;
+	private int plies = 0;
+	private ByteBuffer moves = null;
+	private byte[] buffer = null;
+	private int size = 0;
+
+	/**
+	 * Create a record of a game with no moves yet.
+	 *
+	 * @param player1 the name of the player who moves first
+	 * @param player2 the name of the other player
+	 * @param seed the seed of the game's random choices
+	 */
+	public GameRecord(String player1, String player2, long seed) {
+		this.player1 = player1;
+		this.player2 = player2;
+		this.seed = seed;
+	}
+
+	/**
+	 * Add a move.
+	 *
+	 * @param move
+	 */
+	public void addMove(Move move) {
+		reserve(2 * move.size() + 2);
+		size = writeVarLong(buffer, size, move.size());
+		int last = 0;
+		for (int i = 0; i < move.size(); i++) {
+			int spot = (move.getRow(i) << 3) | move.getCol(i);
+			size = writeSpot(buffer, size, i, spot, last);
+			last = spot;
+		}
+		plies++;
+	}
+
+	/**
+	 * Add a packed move.
+	 *
+	 * @param move the packed move
+	 * @param chains buffer holding the move if it is chained
+	 */
+	public void addMove(long move, ChainBuffer chains) {
+		int length = PackedMove.length(move);
+		reserve(2 * length + 2);
+		size = writeVarLong(buffer, size, length);
+		int last = 0;
+		for (int i = 0; i < length; i++) {
+			int spot = PackedMove.getSpot(move, i, chains);
+			size = writeSpot(buffer, size, i, spot, last);
+			last = spot;
+		}
+		plies++;
+	}
+
+	private static int writeSpot(byte[] buffer, int offset, int index, int spot, int last) {
+		if (index == 0) {
+			return writeVarLong(buffer, offset, spot);
+		}
+		int delta = spot - last;
+		return writeVarLong(buffer, offset, (delta << 1) ^ (delta >> 31));
+	}
+
+	/**
+	 * Make room for moves added by the recording side.  Read records are copied first.
+	 */
+	private void reserve(int bytes) {
+		if (buffer == null) {
+			int length = moves == null ? 0 : moves.remaining();
+			buffer = new byte[Math.max(64, 2 * (length + bytes))];
+			if (moves != null) {
+				moves.duplicate().get(buffer, 0, length);
+			}
+			size = length;
+			moves = null;
+		} else if (size + bytes > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(2 * buffer.length, size + bytes));
+		}
+	}
+
+	/**
+	 * @return the encoded moves, as a read-only buffer from position 0
+	 */
+	public ByteBuffer getMoves() {
+		if (moves != null) {
+			return moves.asReadOnlyBuffer();
+		}
+		return ByteBuffer.wrap(buffer == null ? new byte[0] : buffer, 0, size).slice()
+			.asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return the name of the player who moves first
+	 */
+	public String getPlayer1() {
+		return player1;
+	}
+
+	/**
+	 * @return the name of the other player
+	 */
+	public String getPlayer2() {
+		return player2;
+	}
+
+	/**
+	 * @return the number of moves
+	 */
+	public int getPlies() {
+		return plies;
+	}
+
+	/**
+	 * @return the winning team, Team.NOBODY for a draw, or null for an unfinished game
+	 */
+	public Team getResult() {
+		return result;
+	}
+
+	/**
+	 * @return the seed of the game's random choices
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Replay all the moves on a board, without creating any Move objects.
+	 *
+	 * @param board a new board
+	 * @param listener told about each move, or null for none
+	 * @throws IllegalArgumentException if the moves cannot be decoded
+	 */
+	public void replay(Board board, ReplayListener listener) throws IllegalArgumentException {
+		replay(board, plies, listener);
+	}
+
+	/**
+	 * Replay the first moves on a board, without creating any Move objects.
+	 *
+	 * @param board a new board
+	 * @param plies the number of moves to make, at most the number in the record
+	 * @param listener told about each move, or null for none
+	 * @throws IllegalArgumentException if the moves cannot be decoded
+	 */
+	public void replay(Board board, int plies, ReplayListener listener)
+			throws IllegalArgumentException {
+		ByteBuffer in = getMoves();
+		int[] spots = new int[PackedMove.MAX_INLINE];
+		ChainBuffer chains = new ChainBuffer();
+		try {
+			for (int ply = 1; ply <= plies; ply++) {
+				int length = readVarInt(in);
+				if (length > spots.length) {
+					spots = new int[Math.max(length, 2 * spots.length)];
+				}
+				int spot = 0;
+				for (int i = 0; i < length; i++) {
+					int value = readVarInt(in);
+					spot = i == 0 ? value : spot + ((value >>> 1) ^ -(value & 1));
+					spots[i] = spot;
+				}
+				chains.clear();
+				long move = PackedMove.pack(spots, length, chains);
+				board.doMove(board.getTurn(), move, chains);
+				if (listener != null) {
+					listener.moveReplayed(board, ply, move, chains);
+				}
+			}
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("Bad moves in game record", e);
+		}
+	}
+
+	/**
+	 * @param result the winning team, Team.NOBODY for a draw, or null for an unfinished game
+	 */
+	public void setResult(Team result) {
+		this.result = result;
+	}
+
+	/**
+	 * Write the record.
+	 *
+	 * @return the encoded record
+	 */
+	public byte[] toBytes() {
+		byte[] name1 = player1.getBytes(StandardCharsets.UTF_8);
+		byte[] name2 = player2.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer moves = getMoves();
+		byte[] out = new byte[4 * 10 + name1.length + name2.length + moves.remaining()];
+		int offset = writeVarLong(out, 0, (seed << 1) ^ (seed >> 63));
+		offset = writeVarLong(out, offset, Arrays.asList(RESULTS).indexOf(result));
+		offset = writeVarLong(out, offset, plies);
+		offset = writeVarLong(out, offset, name1.length);
+		System.arraycopy(name1, 0, out, offset, name1.length);
+		offset = writeVarLong(out, offset + name1.length, name2.length);
+		System.arraycopy(name2, 0, out, offset, name2.length);
+		offset += name2.length;
+		int length = moves.remaining();
+		moves.get(out, offset, length);
+		return Arrays.copyOf(out, offset + length);
+	}
+
+	/**
+	 * Write an unsigned varint.
+	 *
+	 * @param out
+	 * @param offset where to write
+	 * @param value
+	 * @return the offset after the varint
+	 */
+	public static int writeVarLong(byte[] out, int offset, long value) {
+		while ((value & ~0x7FL) != 0) {
+			out[offset++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out[offset++] = (byte) value;
+		return offset;
+	}
+
+	public void turnStarted(GameSession session, Player player) {}
+
+	public void movePlayed(GameSession session, Player player, Move move) {
+		addMove(move);
+	}
+
+	public void gameOver(GameSession session, Players winner) {
+		setResult(session.getResult());
+	}
+
+	@Override
+	public String toString() {
+		return player1 + " vs " + player2 + ", seed " + seed + ", " + plies + " plies, "
+			+ (result == null ? "unfinished" : Team.NOBODY.equals(result) ? "draw"
+				: result.get() + " won");
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.record;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads game records from a stream written by {@link GameRecordWriter}, one at a time.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class GameRecordReader implements Closeable {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private DataInputStream in = null;
+	private long count = 0;
+
+	/**
+	 * Create a reader and check the header.
+	 *
+	 * @param in the stream to read from, closed when the reader is closed
+	 * @throws IOException if the stream does not start with a header
+	 */
+	public GameRecordReader(InputStream in) throws IOException {
+		this.in = new DataInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+		try {
+			if (this.in.readInt() != GameRecordWriter.MAGIC) {
+				throw new IOException("Not a game record stream");
+			}
+			int version = this.in.readInt();
+			if (version != GameRecordWriter.VERSION) {
+				throw new IOException("Unsupported game record version " + version);
+			}
+		} catch (EOFException e) {
+			throw new IOException("Not a game record stream", e);
+		}
+	}
+
+	/**
+	 * Close the stream.
+	 *
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * @return the number of records read
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Read the next record.
+	 *
+	 * @return the record, or null at the end of the stream
+	 * @throws IOException if the stream cannot be read or ends inside a record
+	 */
+	public GameRecord next() throws IOException {
+		int first = in.read();
+		if (first < 0) {
+			return null;
+		}
+		int length = first & 0x7F;
+		for (int shift = 7; first >= 0x80; shift += 7) {
+			first = in.read();
+			if (first < 0 || shift > 28) {
+				throw new IOException("Bad game record length");
+			}
+			length |= (first & 0x7F) << shift;
+		}
+		byte[] body = new byte[length];
+		in.readFully(body);
+		count++;
+		try {
+			return GameRecord.read(ByteBuffer.wrap(body));
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Bad game record " + (count - 1), e);
+		}
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.record;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes game records to a stream, buffering them so the stream sees few large writes.
+ * <p>
+ * A stream starts with a header, the magic number {@link #MAGIC} and the format
+ * {@link #VERSION} as big-endian ints.  Each record follows as its length in bytes, as a varint,
+ * and then the record as written by {@link GameRecord#toBytes()}.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class GameRecordWriter implements Closeable, Flushable {
+
+	/**
+	 * "SCGR", the first four bytes of a stream of game records.
+	 */
+	public static final int MAGIC = 0x53434752;
+	/**
+	 * Version of the format.
+	 */
+	public static final int VERSION = 1;
+	/**
+	 * Size of the header in bytes.
+	 */
+	public static final int HEADER_BYTES = 8;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private OutputStream out = null;
+	private byte[] buffer = new byte[BUFFER_SIZE];
+	private int size = 0;
+	private long count = 0;
+	private long bytes = 0;
+
+	/**
+	 * Create a writer and write the header.
+	 *
+	 * @param out the stream to write to, closed when the writer is closed
+	 * @throws IOException if the header cannot be written
+	 */
+	public GameRecordWriter(OutputStream out) throws IOException {
+		this(out, 0);
+	}
+
+	/**
+	 * Create a writer.
+	 *
+	 * @param out the stream to write to, closed when the writer is closed
+	 * @param bytes the number of bytes already in the stream, or 0 to write the header
+	 * @throws IOException if the header cannot be written
+	 */
+	public GameRecordWriter(OutputStream out, long bytes) throws IOException {
+		this.out = out;
+		this.bytes = bytes;
+		if (bytes == 0) {
+			for (int shift = 24; shift >= 0; shift -= 8) {
+				buffer[size++] = (byte) (MAGIC >>> shift);
+			}
+			for (int shift = 24; shift >= 0; shift -= 8) {
+				buffer[size++] = (byte) (VERSION >>> shift);
+			}
+			this.bytes = HEADER_BYTES;
+		}
+	}
+
+	/**
+	 * Write the buffered records and close the stream.
+	 *
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		flush();
+		out.close();
+	}
+
+	/**
+	 * Write the buffered records to the stream.
+	 *
+	 * @throws IOException
+	 */
+	public void flush() throws IOException {
+		out.write(buffer, 0, size);
+		size = 0;
+		out.flush();
+	}
+
+	/**
+	 * @return the number of bytes written, including the header and buffered records
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return the number of records written
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Write a record.
+	 *
+	 * @param record
+	 * @return the offset of the record's length from the start of the stream
+	 * @throws IOException
+	 */
+	public long write(GameRecord record) throws IOException {
+		byte[] body = record.toBytes();
+		if (size + 5 + body.length > buffer.length) {
+			out.write(buffer, 0, size);
+			size = 0;
+		}
+		long offset = bytes;
+		int start = size;
+		size = GameRecord.writeVarLong(buffer, size, body.length);
+		bytes += size - start + body.length;
+		if (size + body.length > buffer.length) {
+			// Too big to buffer
+			out.write(buffer, 0, size);
+			out.write(body);
+			size = 0;
+		} else {
+			System.arraycopy(body, 0, buffer, size, body.length);
+			size += body.length;
+		}
+		count++;
+		return offset;
+	}
+}
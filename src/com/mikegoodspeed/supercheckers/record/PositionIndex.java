@@ -0,0 +1,293 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.record;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+
+/**
+ * A read-only index from positions to the games of a {@link GameCorpus} that reached them.
+ * <p>
+ * A position is looked up by its {@link Board#hash() key}, and found as a list of postings,
+ * each the id of a game and the ply after which the game stood in the position.  The starting
+ * position is not indexed, since every game begins there.  A game that comes back to a position
+ * has a posting for every visit.
+ * <p>
+ * The index is a directory of shards, named <code>positions-NNN.scpi</code>, and a key is kept
+ * in the shard numbered by its top bits.  Each shard starts with the magic number, the version
+ * and the number of keys, followed by a table of the keys in ascending order, each with the
+ * offset of its postings after the table.  The postings of a key are a varint count, then for
+ * each posting in order the varint difference to the previous game id and the varint ply.  The
+ * shards are mapped into memory, so a lookup is a binary search of one key table and a read of
+ * one posting list.
+ * <p>
+ * Indexes are built by {@link PositionIndexBuilder}.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class PositionIndex implements Closeable {
+
+	/**
+	 * Magic number at the start of each shard, "SCPI".
+	 */
+	public static final int MAGIC = 0x53435049;
+
+	/**
+	 * Version of the shard format.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * The number of bytes before the key table of a shard.
+	 */
+	static final int HEADER_BYTES = 16;
+
+	/**
+	 * The number of bytes of each entry of the key table, the key and the offset of its postings.
+	 */
+	static final int ENTRY_BYTES = 16;
+
+	/**
+	 * The number of low bits of a posting holding the ply.
+	 */
+	public static final int PLY_BITS = 16;
+
+	/**
+	 * The highest ply that can be indexed.
+	 */
+	public static final int MAX_PLY = (1 << PLY_BITS) - 1;
+
+	private static final String PREFIX = "positions-";
+	private static final String SUFFIX = ".scpi";
+	private static final long[] NO_POSTINGS = new long[0];
+
+	/**
+	 * Open an index.
+	 *
+	 * @param directory the directory of the index
+	 * @return the index
+	 * @throws IOException if there are no shards, their number is not a power of two, or a shard
+	 *             cannot be read
+	 */
+	public static PositionIndex open(File directory) throws IOException {
+		int shardCount = getShardCount(directory);
+		if (Integer.bitCount(shardCount) != 1) {
+			throw new IOException("Not a position index: " + directory);
+		}
+		PositionIndex index = new PositionIndex(shardCount);
+		for (int i = 0; i < shardCount; i++) {
+			index.map(i, getShardFile(directory, i));
+		}
+		return index;
+	}
+
+	/**
+	 * @param directory
+	 * @param shard
+	 * @return the file holding a shard
+	 */
+	static File getShardFile(File directory, int shard) {
+		return new File(directory, String.format("%s%03d%s", PREFIX, shard, SUFFIX));
+	}
+
+	/**
+	 * @param directory
+	 * @return the number of shards, numbered from 0 without gaps
+	 */
+	static int getShardCount(File directory) {
+		int count = 0;
+		while (getShardFile(directory, count).isFile()) {
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * @param key a position key
+	 * @param shardBits the number of bits numbering the shards
+	 * @return the shard holding the key
+	 */
+	static int getShard(long key, int shardBits) {
+		return shardBits == 0 ? 0 : (int) (key >>> (Long.SIZE - shardBits));
+	}
+
+	/**
+	 * @param gameId
+	 * @param ply
+	 * @return the posting of a game reaching a position after the ply
+	 */
+	public static long getPosting(long gameId, int ply) {
+		return (gameId << PLY_BITS) | ply;
+	}
+
+	/**
+	 * @param posting
+	 * @return the id of the posting's game
+	 */
+	public static long getGameId(long posting) {
+		return posting >>> PLY_BITS;
+	}
+
+	/**
+	 * @param posting
+	 * @return the ply after which the posting's game reached the position
+	 */
+	public static int getPly(long posting) {
+		return (int) (posting & MAX_PLY);
+	}
+
+	private MappedByteBuffer[] shards = null;
+	private int shardBits = 0;
+	private long keyCount = 0;
+
+	private PositionIndex(int shardCount) {
+		shards = new MappedByteBuffer[shardCount];
+		shardBits = Integer.numberOfTrailingZeros(shardCount);
+	}
+
+	/**
+	 * Map a shard.
+	 */
+	private void map(int shard, File file) throws IOException {
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = in.getChannel();
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Shard too large: " + file);
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC
+					|| buffer.getInt(4) != VERSION
+					|| buffer.getLong(8) > (buffer.limit() - HEADER_BYTES) / ENTRY_BYTES) {
+				throw new IOException("Not a position index shard: " + file);
+			}
+			shards[shard] = buffer;
+			keyCount += buffer.getLong(8);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Drop the mapped shards.  The memory is released once the buffers are collected.
+	 */
+	public void close() {
+		shards = new MappedByteBuffer[1];
+		shardBits = 0;
+		keyCount = 0;
+	}
+
+	/**
+	 * Count the visits to a position without reading them.
+	 *
+	 * @param key the position's key
+	 * @return the number of postings of the position
+	 */
+	public int count(long key) {
+		ByteBuffer in = find(key);
+		return in == null ? 0 : GameRecord.readVarInt(in);
+	}
+
+	/**
+	 * Find the postings of a position.
+	 *
+	 * @param key the position's key
+	 * @return a buffer positioned at the postings of the key, or null if the key is not indexed
+	 */
+	private ByteBuffer find(long key) {
+		ByteBuffer shard = shards[getShard(key, shardBits)];
+		if (shard == null) {
+			return null;
+		}
+		long low = 0;
+		long high = shard.getLong(8) - 1;
+		while (low <= high) {
+			long middle = (low + high) >>> 1;
+			int entry = (int) (HEADER_BYTES + middle * ENTRY_BYTES);
+			long found = shard.getLong(entry);
+			if (found < key) {
+				low = middle + 1;
+			} else if (found > key) {
+				high = middle - 1;
+			} else {
+				ByteBuffer in = shard.duplicate();
+				long postings = HEADER_BYTES + shard.getLong(8) * ENTRY_BYTES;
+				in.position((int) (postings + shard.getLong(entry + 8)));
+				return in;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the number of distinct positions in the index
+	 */
+	public long getKeyCount() {
+		return keyCount;
+	}
+
+	/**
+	 * Get the visits to a board's position.
+	 *
+	 * @param board the position
+	 * @return the postings, by game id and ply
+	 */
+	public long[] getPostings(Board board) {
+		return getPostings(board.hash(), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Get the first visits to a position.
+	 *
+	 * @param key the position's key
+	 * @param limit the most postings to read
+	 * @return the postings, by game id and ply
+	 */
+	public long[] getPostings(long key, int limit) {
+		ByteBuffer in = find(key);
+		if (in == null) {
+			return NO_POSTINGS;
+		}
+		long[] postings = new long[Math.min(GameRecord.readVarInt(in), limit)];
+		long gameId = 0;
+		for (int i = 0; i < postings.length; i++) {
+			gameId += GameRecord.readVarLong(in);
+			postings[i] = getPosting(gameId, GameRecord.readVarInt(in));
+		}
+		return postings;
+	}
+
+	/**
+	 * @return the number of shards
+	 */
+	public int getShardCount() {
+		return shards.length;
+	}
+}
@@ -0,0 +1,476 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.record;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.ChainBuffer;
+
+/**
+ * Builds a {@link PositionIndex} of a corpus.
+ * <p>
+ * The build has two passes.  First every game is replayed, on all threads at once, and the key,
+ * game id and ply of each position are appended to a run file for the key's shard, through a
+ * small buffer per thread and shard.  Then each run file is read back, sorted by key and posting,
+ * and written out as a shard, again on all threads.  Memory is bounded by the largest run file
+ * for each thread, 16 bytes a posting, so a large corpus wants more shards rather than more
+ * memory: with 10 {@link #setShardBits(int) shard bits}, a billion positions need about 16 MB a
+ * thread.  The buffers of the first pass share 4 MB a thread, however many shards there are.
+ * <p>
+ * Run from the command line as
+ * <code>PositionIndexBuilder corpus index [threads [shardBits]]</code>.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class PositionIndexBuilder {
+
+	/**
+	 * The default number of bits numbering the shards.
+	 */
+	public static final int SHARD_BITS = 6;
+
+	private static final int POSTING_BYTES = 16;
+	private static final int SCAN_POSTINGS = 1 << 18;
+	private static final int MIN_BUFFER_POSTINGS = 1 << 8;
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int CHUNK_GAMES = 256;
+	private static final int INSERTION_SORT = 16;
+	private static final int KEEP_ALIVE_SECONDS = 60;
+
+	/**
+	 * @param args the directory of the corpus, the directory of the index, then the number of
+	 *            threads and the number of bits numbering the shards, each optional
+	 * @throws IOException if the corpus cannot be read or the index cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("usage: PositionIndexBuilder corpus index [threads [shardBits]]");
+			return;
+		}
+		GameCorpus corpus = GameCorpus.open(new File(args[0]));
+		PositionIndexBuilder builder = new PositionIndexBuilder(corpus);
+		if (args.length > 2) {
+			builder.setThreads(Integer.parseInt(args[2]));
+		}
+		if (args.length > 3) {
+			builder.setShardBits(Integer.parseInt(args[3]));
+		}
+		long start = System.nanoTime();
+		long postings = builder.build(new File(args[1]));
+		builder.shutdown();
+		System.out.println("Indexed " + postings + " positions of " + corpus.size() + " games in "
+				+ (System.nanoTime() - start) / 1000000 + " ms");
+	}
+
+	/**
+	 * Sort postings by key, then by posting.
+	 *
+	 * @param keys
+	 * @param postings moved along with their keys
+	 * @param from the first index to sort
+	 * @param to the index after the last to sort
+	 */
+	static void sort(long[] keys, long[] postings, int from, int to) {
+		while (to - from > INSERTION_SORT) {
+			int low = from;
+			int middle = (from + to - 1) >>> 1;
+			int high = to - 1;
+			if (less(keys, postings, middle, low)) {
+				swap(keys, postings, middle, low);
+			}
+			if (less(keys, postings, high, middle)) {
+				swap(keys, postings, high, middle);
+				if (less(keys, postings, middle, low)) {
+					swap(keys, postings, middle, low);
+				}
+			}
+			long pivotKey = keys[middle];
+			long pivotPosting = postings[middle];
+			int i = from - 1;
+			int j = to;
+			while (true) {
+				do {
+					i++;
+				} while (keys[i] < pivotKey || keys[i] == pivotKey && postings[i] < pivotPosting);
+				do {
+					j--;
+				} while (keys[j] > pivotKey || keys[j] == pivotKey && postings[j] > pivotPosting);
+				if (i >= j) {
+					break;
+				}
+				swap(keys, postings, i, j);
+			}
+			if (j + 1 - from < to - j - 1) {
+				sort(keys, postings, from, j + 1);
+				from = j + 1;
+			} else {
+				sort(keys, postings, j + 1, to);
+				to = j + 1;
+			}
+		}
+		for (int i = from + 1; i < to; i++) {
+			for (int j = i; j > from && less(keys, postings, j, j - 1); j--) {
+				swap(keys, postings, j, j - 1);
+			}
+		}
+	}
+
+	private static boolean less(long[] keys, long[] postings, int a, int b) {
+		return keys[a] < keys[b] || keys[a] == keys[b] && postings[a] < postings[b];
+	}
+
+	private static void swap(long[] keys, long[] postings, int a, int b) {
+		long key = keys[a];
+		keys[a] = keys[b];
+		keys[b] = key;
+		long posting = postings[a];
+		postings[a] = postings[b];
+		postings[b] = posting;
+	}
+
+	private GameCorpus corpus = null;
+	private int shardBits = SHARD_BITS;
+	private int maxPly = PositionIndex.MAX_PLY;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private ThreadPoolExecutor pool = null;
+	private int poolThreads = 0;
+
+	/**
+	 * @param corpus the games to index
+	 */
+	public PositionIndexBuilder(GameCorpus corpus) {
+		this.corpus = corpus;
+	}
+
+	/**
+	 * Build the index, replacing any index in the directory.
+	 *
+	 * @param directory the directory of the index, created if needed
+	 * @return the number of postings
+	 * @throws IOException if the index cannot be written, or a shard would be larger than 2 GB
+	 * @throws IllegalArgumentException if a game record is damaged
+	 */
+	public long build(File directory) throws IOException, IllegalArgumentException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create " + directory);
+		}
+		for (int i = PositionIndex.getShardCount(directory) - 1; i >= 0; i--) {
+			if (!PositionIndex.getShardFile(directory, i).delete()) {
+				throw new IOException("Cannot replace " + PositionIndex.getShardFile(directory, i));
+			}
+		}
+		int shardCount = 1 << shardBits;
+		final FileChannel[] runs = new FileChannel[shardCount];
+		final File[] runFiles = new File[shardCount];
+		try {
+			for (int i = 0; i < shardCount; i++) {
+				runFiles[i] = new File(directory, PositionIndex.getShardFile(directory, i).getName()
+						+ ".tmp");
+				runs[i] = new RandomAccessFile(runFiles[i], "rw").getChannel();
+				runs[i].truncate(0);
+			}
+			final AtomicLong nextGame = new AtomicLong();
+			final AtomicLong total = new AtomicLong();
+			runAll(new Callable<Void>() {
+				public Void call() throws IOException {
+					total.addAndGet(scan(nextGame, runs));
+					return null;
+				}
+			});
+			final AtomicInteger nextShard = new AtomicInteger();
+			final File index = directory;
+			runAll(new Callable<Void>() {
+				public Void call() throws IOException {
+					for (int shard = nextShard.getAndIncrement(); shard < runs.length; shard =
+						nextShard.getAndIncrement()) {
+						writeShard(runs[shard], PositionIndex.getShardFile(index, shard));
+						runs[shard].close();
+						runFiles[shard].delete();
+					}
+					return null;
+				}
+			});
+			return total.get();
+		} finally {
+			for (int i = 0; i < shardCount; i++) {
+				if (runs[i] != null) {
+					runs[i].close();
+				}
+				if (runFiles[i] != null) {
+					runFiles[i].delete();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Run a task on this thread and on helper threads, until all have returned.
+	 */
+	private void runAll(Callable<Void> task) throws IOException {
+		int helpers = Math.max(1, threads) - 1;
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		for (int i = 0; i < helpers; i++) {
+			futures.add(getPool(helpers).submit(task));
+		}
+		try {
+			task.call();
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			throw (RuntimeException) e;
+		}
+		for (Future<Void> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while building the index", e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				} else if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new IllegalStateException("Index build failed", e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Replay games, taking them in chunks until there are none left, and append their postings
+	 * to the run files.
+	 *
+	 * @return the number of postings appended
+	 */
+	private long scan(AtomicLong nextGame, final FileChannel[] runs) throws IOException {
+		final ByteBuffer[] buffers = new ByteBuffer[runs.length];
+		int bufferPostings = Math.max(MIN_BUFFER_POSTINGS, SCAN_POSTINGS / runs.length);
+		for (int i = 0; i < buffers.length; i++) {
+			buffers[i] = ByteBuffer.allocate(bufferPostings * POSTING_BYTES);
+		}
+		final long[] gameId = new long[1];
+		final IOException[] failure = new IOException[1];
+		ReplayListener listener = new ReplayListener() {
+			public void moveReplayed(Board board, int ply, long move, ChainBuffer chains) {
+				long key = board.hash();
+				int shard = PositionIndex.getShard(key, shardBits);
+				ByteBuffer buffer = buffers[shard];
+				buffer.putLong(key).putLong(PositionIndex.getPosting(gameId[0], ply));
+				if (!buffer.hasRemaining()) {
+					try {
+						append(runs[shard], buffer);
+					} catch (IOException e) {
+						failure[0] = e;
+						buffer.clear();
+					}
+				}
+			}
+		};
+		long count = 0;
+		long size = corpus.size();
+		for (long first = nextGame.getAndAdd(CHUNK_GAMES); first < size; first =
+			nextGame.getAndAdd(CHUNK_GAMES)) {
+			for (long id = first; id < Math.min(first + CHUNK_GAMES, size); id++) {
+				GameRecord record = corpus.get(id);
+				int plies = Math.min(record.getPlies(), maxPly);
+				gameId[0] = id;
+				record.replay(new Board(), plies, listener);
+				if (failure[0] != null) {
+					throw failure[0];
+				}
+				count += plies;
+			}
+		}
+		for (int i = 0; i < buffers.length; i++) {
+			append(runs[i], buffers[i]);
+		}
+		return count;
+	}
+
+	/**
+	 * Append a buffer of postings to a run file and empty the buffer.
+	 */
+	private static void append(FileChannel run, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		synchronized (run) {
+			while (buffer.hasRemaining()) {
+				run.write(buffer);
+			}
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Sort a run file and write it as a shard.
+	 */
+	private void writeShard(FileChannel run, File file) throws IOException {
+		long count = run.size() / POSTING_BYTES;
+		if (count > Integer.MAX_VALUE - 8) {
+			throw new IOException("Too many positions for " + file + ", use more shards");
+		}
+		long[] keys = new long[(int) count];
+		long[] postings = new long[(int) count];
+		ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+		for (int i = 0; i < count;) {
+			in.clear();
+			if (run.read(in, (long) i * POSTING_BYTES) < 0) {
+				throw new IOException("Run file cut off for " + file);
+			}
+			in.flip();
+			for (; in.remaining() >= POSTING_BYTES; i++) {
+				keys[i] = in.getLong();
+				postings[i] = in.getLong();
+			}
+		}
+		sort(keys, postings, 0, keys.length);
+		int keyCount = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (i == 0 || keys[i] != keys[i - 1]) {
+				keyCount++;
+			}
+		}
+		long tableEnd = PositionIndex.HEADER_BYTES + (long) keyCount * PositionIndex.ENTRY_BYTES;
+		if (tableEnd > Integer.MAX_VALUE) {
+			throw new IOException("Too many positions for " + file + ", use more shards");
+		}
+		ByteBuffer table = ByteBuffer.allocate((int) tableEnd);
+		table.putInt(PositionIndex.MAGIC).putInt(PositionIndex.VERSION).putLong(keyCount);
+		RandomAccessFile out = new RandomAccessFile(file, "rw");
+		try {
+			FileChannel channel = out.getChannel();
+			channel.truncate(0);
+			channel.position(tableEnd);
+			OutputStream stream = new BufferedOutputStream(Channels.newOutputStream(channel),
+				BUFFER_SIZE);
+			byte[] varints = new byte[30];
+			long offset = 0;
+			for (int i = 0, end; i < keys.length; i = end) {
+				for (end = i + 1; end < keys.length && keys[end] == keys[i]; end++) {
+					continue;
+				}
+				table.putLong(keys[i]).putLong(offset);
+				int length = GameRecord.writeVarLong(varints, 0, end - i);
+				stream.write(varints, 0, length);
+				offset += length;
+				long gameId = 0;
+				for (int j = i; j < end; j++) {
+					long id = PositionIndex.getGameId(postings[j]);
+					length = GameRecord.writeVarLong(varints, 0, id - gameId);
+					length = GameRecord.writeVarLong(varints, length,
+						PositionIndex.getPly(postings[j]));
+					stream.write(varints, 0, length);
+					offset += length;
+					gameId = id;
+				}
+			}
+			stream.flush();
+			if (tableEnd + offset > Integer.MAX_VALUE) {
+				throw new IOException("Too many positions for " + file + ", use more shards");
+			}
+			table.flip();
+			while (table.hasRemaining()) {
+				channel.write(table, table.position());
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * @return the pool running helper threads, created on first use
+	 */
+	private ThreadPoolExecutor getPool(int threads) {
+		if (pool == null || poolThreads < threads) {
+			shutdown();
+			poolThreads = threads;
+			pool = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "Supercheckers Position Index");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+			pool.allowCoreThreadTimeOut(true);
+		}
+		return pool;
+	}
+
+	/**
+	 * @param maxPly the last ply of each game to index, at most PositionIndex.MAX_PLY
+	 * @throws IllegalArgumentException if maxPly is out of range
+	 */
+	public void setMaxPly(int maxPly) throws IllegalArgumentException {
+		if (maxPly < 0 || maxPly > PositionIndex.MAX_PLY) {
+			throw new IllegalArgumentException("Ply out of range: " + maxPly);
+		}
+		this.maxPly = maxPly;
+	}
+
+	/**
+	 * @param shardBits the number of bits numbering the shards, from 0 to 10
+	 * @throws IllegalArgumentException if shardBits is out of range
+	 */
+	public void setShardBits(int shardBits) throws IllegalArgumentException {
+		if (shardBits < 0 || shardBits > 10) {
+			throw new IllegalArgumentException("Shard bits out of range: " + shardBits);
+		}
+		this.shardBits = shardBits;
+	}
+
+	/**
+	 * @param threads the number of threads replaying games and writing shards
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * Stop the helper threads.  The builder can still be used, and starts new threads if needed.
+	 */
+	public void shutdown() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+}
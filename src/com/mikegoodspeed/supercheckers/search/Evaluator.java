@@ -0,0 +1,88 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.search;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+
+/**
+ * Static evaluation of Supercheckers positions for the search players.
+ * <p>
+ * A game is won by clearing the opponent out of the middle, so spots in the middle count the most,
+ * followed by spots adjacent to the middle, which are one slide away from getting in, and then by
+ * the number of spots held anywhere.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public final class Evaluator {
+
+	/**
+	 * Score of a won game, less the number of plies it takes to win.
+	 */
+	public static final int WIN = 1000000;
+	/**
+	 * Scores at or above this value, or at or below its negation, are won or lost games.
+	 */
+	public static final int WIN_THRESHOLD = WIN - 1000;
+	/**
+	 * Score of a drawn game.
+	 */
+	public static final int DRAW = 0;
+
+	private static final int MIDDLE_WEIGHT = 100;
+	private static final int ADJACENT_WEIGHT = 10;
+	private static final int PIECE_WEIGHT = 4;
+
+	private Evaluator() {
+	}
+
+	/**
+	 * Evaluates a position that is not over.
+	 *
+	 * @param board
+	 * @param team the team the score is for
+	 * @return the score, positive if the team is ahead
+	 */
+	public static int evaluate(Board board, Team team) {
+		Team opponent = team.getOpponent();
+		return MIDDLE_WEIGHT * (board.getMiddleCount(team) - board.getMiddleCount(opponent))
+			+ ADJACENT_WEIGHT * (board.getAdjacentCount(team) - board.getAdjacentCount(opponent))
+			+ PIECE_WEIGHT * (board.getPieceCount(team) - board.getPieceCount(opponent));
+	}
+
+	/**
+	 * Scores a position in a game over state.
+	 *
+	 * @param board
+	 * @param team the team the score is for
+	 * @param ply number of plies from the root of the search, so quicker wins score higher
+	 * @return WIN less ply for a win, its negation for a loss, or DRAW
+	 */
+	public static int evaluateGameOver(Board board, Team team, int ply) {
+		Team winner = board.getWinner();
+		if (Team.NOBODY.equals(winner)) {
+			return DRAW;
+		}
+		return team.equals(winner) ? WIN - ply : -(WIN - ply);
+	}
+}
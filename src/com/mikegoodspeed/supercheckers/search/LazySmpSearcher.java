@@ -0,0 +1,193 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.search;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.Move;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+
+/**
+ * Parallel search that runs several {@link Searcher}s on the same position, sharing one
+ * transposition table (Lazy SMP).
+ * <p>
+ * The calling thread runs the main search with the time and node budgets.  Helper threads search
+ * the same position with no budget of their own: odd helpers start one ply deeper, and every
+ * helper tries the root moves in a different order.  They fill the shared table with results the
+ * main search picks up, and are stopped as soon as the main search ends.  The result of whichever
+ * search completed the deepest iteration is returned, preferring the main search.
+ * <p>
+ * Helper threads are kept between searches and exit after a minute without work.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class LazySmpSearcher implements MoveSearcher {
+
+	private static final long KEEP_ALIVE_SECONDS = 60;
+
+	private final TranspositionTable table;
+	private final Searcher[] searchers;
+	private final AtomicBoolean stop = new AtomicBoolean();
+	private ThreadPoolExecutor pool = null;
+	private Searcher result = null;
+	private long nodes = 0;
+	private long time = 0;
+
+	/**
+	 * Create a parallel searcher.
+	 *
+	 * @param table the shared transposition table, or null to search without one, which only
+	 *        makes sense with a single thread
+	 * @param threads number of threads, including the calling thread
+	 */
+	public LazySmpSearcher(TranspositionTable table, int threads) {
+		this.table = table;
+		searchers = new Searcher[Math.max(1, threads)];
+		for (int i = 0; i < searchers.length; i++) {
+			searchers[i] = new Searcher(table);
+			searchers[i].setHelper(stop, false, 1 + (i & 1), i);
+		}
+		result = searchers[0];
+	}
+
+	/**
+	 * Search a position for the best move of a team.
+	 *
+	 * @param position the position to search, which is not changed
+	 * @param team the team to move
+	 * @param maxDepth the deepest iteration to search, at most Searcher.MAX_DEPTH
+	 * @param moveTime time budget in milliseconds, or 0 for no limit
+	 * @param maxNodes node budget of the main search, or 0 for no limit
+	 * @return the best move found, or null if the team has no legal move
+	 * @throws IllegalStateException if a helper thread failed
+	 */
+	public Move search(final Board position, final Team team, final int maxDepth, long moveTime,
+			long maxNodes) throws IllegalStateException {
+		long startTime = System.nanoTime();
+		if (table != null) {
+			table.newSearch();
+		}
+		stop.set(false);
+		Future<?>[] helpers = new Future<?>[searchers.length - 1];
+		for (int i = 1; i < searchers.length; i++) {
+			final Searcher helper = searchers[i];
+			helpers[i - 1] = getPool().submit(new Runnable() {
+				public void run() {
+					helper.search(position, team, maxDepth, 0, 0);
+				}
+			});
+		}
+		searchers[0].search(position, team, maxDepth, moveTime, maxNodes);
+		stop.set(true);
+
+		result = searchers[0];
+		nodes = searchers[0].getNodes();
+		for (int i = 1; i < searchers.length; i++) {
+			try {
+				helpers[i - 1].get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while stopping helpers", e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Helper search failed", e.getCause());
+			}
+			nodes += searchers[i].getNodes();
+			if (searchers[i].getDepth() > result.getDepth()) {
+				result = searchers[i];
+			}
+		}
+		time = (System.nanoTime() - startTime) / 1000000L;
+		return result.getBestMove();
+	}
+
+	/**
+	 * @return the pool running the helper searches, created on first use
+	 */
+	private ThreadPoolExecutor getPool() {
+		if (pool == null) {
+			pool = new ThreadPoolExecutor(searchers.length - 1, searchers.length - 1,
+				KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				new ThreadFactory() {
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "Supercheckers Search Helper");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+			pool.allowCoreThreadTimeOut(true);
+		}
+		return pool;
+	}
+
+	/**
+	 * @return the deepest iteration completed by the returned search
+	 */
+	public int getDepth() {
+		return result.getDepth();
+	}
+
+	/**
+	 * @return the number of nodes visited by all threads in the last search
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return the score of the best move for the team that searched
+	 */
+	public int getScore() {
+		return result.getScore();
+	}
+
+	/**
+	 * @return the number of threads searching, including the calling thread
+	 */
+	public int getThreads() {
+		return searchers.length;
+	}
+
+	/**
+	 * @return the time taken by the last search in milliseconds
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * Stop the helper threads.  The searcher can still be used, and starts new threads if needed.
+	 */
+	public void shutdown() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+}
@@ -0,0 +1,250 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.search;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.Move;
+import com.mikegoodspeed.supercheckers.datastructures.MoveList;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+
+/**
+ * Monte Carlo tree search with UCT selection and random playouts, run root parallel.
+ * <p>
+ * Each thread grows its own {@link MonteCarloTree} from the same position with its own random
+ * generator, and shares nothing with the others while searching.  When the playout or time budget
+ * runs out, the visits of each root move are added up over all trees, and the most visited move is
+ * played.  With a playout budget and a seeded generator the result is the same on every run.
+ * <p>
+ * Trees are kept between searches, and a search of a position reached by the moves since the last
+ * one starts from the subtree already grown for it.  Each tree's memory is fixed by its capacity
+ * when the searcher is created.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class MonteCarloSearcher {
+
+	/**
+	 * Default number of nodes in each thread's tree.
+	 */
+	public static final int TREE_CAPACITY = 1 << 18;
+
+	private static final long KEEP_ALIVE_SECONDS = 60;
+
+	/**
+	 * The clock is only read once per this many playouts.
+	 */
+	private static final int CLOCK_INTERVAL = 16;
+
+	private final MonteCarloTree[] trees;
+	private final SplittableRandom random;
+	private ThreadPoolExecutor pool = null;
+	private long playouts = 0;
+	private long time = 0;
+	private int depth = 0;
+	private double winRate = 0.0;
+
+	/**
+	 * Create a searcher.
+	 *
+	 * @param threads number of threads, including the calling thread, each with its own tree
+	 * @param capacity the most nodes in each thread's tree
+	 * @param random source of the random playouts
+	 */
+	public MonteCarloSearcher(int threads, int capacity, SplittableRandom random) {
+		trees = new MonteCarloTree[Math.max(1, threads)];
+		for (int i = 0; i < trees.length; i++) {
+			trees[i] = new MonteCarloTree(capacity);
+		}
+		this.random = random;
+	}
+
+	/**
+	 * Search a position for the best move of a team.
+	 *
+	 * @param position the position to search, which is not changed
+	 * @param team the team to move
+	 * @param moveTime time budget in milliseconds, or 0 for no limit
+	 * @param maxPlayouts playout budget over all threads, or 0 for no limit
+	 * @return the best move found, or null if the team has no legal move
+	 * @throws IllegalArgumentException if neither budget is set
+	 * @throws IllegalStateException if a helper thread failed
+	 */
+	public Move search(final Board position, final Team team, long moveTime, long maxPlayouts)
+			throws IllegalArgumentException, IllegalStateException {
+		if (moveTime <= 0 && maxPlayouts <= 0) {
+			throw new IllegalArgumentException("No time or playout budget");
+		}
+		long startTime = System.nanoTime();
+		final long deadline = moveTime > 0 ? startTime + moveTime * 1000000L : 0;
+		final long treePlayouts = maxPlayouts > 0
+				? (maxPlayouts + trees.length - 1) / trees.length : Long.MAX_VALUE;
+		MoveList moves = new MoveList();
+		position.clone().generateMoves(team, moves);
+		if (moves.size() == 0) {
+			return null;
+		}
+
+		for (int i = 0; i < trees.length; i++) {
+			trees[i].reset(position, team, random.split());
+		}
+		Future<?>[] helpers = new Future<?>[trees.length - 1];
+		final long[] counts = new long[trees.length];
+		for (int i = 1; i < trees.length; i++) {
+			final int index = i;
+			helpers[i - 1] = getPool().submit(new Runnable() {
+				public void run() {
+					counts[index] = grow(trees[index], treePlayouts, deadline);
+				}
+			});
+		}
+		counts[0] = grow(trees[0], treePlayouts, deadline);
+		for (Future<?> helper : helpers) {
+			try {
+				helper.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for helpers", e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Helper search failed", e.getCause());
+			}
+		}
+
+		playouts = 0;
+		depth = 0;
+		for (int i = 0; i < trees.length; i++) {
+			playouts += counts[i];
+			depth = Math.max(depth, trees[i].getMaxDepth());
+		}
+		int best = 0;
+		long bestVisits = -1;
+		double bestWins = 0.0;
+		for (int move = 0; move < moves.size(); move++) {
+			long visits = 0;
+			double wins = 0.0;
+			for (MonteCarloTree tree : trees) {
+				visits += tree.getRootVisits(move);
+				wins += tree.getRootWins(move);
+			}
+			if (visits > bestVisits) {
+				best = move;
+				bestVisits = visits;
+				bestWins = wins;
+			}
+		}
+		winRate = bestVisits > 0 ? bestWins / bestVisits : 0.5;
+		time = (System.nanoTime() - startTime) / 1000000L;
+		return moves.getMove(best);
+	}
+
+	/**
+	 * Run playouts on a tree until a budget runs out.
+	 *
+	 * @param tree
+	 * @param maxPlayouts
+	 * @param deadline value of System.nanoTime() to stop at, or 0 for no limit
+	 * @return the number of playouts run
+	 */
+	private static long grow(MonteCarloTree tree, long maxPlayouts, long deadline) {
+		long count = 0;
+		while (count < maxPlayouts) {
+			if (deadline != 0 && count % CLOCK_INTERVAL == 0 && System.nanoTime() - deadline >= 0) {
+				break;
+			}
+			tree.playout();
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * @return the pool running the helper trees, created on first use
+	 */
+	private ThreadPoolExecutor getPool() {
+		if (pool == null) {
+			pool = new ThreadPoolExecutor(trees.length - 1, trees.length - 1, KEEP_ALIVE_SECONDS,
+				TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "Supercheckers Monte Carlo Helper");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+			pool.allowCoreThreadTimeOut(true);
+		}
+		return pool;
+	}
+
+	/**
+	 * @return the deepest tree node reached by the last search
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * @return the number of playouts run by the last search, over all threads
+	 */
+	public long getPlayouts() {
+		return playouts;
+	}
+
+	/**
+	 * @return the number of threads searching, including the calling thread
+	 */
+	public int getThreads() {
+		return trees.length;
+	}
+
+	/**
+	 * @return the time taken by the last search in milliseconds
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * @return the average result of the chosen move for the team that searched, from 0 for
+	 *         certain loss to 1 for certain win
+	 */
+	public double getWinRate() {
+		return winRate;
+	}
+
+	/**
+	 * Stop the helper threads.  The searcher can still be used, and starts new threads if needed.
+	 */
+	public void shutdown() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+}
@@ -0,0 +1,348 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.search;
+
+import java.util.SplittableRandom;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.ChainBuffer;
+import com.mikegoodspeed.supercheckers.datastructures.MoveList;
+import com.mikegoodspeed.supercheckers.datastructures.PackedMove;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+
+/**
+ * One Monte Carlo search tree, grown by a single thread.
+ * <p>
+ * Nodes are kept in a {@link SearchTreeArena}, so a tree of any size is a handful of objects and
+ * never grows past the arena's capacity.  The children of a node are created together, in
+ * generated order, in consecutive rows.  Each node holds the packed move leading to it, its visit
+ * count and the total result of those visits for the team that made the move: 1 for a win, 1/2
+ * for a draw and 0 for a loss.
+ * <p>
+ * Each playout walks down the tree by UCT, expands the first node it reaches that has no children,
+ * plays random moves to the end of the game and adds the result to every node on the way down.
+ * The board is restored with undo records afterwards.
+ * <p>
+ * When the tree is reset to a position reached from its root by one or two moves, such as the
+ * position after the opponent's reply, the subtree under those moves is kept and becomes the new
+ * root, so the playouts of the previous search are not thrown away.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+class MonteCarloTree {
+
+	/**
+	 * Exploration constant of the UCT formula.
+	 */
+	static final double EXPLORATION = 1.0;
+	/**
+	 * Playouts longer than this many plies are scored as draws.
+	 */
+	static final int MAX_PLAYOUT_PLIES = 200;
+
+	private static final byte UNEXPANDED = 0;
+	private static final byte EXPANDED = 1;
+	private static final byte GAME_OVER = 2;
+	private static final byte NO_MOVES = 3;
+
+	private final SearchTreeArena arena;
+	private Board board = null;
+	private Team rootTeam = null;
+	private SplittableRandom random = null;
+	private final MoveList moveList = new MoveList();
+	private int[] spots = new int[64];
+	private int[] path = new int[64];
+	private long[] undos = new long[256];
+	private int maxDepth = 0;
+
+	/**
+	 * Create an empty tree.
+	 *
+	 * @param capacity the most nodes the tree holds
+	 */
+	MonteCarloTree(int capacity) {
+		arena = new SearchTreeArena(capacity);
+	}
+
+	/**
+	 * Prepare the tree for a search of a position.  If the position is the root or is reached from
+	 * it by one or two moves already in the tree, the subtree under it is kept, otherwise the tree
+	 * is started again.
+	 *
+	 * @param position the position, which is copied
+	 * @param team the team to move
+	 * @param random source of the random playouts
+	 */
+	void reset(Board position, Team team, SplittableRandom random) {
+		int node = board != null ? find(position, team) : SearchTreeArena.NO_NODE;
+		if (node == SearchTreeArena.NO_NODE) {
+			arena.clear();
+		} else {
+			arena.reroot(node);
+		}
+		board = position.clone();
+		rootTeam = team;
+		this.random = random;
+		maxDepth = 0;
+	}
+
+	/**
+	 * Find the node of a position within two moves of the root.
+	 *
+	 * @param position
+	 * @param team the team to move in the position
+	 * @return the node, or NO_NODE if the position is not in the tree
+	 */
+	private int find(Board position, Team team) {
+		if (team.equals(rootTeam) && board.equals(position)) {
+			return 0;
+		}
+		ChainBuffer chains = arena.getChains();
+		int first = arena.getFirstChild(0);
+		for (int child = first; child < first + arena.getChildCount(0); child++) {
+			long undo = board.doMove(rootTeam, arena.getMove(child), chains);
+			if (!team.equals(rootTeam) && board.equals(position)) {
+				board.undoMove(undo);
+				return child;
+			}
+			if (team.equals(rootTeam) && !board.isGameOver()) {
+				int firstReply = arena.getFirstChild(child);
+				int end = firstReply + arena.getChildCount(child);
+				for (int reply = firstReply; reply < end; reply++) {
+					long replyUndo = board.doMove(team.getOpponent(), arena.getMove(reply), chains);
+					boolean found = board.equals(position);
+					board.undoMove(replyUndo);
+					if (found) {
+						board.undoMove(undo);
+						return reply;
+					}
+				}
+			}
+			board.undoMove(undo);
+		}
+		return SearchTreeArena.NO_NODE;
+	}
+
+	/**
+	 * Run one playout from the root.
+	 */
+	void playout() {
+		int undoCount = 0;
+		int depth = 0;
+		int node = 0;
+		Team team = rootTeam;
+		path[0] = 0;
+		Team winner = null;
+		while (winner == null) {
+			byte state = arena.getState(node);
+			if (state == UNEXPANDED && !expand(node, team)) {
+				break; // tree is full
+			}
+			state = arena.getState(node);
+			if (state == GAME_OVER) {
+				winner = board.getWinner();
+				break;
+			}
+			if (state == NO_MOVES) {
+				winner = Team.NOBODY;
+				break;
+			}
+			node = select(node);
+			boolean unvisited = arena.getVisits(node) == 0;
+			undos = push(undos, undoCount++,
+				board.doMove(team, arena.getMove(node), arena.getChains()));
+			team = team.getOpponent();
+			depth++;
+			if (depth == path.length) {
+				int[] grown = new int[path.length * 2];
+				System.arraycopy(path, 0, grown, 0, depth);
+				path = grown;
+			}
+			path[depth] = node;
+			if (unvisited) {
+				if (board.isGameOver()) {
+					arena.setState(node, GAME_OVER);
+					winner = board.getWinner();
+				}
+				break;
+			}
+		}
+		if (depth > maxDepth) {
+			maxDepth = depth;
+		}
+		if (winner == null) {
+			// Finish the game with random moves.
+			for (int ply = 0; ply < MAX_PLAYOUT_PLIES && winner == null; ply++) {
+				moveList.clear();
+				board.generateMoves(team, moveList);
+				if (moveList.size() == 0) {
+					winner = Team.NOBODY;
+					break;
+				}
+				undos = push(undos, undoCount++,
+					board.doMove(team, moveList, random.nextInt(moveList.size())));
+				if (board.isGameOver()) {
+					winner = board.getWinner();
+				}
+				team = team.getOpponent();
+			}
+			if (winner == null) {
+				winner = Team.NOBODY;
+			}
+		}
+		// Credit each node with the result for the team that moved into it.
+		Team mover = depth % 2 == 1 ? rootTeam : rootTeam.getOpponent();
+		for (int i = depth; i >= 0; i--) {
+			if (winner.equals(mover)) {
+				arena.addVisit(path[i], 1.0f);
+			} else if (Team.NOBODY.equals(winner)) {
+				arena.addVisit(path[i], 0.5f);
+			} else {
+				arena.addVisit(path[i], 0.0f);
+			}
+			mover = mover.getOpponent();
+		}
+		while (undoCount > 0) {
+			board.undoMove(undos[--undoCount]);
+		}
+	}
+
+	/**
+	 * Create the children of a node.
+	 *
+	 * @param node
+	 * @param team the team to move at the node
+	 * @return false if the tree has no room for the children, true otherwise
+	 */
+	private boolean expand(int node, Team team) {
+		moveList.clear();
+		board.generateMoves(team, moveList);
+		if (moveList.size() == 0) {
+			arena.setState(node, NO_MOVES);
+			return true;
+		}
+		int first = arena.addChildren(node, moveList.size());
+		if (first == SearchTreeArena.NO_NODE) {
+			return false;
+		}
+		for (int i = 0; i < moveList.size(); i++) {
+			long move = moveList.get(i);
+			if (PackedMove.isChained(move)) {
+				// Copy long jump series out of the move list, which is about to be reused.
+				int length = moveList.length(i);
+				if (length > spots.length) {
+					spots = new int[Math.max(length, 2 * spots.length)];
+				}
+				for (int spot = 0; spot < length; spot++) {
+					spots[spot] = moveList.getSpot(i, spot);
+				}
+				move = PackedMove.pack(spots, length, arena.getChains());
+			}
+			arena.setMove(first + i, move);
+		}
+		arena.setState(node, EXPANDED);
+		return true;
+	}
+
+	/**
+	 * Choose the child of a node to visit by UCT, taking unvisited children first in order.
+	 *
+	 * @param node an expanded node
+	 * @return the chosen child
+	 */
+	private int select(int node) {
+		int first = arena.getFirstChild(node);
+		int end = first + arena.getChildCount(node);
+		double logVisits = Math.log(Math.max(1, arena.getVisits(node)));
+		int best = first;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (int child = first; child < end; child++) {
+			int childVisits = arena.getVisits(child);
+			if (childVisits == 0) {
+				return child;
+			}
+			double value = arena.getValue(child) / childVisits
+				+ EXPLORATION * Math.sqrt(logVisits / childVisits);
+			if (value > bestValue) {
+				bestValue = value;
+				best = child;
+			}
+		}
+		return best;
+	}
+
+	private static long[] push(long[] stack, int index, long value) {
+		if (index == stack.length) {
+			long[] grown = new long[stack.length * 2];
+			System.arraycopy(stack, 0, grown, 0, index);
+			stack = grown;
+		}
+		stack[index] = value;
+		return stack;
+	}
+
+	/**
+	 * @return the number of children of the root, in generated order
+	 */
+	int getRootChildren() {
+		return arena.getChildCount(0);
+	}
+
+	/**
+	 * @param index index of a root move in generated order
+	 * @return the number of visits to the root move, 0 if the root has no children
+	 */
+	int getRootVisits(int index) {
+		return index < arena.getChildCount(0) ? arena.getVisits(arena.getFirstChild(0) + index) : 0;
+	}
+
+	/**
+	 * @param index index of a root move in generated order
+	 * @return the total result of the root move for the team to move, 0 if the root has no
+	 *         children
+	 */
+	float getRootWins(int index) {
+		return index < arena.getChildCount(0) ? arena.getValue(arena.getFirstChild(0) + index) : 0;
+	}
+
+	/**
+	 * @return the deepest node reached in the tree
+	 */
+	int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * @return the number of nodes in the tree
+	 */
+	int getSize() {
+		return arena.size();
+	}
+
+	/**
+	 * @return the number of visits to the root, including those kept from earlier searches
+	 */
+	int getVisits() {
+		return arena.getVisits(0);
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.search;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.Move;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+
+/**
+ * A search for the best move in a position, run with a depth, time and node budget.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public interface MoveSearcher {
+
+	/**
+	 * Search a position for the best move of a team.
+	 *
+	 * @param position the position to search, which is not changed
+	 * @param team the team to move
+	 * @param maxDepth the deepest iteration to search, at most Searcher.MAX_DEPTH
+	 * @param moveTime time budget in milliseconds, or 0 for no limit
+	 * @param maxNodes node budget, or 0 for no limit
+	 * @return the best move found, or null if the team has no legal move
+	 */
+	public Move search(Board position, Team team, int maxDepth, long moveTime, long maxNodes);
+
+	/**
+	 * @return the deepest iteration completed by the last search
+	 */
+	public int getDepth();
+
+	/**
+	 * @return the number of nodes visited by the last search
+	 */
+	public long getNodes();
+
+	/**
+	 * @return the score of the best move for the team that searched
+	 */
+	public int getScore();
+
+	/**
+	 * @return the number of threads searching
+	 */
+	public int getThreads();
+
+	/**
+	 * @return the time taken by the last search in milliseconds
+	 */
+	public long getTime();
+}
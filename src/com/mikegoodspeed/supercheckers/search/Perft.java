@@ -0,0 +1,455 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.search;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.Move;
+import com.mikegoodspeed.supercheckers.datastructures.MoveList;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+
+/**
+ * Move generation benchmark and correctness tool: counts the positions at a given depth of the
+ * game tree (perft).
+ * <p>
+ * A position in a game over state has no moves, so its subtree ends there.  Counts can be broken
+ * down by root move (divide), root moves can be counted in parallel, and the counts of positions
+ * already seen at the same depth can be cached in a lock-free table keyed on the position hash,
+ * shared by all threads.  Any change to the board or its move generator must leave perft counts
+ * unchanged.
+ * <p>
+ * {@link #verify(Board, Team, int)} checks the move generator against the rules as the user
+ * interface applies them, through {@link Board#isAvailableSpot(Team, Move, int, int)} and
+ * {@link Board#isValidMove(Team, Move)}, at every position of the tree.
+ * <p>
+ * Run from the command line as <code>Perft depth [threads [hash]] [divide] [verify]</code>, with
+ * the cache size in megabytes.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class Perft {
+
+	private static final long KEEP_ALIVE_SECONDS = 60;
+	private static final int BYTES_PER_ENTRY = 16;
+
+	/**
+	 * Keys mixed into the position hash for each remaining depth, so counts of one position at
+	 * different depths do not collide.
+	 */
+	private static final long[] DEPTH_KEYS = new long[Searcher.MAX_DEPTH + 1];
+
+	static {
+		SplittableRandom random = new SplittableRandom(0x9E3779B97F4A7C15L);
+		for (int i = 0; i < DEPTH_KEYS.length; i++) {
+			DEPTH_KEYS[i] = random.nextLong();
+		}
+	}
+
+	/**
+	 * @param args depth, threads and cache size, each but the depth optional, then the words
+	 *        divide or verify to print counts by root move or check the move generator
+	 */
+	public static void main(String[] args) {
+		List<String> numbers = new ArrayList<String>();
+		boolean divide = false;
+		boolean verify = false;
+		for (String arg : args) {
+			if ("divide".equals(arg)) {
+				divide = true;
+			} else if ("verify".equals(arg)) {
+				verify = true;
+			} else {
+				numbers.add(arg);
+			}
+		}
+		if (numbers.isEmpty()) {
+			System.err.println("usage: Perft depth [threads [hash]] [divide] [verify]");
+			return;
+		}
+		int depth = Integer.parseInt(numbers.get(0));
+		int threads = numbers.size() > 1 ? Integer.parseInt(numbers.get(1)) : 1;
+		int hashSize = numbers.size() > 2 ? Integer.parseInt(numbers.get(2)) : 0;
+		Board board = new Board();
+		Team team = board.getTurn();
+		if (verify) {
+			System.out.println("Verified " + verify(board, team, depth) + " positions");
+		}
+		Perft perft = new Perft(hashSize);
+		long[] counts = perft.divide(board, team, depth, threads);
+		long total = 0;
+		MoveList moves = new MoveList();
+		board.generateMoves(team, moves);
+		for (int i = 0; i < counts.length; i++) {
+			if (divide) {
+				System.out.println(moves.getMove(i) + " " + counts[i]);
+			}
+			total += counts[i];
+		}
+		System.out.println("perft(" + depth + ") = " + total + " in " + perft.getTime() + " ms, "
+			+ perft.getNodesPerSecond() + " nodes/s");
+		perft.shutdown();
+	}
+
+	private final long[] table;
+	private final int mask;
+	private long nodes = 0;
+	private ThreadPoolExecutor pool = null;
+	private int poolThreads = 0;
+	private long time = 0;
+
+	/**
+	 * Create a perft counter without a cache.
+	 */
+	public Perft() {
+		this(0);
+	}
+
+	/**
+	 * Create a perft counter.
+	 *
+	 * @param megabytes size of the count cache in megabytes, rounded down to a power of two
+	 *        entries, or 0 for no cache
+	 */
+	public Perft(int megabytes) {
+		if (megabytes > 0) {
+			long entries = Long.highestOneBit(megabytes * (1L << 20) / BYTES_PER_ENTRY);
+			table = new long[(int) Math.min(entries, 1 << 29) * 2];
+			mask = table.length / 2 - 1;
+		} else {
+			table = null;
+			mask = 0;
+		}
+	}
+
+	/**
+	 * Count the positions at a depth.
+	 *
+	 * @param position the position to start from, which is not changed
+	 * @param team the team to move
+	 * @param depth number of plies
+	 * @return the number of positions
+	 */
+	public long perft(Board position, Team team, int depth) {
+		long total = 0;
+		for (long count : divide(position, team, depth, 1)) {
+			total += count;
+		}
+		return depth == 0 ? 1 : total;
+	}
+
+	/**
+	 * Count the positions at a depth under each root move.
+	 *
+	 * @param position the position to start from, which is not changed
+	 * @param team the team to move
+	 * @param depth number of plies, at least 1
+	 * @param threads number of threads counting root moves, including the calling thread
+	 * @return the counts, in the order the root moves are generated
+	 * @throws IllegalStateException if a helper thread failed
+	 */
+	public long[] divide(final Board position, final Team team, final int depth, int threads)
+			throws IllegalStateException {
+		long startTime = System.nanoTime();
+		final MoveList moves = new MoveList();
+		position.clone().generateMoves(team, moves);
+		final long[] counts = new long[moves.size()];
+		final AtomicInteger next = new AtomicInteger();
+		Runnable worker = new Runnable() {
+			public void run() {
+				Board board = position.clone();
+				MoveList[] lists = newMoveLists(depth);
+				for (int i = next.getAndIncrement(); i < counts.length;
+						i = next.getAndIncrement()) {
+					long undo = board.doMove(team, moves, i);
+					counts[i] = depth <= 1 ? 1 : count(board, team.getOpponent(), depth - 1, lists);
+					board.undoMove(undo);
+				}
+			}
+		};
+		int helpers = Math.min(Math.max(1, threads), counts.length) - 1;
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int i = 0; i < helpers; i++) {
+			futures.add(getPool(helpers).submit(worker));
+		}
+		worker.run();
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for helpers", e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Helper count failed", e.getCause());
+			}
+		}
+		time = (System.nanoTime() - startTime) / 1000000L;
+		nodes = 0;
+		for (long count : counts) {
+			nodes += count;
+		}
+		return counts;
+	}
+
+	/**
+	 * Count the positions at a depth below a position that is not the root.
+	 *
+	 * @param board
+	 * @param team the team to move
+	 * @param depth remaining plies, at least 1
+	 * @param lists a move list for each remaining ply
+	 * @return the number of positions
+	 */
+	private long count(Board board, Team team, int depth, MoveList[] lists) {
+		if (board.isGameOver()) {
+			return 0;
+		}
+		long key = 0;
+		if (table != null) {
+			key = board.hash() ^ DEPTH_KEYS[depth];
+			int index = ((int) key & mask) << 1;
+			long data = table[index + 1];
+			if (data != 0 && (table[index] ^ data) == key) {
+				return data;
+			}
+		}
+		MoveList moves = lists[depth];
+		moves.clear();
+		board.generateMoves(team, moves);
+		long total;
+		if (depth == 1) {
+			total = moves.size();
+		} else {
+			total = 0;
+			for (int i = 0; i < moves.size(); i++) {
+				long undo = board.doMove(team, moves, i);
+				total += count(board, team.getOpponent(), depth - 1, lists);
+				board.undoMove(undo);
+			}
+		}
+		if (table != null && total != 0) {
+			int index = ((int) key & mask) << 1;
+			table[index] = key ^ total;
+			table[index + 1] = total;
+		}
+		return total;
+	}
+
+	private static MoveList[] newMoveLists(int depth) {
+		MoveList[] lists = new MoveList[depth + 1];
+		for (int i = 0; i < lists.length; i++) {
+			lists[i] = new MoveList();
+		}
+		return lists;
+	}
+
+	/**
+	 * Check the move generator at every position of the tree to a depth.  At each position the
+	 * generated moves must be exactly the moves built spot by spot with
+	 * {@link Board#isAvailableSpot(Team, Move, int, int)} that {@link Board#isValidMove(Team, Move)}
+	 * accepts, leaving out jump series that come back to a spot without capturing anything since.
+	 * Making a move as a Move and as a packed move must give the same position and hash.
+	 *
+	 * @param position the position to start from, which is not changed
+	 * @param team the team to move
+	 * @param depth number of plies
+	 * @return the number of positions checked
+	 * @throws IllegalStateException describing the first difference found
+	 */
+	public static long verify(Board position, Team team, int depth) throws IllegalStateException {
+		return verify(position.clone(), team, depth, newMoveLists(depth));
+	}
+
+	private static long verify(Board board, Team team, int depth, MoveList[] lists)
+			throws IllegalStateException {
+		MoveList moves = lists[depth];
+		moves.clear();
+		board.generateMoves(team, moves);
+		// Moves are compared by their spots as text, since Move has no hash code
+		Set<String> generated = new HashSet<String>();
+		for (int i = 0; i < moves.size(); i++) {
+			Move move = moves.getMove(i);
+			if (!generated.add(move.toString())) {
+				throw new IllegalStateException("Generated twice: " + move + " on " + board);
+			}
+			if (!board.isValidMove(team, move)) {
+				throw new IllegalStateException("Generated invalid " + move + " on " + board);
+			}
+			Board slow = board.clone();
+			slow.doMove(team, move);
+			Board fast = board.clone();
+			fast.doMove(team, moves, i);
+			Board rebuilt = new Board();
+			rebuilt.setPosition(fast.getMask(Team.X), fast.getMask(Team.O), fast.getTurn());
+			if (!slow.equals(fast) || slow.hash() != fast.hash() || fast.hash() != rebuilt.hash()) {
+				throw new IllegalStateException("Packed " + move + " differs on " + board);
+			}
+		}
+		Set<String> expected = new HashSet<String>();
+		for (int row = Board.MIN; row <= Board.MAX; row++) {
+			for (int col = Board.MIN; col <= Board.MAX; col++) {
+				if (board.isAvailableSpot(team, null, row, col)) {
+					Move move = new Move();
+					move.add(row, col);
+					extend(board, team, move, expected);
+				}
+			}
+		}
+		if (!generated.equals(expected)) {
+			Set<String> missing = new HashSet<String>(expected);
+			missing.removeAll(generated);
+			generated.removeAll(expected);
+			throw new IllegalStateException("Not generated: " + missing + ", not expected: "
+				+ generated + " on " + board);
+		}
+		long checked = 1;
+		if (depth > 0) {
+			for (int i = 0; i < moves.size(); i++) {
+				long undo = board.doMove(team, moves, i);
+				if (!board.isGameOver()) {
+					checked += verify(board, team.getOpponent(), depth - 1, lists);
+				}
+				board.undoMove(undo);
+			}
+		}
+		return checked;
+	}
+
+	/**
+	 * Add every valid move that continues a move, spot by spot.
+	 *
+	 * @param board
+	 * @param team
+	 * @param move a valid move, or a single starting spot
+	 * @param moves the set of moves, as text, to add to
+	 */
+	private static void extend(Board board, Team team, Move move, Set<String> moves) {
+		for (int row = Board.MIN; row <= Board.MAX; row++) {
+			for (int col = Board.MIN; col <= Board.MAX; col++) {
+				if (!board.isAvailableSpot(team, move, row, col) || isRepeated(board, move, row, col)) {
+					continue;
+				}
+				Move longer = new Move();
+				for (int i = 0; i < move.size(); i++) {
+					longer.add(move.getRow(i), move.getCol(i));
+				}
+				longer.add(row, col);
+				if (board.isValidMove(team, longer)) {
+					moves.add(longer.toString());
+					extend(board, team, longer, moves);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Determines if a jump series would come back to a spot it visited without an opponent
+	 * being jumped since.
+	 *
+	 * @param board the position before the move
+	 * @param move
+	 * @param row the next spot
+	 * @param col
+	 * @return true if the series would repeat a position
+	 */
+	private static boolean isRepeated(Board board, Move move, int row, int col) {
+		Team opponent = board.get(move.getRow(0), move.getCol(0)).getOpponent();
+		int lastRow = row;
+		int lastCol = col;
+		for (int i = move.size() - 1; i >= 0; i--) {
+			// Jumped spots are never jumped twice in a series, so the board still shows them
+			if (opponent.equals(board.get((lastRow + move.getRow(i)) / 2,
+					(lastCol + move.getCol(i)) / 2))) {
+				return false;
+			}
+			lastRow = move.getRow(i);
+			lastCol = move.getCol(i);
+			if (lastRow == row && lastCol == col) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the pool running helper threads, created on first use
+	 */
+	private ThreadPoolExecutor getPool(int threads) {
+		if (pool == null || poolThreads < threads) {
+			shutdown();
+			poolThreads = threads;
+			pool = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "Supercheckers Perft Helper");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+			pool.allowCoreThreadTimeOut(true);
+		}
+		return pool;
+	}
+
+	/**
+	 * @return the number of positions found by the last count
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return the positions found per second by the last count
+	 */
+	public long getNodesPerSecond() {
+		return nodes * 1000L / Math.max(1, time);
+	}
+
+	/**
+	 * @return the time taken by the last count in milliseconds
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * Stop the helper threads.  The counter can still be used, and starts new threads if needed.
+	 */
+	public void shutdown() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+}
@@ -0,0 +1,303 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.search;
+
+import com.mikegoodspeed.supercheckers.datastructures.ChainBuffer;
+import com.mikegoodspeed.supercheckers.datastructures.PackedMove;
+
+/**
+ * Fixed capacity storage for search trees, as columns of primitive arrays.
+ * <p>
+ * A node is a row index into the columns: the packed move leading to it, its parent, its first
+ * child and number of children, its visit count, its total value and a state byte for the tree's
+ * own use.  Children of a node are added together in consecutive rows after the parent, so a child
+ * always has a higher index than its parent.  Long jump series are kept in the arena's own
+ * {@link ChainBuffer}.
+ * <p>
+ * All memory is allocated when the arena is created, and the arena can be cleared and reused for
+ * any number of searches and games.  After a move is played, {@link #reroot(int)} keeps only the
+ * subtree under it and moves it to the front of the columns in place, so the search of the next
+ * move starts from what was already learned.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class SearchTreeArena {
+
+	/**
+	 * Parent of the root.
+	 */
+	public static final int NO_NODE = -1;
+
+	/**
+	 * Bytes used by each node across all columns.
+	 */
+	static final int BYTES_PER_NODE = 8 + 4 * 5 + 4 + 1;
+
+	private final int capacity;
+	private final long[] moves;
+	private final int[] parents;
+	private final int[] firstChildren;
+	private final int[] childCounts;
+	private final int[] visits;
+	private final float[] values;
+	private final byte[] states;
+	/**
+	 * Scratch column mapping old rows to new rows while compacting.
+	 */
+	private final int[] remap;
+	private ChainBuffer chains = new ChainBuffer();
+	private ChainBuffer spareChains = new ChainBuffer();
+	private int[] spots = new int[64];
+	private int size = 0;
+
+	/**
+	 * Create an empty arena.
+	 *
+	 * @param capacity the most nodes the arena holds
+	 */
+	public SearchTreeArena(int capacity) {
+		this.capacity = Math.max(1, capacity);
+		moves = new long[this.capacity];
+		parents = new int[this.capacity];
+		firstChildren = new int[this.capacity];
+		childCounts = new int[this.capacity];
+		visits = new int[this.capacity];
+		values = new float[this.capacity];
+		states = new byte[this.capacity];
+		remap = new int[this.capacity];
+	}
+
+	/**
+	 * Remove every node and add a new root.
+	 *
+	 * @return the root, always 0
+	 */
+	public int clear() {
+		size = 0;
+		chains.clear();
+		return add(PackedMove.EMPTY, NO_NODE);
+	}
+
+	/**
+	 * Add the children of a node.  The children have no moves yet.
+	 *
+	 * @param parent a node without children
+	 * @param count the number of children
+	 * @return the first child, or NO_NODE if there is no room
+	 */
+	public int addChildren(int parent, int count) {
+		if (count > capacity - size) {
+			return NO_NODE;
+		}
+		int first = size;
+		for (int i = 0; i < count; i++) {
+			add(PackedMove.EMPTY, parent);
+		}
+		firstChildren[parent] = first;
+		childCounts[parent] = count;
+		return first;
+	}
+
+	private int add(long move, int parent) {
+		int node = size++;
+		moves[node] = move;
+		parents[node] = parent;
+		firstChildren[node] = NO_NODE;
+		childCounts[node] = 0;
+		visits[node] = 0;
+		values[node] = 0.0f;
+		states[node] = 0;
+		return node;
+	}
+
+	/**
+	 * Keep only a node and the nodes under it, and move them to the front of the arena, so the
+	 * node becomes the root at index 0.  Nodes keep their relative order, and children stay
+	 * together.  Long jump series still in the tree are copied to a fresh chain buffer, so the
+	 * buffer does not grow from one move to the next.
+	 *
+	 * @param node the new root
+	 * @return the number of nodes kept
+	 */
+	public int reroot(int node) {
+		if (node == 0) {
+			return size;
+		}
+		// Children always follow their parents, so one pass finds every node under the new root.
+		int kept = 0;
+		remap[node] = kept++;
+		for (int i = node + 1; i < size; i++) {
+			int parent = parents[i];
+			remap[i] = parent >= node && remap[parent] != NO_NODE ? kept++ : NO_NODE;
+		}
+		for (int i = 0; i < node; i++) {
+			remap[i] = NO_NODE;
+		}
+		spareChains.clear();
+		for (int i = node; i < size; i++) {
+			int to = remap[i];
+			if (to == NO_NODE) {
+				continue;
+			}
+			// Rows only move down, so copying in order never overwrites a row not yet copied.
+			long move = moves[i];
+			if (PackedMove.isChained(move)) {
+				int length = PackedMove.length(move);
+				if (length > spots.length) {
+					spots = new int[Math.max(length, 2 * spots.length)];
+				}
+				for (int spot = 0; spot < length; spot++) {
+					spots[spot] = PackedMove.getSpot(move, spot, chains);
+				}
+				move = PackedMove.pack(spots, length, spareChains);
+			}
+			moves[to] = move;
+			parents[to] = i == node ? NO_NODE : remap[parents[i]];
+			firstChildren[to] = childCounts[i] > 0 ? remap[firstChildren[i]] : NO_NODE;
+			childCounts[to] = childCounts[i];
+			visits[to] = visits[i];
+			values[to] = values[i];
+			states[to] = states[i];
+		}
+		ChainBuffer swap = chains;
+		chains = spareChains;
+		spareChains = swap;
+		size = kept;
+		return kept;
+	}
+
+	/**
+	 * Add a visit and its value to a node.
+	 *
+	 * @param node
+	 * @param value
+	 */
+	public void addVisit(int node, float value) {
+		visits[node]++;
+		values[node] += value;
+	}
+
+	/**
+	 * @return the most nodes the arena holds
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return the buffer holding the long jump series of the tree's moves
+	 */
+	public ChainBuffer getChains() {
+		return chains;
+	}
+
+	/**
+	 * @param node
+	 * @return the number of children of the node
+	 */
+	public int getChildCount(int node) {
+		return childCounts[node];
+	}
+
+	/**
+	 * @param node
+	 * @return the first child of the node, or NO_NODE if it has none
+	 */
+	public int getFirstChild(int node) {
+		return firstChildren[node];
+	}
+
+	/**
+	 * @return the number of bytes of memory held by the arena's columns
+	 */
+	public long getFootprint() {
+		return (long) capacity * BYTES_PER_NODE;
+	}
+
+	/**
+	 * @param node
+	 * @return the packed move leading to the node, in this arena's chain buffer
+	 */
+	public long getMove(int node) {
+		return moves[node];
+	}
+
+	/**
+	 * @param node
+	 * @return the parent of the node, or NO_NODE for the root
+	 */
+	public int getParent(int node) {
+		return parents[node];
+	}
+
+	/**
+	 * @param node
+	 * @return the node's state, as set by the tree using the arena
+	 */
+	public byte getState(int node) {
+		return states[node];
+	}
+
+	/**
+	 * @param node
+	 * @return the total value of the node's visits
+	 */
+	public float getValue(int node) {
+		return values[node];
+	}
+
+	/**
+	 * @param node
+	 * @return the number of visits to the node
+	 */
+	public int getVisits(int node) {
+		return visits[node];
+	}
+
+	/**
+	 * Set the move leading to a node.  Long jump series must be packed in this arena's chain
+	 * buffer.
+	 *
+	 * @param node
+	 * @param move
+	 * @see #getChains()
+	 */
+	public void setMove(int node, long move) {
+		moves[node] = move;
+	}
+
+	/**
+	 * @param node
+	 * @param state the node's new state
+	 */
+	public void setState(int node, byte state) {
+		states[node] = state;
+	}
+
+	/**
+	 * @return the number of nodes in the arena
+	 */
+	public int size() {
+		return size;
+	}
+}
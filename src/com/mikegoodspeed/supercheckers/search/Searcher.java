@@ -0,0 +1,404 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.search;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.Move;
+import com.mikegoodspeed.supercheckers.datastructures.MoveList;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+
+/**
+ * Iterative deepening negamax search with alpha-beta pruning.
+ * <p>
+ * Each search works on a copy of the given board, making and unmaking moves with
+ * {@link Board#doMove(Team, MoveList, int)} and {@link Board#undoMove(long)}, and keeps one move
+ * list per ply so nothing is allocated while searching.  The search deepens one ply at a time,
+ * trying the best move of the previous depth first, until it reaches the maximum depth or runs out
+ * of time or nodes.  When it runs out part way through a depth, the best move fully searched at
+ * that depth is kept, since the previous best move is always searched first.
+ * <p>
+ * With a {@link TranspositionTable}, results are stored for every position searched, and a
+ * position seen again is cut off from its stored bound or searched with its stored best move
+ * first.  Scores of won and lost games are stored relative to the position, not the root.
+ * <p>
+ * A side with no legal moves is scored as a draw.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class Searcher implements MoveSearcher {
+
+	/**
+	 * The deepest search allowed.
+	 */
+	public static final int MAX_DEPTH = 64;
+
+	/**
+	 * Score bound above any real score.
+	 */
+	static final int INFINITY = Evaluator.WIN + 1;
+
+	/**
+	 * The clock is only read once per this many nodes (a power of two).
+	 */
+	private static final int CLOCK_INTERVAL = 1024;
+
+	private Board board = null;
+	private TranspositionTable table = null;
+	private AtomicBoolean stop = null;
+	private boolean newSearch = true;
+	private int startDepth = 1;
+	private int rotation = 0;
+	private MoveList[] moveLists = new MoveList[MAX_DEPTH + 1];
+	private long nodes = 0;
+	private long maxNodes = 0;
+	private long deadline = 0;
+	private long startTime = 0;
+	private long time = 0;
+	private boolean aborted = false;
+	private int depth = 0;
+	private int score = 0;
+	private Move bestMove = null;
+
+	/**
+	 * Create a searcher without a transposition table.
+	 */
+	public Searcher() {
+	}
+
+	/**
+	 * Create a searcher using a transposition table.
+	 *
+	 * @param table the table, which may be shared with other searchers
+	 */
+	public Searcher(TranspositionTable table) {
+		this.table = table;
+	}
+
+	public Move search(Board position, Team team, int maxDepth, long moveTime, long maxNodes) {
+		startTime = System.nanoTime();
+		board = position.clone();
+		nodes = 0;
+		this.maxNodes = maxNodes;
+		deadline = moveTime > 0 ? startTime + moveTime * 1000000L : 0;
+		aborted = false;
+		depth = 0;
+		score = 0;
+		bestMove = null;
+
+		MoveList moves = getMoveList(0);
+		moves.clear();
+		board.generateMoves(team, moves);
+		if (moves.size() != 0) {
+			long key = board.hash();
+			int best = 0;
+			if (table != null) {
+				if (newSearch) {
+					table.newSearch();
+				}
+				int move = TranspositionTable.getMove(table.probe(key));
+				if (move < moves.size()) {
+					best = move;
+				}
+			}
+			nodes++;
+			int lastDepth = Math.min(maxDepth, MAX_DEPTH);
+			for (int iteration = Math.min(startDepth, lastDepth); iteration <= lastDepth;
+					iteration++) {
+				int iterationBest = -1;
+				int alpha = -INFINITY;
+				for (int k = 0; k < moves.size(); k++) {
+					// Search the previous best move first, then the rest in generated order.
+					int i = k == 0 || rotation == 0 ? order(k, best)
+							: order(1 + (k - 1 + rotation) % (moves.size() - 1), best);
+					int value = searchMove(team, moves, i, iteration, alpha, INFINITY, 0);
+					if (aborted) {
+						break;
+					}
+					if (value > alpha) {
+						alpha = value;
+						iterationBest = i;
+					}
+				}
+				if (iterationBest >= 0) {
+					best = iterationBest;
+					score = alpha;
+				}
+				if (aborted) {
+					break;
+				}
+				if (table != null) {
+					table.store(key, iteration, TranspositionTable.EXACT, toTable(score, 0), best);
+				}
+				depth = iteration;
+				if (Math.abs(score) >= Evaluator.WIN_THRESHOLD) {
+					break; // the game is decided
+				}
+			}
+			bestMove = moves.getMove(best);
+		}
+		time = (System.nanoTime() - startTime) / 1000000L;
+		board = null;
+		return bestMove;
+	}
+
+	/**
+	 * Negamax search of the current position.
+	 *
+	 * @param team the team to move
+	 * @param depth remaining depth
+	 * @param alpha
+	 * @param beta
+	 * @param ply distance from the root
+	 * @return the score for the team to move
+	 */
+	private int negamax(Team team, int depth, int alpha, int beta, int ply) {
+		if (isOutOfBudget()) {
+			return 0;
+		}
+		if (depth == 0 || ply == MAX_DEPTH) {
+			return Evaluator.evaluate(board, team);
+		}
+		long key = board.hash();
+		int first = 0;
+		if (table != null) {
+			long entry = table.probe(key);
+			if (entry != TranspositionTable.MISS) {
+				if (TranspositionTable.getDepth(entry) >= depth) {
+					int value = fromTable(TranspositionTable.getScore(entry), ply);
+					switch (TranspositionTable.getBound(entry)) {
+						case TranspositionTable.EXACT:
+							return value;
+						case TranspositionTable.LOWER:
+							if (value >= beta) {
+								return value;
+							}
+							break;
+						case TranspositionTable.UPPER:
+							if (value <= alpha) {
+								return value;
+							}
+							break;
+					}
+				}
+				first = TranspositionTable.getMove(entry);
+			}
+		}
+		MoveList moves = getMoveList(ply);
+		moves.clear();
+		board.generateMoves(team, moves);
+		if (moves.size() == 0) {
+			return Evaluator.DRAW; // no legal moves
+		}
+		if (first >= moves.size()) {
+			first = 0;
+		}
+		int originalAlpha = alpha;
+		int best = -INFINITY;
+		int bestIndex = first;
+		for (int k = 0; k < moves.size(); k++) {
+			int i = order(k, first);
+			int value = searchMove(team, moves, i, depth, alpha, beta, ply);
+			if (aborted) {
+				return 0;
+			}
+			if (value > best) {
+				best = value;
+				bestIndex = i;
+				if (value > alpha) {
+					alpha = value;
+					if (alpha >= beta) {
+						break; // cut off
+					}
+				}
+			}
+		}
+		if (table != null) {
+			int bound = best <= originalAlpha ? TranspositionTable.UPPER
+					: (best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT);
+			table.store(key, depth, bound, toTable(best, ply), bestIndex);
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the index of the k-th move to search, trying one move first and then the rest in
+	 * generated order.
+	 *
+	 * @param k
+	 * @param first index of the move to search first
+	 * @return the index of the move
+	 */
+	static int order(int k, int first) {
+		return k == 0 ? first : (k <= first ? k - 1 : k);
+	}
+
+	/**
+	 * Converts a score relative to the root into a score relative to the position, for storing.
+	 *
+	 * @param score
+	 * @param ply distance of the position from the root
+	 * @return the score to store
+	 */
+	static int toTable(int score, int ply) {
+		if (score >= Evaluator.WIN_THRESHOLD) {
+			return score + ply;
+		} else if (score <= -Evaluator.WIN_THRESHOLD) {
+			return score - ply;
+		}
+		return score;
+	}
+
+	/**
+	 * Converts a stored score back into a score relative to the root.
+	 *
+	 * @param score
+	 * @param ply distance of the position from the root
+	 * @return the score relative to the root
+	 */
+	static int fromTable(int score, int ply) {
+		if (score >= Evaluator.WIN_THRESHOLD) {
+			return score - ply;
+		} else if (score <= -Evaluator.WIN_THRESHOLD) {
+			return score + ply;
+		}
+		return score;
+	}
+
+	/**
+	 * Make a move from a list, score the resulting position and unmake the move.
+	 *
+	 * @param team the team making the move
+	 * @param moves
+	 * @param index index of the move in the list
+	 * @param depth remaining depth, including this move
+	 * @param alpha
+	 * @param beta
+	 * @param ply distance of the position before the move from the root
+	 * @return the score for the team making the move
+	 */
+	private int searchMove(Team team, MoveList moves, int index, int depth, int alpha, int beta,
+			int ply) {
+		long undo = board.doMove(team, moves, index);
+		int value;
+		if (board.isGameOver()) {
+			value = Evaluator.evaluateGameOver(board, team, ply + 1);
+		} else {
+			value = -negamax(team.getOpponent(), depth - 1, -beta, -alpha, ply + 1);
+		}
+		board.undoMove(undo);
+		return value;
+	}
+
+	/**
+	 * Set up this searcher as one of several searching the same position with a shared table.
+	 *
+	 * @param stop flag that stops the search when set, checked along with the clock
+	 * @param newSearch true if each search starts a new table generation
+	 * @param startDepth the first iteration to search
+	 * @param rotation how far to rotate the root moves after the first
+	 */
+	void setHelper(AtomicBoolean stop, boolean newSearch, int startDepth, int rotation) {
+		this.stop = stop;
+		this.newSearch = newSearch;
+		this.startDepth = startDepth;
+		this.rotation = rotation;
+	}
+
+	/**
+	 * Count a node and check the node and time budgets.
+	 *
+	 * @return true if the search must stop, false otherwise
+	 */
+	private boolean isOutOfBudget() {
+		nodes++;
+		if (maxNodes > 0 && nodes > maxNodes) {
+			aborted = true;
+		} else if ((nodes & (CLOCK_INTERVAL - 1)) == 0) {
+			aborted = (deadline != 0 && System.nanoTime() - deadline >= 0)
+				|| (stop != null && stop.get());
+		}
+		return aborted;
+	}
+
+	/**
+	 * @param ply
+	 * @return the move list used at a ply
+	 */
+	private MoveList getMoveList(int ply) {
+		if (moveLists[ply] == null) {
+			moveLists[ply] = new MoveList();
+		}
+		return moveLists[ply];
+	}
+
+	/**
+	 * @return the best move found by the last search, or null if there was no legal move
+	 */
+	public Move getBestMove() {
+		return bestMove;
+	}
+
+	/**
+	 * @return the deepest iteration completed by the last search
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * @return the number of nodes visited by the last search
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return the score of the best move for the team that searched
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * @return the transposition table, or null if there is none
+	 */
+	public TranspositionTable getTable() {
+		return table;
+	}
+
+	/**
+	 * @return 1, as the search runs in the calling thread
+	 */
+	public int getThreads() {
+		return 1;
+	}
+
+	/**
+	 * @return the time taken by the last search in milliseconds
+	 */
+	public long getTime() {
+		return time;
+	}
+}
@@ -0,0 +1,186 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.search;
+
+/**
+ * Fixed size transposition table of search results, keyed on the 64 bit position hash from
+ * {@link com.mikegoodspeed.supercheckers.datastructures.Board#hash()}.
+ * <p>
+ * Each entry is two <code>long</code>s in one array: the key xor the data, then the data.  The
+ * data packs the score, the index of the best move in the position's generated move list, the
+ * remaining depth, the bound type and the generation of the search that stored it:
+ * <pre>
+ * | generation (6) | bound (2) | depth (8) | move (16) | score (32) |
+ * </pre>
+ * Several search threads may share one table without locks.  A read that sees half of another
+ * thread's write gets a key that does not match, and is treated as a miss.
+ * <p>
+ * An entry is replaced by a result for the same position, by a result that is at least as deep,
+ * or by any result once the entry is left over from an earlier search.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class TranspositionTable {
+
+	/**
+	 * Returned by {@link #probe(long)} when the position is not in the table.
+	 */
+	public static final long MISS = 0L;
+	/**
+	 * Bound type of an exact score.
+	 */
+	public static final int EXACT = 1;
+	/**
+	 * Bound type of a score that is at least the true score (a fail high).
+	 */
+	public static final int LOWER = 2;
+	/**
+	 * Bound type of a score that is at most the true score (a fail low).
+	 */
+	public static final int UPPER = 3;
+	/**
+	 * Move index stored when there is no best move.
+	 */
+	public static final int NO_MOVE = 0xFFFF;
+
+	private static final int BYTES_PER_ENTRY = 16;
+	private static final int MAX_DEPTH = 0xFF;
+	private static final int GENERATIONS = 0x3F;
+
+	private final long[] table;
+	private final int mask;
+	private int generation = 0;
+
+	/**
+	 * Create a table of at most the given size, rounded down to a power of two entries.
+	 *
+	 * @param megabytes size of the table in megabytes, at least 1
+	 */
+	public TranspositionTable(int megabytes) {
+		long entries = Long.highestOneBit(Math.max(1, megabytes) * (1L << 20) / BYTES_PER_ENTRY);
+		entries = Math.min(entries, 1L << 29); // keep the array under Integer.MAX_VALUE
+		table = new long[(int) entries * 2];
+		mask = (int) entries - 1;
+	}
+
+	/**
+	 * Remove every entry.
+	 */
+	public void clear() {
+		java.util.Arrays.fill(table, 0L);
+		generation = 0;
+	}
+
+	/**
+	 * Start a new search, so entries from earlier searches are replaced first.
+	 */
+	public void newSearch() {
+		generation = (generation + 1) & GENERATIONS;
+	}
+
+	/**
+	 * Look up a position.
+	 *
+	 * @param key the position hash
+	 * @return the packed entry, or MISS
+	 */
+	public long probe(long key) {
+		int index = ((int) key & mask) << 1;
+		long data = table[index + 1];
+		if ((table[index] ^ data) != key) {
+			return MISS;
+		}
+		return data;
+	}
+
+	/**
+	 * Store the result of searching a position.
+	 *
+	 * @param key the position hash
+	 * @param depth remaining depth searched
+	 * @param bound EXACT, LOWER or UPPER
+	 * @param score the score, from the point of view of the team to move
+	 * @param move index of the best move in the generated move list, or NO_MOVE
+	 */
+	public void store(long key, int depth, int bound, int score, int move) {
+		int index = ((int) key & mask) << 1;
+		long old = table[index + 1];
+		if (old != MISS && getGeneration(old) == generation && getDepth(old) > depth
+				&& (table[index] ^ old) != key) {
+			return; // keep the deeper entry of another position
+		}
+		if (move < 0 || move > NO_MOVE) {
+			move = NO_MOVE;
+		}
+		long data = (score & 0xFFFFFFFFL)
+			| (long) move << 32
+			| (long) Math.min(depth, MAX_DEPTH) << 48
+			| (long) bound << 56
+			| (long) generation << 58;
+		table[index] = key ^ data;
+		table[index + 1] = data;
+	}
+
+	/**
+	 * @return the number of entries in the table
+	 */
+	public int getSize() {
+		return mask + 1;
+	}
+
+	/**
+	 * @param entry a packed entry
+	 * @return the bound type, EXACT, LOWER or UPPER
+	 */
+	public static int getBound(long entry) {
+		return (int) (entry >>> 56) & 3;
+	}
+
+	/**
+	 * @param entry a packed entry
+	 * @return the remaining depth searched
+	 */
+	public static int getDepth(long entry) {
+		return (int) (entry >>> 48) & MAX_DEPTH;
+	}
+
+	private static int getGeneration(long entry) {
+		return (int) (entry >>> 58) & GENERATIONS;
+	}
+
+	/**
+	 * @param entry a packed entry
+	 * @return index of the best move in the generated move list, or NO_MOVE
+	 */
+	public static int getMove(long entry) {
+		return (int) (entry >>> 32) & NO_MOVE;
+	}
+
+	/**
+	 * @param entry a packed entry
+	 * @return the score
+	 */
+	public static int getScore(long entry) {
+		return (int) entry;
+	}
+}
@@ -0,0 +1,469 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.search;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.Move;
+import com.mikegoodspeed.supercheckers.datastructures.MoveList;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+
+/**
+ * Parallel alpha-beta search on a ForkJoinPool using the Young Brothers Wait Concept.
+ * <p>
+ * At every node with at least SPLIT_DEPTH plies left, the first move (the eldest brother) is
+ * searched alone, and the remaining moves are then searched as parallel tasks on copies of the
+ * board.  Each task reads the best score found so far at its node when it starts, and raises it
+ * when it finishes; a task that fails high cancels its brothers.  Nodes closer to the leaves are
+ * searched serially by the thread that reaches them.
+ * <p>
+ * No transposition table is used, so the result depends only on the position and the depth.  The
+ * root moves are searched in the same order as {@link Searcher} and with a window one point wider,
+ * so every move that ties for the best score gets an exact score, and the one {@link Searcher}
+ * would choose, the first in search order, is returned.  For a fixed depth, the best move and
+ * score are the same as the serial search's, whatever the number of threads.  Only the node count
+ * varies from run to run.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class YoungBrothersSearcher implements MoveSearcher {
+
+	/**
+	 * Nodes with fewer plies left than this are searched serially.
+	 */
+	static final int SPLIT_DEPTH = 3;
+
+	/**
+	 * The clock is only read once per this many nodes on each thread (a power of two).
+	 */
+	private static final int CLOCK_INTERVAL = 1024;
+
+	private static final int INFINITY = Searcher.INFINITY;
+
+	private final ForkJoinPool pool;
+	private final ThreadLocal<MoveList[]> moveLists = new ThreadLocal<MoveList[]>() {
+		protected MoveList[] initialValue() {
+			MoveList[] lists = new MoveList[Searcher.MAX_DEPTH + 1];
+			for (int ply = 0; ply < lists.length; ply++) {
+				lists[ply] = new MoveList();
+			}
+			return lists;
+		}
+	};
+	/**
+	 * Each thread's node count since it last read the clock, and whether the task it is running
+	 * has been stopped.
+	 */
+	private final ThreadLocal<int[]> clocks = new ThreadLocal<int[]>() {
+		protected int[] initialValue() {
+			return new int[2];
+		}
+	};
+	private final LongAdder nodes = new LongAdder();
+	private volatile boolean aborted = false;
+	private long maxNodes = 0;
+	private long deadline = 0;
+	private long time = 0;
+	private int depth = 0;
+	private int score = 0;
+	private Move bestMove = null;
+
+	/**
+	 * Create a searcher with its own pool of threads.
+	 *
+	 * @param threads number of threads
+	 */
+	public YoungBrothersSearcher(int threads) {
+		pool = new ForkJoinPool(Math.max(1, threads));
+	}
+
+	public Move search(final Board position, final Team team, final int maxDepth, long moveTime,
+			long maxNodes) {
+		long startTime = System.nanoTime();
+		nodes.reset();
+		this.maxNodes = maxNodes;
+		deadline = moveTime > 0 ? startTime + moveTime * 1000000L : 0;
+		aborted = false;
+		depth = 0;
+		score = 0;
+		bestMove = null;
+
+		final Board board = position.clone();
+		final MoveList moves = new MoveList();
+		board.generateMoves(team, moves);
+		if (moves.size() != 0) {
+			nodes.increment();
+			final int[] best = { 0 };
+			int lastDepth = Math.min(maxDepth, Searcher.MAX_DEPTH);
+			for (int iteration = 1; iteration <= lastDepth; iteration++) {
+				final int rootDepth = iteration;
+				final int[] result = new int[2];
+				pool.invoke(new RecursiveAction() {
+					protected void compute() {
+						clocks.get()[1] = 0;
+						searchRoot(board, team, moves, rootDepth, best[0], result);
+					}
+				});
+				if (aborted) {
+					break;
+				}
+				best[0] = result[0];
+				score = result[1];
+				depth = iteration;
+				if (Math.abs(score) >= Evaluator.WIN_THRESHOLD) {
+					break; // the game is decided
+				}
+			}
+			bestMove = moves.getMove(best[0]);
+		}
+		time = (System.nanoTime() - startTime) / 1000000L;
+		return bestMove;
+	}
+
+	/**
+	 * Search the root moves, the previous best move first and then the rest in parallel.
+	 *
+	 * @param board the root position
+	 * @param team the team to move
+	 * @param moves the root moves
+	 * @param depth the iteration depth
+	 * @param first index of the previous best move
+	 * @param result set to the index of the best move and its score
+	 */
+	private void searchRoot(Board board, Team team, MoveList moves, int depth, int first,
+			int[] result) {
+		int value = searchMove(board, team, moves, first, depth, -INFINITY, INFINITY, 0, null);
+		result[0] = first;
+		result[1] = value;
+		if (moves.size() == 1 || aborted) {
+			return;
+		}
+		// Brothers search one point wider than the best score, so ties are scored exactly.
+		Split split = new Split(null, value, INFINITY, 1);
+		Brother[] brothers = new Brother[moves.size() - 1];
+		for (int k = 1; k < moves.size(); k++) {
+			brothers[k - 1] = new Brother(board, team, moves, Searcher.order(k, first), depth, 0,
+				split);
+		}
+		ForkJoinTask.invokeAll(brothers);
+		// Brothers are in search order, so the first to reach the best score wins ties.
+		for (Brother brother : brothers) {
+			if (brother.valid && brother.value > result[1]) {
+				result[0] = brother.index;
+				result[1] = brother.value;
+			}
+		}
+	}
+
+	/**
+	 * Negamax search of a position, splitting after the first move when deep enough.
+	 *
+	 * @param board the position, which is restored before returning
+	 * @param team the team to move
+	 * @param depth remaining depth
+	 * @param alpha
+	 * @param beta
+	 * @param ply distance from the root
+	 * @param parent the closest split above this position, or null
+	 * @return the score for the team to move
+	 */
+	private int negamax(Board board, Team team, int depth, int alpha, int beta, int ply,
+			Split parent) {
+		if (depth < SPLIT_DEPTH) {
+			return serial(board, team, depth, alpha, beta, ply, parent);
+		}
+		if (isStopped(parent)) {
+			return 0;
+		}
+		MoveList moves = new MoveList();
+		board.generateMoves(team, moves);
+		if (moves.size() == 0) {
+			return Evaluator.DRAW; // no legal moves
+		}
+		int best = searchMove(board, team, moves, 0, depth, alpha, beta, ply, parent);
+		if (best >= beta || moves.size() == 1 || isStopped(parent)) {
+			return best;
+		}
+		Split split = new Split(parent, Math.max(alpha, best), beta, 0);
+		Brother[] brothers = new Brother[moves.size() - 1];
+		for (int i = 1; i < moves.size(); i++) {
+			brothers[i - 1] = new Brother(board, team, moves, i, depth, ply, split);
+		}
+		ForkJoinTask.invokeAll(brothers);
+		for (Brother brother : brothers) {
+			if (brother.valid && brother.value > best) {
+				best = brother.value;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Serial alpha-beta search of a position, using this thread's move lists.
+	 *
+	 * @param board the position, which is restored before returning
+	 * @param team the team to move
+	 * @param depth remaining depth
+	 * @param alpha
+	 * @param beta
+	 * @param ply distance from the root
+	 * @param parent the closest split above this position, or null
+	 * @return the score for the team to move
+	 */
+	private int serial(Board board, Team team, int depth, int alpha, int beta, int ply,
+			Split parent) {
+		if (isOutOfBudget(parent)) {
+			return 0;
+		}
+		if (depth == 0 || ply == Searcher.MAX_DEPTH) {
+			return Evaluator.evaluate(board, team);
+		}
+		MoveList moves = moveLists.get()[ply];
+		moves.clear();
+		board.generateMoves(team, moves);
+		if (moves.size() == 0) {
+			return Evaluator.DRAW; // no legal moves
+		}
+		int best = -INFINITY;
+		int[] clock = clocks.get();
+		for (int i = 0; i < moves.size(); i++) {
+			int value = searchMove(board, team, moves, i, depth, alpha, beta, ply, parent);
+			if (clock[1] != 0) {
+				return 0; // stopped
+			}
+			if (value > best) {
+				best = value;
+				if (value > alpha) {
+					alpha = value;
+					if (alpha >= beta) {
+						break; // cut off
+					}
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Make a move from a list, score the resulting position and unmake the move.
+	 *
+	 * @param board
+	 * @param team the team making the move
+	 * @param moves
+	 * @param index index of the move in the list
+	 * @param depth remaining depth, including this move
+	 * @param alpha
+	 * @param beta
+	 * @param ply distance of the position before the move from the root
+	 * @param parent the closest split above the position, or null
+	 * @return the score for the team making the move
+	 */
+	private int searchMove(Board board, Team team, MoveList moves, int index, int depth,
+			int alpha, int beta, int ply, Split parent) {
+		long undo = board.doMove(team, moves, index);
+		int value;
+		if (board.isGameOver()) {
+			value = Evaluator.evaluateGameOver(board, team, ply + 1);
+		} else {
+			value = -negamax(board, team.getOpponent(), depth - 1, -beta, -alpha, ply + 1, parent);
+		}
+		board.undoMove(undo);
+		return value;
+	}
+
+	/**
+	 * Count a node, and now and then check the budgets and whether the search was cut off.  Once
+	 * stopped, the thread's serial search unwinds until the task it is running ends.  Serial
+	 * searches never fork, so no other task's serial search is on the thread's stack meanwhile.
+	 *
+	 * @param parent the closest split above the node, or null
+	 * @return true if the search must stop, false otherwise
+	 */
+	private boolean isOutOfBudget(Split parent) {
+		nodes.increment();
+		int[] clock = clocks.get();
+		if ((++clock[0] & (CLOCK_INTERVAL - 1)) == 0) {
+			if ((maxNodes > 0 && nodes.sum() > maxNodes)
+					|| (deadline != 0 && System.nanoTime() - deadline >= 0)) {
+				aborted = true;
+			}
+			if (isStopped(parent)) {
+				clock[1] = 1;
+			}
+		}
+		return clock[1] != 0;
+	}
+
+	/**
+	 * @param split a split, or null
+	 * @return true if the search was aborted or any split from this one up was cut off
+	 */
+	private boolean isStopped(Split split) {
+		if (aborted) {
+			return true;
+		}
+		for (Split s = split; s != null; s = s.parent) {
+			if (s.cutoff) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the deepest iteration completed by the last search
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * @return the number of nodes visited by the last search, by all threads
+	 */
+	public long getNodes() {
+		return nodes.sum();
+	}
+
+	/**
+	 * @return the score of the best move for the team that searched
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * @return the number of threads in the pool
+	 */
+	public int getThreads() {
+		return pool.getParallelism();
+	}
+
+	/**
+	 * @return the time taken by the last search in milliseconds
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * Stop the pool's threads.  The searcher can not be used afterwards.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * The state shared by the brothers searched in parallel at one node.
+	 */
+	private static class Split {
+		final Split parent;
+		final AtomicInteger alpha;
+		final int beta;
+		final int margin;
+		volatile boolean cutoff = false;
+
+		/**
+		 * @param parent the closest split above this one, or null
+		 * @param alpha the best score so far
+		 * @param beta
+		 * @param margin how far below the best score brothers search
+		 */
+		Split(Split parent, int alpha, int beta, int margin) {
+			this.parent = parent;
+			this.alpha = new AtomicInteger(alpha);
+			this.beta = beta;
+			this.margin = margin;
+		}
+
+		/**
+		 * Raise the best score, and cut off the brothers if it reaches beta.
+		 *
+		 * @param value
+		 */
+		void update(int value) {
+			int current = alpha.get();
+			while (value > current && !alpha.compareAndSet(current, value)) {
+				current = alpha.get();
+			}
+			if (value >= beta) {
+				cutoff = true;
+			}
+		}
+	}
+
+	/**
+	 * A younger brother: one move searched on its own copy of the board.
+	 */
+	private class Brother extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final int index;
+		private final Board board;
+		private final Team team;
+		private final MoveList moves;
+		private final int depth;
+		private final int ply;
+		private final Split split;
+		int value = 0;
+		boolean valid = false;
+
+		/**
+		 * @param board the position before the move, copied so brothers can run at once
+		 * @param team the team making the move
+		 * @param moves the moves at the position, shared read only by the brothers
+		 * @param index index of this brother's move
+		 * @param depth remaining depth, including the move
+		 * @param ply distance of the position from the root
+		 * @param split
+		 */
+		Brother(Board board, Team team, MoveList moves, int index, int depth, int ply,
+				Split split) {
+			this.board = board.clone();
+			this.team = team;
+			this.moves = moves;
+			this.index = index;
+			this.depth = depth;
+			this.ply = ply;
+			this.split = split;
+		}
+
+		protected void compute() {
+			clocks.get()[1] = 0;
+			if (isStopped(split)) {
+				return;
+			}
+			int alpha = split.alpha.get() - split.margin;
+			value = searchMove(board, team, moves, index, depth, alpha, split.beta, ply, split);
+			// A stopped search returns a meaningless score.
+			valid = !isStopped(split);
+			if (valid) {
+				split.update(value);
+			}
+		}
+	}
+}
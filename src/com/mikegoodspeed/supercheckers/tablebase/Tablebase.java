@@ -0,0 +1,471 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.tablebase;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.BoardTables;
+import com.mikegoodspeed.supercheckers.datastructures.Move;
+import com.mikegoodspeed.supercheckers.datastructures.MoveList;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+
+/**
+ * Endgame tablebases: the game theoretic result of every position with few pieces, with the
+ * number of plies to it under perfect play.
+ * <p>
+ * There is one table for each number of X and O pieces, memory-mapped from its own file.  A
+ * position's entry is found by direct indexing: the X spots are ranked among all 64 spots, the O
+ * spots among the spots X does not hold, and the team to move picks one of two halves.  Each file
+ * is a header followed by the entries, all big-endian:
+ * <pre>
+ * header:  | magic (4) | version (4) | X pieces (4) | O pieces (4) | entry bytes (4) | size (4) |
+ * entries: | X to move: size entries | O to move: size entries |
+ * entry:   | distance | result (2) |
+ * </pre>
+ * Results are for the team to move.  A position where the team to move has no legal move is a
+ * draw, as is any position neither team can force a win from.  Tables are written by
+ * {@link TablebaseGenerator}.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class Tablebase {
+
+	/**
+	 * Directory of the tables used by default, as a resource or relative to the working
+	 * directory.
+	 */
+	public static final String DEFAULT_PATH = "tablebases";
+	/**
+	 * Result of a drawn position.
+	 */
+	public static final int DRAW = 0;
+	/**
+	 * Result of a position the team to move wins.
+	 */
+	public static final int WIN = 1;
+	/**
+	 * Result of a position the team to move loses.
+	 */
+	public static final int LOSS = 2;
+	/**
+	 * Probe result of a position without a table.
+	 */
+	public static final int UNKNOWN = -1;
+	/**
+	 * Most pieces of one team in any table.
+	 */
+	public static final int MAX_TEAM_PIECES = 15;
+
+	/**
+	 * First four bytes of every table file, "SCTB".
+	 */
+	static final int MAGIC = 0x53435442;
+	/**
+	 * Version of the table file format.
+	 */
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 24;
+
+	/**
+	 * Binomial coefficients, indexed by n and k.
+	 */
+	private static final long[][] CHOOSE = new long[65][65];
+
+	static {
+		for (int n = 0; n <= 64; n++) {
+			CHOOSE[n][0] = 1;
+			for (int k = 1; k <= n; k++) {
+				CHOOSE[n][k] = CHOOSE[n - 1][k - 1] + CHOOSE[n - 1][k];
+			}
+		}
+	}
+
+	private static Tablebase defaultTablebase = null;
+	private static boolean defaultLoaded = false;
+
+	private final ByteBuffer[][] tables =
+		new ByteBuffer[MAX_TEAM_PIECES + 1][MAX_TEAM_PIECES + 1];
+	private int maxPieces = 0;
+
+	/**
+	 * Create a tablebase without tables.
+	 */
+	public Tablebase() {
+	}
+
+	/**
+	 * Map every table file in a directory into memory.  The files stay mapped, and must not be
+	 * changed, for as long as the tablebase is in use.
+	 *
+	 * @param directory
+	 * @return the tablebase, which has no tables if the directory holds none
+	 * @throws IOException if a table cannot be read or is corrupt
+	 */
+	public static Tablebase open(File directory) throws IOException {
+		Tablebase tablebase = new Tablebase();
+		File[] files = directory.listFiles(new FileFilter() {
+			public boolean accept(File file) {
+				return file.isFile() && file.getName().matches("x\\d+o\\d+\\.sctb");
+			}
+		});
+		if (files != null) {
+			for (File file : files) {
+				tablebase.add(map(file));
+			}
+		}
+		return tablebase;
+	}
+
+	/**
+	 * Returns the tablebase in the default directory, which is mapped once and shared afterwards.
+	 *
+	 * @return the tablebase, or null if there are no tables or they cannot be read
+	 */
+	public static synchronized Tablebase getDefault() {
+		if (!defaultLoaded) {
+			defaultLoaded = true;
+			File directory = new File(DEFAULT_PATH);
+			URL url = Tablebase.class.getResource("/" + DEFAULT_PATH);
+			if (url != null && "file".equals(url.getProtocol())) {
+				try {
+					directory = new File(url.toURI());
+				} catch (URISyntaxException e) {}
+			}
+			if (directory.isDirectory()) {
+				try {
+					Tablebase tablebase = open(directory);
+					if (tablebase.getMaxPieces() > 0) {
+						defaultTablebase = tablebase;
+					}
+				} catch (IOException e) {
+					System.err.println("Cannot read tablebase " + directory + ": "
+						+ e.getMessage());
+				}
+			}
+		}
+		return defaultTablebase;
+	}
+
+	/**
+	 * Map a table file into memory.
+	 *
+	 * @param file
+	 * @return the mapped file
+	 * @throws IOException if the file cannot be read
+	 */
+	static ByteBuffer map(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Add a table.
+	 *
+	 * @param table a whole table file
+	 * @throws IOException if the buffer does not hold a valid table
+	 */
+	void add(ByteBuffer table) throws IOException {
+		if (table.capacity() < HEADER_BYTES || table.getInt(0) != MAGIC) {
+			throw new IOException("Not a tablebase");
+		}
+		if (table.getInt(4) != VERSION) {
+			throw new IOException("Unsupported tablebase version " + table.getInt(4));
+		}
+		int xCount = table.getInt(8);
+		int oCount = table.getInt(12);
+		int entryBytes = table.getInt(16);
+		if (xCount < 1 || oCount < 1 || xCount > MAX_TEAM_PIECES || oCount > MAX_TEAM_PIECES
+				|| (entryBytes != 1 && entryBytes != 2) || table.getInt(20) != size(xCount, oCount)
+				|| table.capacity() != HEADER_BYTES + 2L * entryBytes * size(xCount, oCount)) {
+			throw new IOException("Tablebase is truncated or corrupt");
+		}
+		tables[xCount][oCount] = table;
+		maxPieces = Math.max(maxPieces, xCount + oCount);
+	}
+
+	/**
+	 * Look up a position.
+	 *
+	 * @param board
+	 * @param team the team to move
+	 * @return the position's entry, or UNKNOWN if there is no table for it
+	 * @see #getResult(int)
+	 * @see #getDistance(int)
+	 */
+	public int probe(Board board, Team team) {
+		return probe(board.getMask(Team.X), board.getMask(Team.O), team);
+	}
+
+	/**
+	 * Look up a position given as one mask per team.
+	 *
+	 * @param x mask of the spots held by X
+	 * @param o mask of the spots held by O
+	 * @param team the team to move
+	 * @return the position's entry, or UNKNOWN if there is no table for it
+	 */
+	int probe(long x, long o, Team team) {
+		int xCount = Long.bitCount(x);
+		int oCount = Long.bitCount(o);
+		if (xCount + oCount > maxPieces) {
+			return UNKNOWN;
+		}
+		if (isGameOver(x, o)) {
+			return getGameOverEntry(x, o, team);
+		}
+		ByteBuffer table = tables[xCount][oCount];
+		if (table == null) {
+			return UNKNOWN;
+		}
+		long entry = index(x, o, xCount, oCount) + (Team.O.equals(team) ? table.getInt(20) : 0);
+		if (table.getInt(16) == 1) {
+			return table.get((int) (HEADER_BYTES + entry)) & 0xFF;
+		}
+		return table.getShort((int) (HEADER_BYTES + 2 * entry)) & 0xFFFF;
+	}
+
+	/**
+	 * Choose the move with the best result, winning as quickly or losing as slowly as possible.
+	 *
+	 * @param board the position, which is not changed
+	 * @param team the team to move
+	 * @return the best move, or null if there is no table for the position or no legal move
+	 */
+	public Move getMove(Board board, Team team) {
+		if (probe(board, team) == UNKNOWN) {
+			return null;
+		}
+		Board position = board.clone();
+		MoveList moves = new MoveList();
+		position.generateMoves(team, moves);
+		int best = -1;
+		int bestValue = Integer.MIN_VALUE;
+		for (int i = 0; i < moves.size(); i++) {
+			long undo = position.doMove(team, moves, i);
+			int entry = probe(position, team.getOpponent());
+			position.undoMove(undo);
+			if (entry == UNKNOWN) {
+				return null;
+			}
+			// Rank our wins by speed, then draws, then our losses by length.
+			int value;
+			if (getResult(entry) == LOSS) {
+				value = 2 * Short.MAX_VALUE - getDistance(entry);
+			} else if (getResult(entry) == DRAW) {
+				value = Short.MAX_VALUE;
+			} else {
+				value = getDistance(entry);
+			}
+			if (value > bestValue) {
+				best = i;
+				bestValue = value;
+			}
+		}
+		return best < 0 ? null : moves.getMove(best);
+	}
+
+	/**
+	 * @param entry an entry returned by a probe
+	 * @return WIN, LOSS or DRAW for the team to move
+	 */
+	public static int getResult(int entry) {
+		return entry & 3;
+	}
+
+	/**
+	 * @param entry an entry returned by a probe
+	 * @return the number of plies to the end of the game under perfect play, or 0 for a draw
+	 */
+	public static int getDistance(int entry) {
+		return entry >>> 2;
+	}
+
+	/**
+	 * @return the most pieces in any of the tables, or 0 if there are none
+	 */
+	public int getMaxPieces() {
+		return maxPieces;
+	}
+
+	/**
+	 * Make an entry.
+	 *
+	 * @param result
+	 * @param distance
+	 * @return the entry
+	 */
+	static int entry(int result, int distance) {
+		return result | (distance << 2);
+	}
+
+	/**
+	 * Find the entry of a position in a game over state.
+	 *
+	 * @param x
+	 * @param o
+	 * @param team the team to move
+	 * @return the entry, with a distance of 0
+	 */
+	static int getGameOverEntry(long x, long o, Team team) {
+		boolean xInMiddle = (x & BoardTables.MIDDLE_MASK) != 0;
+		boolean oInMiddle = (o & BoardTables.MIDDLE_MASK) != 0;
+		if (xInMiddle == oInMiddle) {
+			return entry(DRAW, 0);
+		}
+		return entry(xInMiddle == Team.X.equals(team) ? WIN : LOSS, 0);
+	}
+
+	/**
+	 * Determines if a position is in a game over state.  Tables never hold the opening positions,
+	 * so the second move exception of the game does not apply.
+	 *
+	 * @param x
+	 * @param o
+	 * @return true if a team has no spot in the middle
+	 */
+	static boolean isGameOver(long x, long o) {
+		return (x & BoardTables.MIDDLE_MASK) == 0 || (o & BoardTables.MIDDLE_MASK) == 0;
+	}
+
+	/**
+	 * @param n
+	 * @param k
+	 * @return the number of ways to choose k things from n
+	 */
+	static long choose(int n, int k) {
+		return k < 0 || k > n ? 0 : CHOOSE[n][k];
+	}
+
+	/**
+	 * @param xCount
+	 * @param oCount
+	 * @return the number of entries of a table for each team to move
+	 */
+	static long size(int xCount, int oCount) {
+		return choose(64, xCount) * choose(64 - xCount, oCount);
+	}
+
+	/**
+	 * Find the index of a position within its table, for either team to move.
+	 *
+	 * @param x mask of the spots held by X
+	 * @param o mask of the spots held by O
+	 * @param xCount number of spots in x
+	 * @param oCount number of spots in o
+	 * @return the index
+	 */
+	static long index(long x, long o, int xCount, int oCount) {
+		return rank(x) * choose(64 - xCount, oCount) + rank(compress(o, x));
+	}
+
+	/**
+	 * Rank a set of spots among all sets of the same size, in increasing order of their masks.
+	 *
+	 * @param mask
+	 * @return the rank
+	 */
+	static long rank(long mask) {
+		long rank = 0;
+		for (int k = 1; mask != 0; k++) {
+			rank += CHOOSE[Long.numberOfTrailingZeros(mask)][k];
+			mask &= mask - 1;
+		}
+		return rank;
+	}
+
+	/**
+	 * Find the set of spots of a given size and rank.
+	 *
+	 * @param rank
+	 * @param count the number of spots
+	 * @return the mask of the spots
+	 * @see #rank(long)
+	 */
+	static long unrank(long rank, int count) {
+		long mask = 0L;
+		int spot = 63;
+		for (int k = count; k > 0; k--) {
+			while (CHOOSE[spot][k] > rank) {
+				spot--;
+			}
+			mask |= 1L << spot;
+			rank -= CHOOSE[spot][k];
+			spot--;
+		}
+		return mask;
+	}
+
+	/**
+	 * Remove the given spots from the numbering of spots, moving the other spots down to fill
+	 * the gaps.
+	 *
+	 * @param mask the spots to renumber, none of which are in removed
+	 * @param removed
+	 * @return the renumbered spots
+	 */
+	static long compress(long mask, long removed) {
+		long result = 0L;
+		while (mask != 0) {
+			int spot = Long.numberOfTrailingZeros(mask);
+			mask &= mask - 1;
+			result |= 1L << (spot - Long.bitCount(removed & ((1L << spot) - 1)));
+		}
+		return result;
+	}
+
+	/**
+	 * Undo {@link #compress(long, long)}.
+	 *
+	 * @param mask the renumbered spots
+	 * @param removed
+	 * @return the spots in the numbering of the whole board
+	 */
+	static long expand(long mask, long removed) {
+		long result = 0L;
+		long free = ~removed;
+		int skipped = 0;
+		while (mask != 0) {
+			int spot = Long.numberOfTrailingZeros(mask);
+			mask &= mask - 1;
+			// Find the free spot numbered spot, counting from where the last one was found.
+			while (skipped < spot) {
+				free &= free - 1;
+				skipped++;
+			}
+			result |= free & -free;
+		}
+		return result;
+	}
+}
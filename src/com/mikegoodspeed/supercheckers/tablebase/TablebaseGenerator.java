@@ -0,0 +1,514 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.tablebase;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.BoardTables;
+import com.mikegoodspeed.supercheckers.datastructures.MoveSink;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+
+/**
+ * Solves every position with up to a given number of pieces by retrograde analysis, and writes
+ * the {@link Tablebase} tables.
+ * <p>
+ * Captures only ever remove pieces, so the tables are solved from the fewest pieces up, and the
+ * result of a capture is always found in a table already solved.  Each table is solved in two
+ * steps:
+ * <ol>
+ * <li>Every position's moves are generated once.  Moves that end the game or capture are scored at
+ * once, and the distinct positions reached without capturing are counted.</li>
+ * <li>Positions are then settled in order of distance, starting from those decided by their
+ * scored moves.  The positions a settled position can be reached from without a capture are
+ * found by generating moves backwards.  A position that can reach a loss for its opponent is a
+ * win, and a position all of whose moves reach wins for its opponent is a loss.</li>
+ * </ol>
+ * Positions left over can not be forced either way, and are draws.
+ * <p>
+ * Run from the command line as <code>TablebaseGenerator [directory [pieces]]</code>.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class TablebaseGenerator {
+
+	/**
+	 * Default most pieces in a table.
+	 */
+	public static final int PIECES = 4;
+
+	private static final byte UNSOLVED = 0;
+	private static final byte WIN = 1;
+	private static final byte LOSS = 2;
+	private static final byte DRAW = 3;
+	/**
+	 * Loss floor of a position with a move that does not lose, a draw or a win.
+	 */
+	private static final short CAN_NOT_LOSE = -1;
+	/**
+	 * Largest distance stored in a one byte entry.
+	 */
+	private static final int BYTE_DISTANCE = 63;
+	/**
+	 * Largest distance stored in a two byte entry.
+	 */
+	private static final int SHORT_DISTANCE = 16383;
+
+	/**
+	 * @param args directory and most pieces, each optional
+	 * @throws IOException if a table cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		File directory = new File(args.length > 0 ? args[0] : Tablebase.DEFAULT_PATH);
+		int pieces = args.length > 1 ? Integer.parseInt(args[1]) : PIECES;
+		long start = System.currentTimeMillis();
+		new TablebaseGenerator(pieces).generate(directory);
+		System.out.println("Wrote tables of up to " + pieces + " pieces to " + directory + " in "
+			+ (System.currentTimeMillis() - start) / 1000 + " s");
+	}
+
+	/**
+	 * Positions to settle at one distance.
+	 */
+	private static class Bucket {
+		int[] positions = new int[16];
+		int size = 0;
+
+		void add(int position) {
+			if (size == positions.length) {
+				int[] grown = new int[positions.length * 2];
+				System.arraycopy(positions, 0, grown, 0, size);
+				positions = grown;
+			}
+			positions[size++] = position;
+		}
+	}
+
+	private final int maxPieces;
+	private final Tablebase tablebase = new Tablebase();
+	private final Board board = new Board();
+
+	// State of the table being solved, indexed by entry.
+	private int xCount = 0;
+	private int oCount = 0;
+	private int size = 0;
+	private byte[] results = null;
+	private short[] distances = null;
+	private byte[] unsolvedMoves = null;
+	private short[] lossFloors = null;
+	private Bucket[] wins = new Bucket[0];
+	private Bucket[] losses = new Bucket[0];
+	private int maxDistance = 0;
+
+	// Scratch space for the moves of one position.
+	private final int[] children = new int[256];
+	private int childCount = 0;
+	private int winDistance = 0;
+	private int lossFloor = 0;
+
+	/**
+	 * Create a generator.
+	 *
+	 * @param maxPieces most pieces in a table, counting both teams
+	 */
+	public TablebaseGenerator(int maxPieces) {
+		this.maxPieces = maxPieces;
+	}
+
+	/**
+	 * Solve and write every table, replacing any tables already in the directory.
+	 *
+	 * @param directory
+	 * @return the tablebase of the written tables
+	 * @throws IOException if a table cannot be written
+	 * @throws IllegalArgumentException if a table would be too large
+	 */
+	public Tablebase generate(File directory) throws IOException, IllegalArgumentException {
+		directory.mkdirs();
+		for (int pieces = 2; pieces <= maxPieces; pieces++) {
+			for (int x = 1; x < pieces; x++) {
+				if (x > Tablebase.MAX_TEAM_PIECES || pieces - x > Tablebase.MAX_TEAM_PIECES) {
+					continue;
+				}
+				solve(x, pieces - x);
+				File file = new File(directory, "x" + x + "o" + (pieces - x) + ".sctb");
+				write(file);
+				results = null;
+				distances = null;
+				unsolvedMoves = null;
+				lossFloors = null;
+				tablebase.add(Tablebase.map(file));
+			}
+		}
+		return tablebase;
+	}
+
+	/**
+	 * Solve the table of a number of pieces of each team.
+	 *
+	 * @param xPieces
+	 * @param oPieces
+	 * @throws IllegalArgumentException if the table would be too large
+	 */
+	private void solve(int xPieces, int oPieces) throws IllegalArgumentException {
+		long positions = Tablebase.size(xPieces, oPieces);
+		if (positions > Integer.MAX_VALUE / 2 - Tablebase.HEADER_BYTES) {
+			throw new IllegalArgumentException("Table x" + xPieces + "o" + oPieces
+				+ " is too large");
+		}
+		xCount = xPieces;
+		oCount = oPieces;
+		size = (int) positions;
+		results = new byte[2 * size];
+		distances = new short[2 * size];
+		unsolvedMoves = new byte[2 * size];
+		lossFloors = new short[2 * size];
+		wins = new Bucket[16];
+		losses = new Bucket[16];
+		maxDistance = 0;
+
+		// Generate the moves of every position, in index order.
+		long oPositions = Tablebase.choose(64 - xCount, oCount);
+		long x = (1L << xCount) - 1;
+		for (int xRank = 0; xRank < size / oPositions; xRank++) {
+			long o = (1L << oCount) - 1;
+			for (int oRank = 0; oRank < oPositions; oRank++) {
+				int index = (int) (xRank * oPositions + oRank);
+				long oMask = Tablebase.expand(o, x);
+				analyze(x, oMask, Team.X, index);
+				analyze(x, oMask, Team.O, index + size);
+				o = nextCombination(o);
+			}
+			x = nextCombination(x);
+		}
+
+		// Settle positions in order of distance.
+		for (int distance = 1; distance < wins.length; distance++) {
+			settle(wins[distance], WIN, distance);
+			settle(losses[distance], LOSS, distance);
+			wins[distance] = null;
+			losses[distance] = null;
+		}
+		wins = new Bucket[0];
+		losses = new Bucket[0];
+	}
+
+	/**
+	 * Generate the moves of a position and score those that capture or end the game.
+	 *
+	 * @param x
+	 * @param o
+	 * @param team the team to move
+	 * @param entry
+	 */
+	private void analyze(final long x, final long o, final Team team, int entry) {
+		if (Tablebase.isGameOver(x, o)) {
+			int result = Tablebase.getResult(Tablebase.getGameOverEntry(x, o, team));
+			results[entry] = result == Tablebase.WIN ? WIN : result == Tablebase.LOSS ? LOSS : DRAW;
+			return;
+		}
+		childCount = 0;
+		winDistance = Integer.MAX_VALUE;
+		lossFloor = 0;
+		final boolean xToMove = Team.X.equals(team);
+		final Team opponent = team.getOpponent();
+		final int[] moveCount = new int[1];
+		board.setPosition(x, o, team);
+		board.generateMoves(team, new MoveSink() {
+			public void add(int[] spots, int length) {
+				moveCount[0]++;
+				long own = xToMove ? x : o;
+				long other = xToMove ? o : x;
+				own = play(own, spots, length);
+				other = capture(other, spots, length);
+				long nextX = xToMove ? own : other;
+				long nextO = xToMove ? other : own;
+				if (Tablebase.isGameOver(nextX, nextO)) {
+					score(Tablebase.getGameOverEntry(nextX, nextO, opponent));
+				} else if (Long.bitCount(other) == Long.bitCount(xToMove ? o : x)) {
+					addChild(getEntry(nextX, nextO, opponent));
+				} else {
+					score(tablebase.probe(nextX, nextO, opponent));
+				}
+			}
+		});
+		if (moveCount[0] == 0) {
+			results[entry] = DRAW;
+			return;
+		}
+		unsolvedMoves[entry] = (byte) childCount;
+		lossFloors[entry] = (short) lossFloor;
+		if (winDistance != Integer.MAX_VALUE) {
+			getBucket(true, winDistance).add(entry);
+		}
+		if (childCount == 0 && lossFloor != CAN_NOT_LOSE) {
+			getBucket(false, lossFloor).add(entry);
+		}
+	}
+
+	/**
+	 * Add a position reached without capturing, once however many moves reach it.
+	 *
+	 * @param entry
+	 */
+	private void addChild(int entry) {
+		for (int i = 0; i < childCount; i++) {
+			if (children[i] == entry) {
+				return;
+			}
+		}
+		children[childCount++] = entry;
+	}
+
+	/**
+	 * Score a move that captures or ends the game.
+	 *
+	 * @param entry the tablebase entry of the position after the move, for the opponent
+	 * @throws IllegalStateException if the position after the move is not solved
+	 */
+	private void score(int entry) throws IllegalStateException {
+		if (entry == Tablebase.UNKNOWN) {
+			throw new IllegalStateException("Capture leads to an unsolved table");
+		}
+		int result = Tablebase.getResult(entry);
+		int distance = Tablebase.getDistance(entry) + 1;
+		if (result == Tablebase.LOSS) {
+			winDistance = Math.min(winDistance, distance);
+			lossFloor = CAN_NOT_LOSE;
+		} else if (result == Tablebase.DRAW) {
+			lossFloor = CAN_NOT_LOSE;
+		} else if (lossFloor != CAN_NOT_LOSE) {
+			lossFloor = Math.max(lossFloor, distance);
+		}
+	}
+
+	/**
+	 * Settle the positions of a bucket that are not settled yet, and pass the news on to the
+	 * positions they can be reached from.
+	 *
+	 * @param bucket the positions, may be null
+	 * @param result WIN or LOSS
+	 * @param distance
+	 */
+	private void settle(Bucket bucket, byte result, int distance) {
+		if (bucket == null) {
+			return;
+		}
+		for (int i = 0; i < bucket.size; i++) {
+			int entry = bucket.positions[i];
+			if (results[entry] != UNSOLVED) {
+				continue;
+			}
+			results[entry] = result;
+			distances[entry] = (short) distance;
+			maxDistance = Math.max(maxDistance, distance);
+			childCount = 0;
+			addParents(entry);
+			for (int parent = 0; parent < childCount; parent++) {
+				int parentEntry = children[parent];
+				if (results[parentEntry] != UNSOLVED) {
+					continue;
+				}
+				if (result == LOSS) {
+					getBucket(true, distance + 1).add(parentEntry);
+				} else if (--unsolvedMoves[parentEntry] == 0
+						&& lossFloors[parentEntry] != CAN_NOT_LOSE) {
+					getBucket(false, Math.max(distance + 1, lossFloors[parentEntry]))
+						.add(parentEntry);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Find the positions a position can be reached from by a move that does not capture, and
+	 * collect their entries in children.
+	 *
+	 * @param entry a position that is not in a game over state
+	 */
+	private void addParents(int entry) {
+		Team team = entry < size ? Team.X : Team.O;
+		int index = entry < size ? entry : entry - size;
+		long oPositions = Tablebase.choose(64 - xCount, oCount);
+		long x = Tablebase.unrank(index / oPositions, xCount);
+		long o = Tablebase.expand(Tablebase.unrank(index % oPositions, oCount), x);
+		// The opponent of the team to move made the last move.
+		Team mover = team.getOpponent();
+		long own = Team.X.equals(mover) ? x : o;
+		long empty = ~(x | o);
+		long pieces = own;
+		while (pieces != 0) {
+			int end = Long.numberOfTrailingZeros(pieces);
+			pieces &= pieces - 1;
+			long others = own & ~(1L << end);
+			boolean othersInMiddle = (others & BoardTables.MIDDLE_MASK) != 0;
+			for (int direction = 0; direction < BoardTables.DIRECTIONS; direction++) {
+				int start = BoardTables.SLIDE[direction][end];
+				if (start >= 0 && (empty & (1L << start)) != 0) {
+					addParent(others | (1L << start), x, o, mover, othersInMiddle, start);
+				}
+			}
+			addJumpParents(end, 1L << end, others, x, o, mover, othersInMiddle);
+		}
+	}
+
+	/**
+	 * Follow a jump series that does not capture backwards from a spot, adding a parent for each
+	 * spot it could have started on.
+	 *
+	 * @param spot the spot the series reached
+	 * @param visited mask of the spots of the series after spot
+	 * @param others the moving team's other spots
+	 * @param x
+	 * @param o
+	 * @param mover the team that made the series
+	 * @param othersInMiddle true if the moving team has another spot in the middle
+	 */
+	private void addJumpParents(int spot, long visited, long others, long x, long o, Team mover,
+			boolean othersInMiddle) {
+		long empty = ~(x | o);
+		for (int direction = 0; direction < BoardTables.DIRECTIONS; direction++) {
+			int start = BoardTables.JUMP[direction][spot];
+			if (start < 0 || (empty & ~visited & (1L << start)) == 0
+					|| (others & (1L << BoardTables.JUMPED[direction][spot])) == 0) {
+				// Only the moving team's own spots are jumped without a capture.
+				continue;
+			}
+			addParent(others | (1L << start), x, o, mover, othersInMiddle, start);
+			// A series only goes on from a spot that does not leave the game over.
+			if (othersInMiddle || (BoardTables.MIDDLE_MASK & (1L << start)) != 0) {
+				addJumpParents(start, visited | (1L << start), others, x, o, mover,
+					othersInMiddle);
+			}
+		}
+	}
+
+	private void addParent(long own, long x, long o, Team mover, boolean othersInMiddle,
+			int start) {
+		if (!othersInMiddle && (BoardTables.MIDDLE_MASK & (1L << start)) == 0) {
+			return; // the parent is in a game over state
+		}
+		if (Team.X.equals(mover)) {
+			addChild(getEntry(own, o, mover));
+		} else {
+			addChild(getEntry(x, own, mover));
+		}
+	}
+
+	/**
+	 * @param x
+	 * @param o
+	 * @param team the team to move
+	 * @return the entry of a position in the table being solved
+	 */
+	private int getEntry(long x, long o, Team team) {
+		int index = (int) Tablebase.index(x, o, xCount, oCount);
+		return Team.X.equals(team) ? index : index + size;
+	}
+
+	private Bucket getBucket(boolean win, int distance) {
+		if (distance > SHORT_DISTANCE) {
+			throw new IllegalStateException("Distance " + distance + " is too long to store");
+		}
+		if (distance >= wins.length) {
+			Bucket[] grownWins = new Bucket[Math.max(wins.length * 2, distance + 1)];
+			Bucket[] grownLosses = new Bucket[grownWins.length];
+			System.arraycopy(wins, 0, grownWins, 0, wins.length);
+			System.arraycopy(losses, 0, grownLosses, 0, losses.length);
+			wins = grownWins;
+			losses = grownLosses;
+		}
+		Bucket[] buckets = win ? wins : losses;
+		if (buckets[distance] == null) {
+			buckets[distance] = new Bucket();
+		}
+		return buckets[distance];
+	}
+
+	/**
+	 * Write the solved table.
+	 *
+	 * @param file
+	 * @throws IOException if the file cannot be written
+	 */
+	private void write(File file) throws IOException {
+		int entryBytes = maxDistance <= BYTE_DISTANCE ? 1 : 2;
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+			new FileOutputStream(file)));
+		try {
+			out.writeInt(Tablebase.MAGIC);
+			out.writeInt(Tablebase.VERSION);
+			out.writeInt(xCount);
+			out.writeInt(oCount);
+			out.writeInt(entryBytes);
+			out.writeInt(size);
+			for (int entry = 0; entry < 2 * size; entry++) {
+				int result = results[entry] == WIN ? Tablebase.WIN
+						: results[entry] == LOSS ? Tablebase.LOSS : Tablebase.DRAW;
+				int value = Tablebase.entry(result,
+					result == Tablebase.DRAW ? 0 : distances[entry]);
+				if (entryBytes == 1) {
+					out.writeByte(value);
+				} else {
+					out.writeShort(value);
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Move the moving spot of a move.
+	 */
+	private static long play(long own, int[] spots, int length) {
+		return (own & ~(1L << spots[0])) | (1L << spots[length - 1]);
+	}
+
+	/**
+	 * Remove the spots captured by a move.
+	 */
+	private static long capture(long other, int[] spots, int length) {
+		for (int i = 1; i < length; i++) {
+			int step = Math.abs(spots[i] - spots[i - 1]);
+			if (step == 2 || step == 16) {
+				other &= ~(1L << ((spots[i] + spots[i - 1]) >>> 1));
+			}
+		}
+		return other;
+	}
+
+	/**
+	 * @param mask
+	 * @return the next larger mask with the same number of spots
+	 */
+	private static long nextCombination(long mask) {
+		long lowest = mask & -mask;
+		long ripple = mask + lowest;
+		return ripple == 0 ? 0 : (((ripple ^ mask) >>> 2) / lowest) | ripple;
+	}
+}
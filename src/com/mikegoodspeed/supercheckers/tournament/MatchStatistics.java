@@ -0,0 +1,245 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.tournament;
+
+/**
+ * Results of a match between two players, counted from the first player's side, with the Elo
+ * difference they suggest.
+ * <p>
+ * A win scores 1, a draw 1/2 and a loss 0.  The Elo difference is the one at which the expected
+ * score equals the mean score, and its 95% confidence interval comes from the normal
+ * approximation to the mean score.  A sequential probability ratio test (SPRT) decides between
+ * the hypotheses that the difference is elo0 or elo1, using the normal approximation to the
+ * generalized log-likelihood ratio, so a match can stop as soon as the result is clear.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class MatchStatistics {
+
+	/**
+	 * Outcomes of a sequential probability ratio test.
+	 */
+	public enum Decision {
+		/**
+		 * The difference is elo0, or less
+		 */
+		H0,
+
+		/**
+		 * The difference is elo1, or more
+		 */
+		H1,
+
+		/**
+		 * Not decided yet
+		 */
+		CONTINUE;
+	}
+
+	/**
+	 * Normal quantile of the 95% confidence interval.
+	 */
+	private static final double Z_95 = 1.959963984540054;
+
+	/**
+	 * Elo difference reported for a perfect or zero score.
+	 */
+	private static final double MAX_ELO = 2000;
+
+	/**
+	 * @param score an expected score between 0 and 1
+	 * @return the Elo difference giving that score
+	 */
+	public static double toElo(double score) {
+		if (score <= 0) {
+			return -MAX_ELO;
+		} else if (score >= 1) {
+			return MAX_ELO;
+		}
+		return Math.max(-MAX_ELO, Math.min(MAX_ELO, -400 * Math.log10(1 / score - 1)));
+	}
+
+	/**
+	 * @param elo an Elo difference
+	 * @return the expected score at that difference
+	 */
+	public static double toScore(double elo) {
+		return 1 / (1 + Math.pow(10, -elo / 400));
+	}
+
+	private int wins = 0;
+	private int draws = 0;
+	private int losses = 0;
+
+	/**
+	 * Create empty statistics.
+	 */
+	public MatchStatistics() {}
+
+	/**
+	 * Create statistics with given counts.
+	 *
+	 * @param wins
+	 * @param draws
+	 * @param losses
+	 */
+	public MatchStatistics(int wins, int draws, int losses) {
+		this.wins = wins;
+		this.draws = draws;
+		this.losses = losses;
+	}
+
+	/**
+	 * Count a draw.
+	 */
+	public void addDraw() {
+		draws++;
+	}
+
+	/**
+	 * Count a loss of the first player.
+	 */
+	public void addLoss() {
+		losses++;
+	}
+
+	/**
+	 * Count a win of the first player.
+	 */
+	public void addWin() {
+		wins++;
+	}
+
+	/**
+	 * @return the number of draws
+	 */
+	public int getDraws() {
+		return draws;
+	}
+
+	/**
+	 * @return the Elo difference of the first player over the second
+	 */
+	public double getElo() {
+		return toElo(getScore());
+	}
+
+	/**
+	 * @return the upper end of the 95% confidence interval of the Elo difference
+	 */
+	public double getEloHigh() {
+		return toElo(getScore() + Z_95 * Math.sqrt(getVariance() / Math.max(1, getGames())));
+	}
+
+	/**
+	 * @return the lower end of the 95% confidence interval of the Elo difference
+	 */
+	public double getEloLow() {
+		return toElo(getScore() - Z_95 * Math.sqrt(getVariance() / Math.max(1, getGames())));
+	}
+
+	/**
+	 * @return the number of games counted
+	 */
+	public int getGames() {
+		return wins + draws + losses;
+	}
+
+	/**
+	 * Log-likelihood ratio of an Elo difference of elo1 over one of elo0.  Half a win and half a
+	 * loss are added to the counts, so a match that is all wins or all losses can be decided.
+	 *
+	 * @param elo0
+	 * @param elo1
+	 * @return the ratio
+	 */
+	public double getLlr(double elo0, double elo1) {
+		double games = getGames() + 1;
+		double score = (wins + 0.5 + 0.5 * draws) / games;
+		double variance = ((wins + 0.5) * (1 - score) * (1 - score) + draws * (0.5 - score)
+			* (0.5 - score) + (losses + 0.5) * score * score) / games;
+		double score0 = toScore(elo0);
+		double score1 = toScore(elo1);
+		return games * (score1 - score0) * (2 * score - score0 - score1) / (2 * variance);
+	}
+
+	/**
+	 * @return the number of losses of the first player
+	 */
+	public int getLosses() {
+		return losses;
+	}
+
+	/**
+	 * @return the mean score of the first player, or 1/2 before any games
+	 */
+	public double getScore() {
+		int games = getGames();
+		return games == 0 ? 0.5 : (wins + 0.5 * draws) / games;
+	}
+
+	/**
+	 * @return the variance of the score of a single game
+	 */
+	public double getVariance() {
+		int games = getGames();
+		if (games == 0) {
+			return 0;
+		}
+		double score = getScore();
+		return (wins * (1 - score) * (1 - score) + draws * (0.5 - score) * (0.5 - score)
+			+ losses * score * score) / games;
+	}
+
+	/**
+	 * @return the number of wins of the first player
+	 */
+	public int getWins() {
+		return wins;
+	}
+
+	/**
+	 * Run a sequential probability ratio test on the games so far.
+	 *
+	 * @param elo0 the Elo difference of the null hypothesis
+	 * @param elo1 the Elo difference of the alternative hypothesis, greater than elo0
+	 * @param alpha probability of accepting H1 when H0 is true
+	 * @param beta probability of accepting H0 when H1 is true
+	 * @return the decision
+	 */
+	public Decision test(double elo0, double elo1, double alpha, double beta) {
+		double llr = getLlr(elo0, elo1);
+		if (llr >= Math.log((1 - beta) / alpha)) {
+			return Decision.H1;
+		} else if (llr <= Math.log(beta / (1 - alpha))) {
+			return Decision.H0;
+		}
+		return Decision.CONTINUE;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("+%d =%d -%d, Elo %.1f [%.1f, %.1f]", wins, draws, losses, getElo(),
+			getEloLow(), getEloHigh());
+	}
+}
@@ -0,0 +1,501 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.tournament;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.mikegoodspeed.supercheckers.book.OpeningBook;
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.MoveList;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+import com.mikegoodspeed.supercheckers.main.GameSession;
+import com.mikegoodspeed.supercheckers.players.AlphaBetaPlayer;
+import com.mikegoodspeed.supercheckers.players.EasyComputerPlayer;
+import com.mikegoodspeed.supercheckers.players.MonteCarloPlayer;
+import com.mikegoodspeed.supercheckers.players.Player;
+import com.mikegoodspeed.supercheckers.record.GameRecord;
+import com.mikegoodspeed.supercheckers.record.GameRecordWriter;
+import com.mikegoodspeed.supercheckers.tablebase.Tablebase;
+
+/**
+ * Plays a match between two players without any window, using every core.
+ * <p>
+ * Games are played in pairs.  Both games of a pair start from the same random opening and give
+ * the players the same seed, with the colours swapped, so neither player gains from the luck of
+ * the opening.  Game i uses the seed of the match plus i / 2, so a match can be repeated exactly
+ * by players whose moves depend only on their seed.
+ * <p>
+ * Results are counted in the order of the games, not the order they finish: a result is held
+ * back until the results of the games before it are counted.  With a sequential probability
+ * ratio test set, the match stops as soon as the test is decided, and later games are not
+ * counted, even if they are already finished.  A seeded match therefore gives the same results
+ * and the same decision however many threads play it.
+ * <p>
+ * Run from the command line as
+ * <code>Tournament first second [games [threads [elo0 elo1]]] [-record file] [-book file]
+ * [-tablebase directory]</code>, where the players are easy, alphabeta or montecarlo.  The players
+ * only use the opening book and tablebase given on the command line, never whatever happens to
+ * be found from the working directory, so the same arguments always play the same games.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class Tournament {
+
+	/**
+	 * Default largest number of games.
+	 */
+	public static final int GAMES = 1000;
+	/**
+	 * Default number of moves each side makes at random before the players take over.
+	 */
+	public static final int OPENING_ROUNDS = 2;
+	/**
+	 * Default SPRT probability of accepting H1 when H0 is true.
+	 */
+	public static final double ALPHA = 0.05;
+	/**
+	 * Default SPRT probability of accepting H0 when H1 is true.
+	 */
+	public static final double BETA = 0.05;
+
+	private static final long KEEP_ALIVE_SECONDS = 60;
+	private static final long NODES = 20000;
+	private static final long PLAYOUTS = 2000;
+
+	/**
+	 * @param args first and second player, then the largest number of games, the number of
+	 *        threads, and the Elo differences of the SPRT hypotheses, each optional,
+	 *        <code>-record file</code> anywhere to write the games to a file, and
+	 *        <code>-book file</code> and <code>-tablebase directory</code> anywhere to give the
+	 *        players an opening book and an endgame tablebase
+	 * @throws IOException if the games cannot be written, or the book or tablebase read
+	 */
+	public static void main(String[] args) throws IOException {
+		List<String> values = new ArrayList<String>();
+		String recordFile = null;
+		OpeningBook book = null;
+		Tablebase tablebase = null;
+		for (int i = 0; i < args.length; i++) {
+			if ("-record".equals(args[i]) && i + 1 < args.length) {
+				recordFile = args[++i];
+			} else if ("-book".equals(args[i]) && i + 1 < args.length) {
+				book = OpeningBook.open(new File(args[++i]));
+			} else if ("-tablebase".equals(args[i]) && i + 1 < args.length) {
+				tablebase = Tablebase.open(new File(args[++i]));
+			} else {
+				values.add(args[i]);
+			}
+		}
+		if (values.size() < 2) {
+			System.err.println("usage: Tournament first second [games [threads [elo0 elo1]]]"
+				+ " [-record file] [-book file] [-tablebase directory]");
+			return;
+		}
+		Tournament tournament = new Tournament(getFactory(values.get(0), book, tablebase),
+			getFactory(values.get(1), book, tablebase));
+		if (values.size() > 2) {
+			tournament.setGames(Integer.parseInt(values.get(2)));
+		}
+		if (values.size() > 3) {
+			tournament.setThreads(Integer.parseInt(values.get(3)));
+		}
+		boolean sprt = values.size() > 5;
+		if (sprt) {
+			tournament.setSprt(Double.parseDouble(values.get(4)),
+				Double.parseDouble(values.get(5)), ALPHA, BETA);
+		}
+		GameRecordWriter writer = null;
+		if (recordFile != null) {
+			writer = new GameRecordWriter(new FileOutputStream(recordFile));
+			tournament.setRecord(writer);
+		}
+		tournament.setLog(System.out, 100);
+		MatchStatistics statistics = tournament.play();
+		System.out.println(values.get(0) + " vs " + values.get(1) + ": " + statistics);
+		if (sprt) {
+			System.out.println("SPRT: " + tournament.getDecision());
+		}
+		if (writer != null) {
+			writer.close();
+			System.out.println("Wrote " + writer.getCount() + " games to " + recordFile);
+		}
+		tournament.shutdown();
+	}
+
+	/**
+	 * @param name easy, alphabeta or montecarlo
+	 * @param book the opening book for players that use one, or null for none
+	 * @param tablebase the endgame tablebase, or null for none
+	 * @return a factory for the named player, with a fixed budget so games can be repeated
+	 * @throws IllegalArgumentException if the name is not known
+	 */
+	private static PlayerFactory getFactory(String name, final OpeningBook book,
+		final Tablebase tablebase) throws IllegalArgumentException {
+		if ("easy".equals(name)) {
+			return new PlayerFactory() {
+				public Player create(Board board, Team team, SplittableRandom random) {
+					EasyComputerPlayer player = new EasyComputerPlayer(board, team, random);
+					player.setBook(book);
+					player.setTablebase(tablebase);
+					return player;
+				}
+			};
+		} else if ("alphabeta".equals(name)) {
+			return new PlayerFactory() {
+				public Player create(Board board, Team team, SplittableRandom random) {
+					Player player = new AlphaBetaPlayer(board, team, 0, NODES, 1);
+					player.setTablebase(tablebase);
+					return player;
+				}
+			};
+		} else if ("montecarlo".equals(name)) {
+			return new PlayerFactory() {
+				public Player create(Board board, Team team, SplittableRandom random) {
+					Player player = new MonteCarloPlayer(board, team, 0, PLAYOUTS, 1, random);
+					player.setTablebase(tablebase);
+					return player;
+				}
+			};
+		}
+		throw new IllegalArgumentException("Unknown player: " + name);
+	}
+
+	private PlayerFactory first = null;
+	private PlayerFactory second = null;
+	private int games = GAMES;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private long seed = 0;
+	private int maxPlies = GameSession.MAX_PLIES;
+	private int openingRounds = OPENING_ROUNDS;
+	private boolean sprt = false;
+	private double elo0 = 0;
+	private double elo1 = 0;
+	private double alpha = ALPHA;
+	private double beta = BETA;
+	private GameRecordWriter writer = null;
+	private PrintStream log = null;
+	private int logInterval = 0;
+	private MatchStatistics statistics = new MatchStatistics();
+	private Map<Integer, Integer> pending = new HashMap<Integer, Integer>();
+	private MatchStatistics.Decision decision = MatchStatistics.Decision.CONTINUE;
+	private ThreadPoolExecutor pool = null;
+	private int poolThreads = 0;
+
+	/**
+	 * Create a match between two players.
+	 *
+	 * @param first the player whose results are counted
+	 * @param second the opponent
+	 */
+	public Tournament(PlayerFactory first, PlayerFactory second) {
+		this.first = first;
+		this.second = second;
+	}
+
+	/**
+	 * @return the SPRT decision of the last match, or CONTINUE if none was reached
+	 */
+	public MatchStatistics.Decision getDecision() {
+		return decision;
+	}
+
+	/**
+	 * @return a copy of the results counted so far, which may be read while a match is played
+	 */
+	public synchronized MatchStatistics getStatistics() {
+		return new MatchStatistics(statistics.getWins(), statistics.getDraws(),
+			statistics.getLosses());
+	}
+
+	/**
+	 * Play the match.
+	 *
+	 * @return the results, counted from the first player's side
+	 * @throws IllegalStateException if a player made an invalid move
+	 */
+	public MatchStatistics play() throws IllegalStateException {
+		synchronized (this) {
+			statistics = new MatchStatistics();
+			pending.clear();
+			decision = MatchStatistics.Decision.CONTINUE;
+		}
+		final AtomicInteger next = new AtomicInteger();
+		Runnable worker = new Runnable() {
+			public void run() {
+				for (int game = next.getAndIncrement(); game < games; game = next.getAndIncrement()) {
+					if (!record(game, playGame(game))) {
+						next.set(games);
+					}
+				}
+			}
+		};
+		int helpers = Math.min(Math.max(1, threads), games) - 1;
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int i = 0; i < helpers; i++) {
+			futures.add(getPool(helpers).submit(worker));
+		}
+		worker.run();
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for games", e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Game failed", e.getCause());
+			}
+		}
+		return getStatistics();
+	}
+
+	/**
+	 * Play one game of the match.
+	 *
+	 * @param game the number of the game
+	 * @return 1 if the first player won, -1 if it lost, 0 for a draw
+	 */
+	private int playGame(int game) {
+		SplittableRandom random = new SplittableRandom(seed + game / 2);
+		Board board = new Board();
+		MoveList opening = playOpening(board, random);
+		boolean firstIsX = game % 2 == 0;
+		Player x = (firstIsX ? first : second).create(board, Team.X, random.split());
+		Player o = (firstIsX ? second : first).create(board, Team.O, random.split());
+		GameSession session = new GameSession(board, x, o);
+		session.setMaxPlies(maxPlies);
+		GameRecord record = null;
+		if (writer != null) {
+			record = new GameRecord(x.toString(), o.toString(), seed + game / 2);
+			for (int i = 0; i < opening.size(); i++) {
+				record.addMove(opening.get(i), opening.getChains());
+			}
+			session.setListener(record);
+		}
+		Team result = session.play();
+		if (record != null) {
+			synchronized (writer) {
+				try {
+					writer.write(record);
+				} catch (IOException e) {
+					throw new IllegalStateException("Cannot write game " + game, e);
+				}
+			}
+		}
+		if (result == null || Team.NOBODY.equals(result)) {
+			return 0;
+		}
+		return Team.X.equals(result) == firstIsX ? 1 : -1;
+	}
+
+	/**
+	 * Make random moves for both sides.  Openings that end the game are drawn again.
+	 *
+	 * @param board a new board
+	 * @param random
+	 * @return the moves made
+	 */
+	private MoveList playOpening(Board board, SplittableRandom random) {
+		MoveList opening = new MoveList();
+		MoveList moves = new MoveList();
+		for (int ply = 0; ply < 2 * openingRounds; ply++) {
+			Team team = board.getTurn();
+			moves.clear();
+			board.generateMoves(team, moves);
+			if (moves.size() == 0) {
+				board.reset();
+				opening.clear();
+				ply = -1;
+				continue;
+			}
+			int index = random.nextInt(moves.size());
+			long undo = board.doMove(team, moves, index);
+			if (board.isGameOver()) {
+				board.undoMove(undo);
+				ply--;
+			} else {
+				int[] spots = new int[moves.length(index)];
+				for (int i = 0; i < spots.length; i++) {
+					spots[i] = moves.getSpot(index, i);
+				}
+				opening.add(spots, spots.length);
+			}
+		}
+		return opening;
+	}
+
+	/**
+	 * Hold back the result of a game until the games before it are counted, then count the
+	 * results that are ready in order, running the test after each.
+	 *
+	 * @param game the number of the game
+	 * @param result 1 if the first player won, -1 if it lost, 0 for a draw
+	 * @return false if the match is over
+	 */
+	private synchronized boolean record(int game, int result) {
+		if (!MatchStatistics.Decision.CONTINUE.equals(decision)) {
+			return false;
+		}
+		pending.put(game, result);
+		for (Integer ready = pending.remove(statistics.getGames()); ready != null; ready =
+			pending.remove(statistics.getGames())) {
+			if (ready > 0) {
+				statistics.addWin();
+			} else if (ready < 0) {
+				statistics.addLoss();
+			} else {
+				statistics.addDraw();
+			}
+			if (sprt) {
+				decision = statistics.test(elo0, elo1, alpha, beta);
+			}
+			if (log != null && (statistics.getGames() % logInterval == 0
+					|| !MatchStatistics.Decision.CONTINUE.equals(decision))) {
+				log.println(statistics.getGames() + " games: " + statistics
+					+ (sprt ? String.format(", LLR %.2f", statistics.getLlr(elo0, elo1)) : ""));
+			}
+			if (!MatchStatistics.Decision.CONTINUE.equals(decision)) {
+				pending.clear();
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the pool running helper threads, created on first use
+	 */
+	private ThreadPoolExecutor getPool(int threads) {
+		if (pool == null || poolThreads < threads) {
+			shutdown();
+			poolThreads = threads;
+			pool = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "Supercheckers Tournament");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+			pool.allowCoreThreadTimeOut(true);
+		}
+		return pool;
+	}
+
+	/**
+	 * @param games the largest number of games to play
+	 */
+	public void setGames(int games) {
+		this.games = games;
+	}
+
+	/**
+	 * Print the results every so many games.
+	 *
+	 * @param log the stream to print to, or null for none
+	 * @param interval number of games between lines
+	 */
+	public void setLog(PrintStream log, int interval) {
+		this.log = log;
+		this.logInterval = Math.max(1, interval);
+	}
+
+	/**
+	 * @param maxPlies the number of plies after which a game is called a draw
+	 */
+	public void setMaxPlies(int maxPlies) {
+		this.maxPlies = maxPlies;
+	}
+
+	/**
+	 * @param openingRounds the number of random moves each side makes before the players take over
+	 */
+	public void setOpeningRounds(int openingRounds) {
+		this.openingRounds = openingRounds;
+	}
+
+	/**
+	 * Write every game played, with its opening, to a stream of game records.  Games of a match
+	 * stopped by the test may still be written.
+	 *
+	 * @param writer the writer to use, or null to not keep the games
+	 */
+	public void setRecord(GameRecordWriter writer) {
+		this.writer = writer;
+	}
+
+	/**
+	 * @param seed the seed of the first pair of games
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Stop the match as soon as a sequential probability ratio test is decided.
+	 *
+	 * @param elo0 the Elo difference of the first player over the second under H0
+	 * @param elo1 the Elo difference under H1, greater than elo0
+	 * @param alpha probability of accepting H1 when H0 is true
+	 * @param beta probability of accepting H0 when H1 is true
+	 */
+	public void setSprt(double elo0, double elo1, double alpha, double beta) {
+		this.sprt = true;
+		this.elo0 = elo0;
+		this.elo1 = elo1;
+		this.alpha = alpha;
+		this.beta = beta;
+	}
+
+	/**
+	 * @param threads the number of games played at once
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * Stop the helper threads.  The tournament can still be played, and starts new threads if
+	 * needed.
+	 */
+	public void shutdown() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+}
@@ -22,11 +22,13 @@ import java.awt.BorderLayout;
 import java.awt.Cursor;
 import java.awt.Dimension;
 import java.awt.GridLayout;
+import java.awt.Insets;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
+import java.util.List;
 
 import javax.swing.BorderFactory;
 import javax.swing.BoxLayout;
@@ -40,12 +42,15 @@ import javax.swing.JPanel;
 import javax.swing.KeyStroke;
 import javax.swing.UIManager;
 
+import com.mikegoodspeed.supercheckers.book.ExplorerMove;
+import com.mikegoodspeed.supercheckers.book.OpeningExplorer;
 import com.mikegoodspeed.supercheckers.datastructures.Board;
 import com.mikegoodspeed.supercheckers.datastructures.Move;
 import com.mikegoodspeed.supercheckers.datastructures.Players;
 import com.mikegoodspeed.supercheckers.datastructures.Spot;
 import com.mikegoodspeed.supercheckers.datastructures.Team;
 import com.mikegoodspeed.supercheckers.players.Player;
+import com.mikegoodspeed.supercheckers.record.GameRecord;
 import com.mikegoodspeed.supercheckers.utils.GUIInput;
 
 /**
@@ -71,9 +76,17 @@ import com.mikegoodspeed.supercheckers.utils.GUIInput;
  * | | | | | + JLabel p2TypeLbl
  * | | | | | + JLabel p2TotalLbl
  * | | | | | + JLabel p2MiddleLbl
- * | | + JPanel MovePnl
- * | | | + JButton resetBtn
- * | | | + JButton submitBtn
+ * | | + JPanel explorerPnl
+ * | | | + JLabel explorerLbl
+ * | | + JPanel controlPnl
+ * | | | + JPanel replayPnl
+ * | | | | + JButton firstBtn
+ * | | | | + JButton previousBtn
+ * | | | | + JButton nextBtn
+ * | | | | + JButton lastBtn
+ * | | | + JPanel MovePnl
+ * | | | | + JButton resetBtn
+ * | | | | + JButton submitBtn
  * | + JStatusBar statusBar
  * + JMenuBar menu
  * | + JMenu gameMnu
@@ -83,6 +96,10 @@ import com.mikegoodspeed.supercheckers.utils.GUIInput;
  * | | + JMenuItem aboutMnuItem
  * </pre>
  * <p>
+ * The window can also step through a stored game instead of showing a game being played, see
+ * {@link #replay(GameRecord)}.  If there is an {@link OpeningExplorer}, the moves most often
+ * played from the position shown are listed with their games and score.
+ * <p>
  * project Supercheckers <br />
  * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
  *
@@ -92,6 +109,7 @@ import com.mikegoodspeed.supercheckers.utils.GUIInput;
 public class GameBoardFrm extends JFrame {
 
 	private static final long serialVersionUID = -4212234804742120343L;
+	private static final int EXPLORER_MOVES = 4;
 
 	private Board board = null;
 	private JPanel content = null;
@@ -117,13 +135,23 @@ public class GameBoardFrm extends JFrame {
 	private JLabel p2TypeLbl = null;
 	private JLabel p2TotalLbl = null;
 	private JLabel p2MiddleLbl = null;
+	private JPanel explorerPnl = null;
+	private JLabel explorerLbl = null;
+	private JPanel controlPnl = null;
 	private JPanel MovePnl = null;
 	private JButton submitBtn = null;
 	private JButton resetBtn = null;
+	private JPanel replayPnl = null;
+	private JButton firstBtn = null;
+	private JButton previousBtn = null;
+	private JButton nextBtn = null;
+	private JButton lastBtn = null;
+	private GameRecord replayRecord = null;
+	private int replayPly = 0;
 	private JStatusBar statusBar = null;
 	private Team currTeam = Team.X;
 	private GUIInput input = new GUIInput();
-	private boolean listenForInput = false;
+	private OpeningExplorer explorer = OpeningExplorer.getDefault();
 	private Spot hoverSpot = null;
 
 	private ActionListener aboutMnuItemActionListener = new ActionListener() {
@@ -148,7 +176,7 @@ public class GameBoardFrm extends JFrame {
 			String[] loc = ((JLabel) e.getSource()).getName().split(",");
 			int row = new Integer(loc[0]).intValue();
 			int col = new Integer(loc[1]).intValue();
-			if (listenForInput && board.isAvailableSpot(currTeam, input.getMove(), row, col)) {
+			if (input.isWaiting() && board.isAvailableSpot(currTeam, input.getMove(), row, col)) {
 				setCursor(new Cursor(Cursor.HAND_CURSOR));
 			}
 			hoverSpot = new Spot(row, col);
@@ -167,27 +195,28 @@ public class GameBoardFrm extends JFrame {
 			String[] loc = source.getName().split(",");
 			int row = new Integer(loc[0]).intValue();
 			int col = new Integer(loc[1]).intValue();
-			if (listenForInput && new Spot(row, col).equals(hoverSpot)
+			if (input.isWaiting() && new Spot(row, col).equals(hoverSpot)
 					&& board.isAvailableSpot(currTeam, move, row, col)) {
 				if (move.size() == 0) {
-					source.setIcon(Team.NOBODY.getIcon(board.isInMiddle(row, col)));
+					source.setIcon(TeamIcons.getIcon(Team.NOBODY, board.isInMiddle(row, col)));
 				} else {
-					source.setIcon(currTeam.getIcon(board.isInMiddle(row, col)));
+					source.setIcon(TeamIcons.getIcon(currTeam, board.isInMiddle(row, col)));
 					int oldRow = move.getRow(move.size() - 1);
 					int oldCol = move.getCol(move.size() - 1);
-					Board clone = board.clone();
-					clone.doMove(currTeam, move);
-					if (clone.isValidJump(currTeam, oldRow, oldCol, row, col)) {
+					long undo = board.doMove(currTeam, move);
+					if (board.isValidJump(currTeam, oldRow, oldCol, row, col)) {
 						JLabel oldSpot = getButtonByName(oldRow, oldCol);
-						oldSpot.setIcon(Team.NOBODY.getIcon(clone.isInMiddle(oldRow, oldCol)));
+						oldSpot.setIcon(TeamIcons.getIcon(Team.NOBODY,
+								board.isInMiddle(oldRow, oldCol)));
 						int jumpedRow = (oldRow + row) / 2;
 						int jumpedCol = (oldCol + col) / 2;
 						JLabel jumpedSpot = getButtonByName(jumpedRow, jumpedCol);
-						if (!currTeam.equals(clone.get(jumpedRow, jumpedCol))) {
-							jumpedSpot.setIcon(Team.NOBODY.getIcon(
-									clone.isInMiddle(jumpedRow, jumpedCol)));
+						if (!currTeam.equals(board.get(jumpedRow, jumpedCol))) {
+							jumpedSpot.setIcon(TeamIcons.getIcon(Team.NOBODY, 
+									board.isInMiddle(jumpedRow, jumpedCol)));
 						}
 					}
+					board.undoMove(undo);
 				}
 				setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
 				input.addSpot(row, col);
@@ -200,11 +229,24 @@ public class GameBoardFrm extends JFrame {
 	};
 	private ActionListener submitBtnActionListener = new ActionListener() {
 		public void actionPerformed(ActionEvent e) {
-			input.setReady();
+			input.submit();
 			getSubmitBtn().setEnabled(false);
 			getResetBtn().setEnabled(false);
 		}
 	};
+	private ActionListener replayBtnActionListener = new ActionListener() {
+		public void actionPerformed(ActionEvent e) {
+			if (e.getSource() == firstBtn) {
+				showReplayPly(0);
+			} else if (e.getSource() == previousBtn) {
+				showReplayPly(replayPly - 1);
+			} else if (e.getSource() == nextBtn) {
+				showReplayPly(replayPly + 1);
+			} else if (e.getSource() == lastBtn) {
+				showReplayPly(replayRecord.getPlies());
+			}
+		}
+	};
 	private ActionListener resetBtnActionListener = new ActionListener() {
 		public void actionPerformed(ActionEvent e) {
 			input.clearMove();
@@ -313,6 +355,21 @@ public class GameBoardFrm extends JFrame {
 		return content;
 	}
 
+	/**
+	 * This method initializes controlPnl
+	 *
+	 * @return JPanel
+	 */
+	private JPanel getControlPnl() {
+		if (controlPnl == null) {
+			controlPnl = new JPanel();
+			controlPnl.setLayout(new BoxLayout(controlPnl, BoxLayout.Y_AXIS));
+			controlPnl.add(getReplayPnl());
+			controlPnl.add(getMovePnl());
+		}
+		return controlPnl;
+	}
+
 	/**
 	 * This method initializes exitMnuItem
 	 *
@@ -375,14 +432,42 @@ public class GameBoardFrm extends JFrame {
 	}
 
 	/**
-	 * Returns user-chosen move after the submit button has been pressed.
+	 * Returns the move the user is choosing.
 	 *
-	 * @return the move as chosen by the user
+	 * @return the spots chosen so far
 	 */
 	public Move getMove() {
 		return input.getMove();
 	}
 
+	/**
+	 * This method initializes explorerLbl
+	 *
+	 * @return JLabel
+	 */
+	private JLabel getExplorerLbl() {
+		if (explorerLbl == null) {
+			explorerLbl = new JLabel();
+		}
+		return explorerLbl;
+	}
+
+	/**
+	 * This method initializes explorerPnl
+	 *
+	 * @return JPanel
+	 */
+	private JPanel getExplorerPnl() {
+		if (explorerPnl == null) {
+			explorerPnl = new JPanel();
+			explorerPnl.setLayout(new BorderLayout());
+			explorerPnl.setBorder(BorderFactory.createTitledBorder("Explorer"));
+			explorerPnl.add(getExplorerLbl(), BorderLayout.NORTH);
+			explorerPnl.setVisible(explorer != null);
+		}
+		return explorerPnl;
+	}
+
 	/**
 	 * This method initializes MovePnl
 	 *
@@ -446,7 +531,7 @@ public class GameBoardFrm extends JFrame {
 	private JPanel getP1Pnl() {
 		if (p1Pnl == null) {
 			p1IconLbl = new JLabel();
-			p1IconLbl.setIcon(Team.X.getIcon(false));
+			p1IconLbl.setIcon(TeamIcons.getIcon(Team.X, false));
 			p1IconLbl.setText(" ");
 			p1Pnl = new JPanel();
 			p1Pnl.setLayout(new BorderLayout());
@@ -492,7 +577,7 @@ public class GameBoardFrm extends JFrame {
 	private JPanel getP2Pnl() {
 		if (p2Pnl == null) {
 			p2IconLbl = new JLabel();
-			p2IconLbl.setIcon(Team.O.getIcon(false));
+			p2IconLbl.setIcon(TeamIcons.getIcon(Team.O, false));
 			p2IconLbl.setName("p2IconLbl");
 			p2IconLbl.setDisplayedMnemonic(KeyEvent.VK_UNDEFINED);
 			p2IconLbl.setText(" ");
@@ -537,6 +622,38 @@ public class GameBoardFrm extends JFrame {
 		return resetBtn;
 	}
 
+	/**
+	 * This method initializes replayPnl, with its buttons
+	 *
+	 * @return JPanel
+	 */
+	private JPanel getReplayPnl() {
+		if (replayPnl == null) {
+			firstBtn = getReplayBtn("|<", "First move");
+			previousBtn = getReplayBtn("<", "Previous move");
+			nextBtn = getReplayBtn(">", "Next move");
+			lastBtn = getReplayBtn(">|", "Last move");
+			replayPnl = new JPanel();
+			replayPnl.setLayout(new GridLayout(1, 4));
+			replayPnl.setBorder(BorderFactory.createTitledBorder("Replay"));
+			replayPnl.add(firstBtn);
+			replayPnl.add(previousBtn);
+			replayPnl.add(nextBtn);
+			replayPnl.add(lastBtn);
+			replayPnl.setVisible(false);
+		}
+		return replayPnl;
+	}
+
+	private JButton getReplayBtn(String text, String toolTip) {
+		JButton button = new JButton();
+		button.setText(text);
+		button.setToolTipText(toolTip);
+		button.setMargin(new Insets(2, 2, 2, 2));
+		button.addActionListener(replayBtnActionListener);
+		return button;
+	}
+
 	/**
 	 * This method initializes statusBar
 	 *
@@ -576,7 +693,8 @@ public class GameBoardFrm extends JFrame {
 			uiPnl = new JPanel();
 			uiPnl.setLayout(new BorderLayout());
 			uiPnl.add(getPlayerPnl(), BorderLayout.NORTH);
-			uiPnl.add(getMovePnl(), BorderLayout.SOUTH);
+			uiPnl.add(getExplorerPnl(), BorderLayout.CENTER);
+			uiPnl.add(getControlPnl(), BorderLayout.SOUTH);
 		}
 		return uiPnl;
 	}
@@ -608,6 +726,17 @@ public class GameBoardFrm extends JFrame {
 		updateBoard(board);
 	}
 
+	/**
+	 * Sets the opening explorer listing the moves played from the position shown.
+	 *
+	 * @param explorer the explorer, or null to hide the list
+	 */
+	public void setExplorer(OpeningExplorer explorer) {
+		this.explorer = explorer;
+		getExplorerPnl().setVisible(explorer != null);
+		showExplorer(board);
+	}
+
 	/**
 	 * Sets the player names on the window.
 	 *
@@ -628,13 +757,67 @@ public class GameBoardFrm extends JFrame {
 		getStatusBar().setProgressBarEnabled(enabled);
 	}
 
+	/**
+	 * Step through a stored game instead of taking moves, starting from the first position.
+	 *
+	 * @param record the game
+	 */
+	public void replay(GameRecord record) {
+		replayRecord = record;
+		p1TypeLbl.setText(record.getPlayer1());
+		p2TypeLbl.setText(record.getPlayer2());
+		getMovePnl().setVisible(false);
+		getReplayPnl().setVisible(true);
+		showReplayPly(0);
+	}
+
+	/**
+	 * Show the position of the stored game after a number of moves.
+	 *
+	 * @param ply
+	 */
+	private void showReplayPly(int ply) {
+		replayPly = Math.max(0, Math.min(ply, replayRecord.getPlies()));
+		Board replayBoard = new Board();
+		try {
+			replayRecord.replay(replayBoard, replayPly, null);
+		} catch (IllegalArgumentException e) {
+			getStatusBar().setText("Damaged game: " + e.getMessage());
+			return;
+		}
+		updateBoard(replayBoard);
+		setTurn(replayBoard.getTurn());
+		String text = "Move " + replayPly + " of " + replayRecord.getPlies();
+		if (replayPly == replayRecord.getPlies()) {
+			Team result = replayRecord.getResult();
+			if (result == null) {
+				text += ", unfinished";
+			} else if (Team.X.equals(result)) {
+				text += ", Player 1 wins";
+			} else if (Team.O.equals(result)) {
+				text += ", Player 2 wins";
+			} else {
+				text += ", tie game";
+			}
+		}
+		getStatusBar().setText(text);
+		firstBtn.setEnabled(replayPly > 0);
+		previousBtn.setEnabled(replayPly > 0);
+		nextBtn.setEnabled(replayPly < replayRecord.getPlies());
+		lastBtn.setEnabled(replayPly < replayRecord.getPlies());
+	}
+
 	/**
 	 * Sets the turn so the game board reflects the current player's team
 	 * 
 	 * @param player the current player 
 	 */
 	public void setTurn(Player player) {
-		this.currTeam = player.getTeam();
+		setTurn(player.getTeam());
+	}
+
+	private void setTurn(Team team) {
+		this.currTeam = team;
 		if (Team.X.equals(currTeam)) {
 			// Set status bar text
 			statusBar.setText("Current turn: Player 1");
@@ -677,24 +860,58 @@ public class GameBoardFrm extends JFrame {
 		this.board = board;
 		for (int row = 0; row < 8; row++) {
 			for (int col = 0; col < 8; col++) {
-				buttons[row][col].setIcon(board.get(row, col).getIcon(board.isInMiddle(row, col)));
+				buttons[row][col].setIcon(TeamIcons.getIcon(board.get(row, col),
+						board.isInMiddle(row, col)));
 			}
 		}
+		p1TotalLbl.setText("Total Pieces: " + board.getPieceCount(Team.X));
+		p1MiddleLbl.setText("Middle Pieces: " + board.getMiddleCount(Team.X));
+		p2TotalLbl.setText("Total Pieces: " + board.getPieceCount(Team.O));
+		p2MiddleLbl.setText("Middle Pieces: " + board.getMiddleCount(Team.O));
+		showExplorer(board);
+	}
+
+	/**
+	 * List the moves most often played from a position, with the number of games and the score
+	 * of the team to move.
+	 *
+	 * @param board
+	 */
+	private void showExplorer(Board board) {
+		if (explorer == null) {
+			return;
+		}
+		List<ExplorerMove> moves = explorer.getMoves(board);
+		if (moves.isEmpty()) {
+			getExplorerLbl().setText("No games");
+			return;
+		}
+		StringBuilder text = new StringBuilder("<html>");
+		for (int i = 0; i < Math.min(EXPLORER_MOVES, moves.size()); i++) {
+			ExplorerMove move = moves.get(i);
+			text.append(move.getMove()).append(": ").append(move.getGames()).append(" (")
+				.append(Math.round(100 * move.getScore(board.getTurn()))).append("%)<br>");
+		}
+		getExplorerLbl().setText(text.append("</html>").toString());
 	}
 
 	/**
 	 * This method blocks until the submit button is pressed.
+	 *
+	 * @return the submitted move, or null if the thread was interrupted while waiting
 	 */
-	public void waitForInput() {
-		listenForInput = true;
-		input = new GUIInput();
-		input.start();
+	public Move waitForInput() {
+		input.begin();
+		Move move = null;
 		try {
-			input.join();
-		} catch (Exception e) {}
-		listenForInput = false;
+			move = input.waitForMove();
+		} catch (InterruptedException e) {
+			input.cancel();
+			Thread.currentThread().interrupt();
+		}
 		getSubmitBtn().setEnabled(false);
 		getResetBtn().setEnabled(false);
 		getBoardPnl().requestFocus();
+		return move;
 	}
 }
@@ -0,0 +1,70 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.ui;
+
+import javax.swing.ImageIcon;
+
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+
+/**
+ * Images for each team, kept out of the Team enumeration so the game rules do not depend on Swing.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ *
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public final class TeamIcons {
+
+	private static final String[] OUTSIDE_IMAGE_PATHS = { "images/outside_green.jpg",
+			"images/outside_orange.jpg", "images/outside_empty.jpg" };
+	private static final String[] INSIDE_IMAGE_PATHS = { "images/inside_green.jpg",
+			"images/inside_orange.jpg", "images/inside_empty.jpg" };
+
+	private static final ImageIcon[] OUTSIDE_ICONS = new ImageIcon[Team.values().length];
+	private static final ImageIcon[] INSIDE_ICONS = new ImageIcon[Team.values().length];
+
+	private TeamIcons() {
+	}
+
+	/**
+	 * Returns the ImageIcon of the team, depending on if it is in the middle of the board or not.
+	 * Icons are loaded once and shared afterwards.
+	 *
+	 * @param team the team to draw
+	 * @param isInMiddle true if spot is in the middle of the board
+	 * @return image representation of the team
+	 */
+	public static synchronized ImageIcon getIcon(Team team, boolean isInMiddle) {
+		ImageIcon[] icons = isInMiddle ? INSIDE_ICONS : OUTSIDE_ICONS;
+		ImageIcon icon = icons[team.ordinal()];
+		if (icon == null) {
+			String path = isInMiddle ? INSIDE_IMAGE_PATHS[team.ordinal()]
+					: OUTSIDE_IMAGE_PATHS[team.ordinal()];
+			if (TeamIcons.class.getResource("/" + path) == null) {
+				icon = new ImageIcon(path);
+			} else {
+				icon = new ImageIcon(TeamIcons.class.getResource("/" + path));
+			}
+			icons[team.ordinal()] = icon;
+		}
+		return icon;
+	}
+}
@@ -18,10 +18,16 @@
  */
 package com.mikegoodspeed.supercheckers.utils;
 
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
 import com.mikegoodspeed.supercheckers.datastructures.Move;
 
 /**
- * GUI Input Thread.
+ * GUI Input, which builds up a move spot by spot on the event dispatch thread and hands it to
+ * the game thread when it is submitted.  The game thread blocks in {@link #waitForMove()} until
+ * then, without polling.
  * <p>
  * project Supercheckers <br />
  * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
@@ -29,18 +35,10 @@ import com.mikegoodspeed.supercheckers.datastructures.Move;
  * @author Mike Goodspeed
  * @version $Id$
  */
-public class GUIInput extends Thread {
-
-	boolean ready = false;
-	Move move = null;
+public class GUIInput {
 
-	/**
-	 * Constructor to create a new imput thread.
-	 */
-	public GUIInput() {
-		super("Supercheckers GUI Waiter");
-		reset();
-	}
+	private Move move = new Move();
+	private CompletableFuture<Move> submitted = null;
 
 	/**
 	 * Adds a spot, specified by a row and a column, to the current move.
@@ -48,44 +46,85 @@ public class GUIInput extends Thread {
 	 * @param row
 	 * @param col
 	 */
-	public void addSpot(int row, int col) {
+	public synchronized void addSpot(int row, int col) {
 		move.add(row, col);
 	}
 
 	/**
 	 * Clear out previous spots and start a new move.
 	 */
-	public void clearMove() {
+	public synchronized void clearMove() {
 		move = new Move();
 	}
 
 	/**
-	 * Returns move as chosen by the user.
+	 * Returns the move the user is building.
 	 * 
 	 * @return the move
 	 */
-	public Move getMove() {
+	public synchronized Move getMove() {
 		return move;
 	}
 
-	private void reset() {
-		ready = false;
+	/**
+	 * Start waiting for a new move.  Spots added before this are thrown away.
+	 */
+	public synchronized void begin() {
+		clearMove();
+		submitted = new CompletableFuture<Move>();
+	}
+
+	/**
+	 * Stop waiting for the current move, throwing away its spots.
+	 */
+	public synchronized void cancel() {
+		if (submitted != null) {
+			submitted.cancel(false);
+		}
 		clearMove();
 	}
 
-	public void run() {
-		reset();
-		while (!ready) {
-			try {
-				sleep(100);
-			} catch (Exception e) {}
+	/**
+	 * Determines if a move is being waited for.
+	 * 
+	 * @return true if {@link #begin()} has been called since the last submission
+	 */
+	public synchronized boolean isWaiting() {
+		return submitted != null && !submitted.isDone();
+	}
+
+	/**
+	 * Hand the current move to the thread waiting for it, and start a new move.  Does nothing if
+	 * no move is being waited for.
+	 */
+	public synchronized void submit() {
+		if (submitted != null && submitted.complete(move)) {
+			move = new Move();
 		}
 	}
 
 	/**
-	 * Tell the input thread that it is ready to be processed.
+	 * Block until the move started by the last call to {@link #begin()} is submitted.  Returns
+	 * at once if it already has been.
+	 * 
+	 * @return the submitted move
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 * @throws IllegalStateException if no move has been started, or it was cancelled
 	 */
-	public void setReady() {
-		ready = true;
+	public Move waitForMove() throws InterruptedException, IllegalStateException {
+		CompletableFuture<Move> future;
+		synchronized (this) {
+			future = submitted;
+		}
+		if (future == null) {
+			throw new IllegalStateException("No move has been started");
+		}
+		try {
+			return future.get();
+		} catch (CancellationException e) {
+			throw new IllegalStateException("Move was cancelled", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Move was not submitted", e.getCause());
+		}
 	}
 }
@@ -0,0 +1,181 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.book;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.Move;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+import com.mikegoodspeed.supercheckers.main.GameSession;
+import com.mikegoodspeed.supercheckers.players.EasyComputerPlayer;
+
+/**
+ * Test the OpeningBook and OpeningBookBuilder classes.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ * 
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class OpeningBookTest {
+
+	private File file = null;
+	private OpeningBook book = null;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("opening", ".book");
+		OpeningBookBuilder builder = new OpeningBookBuilder(6, 3, 2, 2);
+		builder.build();
+		builder.write(file);
+		book = OpeningBook.open(file);
+		assertEquals(builder.size(), book.size());
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+		book = null;
+		file.delete();
+	}
+
+	/**
+	 * Test method for {@link OpeningBook#getMove(Board, Team, SplittableRandom)}.  Book moves
+	 * must be valid and lead from book position to book position for the plies of the book.
+	 */
+	@Test
+	public void testGetMove() {
+		SplittableRandom random = new SplittableRandom(30);
+		for (int game = 0; game < 20; game++) {
+			Board board = new Board();
+			Team team = Team.X;
+			for (int ply = 0; ply < 6; ply++) {
+				assertEquals(true, book.contains(board, team));
+				Move move = book.getMove(board, team, random);
+				assertEquals(true, board.isValidMove(team, move));
+				board.doMove(team, move);
+				team = team.getOpponent();
+			}
+			assertEquals(false, book.contains(board, team));
+			assertEquals(null, book.getMove(board, team, random));
+		}
+		assertEquals(false, book.contains(new Board(), Team.O));
+	}
+
+	/**
+	 * Test method for {@link OpeningBook#find(Board, Team)}.  Positions must be sorted by key and
+	 * every weight must be positive.
+	 */
+	@Test
+	public void testFind() {
+		for (int i = 1; i < book.size(); i++) {
+			assertEquals(true, book.getKey(i - 1) < book.getKey(i));
+		}
+		int moves = 0;
+		for (int i = 0; i < book.size(); i++) {
+			assertEquals(moves, book.getFirstMove(i));
+			moves += book.getMoveCount(i);
+			for (int move = book.getFirstMove(i); move < moves; move++) {
+				assertEquals(true, book.getWeight(move) > 0);
+			}
+		}
+		assertEquals(book.getMoves(), moves);
+	}
+
+	/**
+	 * Test method for {@link OpeningBookBuilder#build()}.  The book must not depend on the number
+	 * of threads building it.
+	 */
+	@Test
+	public void testBuildThreads() throws IOException {
+		File single = File.createTempFile("opening", ".book");
+		try {
+			OpeningBookBuilder builder = new OpeningBookBuilder(6, 3, 2, 1);
+			builder.build();
+			builder.write(single);
+			OpeningBook other = OpeningBook.open(single);
+			assertEquals(book.size(), other.size());
+			assertEquals(book.getMoves(), other.getMoves());
+			for (int i = 0; i < book.getMoves(); i++) {
+				assertEquals(book.getPackedMove(i), other.getPackedMove(i));
+				assertEquals(book.getWeight(i), other.getWeight(i));
+			}
+		} finally {
+			single.delete();
+		}
+	}
+
+	/**
+	 * Test method for {@link OpeningBook#open(File)}.  Files that are not books must be refused.
+	 */
+	@Test
+	public void testOpenCorrupt() throws IOException {
+		File bad = File.createTempFile("opening", ".book");
+		try {
+			FileOutputStream out = new FileOutputStream(bad);
+			out.write(new byte[40]);
+			out.close();
+			boolean refused = false;
+			try {
+				OpeningBook.open(bad);
+			} catch (IOException e) {
+				refused = true;
+			}
+			assertEquals(true, refused);
+		} finally {
+			bad.delete();
+		}
+	}
+
+	/**
+	 * Test method for {@link EasyComputerPlayer#setBook(OpeningBook)}.  Players must play their
+	 * first moves from the book.
+	 */
+	@Test
+	public void testPlayer() {
+		Board board = new Board();
+		SplittableRandom random = new SplittableRandom(31);
+		EasyComputerPlayer player1 = new EasyComputerPlayer(board, Team.X, random);
+		EasyComputerPlayer player2 = new EasyComputerPlayer(board, Team.O, random);
+		player1.setBook(book);
+		player2.setBook(book);
+		player1.setTablebase(null);
+		player2.setTablebase(null);
+		GameSession session = new GameSession(board, player1, player2);
+		session.setMaxPlies(4);
+		session.play();
+		assertEquals(true, book.contains(board, Team.X));
+	}
+}
@@ -0,0 +1,285 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.book;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.ChainBuffer;
+import com.mikegoodspeed.supercheckers.datastructures.MoveList;
+import com.mikegoodspeed.supercheckers.datastructures.PackedMove;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+import com.mikegoodspeed.supercheckers.main.GameSession;
+import com.mikegoodspeed.supercheckers.players.EasyComputerPlayer;
+import com.mikegoodspeed.supercheckers.record.GameCorpus;
+import com.mikegoodspeed.supercheckers.record.GameCorpusWriter;
+import com.mikegoodspeed.supercheckers.record.GameRecord;
+import com.mikegoodspeed.supercheckers.record.ReplayListener;
+
+/**
+ * Test the OpeningExplorer and OpeningExplorerBuilder classes.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ * 
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class OpeningExplorerTest {
+
+	private File directory = null;
+	private File file = null;
+	private GameCorpus corpus = null;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		directory = File.createTempFile("corpus", "");
+		directory.delete();
+		file = File.createTempFile("explorer", ".stats");
+		GameCorpusWriter writer = new GameCorpusWriter(directory);
+		for (int seed = 0; seed < 80; seed++) {
+			Board board = new Board();
+			SplittableRandom random = new SplittableRandom(seed);
+			EasyComputerPlayer player1 = new EasyComputerPlayer(board, Team.X, random);
+			EasyComputerPlayer player2 = new EasyComputerPlayer(board, Team.O, random);
+			player1.setBook(null);
+			player1.setTablebase(null);
+			player2.setBook(null);
+			player2.setTablebase(null);
+			GameSession session = new GameSession(board, player1, player2);
+			GameRecord record = new GameRecord("Easy", "Easy", seed);
+			session.setListener(record);
+			session.play();
+			writer.append(record);
+		}
+		writer.close();
+		corpus = GameCorpus.open(directory);
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File each : files) {
+				each.delete();
+			}
+		}
+		directory.delete();
+		file.delete();
+	}
+
+	/**
+	 * Test method for {@link OpeningExplorer#getMoves(Board)}.  The counts must match a count of
+	 * the games kept in memory, with tables small enough that the build spills many runs.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testGetMoves() throws Exception {
+		final int plies = 20;
+		final Map<String, long[]> expected = new HashMap<String, long[]>();
+		final Map<Long, Board> boards = new HashMap<Long, Board>();
+		for (long id = 0; id < corpus.size(); id++) {
+			GameRecord record = corpus.get(id);
+			final Team result = record.getResult();
+			final Board[] before = { new Board() };
+			record.replay(new Board(), Math.min(plies, record.getPlies()), new ReplayListener() {
+				public void moveReplayed(Board board, int ply, long move, ChainBuffer chains) {
+					if (!PackedMove.isChained(move)) {
+						boards.put(before[0].hash(), before[0]);
+						String key = before[0].hash() + " " + PackedMove.toMove(move, null);
+						long[] counts = expected.get(key);
+						if (counts == null) {
+							counts = new long[4];
+							expected.put(key, counts);
+						}
+						counts[0]++;
+						if (result != null) {
+							counts[Team.X.equals(result) ? 1 : Team.O.equals(result) ? 2 : 3]++;
+						}
+					}
+					before[0] = board.clone();
+				}
+			});
+		}
+		OpeningExplorerBuilder builder = new OpeningExplorerBuilder(corpus);
+		builder.setPlies(plies);
+		builder.setMemory(0);
+		builder.setThreads(3);
+		builder.build(file);
+		builder.shutdown();
+		assertEquals(0, file.getAbsoluteFile().getParentFile().listFiles(new FilenameFilter() {
+			public boolean accept(File dir, String name) {
+				return name.startsWith("explorer") && name.endsWith(".run");
+			}
+		}).length);
+
+		OpeningExplorer explorer = OpeningExplorer.open(file);
+		assertEquals(builder.size(), explorer.size());
+		assertEquals(boards.size(), explorer.size());
+		assertEquals(expected.size(), explorer.getMoves());
+		for (int i = 1; i < explorer.size(); i++) {
+			assertEquals(true, explorer.getKey(i - 1) < explorer.getKey(i));
+		}
+		int found = 0;
+		for (Board board : boards.values()) {
+			List<ExplorerMove> moves = explorer.getMoves(board);
+			for (int i = 0; i < moves.size(); i++) {
+				ExplorerMove move = moves.get(i);
+				long[] counts = expected.get(board.hash() + " " + move.getMove());
+				assertEquals(counts[0], move.getGames());
+				assertEquals(counts[1], move.getWins(Team.X));
+				assertEquals(counts[2], move.getWins(Team.O));
+				assertEquals(counts[3], move.getDraws());
+				assertEquals(true, i == 0 || moves.get(i - 1).getGames() >= move.getGames());
+				found++;
+			}
+		}
+		assertEquals(expected.size(), found);
+
+		long games = 0;
+		for (ExplorerMove move : explorer.getMoves(new Board())) {
+			games += move.getGames();
+		}
+		assertEquals(corpus.size(), games);
+		Board late = new Board();
+		corpus.get(0).replay(late, Math.min(plies, corpus.get(0).getPlies()), null);
+		assertEquals(false, explorer.contains(late));
+		assertEquals(0, explorer.getMoves(late).size());
+	}
+
+	/**
+	 * Test method for {@link OpeningExplorer#getMoves(Board)}.  Counts past the range of an int,
+	 * as every game of a large corpus starts from the same position, must be read whole and keep
+	 * the most played move first.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testLargeCounts() throws Exception {
+		Board board = new Board();
+		MoveList moves = new MoveList();
+		board.generateMoves(Team.X, moves);
+		ByteBuffer buffer = ByteBuffer.allocate(OpeningExplorer.HEADER_BYTES
+			+ OpeningExplorer.POSITION_BYTES + 2 * OpeningExplorer.MOVE_BYTES);
+		buffer.putInt(OpeningExplorer.MAGIC).putInt(OpeningExplorer.VERSION).putInt(1).putInt(2);
+		buffer.putLong(board.hash()).putInt(0).putInt(2);
+		buffer.putLong(moves.get(0)).putLong(5L).putLong(1L).putLong(2L).putLong(2L);
+		buffer.putLong(moves.get(1)).putLong(3000000000L).putLong(2000000000L)
+			.putLong(999999999L).putLong(1L);
+		List<ExplorerMove> found = new OpeningExplorer(buffer).getMoves(board);
+		assertEquals(2, found.size());
+		assertEquals(3000000000L, found.get(0).getGames());
+		assertEquals(2000000000L, found.get(0).getWins(Team.X));
+		assertEquals(999999999L, found.get(0).getWins(Team.O));
+		assertEquals(1L, found.get(0).getDraws());
+		assertEquals(5L, found.get(1).getGames());
+		assertEquals(true, found.get(0).getScore(Team.X) > 0.66);
+	}
+
+	/**
+	 * Test method for {@link OpeningExplorerBuilder#setMergeRuns(int)}.  With more runs than are
+	 * merged at once, the runs must be merged in several passes into the same explorer.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testMergeRuns() throws Exception {
+		OpeningExplorerBuilder builder = new OpeningExplorerBuilder(corpus);
+		builder.setPlies(GameSession.MAX_PLIES);
+		builder.setMemory(0);
+		builder.setThreads(2);
+		builder.build(file);
+		File other = File.createTempFile("explorer", ".stats");
+		try {
+			builder.setMergeRuns(2);
+			builder.build(other);
+			builder.shutdown();
+			assertEquals(true, builder.getRuns() > 2 * 2);
+			assertEquals(true, Arrays.equals(Files.readAllBytes(file.toPath()),
+				Files.readAllBytes(other.toPath())));
+			assertEquals(0, file.getAbsoluteFile().getParentFile().listFiles(new FilenameFilter() {
+				public boolean accept(File dir, String name) {
+					return name.startsWith("explorer") && name.endsWith(".run");
+				}
+			}).length);
+		} finally {
+			other.delete();
+		}
+	}
+
+	/**
+	 * Test method for {@link OpeningExplorerBuilder#setMinGames(int)}.  Rare moves must be left
+	 * out, and the counts must not depend on the number of threads.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testMinGames() throws Exception {
+		OpeningExplorerBuilder builder = new OpeningExplorerBuilder(corpus);
+		builder.setPlies(4);
+		builder.setThreads(1);
+		builder.build(file);
+		OpeningExplorer all = OpeningExplorer.open(file);
+		File other = File.createTempFile("explorer", ".stats");
+		try {
+			builder.setMinGames(5);
+			builder.setThreads(2);
+			builder.build(other);
+			OpeningExplorer common = OpeningExplorer.open(other);
+			assertEquals(true, common.getMoves() < all.getMoves());
+			assertEquals(true, common.size() > 0);
+			for (int i = 0; i < common.size(); i++) {
+				int first = common.getFirstMove(i);
+				for (int j = first; j < first + common.getMoveCount(i); j++) {
+					int position = all.find(common.getKey(i));
+					assertEquals(true, position >= 0);
+					boolean seen = false;
+					int allFirst = all.getFirstMove(position);
+					for (int k = allFirst; k < allFirst + all.getMoveCount(position); k++) {
+						seen |= all.getPackedMove(k) == common.getPackedMove(j);
+					}
+					assertEquals(true, seen);
+				}
+			}
+		} finally {
+			other.delete();
+		}
+	}
+}
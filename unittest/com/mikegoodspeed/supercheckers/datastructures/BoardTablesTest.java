@@ -0,0 +1,77 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.datastructures;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Test the BoardTables class.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ * 
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class BoardTablesTest {
+
+	/**
+	 * Test the slide and jump tables against row and column arithmetic.
+	 */
+	@Test
+	public void testTables() {
+		Board board = new Board();
+		int[] rowSteps = { -1, 1, 0, 0 };
+		int[] colSteps = { 0, 0, -1, 1 };
+		for (int row = 0; row < 8; row++) {
+			for (int col = 0; col < 8; col++) {
+				int spot = row * 8 + col;
+				int slides = 0;
+				int jumps = 0;
+				for (int direction = 0; direction < BoardTables.DIRECTIONS; direction++) {
+					int slideRow = row + rowSteps[direction];
+					int slideCol = col + colSteps[direction];
+					int jumpRow = row + 2 * rowSteps[direction];
+					int jumpCol = col + 2 * colSteps[direction];
+					if (board.isValidSpot(slideRow, slideCol)) {
+						assertEquals(slideRow * 8 + slideCol, BoardTables.SLIDE[direction][spot]);
+						slides++;
+					} else {
+						assertEquals(-1, BoardTables.SLIDE[direction][spot]);
+					}
+					if (board.isValidSpot(jumpRow, jumpCol)) {
+						assertEquals(jumpRow * 8 + jumpCol, BoardTables.JUMP[direction][spot]);
+						assertEquals(slideRow * 8 + slideCol, BoardTables.JUMPED[direction][spot]);
+						jumps++;
+					} else {
+						assertEquals(-1, BoardTables.JUMP[direction][spot]);
+					}
+				}
+				assertEquals(slides, Long.bitCount(BoardTables.SLIDE_MASK[spot]));
+				assertEquals(jumps, Long.bitCount(BoardTables.JUMP_MASK[spot]));
+				assertEquals(board.isInMiddle(row, col),
+					(BoardTables.MIDDLE_MASK & (1L << spot)) != 0);
+				assertEquals(board.isAdjacentToMiddle(row, col),
+					(BoardTables.ADJACENT_MASK & (1L << spot)) != 0);
+			}
+		}
+	}
+}
@@ -76,12 +76,22 @@ public class BoardTest {
 	}
 
 	/**
-	 * Test method for {@link Board#isValidSlide(Teams, int, int, int, int)}.
+	 * Test method for {@link Board#isValidSlide(Team, int, int, int, int)}.
 	 */
-//	@Test
-//	public void testIsValidSlide() {
-//		
-//	}
+	@Test
+	public void testIsValidSlide() {
+		assertEquals(true, board.isValidSlide(Team.X, 1, 3, 2, 3));
+		assertEquals(true, board.isValidSlide(Team.O, 3, 6, 3, 5));
+		assertEquals(false, board.isValidSlide(Team.O, 1, 3, 2, 3));
+		assertEquals(false, board.isValidSlide(Team.NOBODY, 2, 2, 2, 3));
+		assertEquals(false, board.isValidSlide(Team.X, 0, 0, 0, 1));
+		assertEquals(false, board.isValidSlide(Team.X, 1, 3, 3, 3));
+		assertEquals(false, board.isValidSlide(Team.X, 1, 3, 2, 4));
+		assertEquals(false, board.isValidSlide(Team.X, 0, 7, 0, 8));
+		board.clear();
+		board.insert(Team.X, 3, 7);
+		assertEquals(false, board.isValidSlide(Team.X, 3, 7, 4, 0));
+	}
 
 	/**
 	 * Test method for {@link Board#isValidSpot(int, int)}.
@@ -94,10 +104,19 @@ public class BoardTest {
 	/**
 	 * Test method for {@link Board#isValidJump(Team, int, int, int, int)}.
 	 */
-//	@Test
-//	public void testIsValidJump() {
-//		fail("Not yet implemented");
-//	}
+	@Test
+	public void testIsValidJump() {
+		assertEquals(true, board.isValidJump(Team.X, 0, 2, 2, 2));
+		assertEquals(false, board.isValidJump(Team.X, 1, 3, 3, 3));
+		assertEquals(false, board.isValidJump(Team.O, 0, 2, 2, 2));
+		assertEquals(false, board.isValidJump(Team.X, 0, 2, 2, 3));
+		board.clear();
+		board.insert(Team.X, 3, 7);
+		board.insert(Team.O, 4, 0);
+		assertEquals(false, board.isValidJump(Team.X, 3, 7, 4, 1));
+		board.insert(Team.O, 3, 6);
+		assertEquals(true, board.isValidJump(Team.X, 3, 7, 3, 5));
+	}
 
 	/**
 	 * Test method for {@link Board#isValidMove(Team, Move)}.
@@ -115,39 +134,198 @@ public class BoardTest {
 //		fail("Not yet implemented");
 //	}
 
+	/**
+	 * Test method for {@link Board#generateMoves(Team, MoveSink)}.
+	 */
+	@Test
+	public void testGenerateMoves() {
+		MoveList moves = new MoveList();
+		board.generateMoves(Team.X, moves);
+		assertEquals(8, moves.size());
+		for (int i = 0; i < moves.size(); i++) {
+			assertEquals(true, board.isValidMove(Team.X, moves.getMove(i)));
+			assertEquals(true, board.isAdjacentToMiddle(moves.getRow(i, 0), moves.getCol(i, 0)));
+		}
+		Move first = new Move();
+		first.add(1, 3);
+		first.add(2, 3);
+		board.doMove(Team.X, first);
+		moves.clear();
+		board.generateMoves(Team.O, moves);
+		assertEquals(2, moves.size());
+		for (int i = 0; i < moves.size(); i++) {
+			assertEquals(6, moves.getRow(i, 0));
+		}
+		// A chain over two opponents, ending early if it would end the game.
+		board.clear();
+		board.insert(Team.X, 3, 1);
+		board.insert(Team.O, 3, 2);
+		board.insert(Team.O, 4, 3);
+		board.insert(Team.X, 5, 5);
+		board.insert(Team.O, 4, 5);
+		moves.clear();
+		board.generateMoves(Team.X, moves);
+		int jumps = 0;
+		for (int i = 0; i < moves.size(); i++) {
+			Move move = moves.getMove(i);
+			assertEquals(true, board.isValidMove(Team.X, move));
+			Board clone = board.clone();
+			assertEquals(board, clone);
+			long undo = clone.doMove(Team.X, moves, i);
+			Board expected = board.clone();
+			expected.doMove(Team.X, move);
+			assertEquals(expected, clone);
+			clone.undoMove(undo);
+			assertEquals(board, clone);
+			if (moves.length(i) > 2 || !board.isValidSlide(Team.X, moves.getRow(i, 0),
+					moves.getCol(i, 0), moves.getRow(i, 1), moves.getCol(i, 1))) {
+				jumps++;
+			}
+		}
+		// (3,1)-(3,3), (3,1)-(3,3)-(5,3) and (5,5)-(3,5)
+		assertEquals(3, jumps);
+	}
+
 	/**
 	 * Test method for {@link Board#get(int, int)}.
 	 */
-//	@Test
-//	public void testGet() {
-//		fail("Not yet implemented");
-//	}
+	@Test
+	public void testGet() {
+		board.clear();
+		board.insert(Team.X, 7, 7);
+		board.insert(Team.O, 0, 0);
+		assertEquals(Team.X, board.get(7, 7));
+		assertEquals(Team.O, board.get(0, 0));
+		assertEquals(Team.NOBODY, board.get(0, 7));
+		board.insert(Team.NOBODY, 7, 7);
+		assertEquals(Team.NOBODY, board.get(7, 7));
+	}
 
 	/**
 	 * Test method for {@link Board#doMove(Team, Move)}.
 	 */
-//	@Test
-//	public void testDoMove() {
-//		fail("Not yet implemented");
-//	}
+	@Test
+	public void testDoMove() {
+		board.clear();
+		board.insert(Team.X, 3, 1);
+		board.insert(Team.O, 3, 2);
+		board.insert(Team.X, 4, 3);
+		board.insert(Team.O, 5, 5);
+		Move move = new Move();
+		move.add(3, 1);
+		move.add(3, 3);
+		move.add(5, 3);
+		assertEquals(true, board.isValidMove(Team.X, move));
+		board.doMove(Team.X, move);
+		assertEquals(Team.NOBODY, board.get(3, 1));
+		assertEquals(Team.NOBODY, board.get(3, 2));
+		assertEquals(Team.X, board.get(4, 3));
+		assertEquals(Team.X, board.get(5, 3));
+	}
+
+	/**
+	 * Test method for {@link Board#undoMove(long)}.
+	 */
+	@Test
+	public void testUndoMove() {
+		board.clear();
+		board.insert(Team.X, 3, 1);
+		board.insert(Team.O, 3, 2);
+		board.insert(Team.O, 4, 3);
+		board.insert(Team.O, 5, 5);
+		Board original = board.clone();
+		Move slide = new Move();
+		slide.add(5, 5);
+		slide.add(5, 4);
+		Move jump = new Move();
+		jump.add(3, 1);
+		jump.add(3, 3);
+		jump.add(5, 3);
+		long undoSlide = board.doMove(Team.O, slide);
+		Board afterSlide = board.clone();
+		long undoJump = board.doMove(Team.X, jump);
+		assertEquals(Team.NOBODY, board.get(4, 3));
+		assertEquals(Team.O, board.getTurn());
+		board.undoMove(undoJump);
+		assertEquals(afterSlide, board);
+		assertEquals(afterSlide.hash(), board.hash());
+		board.undoMove(undoSlide);
+		assertEquals(original, board);
+		assertEquals(original.hash(), board.hash());
+		assertEquals(Board.NO_UNDO, board.doMove(Team.X, new Move()));
+	}
+
+	/**
+	 * Test method for {@link Board#undoMove(long)} when moves are undone out of order.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testUndoMoveOutOfOrder() {
+		Move first = new Move();
+		first.add(1, 3);
+		first.add(2, 3);
+		Move second = new Move();
+		second.add(3, 6);
+		second.add(3, 5);
+		long undoFirst = board.doMove(Team.X, first);
+		board.doMove(Team.O, second);
+		board.undoMove(undoFirst);
+	}
 
 	/**
 	 * Test method for {@link Board#reset()}.
 	 */
-//	@Test
-//	public void testReset() {
-//		fail("Not yet implemented");
-//	}
+	@Test
+	public void testReset() {
+		board.clear();
+		board.reset();
+		for (int row = 0; row < 8; row++) {
+			for (int col = 0; col < 8; col++) {
+				if (board.isInMiddle(row, col)) {
+					assertEquals(Team.NOBODY, board.get(row, col));
+				} else {
+					assertEquals((row + col) % 2 == 0 ? Team.X : Team.O, board.get(row, col));
+				}
+			}
+		}
+	}
 
 	/**
 	 * Test method for {@link Board#isNewGame()}.
 	 */
-//	@Test
-//	public void testIsNewGame() {
-//		assertEquals(true, board.isNewGame());
-//		board.insert(new Team('O'), 4, 4);
-//		assertEquals(false, board.isNewGame());
-//	}
+	@Test
+	public void testIsNewGame() {
+		assertEquals(true, board.isNewGame());
+		board.insert(Team.O, 4, 4);
+		assertEquals(false, board.isNewGame());
+		board.insert(Team.NOBODY, 4, 4);
+		assertEquals(true, board.isNewGame());
+		board.setTurn(Team.O);
+		assertEquals(false, board.isNewGame());
+	}
+
+	/**
+	 * Test method for {@link Board#getPieceCount(Team)}, {@link Board#getMiddleCount(Team)} and
+	 * {@link Board#getPly()}.
+	 */
+	@Test
+	public void testCounts() {
+		assertEquals(24, board.getPieceCount(Team.X));
+		assertEquals(24, board.getPieceCount(Team.O));
+		assertEquals(16, board.getPieceCount(Team.NOBODY));
+		assertEquals(0, board.getMiddleCount(Team.X));
+		assertEquals(0, board.getPly());
+		Move move = new Move();
+		move.add(1, 3);
+		move.add(2, 3);
+		long undo = board.doMove(Team.X, move);
+		assertEquals(24, board.getPieceCount(Team.X));
+		assertEquals(1, board.getMiddleCount(Team.X));
+		assertEquals(15, board.getMiddleCount(Team.NOBODY));
+		assertEquals(1, board.getPly());
+		board.undoMove(undo);
+		assertEquals(0, board.getMiddleCount(Team.X));
+		assertEquals(0, board.getPly());
+	}
 
 	/**
 	 * Test method for {@link Board#isAvailableSpot(Team, Move, int, int)}.
@@ -160,18 +338,38 @@ public class BoardTest {
 	/**
 	 * Test method for {@link Board#isAdjacentToMiddle(int, int)}.
 	 */
-//	@Test
-//	public void testIsAdjacentToMiddle() {
-//		fail("Not yet implemented");
-//	}
+	@Test
+	public void testIsAdjacentToMiddle() {
+		for (int row = -1; row < 9; row++) {
+			for (int col = -1; col < 9; col++) {
+				boolean adjacent = !board.isInMiddle(row, col) && board.isValidSpot(row, col)
+					&& (board.isInMiddle(row + 1, col) || board.isInMiddle(row - 1, col)
+						|| board.isInMiddle(row, col + 1) || board.isInMiddle(row, col - 1));
+				assertEquals(adjacent, board.isAdjacentToMiddle(row, col));
+			}
+		}
+	}
 
 	/**
 	 * Test method for {@link Board#isGameOver()}.
 	 */
-//	@Test
-//	public void testIsGameOver() {
-//		fail("Not yet implemented");
-//	}
+	@Test
+	public void testIsGameOver() {
+		assertEquals(true, board.isGameOver());
+		assertEquals(Team.NOBODY, board.getWinner());
+		board.insert(Team.NOBODY, 1, 3);
+		board.insert(Team.X, 2, 3);
+		assertEquals(true, board.isSecondMove());
+		assertEquals(false, board.isGameOver());
+		board.insert(Team.NOBODY, 3, 6);
+		board.insert(Team.O, 3, 5);
+		assertEquals(false, board.isSecondMove());
+		assertEquals(false, board.isGameOver());
+		assertEquals(null, board.getWinner());
+		board.insert(Team.NOBODY, 3, 5);
+		assertEquals(true, board.isGameOver());
+		assertEquals(Team.X, board.getWinner());
+	}
 
 	/**
 	 * Test method for {@link Board#print()}.
@@ -184,10 +382,70 @@ public class BoardTest {
 	/**
 	 * Test method for {@link Board#equals(java.lang.Object)}.
 	 */
-//	@Test
-//	public void testEqualsObject() {
-//		fail("Not yet implemented");
-//	}
+	@Test
+	public void testEqualsObject() {
+		Board clone = board.clone();
+		assertEquals(true, board.equals(clone));
+		clone.insert(Team.O, 4, 4);
+		assertEquals(false, board.equals(clone));
+		assertEquals(false, board.equals(null));
+	}
+
+	/**
+	 * Test method for {@link Board#hash()}.
+	 */
+	@Test
+	public void testHash() {
+		Board other = new Board();
+		assertEquals(board.hash(), other.hash());
+		assertEquals(board.hashCode(), other.hashCode());
+		Move move = new Move();
+		move.add(1, 3);
+		move.add(2, 3);
+		board.doMove(Team.X, move);
+		assertEquals(Team.O, board.getTurn());
+		assertEquals(false, board.hash() == other.hash());
+		// Build the same position spot by spot, in a different order.
+		other.clear();
+		for (int row = 7; row >= 0; row--) {
+			for (int col = 7; col >= 0; col--) {
+				other.insert(board.get(row, col), row, col);
+			}
+		}
+		assertEquals(false, board.equals(other));
+		other.setTurn(Team.O);
+		assertEquals(true, board.equals(other));
+		assertEquals(board.hash(), other.hash());
+		assertEquals(board.hashCode(), other.hashCode());
+		assertEquals(board.hash(), board.clone().hash());
+	}
+
+	/**
+	 * Test method for {@link Board#setPosition(long, long, Team)}.
+	 */
+	@Test
+	public void testSetPosition() {
+		Move move = new Move();
+		move.add(1, 3);
+		move.add(2, 3);
+		board.doMove(Team.X, move);
+		Board other = new Board();
+		other.setPosition(board.getMask(Team.X), board.getMask(Team.O), Team.O);
+		assertEquals(true, board.equals(other));
+		assertEquals(board.hash(), other.hash());
+		assertEquals(0, other.getPly());
+		other.setPosition(0x0000001000000000L, 0x0000000800000000L, Team.X);
+		assertEquals(Team.X, other.get(4, 4));
+		assertEquals(Team.O, other.get(4, 3));
+		assertEquals(62, other.getPieceCount(Team.NOBODY));
+		boolean refused = false;
+		try {
+			other.setPosition(1L, 1L, Team.X);
+		} catch (IllegalArgumentException e) {
+			refused = true;
+		}
+		assertEquals(true, refused);
+	}
 
 	/**
 	 * Test method for {@link Board#toString()}.
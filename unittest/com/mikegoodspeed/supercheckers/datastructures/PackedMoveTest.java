@@ -0,0 +1,106 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.datastructures;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the PackedMove class.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ * 
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class PackedMoveTest {
+
+	private ChainBuffer chains = null;
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		chains = new ChainBuffer();
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+		chains = null;
+	}
+
+	/**
+	 * Test method for {@link PackedMove#fromMove(Move, ChainBuffer)}.
+	 */
+	@Test
+	public void testFromMove() {
+		Move move = new Move();
+		assertEquals(PackedMove.EMPTY, PackedMove.fromMove(move, null));
+		move.add(7, 7);
+		move.add(5, 7);
+		long packed = PackedMove.fromMove(move, null);
+		assertEquals(false, PackedMove.isChained(packed));
+		assertEquals(2, PackedMove.length(packed));
+		assertEquals(63, PackedMove.getSpot(packed, 0, null));
+		assertEquals(47, PackedMove.getSpot(packed, 1, null));
+		assertEquals(move, PackedMove.toMove(packed, null));
+	}
+
+	/**
+	 * Test method for {@link PackedMove#pack(int[], int, ChainBuffer)} with moves of every length.
+	 */
+	@Test
+	public void testPack() {
+		int[] spots = new int[40];
+		for (int i = 0; i < spots.length; i++) {
+			spots[i] = (i * 37) & 63;
+		}
+		for (int length = 0; length <= spots.length; length++) {
+			long packed = PackedMove.pack(spots, length, chains);
+			assertEquals(length > PackedMove.MAX_INLINE, PackedMove.isChained(packed));
+			assertEquals(length, PackedMove.length(packed));
+			Move move = PackedMove.toMove(packed, chains);
+			assertEquals(length, move.size());
+			for (int i = 0; i < length; i++) {
+				assertEquals(spots[i], PackedMove.getSpot(packed, i, chains));
+				assertEquals(spots[i] >>> 3, move.getRow(i));
+				assertEquals(spots[i] & 7, move.getCol(i));
+			}
+			assertEquals(move, PackedMove.toMove(PackedMove.fromMove(move, chains), chains));
+		}
+	}
+
+	/**
+	 * Test method for {@link PackedMove#getSpot(long, int, ChainBuffer)} out of range.
+	 */
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetSpot() {
+		Move move = new Move();
+		move.add(1, 2);
+		PackedMove.getSpot(PackedMove.fromMove(move, null), 1, null);
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.main;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.Move;
+import com.mikegoodspeed.supercheckers.datastructures.Players;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+import com.mikegoodspeed.supercheckers.players.EasyComputerPlayer;
+import com.mikegoodspeed.supercheckers.players.Player;
+
+/**
+ * Test the GameSession and GameSessionManager classes.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ * 
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class GameSessionTest {
+	GameSessionManager manager = null;
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		manager = new GameSessionManager();
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+		manager.shutdownNow();
+	}
+
+	/**
+	 * Test method for {@link GameSession#play()}.  Seats, turns and the result must belong to the
+	 * session, and the listener must see every move.
+	 */
+	@Test
+	public void testPlay() {
+		GameSession session = newSession(7, 0);
+		final int[] counts = new int[3];
+		session.setListener(new GameListener() {
+			public void turnStarted(GameSession session, Player player) {
+				assertEquals(player, session.get(session.getTurn()));
+				counts[0]++;
+			}
+
+			public void movePlayed(GameSession session, Player player, Move move) {
+				counts[1]++;
+			}
+
+			public void gameOver(GameSession session, Players winner) {
+				assertEquals(session.getWinner(), winner);
+				counts[2]++;
+			}
+		});
+		assertEquals(Players.PLAYER1, session.getByTeam(Team.X));
+		assertEquals(Players.PLAYER2, session.getByTeam(Team.O));
+		assertEquals(null, session.getByTeam(Team.NOBODY));
+		assertEquals(false, session.isOver());
+		Team result = session.play();
+		assertEquals(true, session.isOver());
+		assertEquals(result, session.getResult());
+		assertEquals(session.getPlies(), counts[0]);
+		assertEquals(session.getPlies(), counts[1]);
+		assertEquals(1, counts[2]);
+		if (Team.NOBODY.equals(result)) {
+			assertEquals(null, session.getWinner());
+		} else {
+			assertEquals(result, session.get(session.getWinner()).getTeam());
+		}
+	}
+
+	/**
+	 * Test method for {@link GameSessionManager#submit(GameSession)}.  Games played at once must
+	 * end exactly as the same games played one at a time.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testSubmit() throws Exception {
+		List<GameSession> sessions = new ArrayList<GameSession>();
+		List<Future<Team>> results = new ArrayList<Future<Team>>();
+		for (int seed = 0; seed < 200; seed++) {
+			GameSession session = newSession(seed, 1);
+			sessions.add(session);
+			results.add(manager.submit(session));
+		}
+		assertEquals(true, manager.getActiveCount() <= sessions.size());
+		for (int seed = 0; seed < sessions.size(); seed++) {
+			GameSession expected = newSession(seed, 0);
+			assertEquals(expected.play(), results.get(seed).get());
+			assertEquals(expected.getBoard(), sessions.get(seed).getBoard());
+			assertEquals(expected.getPlies(), sessions.get(seed).getPlies());
+		}
+		assertEquals(0, manager.getActiveCount());
+		assertEquals(null, manager.getSession(sessions.get(0).getId()));
+	}
+
+	/**
+	 * Test method for {@link GameSessionManager#shutdownNow()}.  Interrupted games must end
+	 * without a result.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testShutdownNow() throws Exception {
+		GameSession session = newSession(3, 1000);
+		Future<Team> result = manager.submit(session);
+		assertEquals(session, manager.getSession(session.getId()));
+		manager.shutdownNow();
+		try {
+			result.get();
+		} catch (Exception e) {
+			// Cancelled before it started
+		}
+		assertEquals(false, session.isOver());
+	}
+
+	private GameSession newSession(long seed, int thinkDelay) {
+		Board board = new Board();
+		SplittableRandom random = new SplittableRandom(seed);
+		EasyComputerPlayer player1 = new EasyComputerPlayer(board, Team.X, random);
+		EasyComputerPlayer player2 = new EasyComputerPlayer(board, Team.O, random);
+		player1.setThinkDelay(thinkDelay);
+		player2.setThinkDelay(thinkDelay);
+		player1.setBook(null);
+		player1.setTablebase(null);
+		player2.setBook(null);
+		player2.setTablebase(null);
+		return new GameSession(board, player1, player2);
+	}
+}
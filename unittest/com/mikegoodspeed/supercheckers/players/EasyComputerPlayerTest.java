@@ -18,16 +18,17 @@
  */
 package com.mikegoodspeed.supercheckers.players;
 
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertEquals;
+
+import java.util.SplittableRandom;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import com.mikegoodspeed.supercheckers.datastructures.Board;
-import com.mikegoodspeed.supercheckers.datastructures.Move;
 import com.mikegoodspeed.supercheckers.datastructures.Team;
-import com.mikegoodspeed.supercheckers.ui.GameBoardFrm;
+import com.mikegoodspeed.supercheckers.main.GameSession;
 
 /**
  * Test the EasyComputerPlayer class
@@ -40,7 +41,6 @@ import com.mikegoodspeed.supercheckers.ui.GameBoardFrm;
  */
 public class EasyComputerPlayerTest {
 	Board board = null;
-	GameBoardFrm window = null;
 	EasyComputerPlayer player1 = null;
 	EasyComputerPlayer player2 = null;
 
@@ -50,9 +50,13 @@ public class EasyComputerPlayerTest {
 	@Before
 	public void setUp() throws Exception {
 		board = new Board();
-		window = new GameBoardFrm(board);
-		player1 = new EasyComputerPlayer(window, board, Team.X);
-		player2 = new EasyComputerPlayer(window, board, Team.O);
+		SplittableRandom random = new SplittableRandom(0);
+		player1 = new EasyComputerPlayer(board, Team.X, random);
+		player2 = new EasyComputerPlayer(board, Team.O, random);
+		player1.setBook(null);
+		player1.setTablebase(null);
+		player2.setBook(null);
+		player2.setTablebase(null);
 	}
 
 	/**
@@ -66,41 +70,60 @@ public class EasyComputerPlayerTest {
 	}
 
 	/**
-	 * Test method for {@link EasyComputerPlayer#getMove()}.  Play 10000 games and ensure that all 
-	 * moves are valid.
+	 * Test method for {@link EasyComputerPlayer#getMove()}.  Play 10000 games without a window and
+	 * ensure that all moves are valid (the session throws on an invalid move), and that each side
+	 * wins some of them.
 	 */
 	@Test
 	public void testGetMove() {
-		Move move;
-//		int x = 0;
-//		int o = 0;
-//		int tie = 0;
+		int x = 0;
+		int o = 0;
 		for (int i = 0; i < 10000; i++) {
-			player1 = new EasyComputerPlayer(window, board, Team.X);
-			player2 = new EasyComputerPlayer(window, board, Team.O);
-			while (true) {
-				// Player 1
-				move = player1.getMove();
-				assertTrue("Invalid X move: " + move, board.isValidMove(player1.getTeam(), move));
-				board.doMove(player1.getTeam(), move);
-				if (board.isGameOver()) {
-					break;
-				}
-				// Player 2
-				move = player2.getMove();
-				assertTrue("Invalid O move: " + move, board.isValidMove(player2.getTeam(), move));
-				board.doMove(player2.getTeam(), move);
-				if (board.isGameOver()) {
-					break;
-				}
-			}
-//			switch (board.getWinner()) {
-//				case X: x++; break;
-//				case O: o++; break;
-//				default: tie++; break;
-//			}
 			board = new Board();
+			SplittableRandom random = new SplittableRandom(i);
+			player1 = new EasyComputerPlayer(board, Team.X, random);
+			player2 = new EasyComputerPlayer(board, Team.O, random);
+			player1.setBook(null);
+			player1.setTablebase(null);
+			player2.setBook(null);
+			player2.setTablebase(null);
+			switch (new GameSession(board, player1, player2).play()) {
+				case X: x++; break;
+				case O: o++; break;
+				default: break;
+			}
 		}
-//		System.out.println("x=" + x + " o=" + o + " tie=" + tie);
+		assertEquals(true, x > 0);
+		assertEquals(true, o > 0);
+	}
+
+	/**
+	 * Test method for {@link EasyComputerPlayer#getMove()}.  Games played from the same seed must
+	 * be identical, whether or not the player pauses to think.
+	 */
+	@Test
+	public void testGetMoveSeeded() {
+		for (long seed = 0; seed < 100; seed++) {
+			Board first = playGame(seed, 0);
+			Board second = playGame(seed, 0);
+			assertEquals(first, second);
+			assertEquals(first.getPly(), second.getPly());
+		}
+		assertEquals(playGame(42, 0), playGame(42, 1));
+	}
+
+	private Board playGame(long seed, int thinkDelay) {
+		Board board = new Board();
+		SplittableRandom random = new SplittableRandom(seed);
+		EasyComputerPlayer player1 = new EasyComputerPlayer(board, Team.X, random);
+		EasyComputerPlayer player2 = new EasyComputerPlayer(board, Team.O, random);
+		player1.setThinkDelay(thinkDelay);
+		player2.setThinkDelay(thinkDelay);
+		player1.setBook(null);
+		player1.setTablebase(null);
+		player2.setBook(null);
+		player2.setTablebase(null);
+		new GameSession(board, player1, player2).play();
+		return board;
 	}
 }
@@ -0,0 +1,171 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.record;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+import com.mikegoodspeed.supercheckers.main.GameSession;
+import com.mikegoodspeed.supercheckers.players.EasyComputerPlayer;
+
+/**
+ * Test the GameCorpus and GameCorpusWriter classes.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ * 
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class GameCorpusTest {
+	File directory = null;
+	List<Board> boards = null;
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		directory = File.createTempFile("corpus", "");
+		directory.delete();
+		boards = new ArrayList<Board>();
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+	/**
+	 * Test method for {@link GameCorpus#get(long)}.  Games must be found by id across segments,
+	 * and appending must continue the ids.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testGet() throws Exception {
+		GameCorpusWriter writer = new GameCorpusWriter(directory, 4096);
+		for (int seed = 0; seed < 150; seed++) {
+			assertEquals((long) seed, writer.append(playGame(seed)));
+		}
+		writer.close();
+		writer = new GameCorpusWriter(directory, 4096);
+		assertEquals(150L, writer.size());
+		for (int seed = 150; seed < 200; seed++) {
+			assertEquals((long) seed, writer.append(playGame(seed)));
+		}
+		writer.close();
+
+		GameCorpus corpus = GameCorpus.open(directory);
+		assertEquals(200L, corpus.size());
+		assertEquals(true, corpus.getSegmentStarts().size() > 3);
+		for (int id = 199; id >= 0; id--) {
+			GameRecord record = corpus.get(id);
+			assertEquals((long) id, record.getSeed());
+			Board board = new Board();
+			record.replay(board, null);
+			assertEquals(boards.get(id), board);
+		}
+		try {
+			corpus.get(200);
+			assertEquals(true, false);
+		} catch (IndexOutOfBoundsException e) {
+			// Expected
+		}
+		corpus.close();
+		assertEquals(0L, corpus.size());
+		assertEquals(0L, GameCorpus.open(new File(directory, "missing")).size());
+	}
+
+	/**
+	 * Test method for {@link GameCorpusWriter#GameCorpusWriter(File, long)}.  A record that was
+	 * cut off, or an index entry written before its record, must be dropped.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testRecover() throws Exception {
+		GameCorpusWriter writer = new GameCorpusWriter(directory);
+		for (int seed = 0; seed < 10; seed++) {
+			writer.append(playGame(seed));
+		}
+		writer.close();
+		File data = GameCorpus.getDataFile(directory, 0);
+		RandomAccessFile file = new RandomAccessFile(data, "rw");
+		file.setLength(data.length() - 1);
+		file.close();
+		assertEquals(9L, GameCorpus.open(directory).size());
+		RandomAccessFile index = new RandomAccessFile(GameCorpus.getIndexFile(directory, 0), "rw");
+		index.seek(index.length());
+		index.writeLong(data.length() + 100);
+		index.close();
+		assertEquals(9L, GameCorpus.open(directory).size());
+
+		writer = new GameCorpusWriter(directory);
+		assertEquals(9L, writer.size());
+		assertEquals(9L, writer.append(playGame(9)));
+		writer.close();
+		GameCorpus corpus = GameCorpus.open(directory);
+		assertEquals(10L, corpus.size());
+		for (int id = 0; id < 10; id++) {
+			Board board = new Board();
+			corpus.get(id).replay(board, null);
+			assertEquals(boards.get(id), board);
+		}
+	}
+
+	private GameRecord playGame(int seed) {
+		Board board = new Board();
+		SplittableRandom random = new SplittableRandom(seed);
+		EasyComputerPlayer player1 = new EasyComputerPlayer(board, Team.X, random);
+		EasyComputerPlayer player2 = new EasyComputerPlayer(board, Team.O, random);
+		player1.setBook(null);
+		player1.setTablebase(null);
+		player2.setBook(null);
+		player2.setTablebase(null);
+		GameSession session = new GameSession(board, player1, player2);
+		GameRecord record = new GameRecord("Easy", "Easy", seed);
+		session.setListener(record);
+		session.play();
+		if (boards.size() == seed) {
+			boards.add(board);
+		}
+		return record;
+	}
+}
@@ -0,0 +1,194 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.record;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.ChainBuffer;
+import com.mikegoodspeed.supercheckers.datastructures.Move;
+import com.mikegoodspeed.supercheckers.datastructures.PackedMove;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+import com.mikegoodspeed.supercheckers.main.GameSession;
+import com.mikegoodspeed.supercheckers.players.EasyComputerPlayer;
+
+/**
+ * Test the GameRecord, GameRecordWriter and GameRecordReader classes.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ * 
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class GameRecordTest {
+
+	/**
+	 * Test method for {@link GameRecordReader#next()}.  Recorded games must read back with the
+	 * same header and replay to the same final position.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testReadWrite() throws Exception {
+		List<Board> boards = new ArrayList<Board>();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		GameRecordWriter writer = new GameRecordWriter(bytes);
+		for (int seed = 0; seed < 200; seed++) {
+			Board board = new Board();
+			SplittableRandom random = new SplittableRandom(seed);
+			EasyComputerPlayer player1 = new EasyComputerPlayer(board, Team.X, random);
+			EasyComputerPlayer player2 = new EasyComputerPlayer(board, Team.O, random);
+			player1.setBook(null);
+			player1.setTablebase(null);
+			player2.setBook(null);
+			player2.setTablebase(null);
+			GameSession session = new GameSession(board, player1, player2);
+			GameRecord record = new GameRecord("Easy", "Easy \u00e9", seed - 100);
+			session.setListener(record);
+			session.play();
+			assertEquals(session.getPlies(), record.getPlies());
+			assertEquals(session.getResult(), record.getResult());
+			writer.write(record);
+			boards.add(board);
+		}
+		writer.write(new GameRecord("", "", Long.MIN_VALUE));
+		writer.close();
+		assertEquals(201L, writer.getCount());
+		assertEquals((long) bytes.size(), writer.getBytes());
+
+		GameRecordReader reader = new GameRecordReader(new ByteArrayInputStream(
+			bytes.toByteArray()));
+		for (int seed = 0; seed < 200; seed++) {
+			GameRecord record = reader.next();
+			assertEquals("Easy", record.getPlayer1());
+			assertEquals("Easy \u00e9", record.getPlayer2());
+			assertEquals(seed - 100L, record.getSeed());
+			Board board = new Board();
+			final int[] plies = new int[1];
+			record.replay(board, new ReplayListener() {
+				public void moveReplayed(Board board, int ply, long move, ChainBuffer chains) {
+					assertEquals(++plies[0], ply);
+				}
+			});
+			assertEquals(record.getPlies(), plies[0]);
+			assertEquals(boards.get(seed), board);
+			assertEquals(board.isGameOver() ? board.getWinner() : Team.NOBODY,
+				record.getResult());
+		}
+		GameRecord empty = reader.next();
+		assertEquals(Long.MIN_VALUE, empty.getSeed());
+		assertEquals(null, empty.getResult());
+		assertEquals(0, empty.getPlies());
+		assertEquals(null, reader.next());
+		assertEquals(201L, reader.getCount());
+		reader.close();
+	}
+
+	/**
+	 * Test method for {@link GameRecord#addMove(long, ChainBuffer)}.  Packed moves, including
+	 * chained ones, must be encoded as the same moves given as Move objects.
+	 */
+	@Test
+	public void testAddMove() {
+		Move move = new Move();
+		for (int i = 0; i < PackedMove.MAX_INLINE + 3; i++) {
+			move.add(i % 2 == 0 ? 1 : 3, i % 4 < 2 ? 0 : 2);
+		}
+		ChainBuffer chains = new ChainBuffer();
+		GameRecord packed = new GameRecord("a", "b", 1);
+		packed.addMove(PackedMove.fromMove(move, chains), chains);
+		GameRecord unpacked = new GameRecord("a", "b", 1);
+		unpacked.addMove(move);
+		assertEquals(packed.getMoves(), unpacked.getMoves());
+		assertEquals(1 + move.size(), packed.getMoves().remaining());
+		GameRecord read = GameRecord.read(ByteBuffer.wrap(packed.toBytes()));
+		assertEquals(packed.getMoves(), read.getMoves());
+		read.addMove(move);
+		assertEquals(2, read.getPlies());
+		assertEquals(2 * packed.getMoves().remaining(), read.getMoves().remaining());
+	}
+
+	/**
+	 * Test method for {@link GameRecord#readVarLong(ByteBuffer)}.
+	 */
+	@Test
+	public void testVarLong() {
+		long[] values = { 0, 1, 127, 128, 300, Integer.MAX_VALUE, Long.MAX_VALUE, -1 };
+		byte[] out = new byte[10 * values.length];
+		int offset = 0;
+		for (long value : values) {
+			offset = GameRecord.writeVarLong(out, offset, value);
+		}
+		assertEquals(1 + 1 + 1 + 2 + 2 + 5 + 9 + 10, offset);
+		ByteBuffer in = ByteBuffer.wrap(out, 0, offset);
+		for (long value : values) {
+			assertEquals(value, GameRecord.readVarLong(in));
+		}
+		byte[] tooLong = new byte[11];
+		Arrays.fill(tooLong, (byte) 0x80);
+		try {
+			GameRecord.readVarLong(ByteBuffer.wrap(tooLong));
+			assertEquals(true, false);
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	/**
+	 * Test method for {@link GameRecordReader#GameRecordReader(java.io.InputStream)}.  Streams
+	 * that are not game records, or that end inside a record, must be rejected.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testBadStream() throws Exception {
+		try {
+			new GameRecordReader(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 }));
+			assertEquals(true, false);
+		} catch (IOException e) {
+			// Expected
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		GameRecordWriter writer = new GameRecordWriter(bytes);
+		GameRecord record = new GameRecord("a", "b", 1);
+		record.addMove(new Move());
+		writer.write(record);
+		writer.close();
+		byte[] truncated = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 1);
+		GameRecordReader reader = new GameRecordReader(new ByteArrayInputStream(truncated));
+		try {
+			reader.next();
+			assertEquals(true, false);
+		} catch (IOException e) {
+			// Expected
+		}
+	}
+}
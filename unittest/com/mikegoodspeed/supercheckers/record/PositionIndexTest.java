@@ -0,0 +1,226 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.record;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.ChainBuffer;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+import com.mikegoodspeed.supercheckers.main.GameSession;
+import com.mikegoodspeed.supercheckers.players.EasyComputerPlayer;
+
+/**
+ * Test the PositionIndex and PositionIndexBuilder classes.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ * 
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class PositionIndexTest {
+	File corpusDirectory = null;
+	File indexDirectory = null;
+	GameCorpus corpus = null;
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		corpusDirectory = File.createTempFile("corpus", "");
+		corpusDirectory.delete();
+		indexDirectory = File.createTempFile("index", "");
+		indexDirectory.delete();
+		GameCorpusWriter writer = new GameCorpusWriter(corpusDirectory);
+		for (int seed = 0; seed < 60; seed++) {
+			writer.append(playGame(seed));
+		}
+		writer.close();
+		corpus = GameCorpus.open(corpusDirectory);
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+		for (File directory : new File[] { corpusDirectory, indexDirectory }) {
+			File[] files = directory.listFiles();
+			if (files != null) {
+				for (File file : files) {
+					file.delete();
+				}
+			}
+			directory.delete();
+		}
+	}
+
+	/**
+	 * Test method for {@link PositionIndex#getPostings(long, int)}.  Every position of every game
+	 * must be found, with the same postings as a scan of the corpus, in order.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testGetPostings() throws Exception {
+		final Map<Long, List<Long>> expected = new HashMap<Long, List<Long>>();
+		for (long id = 0; id < corpus.size(); id++) {
+			final long gameId = id;
+			corpus.get(id).replay(new Board(), new ReplayListener() {
+				public void moveReplayed(Board board, int ply, long move, ChainBuffer chains) {
+					List<Long> postings = expected.get(board.hash());
+					if (postings == null) {
+						postings = new ArrayList<Long>();
+						expected.put(board.hash(), postings);
+					}
+					postings.add(PositionIndex.getPosting(gameId, ply));
+				}
+			});
+		}
+		PositionIndexBuilder builder = new PositionIndexBuilder(corpus);
+		builder.setShardBits(2);
+		builder.setThreads(3);
+		long total = builder.build(indexDirectory);
+		builder.shutdown();
+
+		PositionIndex index = PositionIndex.open(indexDirectory);
+		assertEquals(4, index.getShardCount());
+		assertEquals((long) expected.size(), index.getKeyCount());
+		long found = 0;
+		for (Map.Entry<Long, List<Long>> entry : expected.entrySet()) {
+			long[] postings = index.getPostings(entry.getKey(), Integer.MAX_VALUE);
+			assertEquals(entry.getValue().size(), postings.length);
+			assertEquals(postings.length, index.count(entry.getKey()));
+			for (int i = 0; i < postings.length; i++) {
+				assertEquals(entry.getValue().get(i).longValue(), postings[i]);
+			}
+			found += postings.length;
+		}
+		assertEquals(total, found);
+		assertEquals(1, index.getPostings(expected.keySet().iterator().next(), 1).length);
+
+		Board start = new Board();
+		assertEquals(0, index.getPostings(start).length);
+		assertEquals(0, index.count(start.hash()));
+		corpus.get(7).replay(start, 3, null);
+		long[] postings = index.getPostings(start);
+		assertEquals(true, postings.length > 0);
+		boolean seen = false;
+		for (long posting : postings) {
+			seen |= PositionIndex.getGameId(posting) == 7 && PositionIndex.getPly(posting) == 3;
+		}
+		assertEquals(true, seen);
+	}
+
+	/**
+	 * Test method for {@link PositionIndexBuilder#build(File)}.  Rebuilding must replace the old
+	 * shards, and limiting the plies must leave out later positions.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testRebuild() throws Exception {
+		PositionIndexBuilder builder = new PositionIndexBuilder(corpus);
+		builder.setShardBits(3);
+		builder.build(indexDirectory);
+		builder.setShardBits(1);
+		builder.setMaxPly(4);
+		builder.setThreads(1);
+		assertEquals(4L * corpus.size(), builder.build(indexDirectory));
+		builder.shutdown();
+		PositionIndex index = PositionIndex.open(indexDirectory);
+		assertEquals(2, index.getShardCount());
+		Board board = new Board();
+		corpus.get(0).replay(board, 5, null);
+		assertEquals(0, index.getPostings(board).length);
+		assertEquals(2, indexDirectory.list().length);
+	}
+
+	/**
+	 * Test method for {@link PositionIndexBuilder#main(String[])}.  The shard count must be set
+	 * from the command line, and with the most shards every position must still be found.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testMain() throws Exception {
+		PositionIndexBuilder.main(new String[] { corpusDirectory.getPath(),
+			indexDirectory.getPath(), "2", "10" });
+		PositionIndex index = PositionIndex.open(indexDirectory);
+		assertEquals(1024, index.getShardCount());
+		GameRecord record = corpus.get(7);
+		for (int ply = 1; ply <= record.getPlies(); ply++) {
+			Board board = new Board();
+			record.replay(board, ply, null);
+			boolean seen = false;
+			for (long posting : index.getPostings(board)) {
+				seen |= PositionIndex.getGameId(posting) == 7 && PositionIndex.getPly(posting) == ply;
+			}
+			assertEquals(true, seen);
+		}
+	}
+
+	/**
+	 * Test method for {@link PositionIndexBuilder#sort(long[], long[], int, int)}.
+	 */
+	@Test
+	public void testSort() {
+		SplittableRandom random = new SplittableRandom(1);
+		long[] keys = new long[5000];
+		long[] postings = new long[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = random.nextLong() % 40;
+			postings[i] = random.nextInt(1000);
+		}
+		PositionIndexBuilder.sort(keys, postings, 0, keys.length);
+		for (int i = 1; i < keys.length; i++) {
+			assertEquals(true, keys[i - 1] < keys[i]
+					|| keys[i - 1] == keys[i] && postings[i - 1] <= postings[i]);
+		}
+	}
+
+	private GameRecord playGame(int seed) {
+		Board board = new Board();
+		SplittableRandom random = new SplittableRandom(seed);
+		EasyComputerPlayer player1 = new EasyComputerPlayer(board, Team.X, random);
+		EasyComputerPlayer player2 = new EasyComputerPlayer(board, Team.O, random);
+		player1.setBook(null);
+		player1.setTablebase(null);
+		player2.setBook(null);
+		player2.setTablebase(null);
+		GameSession session = new GameSession(board, player1, player2);
+		GameRecord record = new GameRecord("Easy", "Easy", seed);
+		session.setListener(record);
+		session.play();
+		return record;
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.search;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.SplittableRandom;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.Move;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+
+/**
+ * Test the LazySmpSearcher class.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ * 
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class LazySmpSearcherTest {
+	LazySmpSearcher searcher = null;
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		searcher = new LazySmpSearcher(new TranspositionTable(4), 4);
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+		searcher.shutdown();
+		searcher = null;
+	}
+
+	/**
+	 * Test method for {@link LazySmpSearcher#search(Board, Team, int, long, long)}.  Every search
+	 * must return a valid move from at least the requested depth, and count the nodes of all
+	 * threads.
+	 */
+	@Test
+	public void testSearch() {
+		SplittableRandom random = new SplittableRandom(5);
+		for (int game = 0; game < 10; game++) {
+			Board board = SearcherTest.randomPosition(random, 2 + random.nextInt(20));
+			if (board == null) {
+				continue;
+			}
+			Team team = board.getTurn();
+			Board before = board.clone();
+			Move move = searcher.search(board, team, 4, 0, 0);
+			assertEquals(true, board.isValidMove(team, move));
+			assertEquals(before, board);
+			assertEquals(true, searcher.getDepth() >= 4
+					|| Math.abs(searcher.getScore()) >= Evaluator.WIN_THRESHOLD);
+		}
+		assertEquals(4, searcher.getThreads());
+	}
+
+	/**
+	 * Test method for {@link LazySmpSearcher#search(Board, Team, int, long, long)}.  Helpers must
+	 * stop when the main search runs out of time.
+	 */
+	@Test
+	public void testSearchBudget() {
+		Board board = SearcherTest.randomPosition(new SplittableRandom(6), 10);
+		Move move = searcher.search(board, board.getTurn(), Searcher.MAX_DEPTH, 200, 0);
+		assertEquals(true, board.isValidMove(board.getTurn(), move));
+		assertEquals(true, searcher.getTime() < 2000);
+		move = searcher.search(board, board.getTurn(), Searcher.MAX_DEPTH, 0, 20000);
+		assertEquals(true, board.isValidMove(board.getTurn(), move));
+		assertEquals(true, searcher.getNodes() > 0);
+	}
+
+	/**
+	 * Test method for {@link LazySmpSearcher#search(Board, Team, int, long, long)}.  A single
+	 * thread must search exactly like a Searcher.
+	 */
+	@Test
+	public void testSearchSingleThread() {
+		SplittableRandom random = new SplittableRandom(7);
+		for (int game = 0; game < 10; game++) {
+			Board board = SearcherTest.randomPosition(random, 2 + random.nextInt(20));
+			if (board == null) {
+				continue;
+			}
+			Team team = board.getTurn();
+			LazySmpSearcher single = new LazySmpSearcher(new TranspositionTable(1), 1);
+			Searcher serial = new Searcher(new TranspositionTable(1));
+			assertEquals(serial.search(board, team, 4, 0, 0), single.search(board, team, 4, 0, 0));
+			assertEquals(serial.getScore(), single.getScore());
+			assertEquals(serial.getNodes(), single.getNodes());
+		}
+	}
+}
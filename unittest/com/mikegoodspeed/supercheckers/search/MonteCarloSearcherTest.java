@@ -0,0 +1,172 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.search;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.Move;
+import com.mikegoodspeed.supercheckers.datastructures.MoveList;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+
+/**
+ * Test the MonteCarloSearcher class.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ * 
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class MonteCarloSearcherTest {
+
+	/**
+	 * Test method for {@link MonteCarloSearcher#search(Board, Team, long, long)}.  Searches must
+	 * return valid moves, leave the position unchanged and run the playouts asked for.
+	 */
+	@Test
+	public void testSearch() {
+		MonteCarloSearcher searcher = new MonteCarloSearcher(2, 1 << 12, new SplittableRandom(10));
+		SplittableRandom random = new SplittableRandom(11);
+		for (int game = 0; game < 10; game++) {
+			Board board = SearcherTest.randomPosition(random, random.nextInt(30));
+			if (board == null) {
+				continue;
+			}
+			Team team = board.getTurn();
+			Board before = board.clone();
+			Move move = searcher.search(board, team, 0, 500);
+			assertEquals(true, board.isValidMove(team, move));
+			assertEquals(before, board);
+			assertEquals(500L, searcher.getPlayouts());
+			assertEquals(true, searcher.getWinRate() >= 0.0 && searcher.getWinRate() <= 1.0);
+		}
+		searcher.shutdown();
+	}
+
+	/**
+	 * Test method for {@link MonteCarloSearcher#search(Board, Team, long, long)}.  Searches with
+	 * the same seed and playout budget must choose the same moves.
+	 */
+	@Test
+	public void testSearchSeeded() {
+		Board board = SearcherTest.randomPosition(new SplittableRandom(12), 6);
+		MonteCarloSearcher first = new MonteCarloSearcher(3, 1 << 14, new SplittableRandom(13));
+		MonteCarloSearcher second = new MonteCarloSearcher(3, 1 << 14, new SplittableRandom(13));
+		for (int i = 0; i < 3; i++) {
+			assertEquals(first.search(board, board.getTurn(), 0, 900),
+				second.search(board, board.getTurn(), 0, 900));
+			assertEquals(first.getWinRate(), second.getWinRate(), 0.0);
+		}
+		first.shutdown();
+		second.shutdown();
+	}
+
+	/**
+	 * Test method for {@link MonteCarloSearcher#search(Board, Team, long, long)}.  A move that
+	 * wins at once must be found.
+	 */
+	@Test
+	public void testSearchWin() {
+		MonteCarloSearcher searcher = new MonteCarloSearcher(1, 1 << 16, new SplittableRandom(14));
+		SplittableRandom random = new SplittableRandom(15);
+		MoveList moves = new MoveList();
+		int wins = 0;
+		for (int game = 0; game < 200 && wins < 5; game++) {
+			Board board = SearcherTest.randomPosition(random, 2 + random.nextInt(60));
+			if (board == null) {
+				continue;
+			}
+			Team team = board.getTurn();
+			moves.clear();
+			board.generateMoves(team, moves);
+			boolean canWin = false;
+			for (int i = 0; i < moves.size(); i++) {
+				long undo = board.doMove(team, moves, i);
+				canWin |= board.isGameOver() && team.equals(board.getWinner());
+				board.undoMove(undo);
+			}
+			if (!canWin) {
+				continue;
+			}
+			board.doMove(team, searcher.search(board, team, 0, 2000));
+			assertEquals(team, board.getWinner());
+			wins++;
+		}
+		assertEquals(true, wins > 0);
+	}
+
+	/**
+	 * Test method for {@link MonteCarloSearcher#search(Board, Team, long, long)}.  A time budget
+	 * must be kept.
+	 */
+	@Test
+	public void testSearchTime() {
+		MonteCarloSearcher searcher = new MonteCarloSearcher(1, 1 << 12, new SplittableRandom(16));
+		Board board = new Board();
+		assertEquals(true, board.isValidMove(Team.X, searcher.search(board, Team.X, 100, 0)));
+		assertEquals(true, searcher.getTime() < 1000);
+		assertEquals(true, searcher.getPlayouts() > 0);
+	}
+
+	/**
+	 * Test method for {@link MonteCarloTree#reset(Board, Team, SplittableRandom)}.  The playouts
+	 * under a move and its reply must be kept for the next search, and a new position must start
+	 * a new tree.
+	 */
+	@Test
+	public void testTreeReuse() {
+		SplittableRandom random = new SplittableRandom(17);
+		MonteCarloTree tree = new MonteCarloTree(1 << 14);
+		Board board = new Board();
+		MoveList moves = new MoveList();
+		tree.reset(board, Team.X, random);
+		for (int i = 0; i < 2000; i++) {
+			tree.playout();
+		}
+		assertEquals(2000, tree.getVisits());
+		Team team = Team.X;
+		for (int ply = 0; ply < 2; ply++) {
+			moves.clear();
+			board.generateMoves(team, moves);
+			int best = 0;
+			for (int i = 0; i < moves.size(); i++) {
+				if (ply == 0 && tree.getRootVisits(i) > tree.getRootVisits(best)) {
+					best = i;
+				}
+			}
+			board.doMove(team, moves, best);
+			team = team.getOpponent();
+		}
+		int size = tree.getSize();
+		tree.reset(board, team, random);
+		assertEquals(true, tree.getVisits() > 0);
+		assertEquals(true, tree.getSize() < size);
+		for (int i = 0; i < 100; i++) {
+			tree.playout();
+		}
+		tree.reset(SearcherTest.randomPosition(new SplittableRandom(18), 10), Team.X, random);
+		assertEquals(0, tree.getVisits());
+		assertEquals(1, tree.getSize());
+	}
+}
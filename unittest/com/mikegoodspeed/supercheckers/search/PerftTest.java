@@ -0,0 +1,157 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.search;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.SplittableRandom;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.MoveList;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+
+/**
+ * Test the Perft class.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ * 
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class PerftTest {
+	/**
+	 * Move counts from the starting position, indexed by depth, as counted by the original board
+	 * that kept its pieces in a Team[][] and checked every spot of a move one at a time.
+	 */
+	private static final long[] START_COUNTS = { 1L, 8L, 16L, 416L, 11116L, 321060L,
+		10025836L };
+
+	Perft perft = null;
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		perft = new Perft(4);
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+		perft.shutdown();
+	}
+
+	/**
+	 * Test method for {@link Perft#perft(Board, Team, int)}.  Counts from the starting position must
+	 * match the original board's, whether or not the search is split between threads.
+	 */
+	@Test
+	public void testStartPosition() {
+		for (int depth = 0; depth < START_COUNTS.length; depth++) {
+			assertEquals(START_COUNTS[depth], new Perft().perft(new Board(), Team.X, depth));
+			assertEquals(START_COUNTS[depth], perft.perft(new Board(), Team.X, depth));
+		}
+	}
+
+	/**
+	 * Test method for {@link Perft#perft(Board, Team, int)}.  Counts must match a plain recursion
+	 * making each move as a Move on a copy of the board, and leave the position unchanged.
+	 */
+	@Test
+	public void testPerft() {
+		SplittableRandom random = new SplittableRandom(1);
+		Board board = new Board();
+		for (int game = 0; game < 10; game++) {
+			Team team = board.getTurn();
+			assertEquals(count(board, team, 3), new Perft().perft(board, team, 3));
+			assertEquals(count(board, team, 3), perft.perft(board, team, 3));
+			board = SearcherTest.randomPosition(random, 2 + random.nextInt(30));
+			while (board == null) {
+				board = SearcherTest.randomPosition(random, 2 + random.nextInt(30));
+			}
+		}
+		assertEquals(1L, perft.perft(board, board.getTurn(), 0));
+		Board copy = board.clone();
+		perft.perft(board, board.getTurn(), 3);
+		assertEquals(copy, board);
+	}
+
+	/**
+	 * Test method for {@link Perft#divide(Board, Team, int, int)}.  Counts by root move must sum
+	 * to the total, and must not depend on the number of threads or the cache.
+	 */
+	@Test
+	public void testDivide() {
+		Board board = SearcherTest.randomPosition(new SplittableRandom(2), 6);
+		Team team = board.getTurn();
+		long total = new Perft().perft(board, team, 4);
+		long[] counts = perft.divide(board, team, 4, 1);
+		long[] parallel = new Perft().divide(board, team, 4, 3);
+		long sum = 0;
+		for (int i = 0; i < counts.length; i++) {
+			assertEquals(counts[i], parallel[i]);
+			sum += counts[i];
+		}
+		assertEquals(total, sum);
+		MoveList moves = new MoveList();
+		board.generateMoves(team, moves);
+		assertEquals(moves.size(), counts.length);
+		assertEquals(true, perft.getNodes() > 0);
+	}
+
+	/**
+	 * Test method for {@link Perft#verify(Board, Team, int)}.
+	 */
+	@Test
+	public void testVerify() {
+		SplittableRandom random = new SplittableRandom(3);
+		assertEquals(true, Perft.verify(new Board(), Team.X, 2) > 1);
+		for (int game = 0; game < 20; game++) {
+			Board board = SearcherTest.randomPosition(random, 2 + random.nextInt(40));
+			if (board != null) {
+				assertEquals(true, Perft.verify(board, board.getTurn(), 1) > 0);
+			}
+		}
+	}
+
+	private long count(Board board, Team team, int depth) {
+		MoveList moves = new MoveList();
+		board.generateMoves(team, moves);
+		if (depth == 1) {
+			return moves.size();
+		}
+		long total = 0;
+		for (int i = 0; i < moves.size(); i++) {
+			Board child = board.clone();
+			child.doMove(team, moves.getMove(i));
+			if (!child.isGameOver()) {
+				total += count(child, team.getOpponent(), depth - 1);
+			}
+		}
+		return total;
+	}
+}
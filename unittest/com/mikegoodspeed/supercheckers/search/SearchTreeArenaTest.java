@@ -0,0 +1,175 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.search;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.SplittableRandom;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mikegoodspeed.supercheckers.datastructures.ChainBuffer;
+import com.mikegoodspeed.supercheckers.datastructures.PackedMove;
+
+/**
+ * Test the SearchTreeArena class.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ * 
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class SearchTreeArenaTest {
+
+	private SearchTreeArena arena = null;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		arena = new SearchTreeArena(1000);
+	}
+
+	/**
+	 * Test method for {@link SearchTreeArena#addChildren(int, int)}.  Children must be added
+	 * together after their parent, and only while there is room.
+	 */
+	@Test
+	public void testAddChildren() {
+		int root = arena.clear();
+		assertEquals(0, root);
+		assertEquals(SearchTreeArena.NO_NODE, arena.getParent(root));
+		assertEquals(SearchTreeArena.NO_NODE, arena.getFirstChild(root));
+		assertEquals(1, arena.addChildren(root, 10));
+		assertEquals(11, arena.size());
+		assertEquals(1, arena.getFirstChild(root));
+		assertEquals(10, arena.getChildCount(root));
+		for (int child = 1; child <= 10; child++) {
+			assertEquals(root, arena.getParent(child));
+		}
+		assertEquals(SearchTreeArena.NO_NODE, arena.addChildren(5, 990));
+		assertEquals(11, arena.size());
+		assertEquals(11, arena.addChildren(5, 989));
+		assertEquals(1000, arena.size());
+		assertEquals(0, arena.clear());
+		assertEquals(1, arena.size());
+	}
+
+	/**
+	 * Test method for {@link SearchTreeArena#reroot(int)}.  Rerooting a random tree must keep
+	 * exactly the subtree under the new root, with its moves, values and shape.
+	 */
+	@Test
+	public void testReroot() {
+		SplittableRandom random = new SplittableRandom(20);
+		// Jump series can revisit spots, so moves may be longer than the board has spots.
+		int[] spots = new int[100];
+		for (int test = 0; test < 50; test++) {
+			arena.clear();
+			for (int node = 0; node < arena.size(); node++) {
+				int count = random.nextInt(6);
+				int first = arena.addChildren(node, count);
+				for (int i = 0; first != SearchTreeArena.NO_NODE && i < count; i++) {
+					// Long moves test that chained spots survive the move to a new buffer.
+					int length = 1 + random.nextInt(spots.length);
+					for (int spot = 0; spot < length; spot++) {
+						spots[spot] = random.nextInt(64);
+					}
+					arena.setMove(first + i, PackedMove.pack(spots, length, arena.getChains()));
+					arena.addVisit(first + i, random.nextInt(3) / 2.0f);
+					arena.setState(first + i, (byte) random.nextInt(4));
+				}
+			}
+			int node = random.nextInt(arena.size());
+			String before = describe(arena, node);
+			int subtree = count(arena, node);
+			assertEquals(subtree, arena.reroot(node));
+			assertEquals(subtree, arena.size());
+			assertEquals(SearchTreeArena.NO_NODE, arena.getParent(0));
+			assertEquals(before, describe(arena, 0));
+			for (int i = 1; i < arena.size(); i++) {
+				int parent = arena.getParent(i);
+				assertEquals(true, parent >= 0 && parent < i);
+				int first = arena.getFirstChild(parent);
+				assertEquals(true, i >= first && i < first + arena.getChildCount(parent));
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link SearchTreeArena#reroot(int)}.  Playing a game of rerooted searches
+	 * must not grow the arena's chain buffer past what the kept tree needs.
+	 */
+	@Test
+	public void testRerootBounded() {
+		int[] spots = new int[20];
+		for (int i = 0; i < spots.length; i++) {
+			spots[i] = i;
+		}
+		arena.clear();
+		for (int move = 0; move < 100; move++) {
+			int node = 0;
+			while (arena.size() < arena.getCapacity() - 10) {
+				if (arena.getChildCount(node) == 0) {
+					int first = arena.addChildren(node, 10);
+					for (int i = 0; i < 10; i++) {
+						arena.setMove(first + i, PackedMove.pack(spots, spots.length,
+							arena.getChains()));
+					}
+				}
+				node = arena.getFirstChild(node) + move % 10;
+			}
+			arena.reroot(arena.getFirstChild(0) + move % 10);
+			assertEquals(true, arena.getChains().size() <= arena.size() * spots.length);
+		}
+		assertEquals(1000L * SearchTreeArena.BYTES_PER_NODE, arena.getFootprint());
+	}
+
+	/**
+	 * Describe the subtree under a node, in a form that does not depend on where the nodes are.
+	 */
+	private static String describe(SearchTreeArena arena, int node) {
+		StringBuilder text = new StringBuilder();
+		ChainBuffer chains = arena.getChains();
+		long move = arena.getMove(node);
+		text.append('(');
+		for (int spot = 0; spot < PackedMove.length(move); spot++) {
+			text.append(PackedMove.getSpot(move, spot, chains)).append(' ');
+		}
+		text.append(arena.getVisits(node)).append(' ').append(arena.getValue(node)).append(' ');
+		text.append(arena.getState(node));
+		int first = arena.getFirstChild(node);
+		for (int child = first; child < first + arena.getChildCount(node); child++) {
+			text.append(describe(arena, child));
+		}
+		return text.append(')').toString();
+	}
+
+	private static int count(SearchTreeArena arena, int node) {
+		int nodes = 1;
+		int first = arena.getFirstChild(node);
+		for (int child = first; child < first + arena.getChildCount(node); child++) {
+			nodes += count(arena, child);
+		}
+		return nodes;
+	}
+}
@@ -0,0 +1,212 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.search;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.SplittableRandom;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.Move;
+import com.mikegoodspeed.supercheckers.datastructures.MoveList;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+
+/**
+ * Test the Searcher class.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ * 
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class SearcherTest {
+	Searcher searcher = null;
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		searcher = new Searcher();
+	}
+
+	/**
+	 * Test method for {@link Searcher#search(Board, Team, int, long, long)}.  The search must
+	 * return a valid move and leave the position unchanged.
+	 */
+	@Test
+	public void testSearch() {
+		Board board = new Board();
+		Move move = searcher.search(board, Team.X, 3, 0, 0);
+		assertEquals(true, board.isValidMove(Team.X, move));
+		assertEquals(new Board(), board);
+		assertEquals(3, searcher.getDepth());
+		assertEquals(true, searcher.getNodes() > 0);
+	}
+
+	/**
+	 * Test method for {@link Searcher#search(Board, Team, int, long, long)}.  With no budget, the
+	 * score at a fixed depth must equal the score of a full minimax search.
+	 */
+	@Test
+	public void testSearchMinimax() {
+		SplittableRandom random = new SplittableRandom(1);
+		for (int game = 0; game < 20; game++) {
+			Board board = randomPosition(random, 2 + random.nextInt(30));
+			if (board == null) {
+				continue;
+			}
+			Team team = board.getTurn();
+			Move move = searcher.search(board, team, 3, 0, 0);
+			assertEquals(true, board.isValidMove(team, move));
+			assertEquals(minimax(board, team, 3, 0), searcher.getScore());
+			Board after = board.clone();
+			after.doMove(team, move);
+			int moveScore = after.isGameOver() ? Evaluator.evaluateGameOver(after, team, 1)
+					: -minimax(after, team.getOpponent(), 2, 1);
+			assertEquals(searcher.getScore(), moveScore);
+		}
+	}
+
+	/**
+	 * Test method for {@link Searcher#search(Board, Team, int, long, long)}.  A winning move must
+	 * be found and scored as a win.
+	 */
+	@Test
+	public void testSearchWin() {
+		SplittableRandom random = new SplittableRandom(2);
+		int wins = 0;
+		for (int game = 0; game < 200; game++) {
+			Board board = randomPosition(random, 2 + random.nextInt(60));
+			if (board == null || !hasWinningMove(board, board.getTurn())) {
+				continue;
+			}
+			Team team = board.getTurn();
+			Move move = searcher.search(board, team, 4, 0, 0);
+			assertEquals(Evaluator.WIN - 1, searcher.getScore());
+			board.doMove(team, move);
+			assertEquals(team, board.getWinner());
+			wins++;
+		}
+		assertEquals(true, wins > 0);
+	}
+
+	/**
+	 * Test method for {@link Searcher#search(Board, Team, int, long, long)}.  The search must stop
+	 * at its node and time budgets and still return a valid move.
+	 */
+	@Test
+	public void testSearchBudget() {
+		Board board = randomPosition(new SplittableRandom(3), 10);
+		Move move = searcher.search(board, board.getTurn(), Searcher.MAX_DEPTH, 0, 5000);
+		assertEquals(true, board.isValidMove(board.getTurn(), move));
+		assertEquals(true, searcher.getNodes() <= 5001);
+
+		move = searcher.search(board, board.getTurn(), Searcher.MAX_DEPTH, 200, 0);
+		assertEquals(true, board.isValidMove(board.getTurn(), move));
+		assertEquals(true, searcher.getTime() < 2000);
+	}
+
+	/**
+	 * Test method for {@link Searcher#search(Board, Team, int, long, long)} with a transposition
+	 * table.  The search must return valid moves and visit fewer nodes than without a table.
+	 */
+	@Test
+	public void testSearchTable() {
+		Searcher tableSearcher = new Searcher(new TranspositionTable(4));
+		SplittableRandom random = new SplittableRandom(4);
+		long nodes = 0;
+		long tableNodes = 0;
+		for (int game = 0; game < 10; game++) {
+			Board board = randomPosition(random, 4 + random.nextInt(20));
+			if (board == null) {
+				continue;
+			}
+			Team team = board.getTurn();
+			searcher.search(board, team, 5, 0, 0);
+			nodes += searcher.getNodes();
+			Move move = tableSearcher.search(board, team, 5, 0, 0);
+			tableNodes += tableSearcher.getNodes();
+			assertEquals(true, board.isValidMove(team, move));
+		}
+		assertEquals(true, tableNodes < nodes);
+	}
+
+	/**
+	 * Plays random legal moves from a new board.
+	 *
+	 * @param random
+	 * @param plies number of moves to play
+	 * @return the position reached, or null if the game ended first
+	 */
+	static Board randomPosition(SplittableRandom random, int plies) {
+		Board board = new Board();
+		MoveList moves = new MoveList();
+		for (int ply = 0; ply < plies; ply++) {
+			moves.clear();
+			board.generateMoves(board.getTurn(), moves);
+			if (moves.size() == 0) {
+				return null;
+			}
+			board.doMove(board.getTurn(), moves, random.nextInt(moves.size()));
+			if (board.isGameOver()) {
+				return null;
+			}
+		}
+		return board;
+	}
+
+	private boolean hasWinningMove(Board board, Team team) {
+		MoveList moves = new MoveList();
+		board.generateMoves(team, moves);
+		for (int i = 0; i < moves.size(); i++) {
+			long undo = board.doMove(team, moves, i);
+			boolean win = board.isGameOver() && team.equals(board.getWinner());
+			board.undoMove(undo);
+			if (win) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private int minimax(Board board, Team team, int depth, int ply) {
+		if (depth == 0) {
+			return Evaluator.evaluate(board, team);
+		}
+		MoveList moves = new MoveList();
+		board.generateMoves(team, moves);
+		if (moves.size() == 0) {
+			return Evaluator.DRAW;
+		}
+		int best = -Searcher.INFINITY;
+		for (int i = 0; i < moves.size(); i++) {
+			long undo = board.doMove(team, moves, i);
+			int value = board.isGameOver() ? Evaluator.evaluateGameOver(board, team, ply + 1)
+					: -minimax(board, team.getOpponent(), depth - 1, ply + 1);
+			board.undoMove(undo);
+			best = Math.max(best, value);
+		}
+		return best;
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.search;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.SplittableRandom;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the TranspositionTable class.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ * 
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class TranspositionTableTest {
+	TranspositionTable table = null;
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		table = new TranspositionTable(1);
+	}
+
+	/**
+	 * Test method for {@link TranspositionTable#TranspositionTable(int)}.
+	 */
+	@Test
+	public void testSize() {
+		assertEquals(1 << 16, table.getSize());
+		assertEquals(1 << 17, new TranspositionTable(3).getSize());
+	}
+
+	/**
+	 * Test method for {@link TranspositionTable#store(long, int, int, int, int)} and
+	 * {@link TranspositionTable#probe(long)}.
+	 */
+	@Test
+	public void testStore() {
+		long key = 0x123456789ABCDEF0L;
+		assertEquals(TranspositionTable.MISS, table.probe(key));
+		table.store(key, 7, TranspositionTable.LOWER, -Evaluator.WIN + 3, 42);
+		long entry = table.probe(key);
+		assertEquals(7, TranspositionTable.getDepth(entry));
+		assertEquals(TranspositionTable.LOWER, TranspositionTable.getBound(entry));
+		assertEquals(-Evaluator.WIN + 3, TranspositionTable.getScore(entry));
+		assertEquals(42, TranspositionTable.getMove(entry));
+		// Same slot, different key
+		assertEquals(TranspositionTable.MISS, table.probe(key ^ (1L << 40)));
+
+		table.store(key, 3, TranspositionTable.EXACT, 0, TranspositionTable.NO_MOVE);
+		entry = table.probe(key);
+		assertEquals(TranspositionTable.EXACT, TranspositionTable.getBound(entry));
+		assertEquals(TranspositionTable.NO_MOVE, TranspositionTable.getMove(entry));
+
+		table.clear();
+		assertEquals(TranspositionTable.MISS, table.probe(key));
+	}
+
+	/**
+	 * Test method for {@link TranspositionTable#store(long, int, int, int, int)}.  Deeper entries
+	 * are kept within a search, and replaced by the next search.
+	 */
+	@Test
+	public void testReplacement() {
+		long deep = 5L;
+		long shallow = deep + ((long) table.getSize() << 8); // same slot
+		table.store(deep, 8, TranspositionTable.EXACT, 10, 1);
+		table.store(shallow, 2, TranspositionTable.EXACT, 20, 2);
+		assertEquals(10, TranspositionTable.getScore(table.probe(deep)));
+		assertEquals(TranspositionTable.MISS, table.probe(shallow));
+		table.store(shallow, 8, TranspositionTable.EXACT, 20, 2);
+		assertEquals(20, TranspositionTable.getScore(table.probe(shallow)));
+
+		table.newSearch();
+		table.store(deep, 1, TranspositionTable.EXACT, 30, 3);
+		assertEquals(30, TranspositionTable.getScore(table.probe(deep)));
+		assertEquals(TranspositionTable.MISS, table.probe(shallow));
+	}
+
+	/**
+	 * Test method for {@link TranspositionTable#probe(long)}.  Entries read while other threads
+	 * write to the same slots must never belong to another key.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testConcurrent() throws Exception {
+		final TranspositionTable small = new TranspositionTable(1);
+		final int slots = 64;
+		final boolean[] failed = new boolean[1];
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final long seed = t;
+			threads[t] = new Thread() {
+				public void run() {
+					SplittableRandom random = new SplittableRandom(seed);
+					for (int i = 0; i < 1000000; i++) {
+						long key = random.nextLong();
+						key = (key & ~(long) (small.getSize() - 1)) | random.nextInt(slots);
+						long entry = small.probe(key);
+						if (entry != TranspositionTable.MISS
+								&& TranspositionTable.getScore(entry) != (int) (key >>> 32)) {
+							failed[0] = true;
+						}
+						small.store(key, random.nextInt(10), TranspositionTable.EXACT,
+							(int) (key >>> 32), 0);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(false, failed[0]);
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.search;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.SplittableRandom;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.Move;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+
+/**
+ * Test the YoungBrothersSearcher class.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ * 
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class YoungBrothersSearcherTest {
+	YoungBrothersSearcher searcher = null;
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		searcher = new YoungBrothersSearcher(4);
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+		searcher.shutdown();
+		searcher = null;
+	}
+
+	/**
+	 * Test method for {@link YoungBrothersSearcher#search(Board, Team, int, long, long)}.  For a
+	 * fixed depth, the best move and score must be the same as the serial search's.
+	 */
+	@Test
+	public void testSearchSerial() {
+		Searcher serial = new Searcher();
+		SplittableRandom random = new SplittableRandom(8);
+		int positions = 0;
+		for (int game = 0; game < 40; game++) {
+			Board board = SearcherTest.randomPosition(random, 1 + random.nextInt(40));
+			if (board == null) {
+				continue;
+			}
+			Team team = board.getTurn();
+			Board before = board.clone();
+			for (int depth = 1; depth <= 4; depth++) {
+				Move expected = serial.search(board, team, depth, 0, 0);
+				Move move = searcher.search(board, team, depth, 0, 0);
+				assertEquals(expected, move);
+				assertEquals(serial.getScore(), searcher.getScore());
+				assertEquals(serial.getDepth(), searcher.getDepth());
+			}
+			assertEquals(before, board);
+			positions++;
+		}
+		assertEquals(true, positions > 10);
+	}
+
+	/**
+	 * Test method for {@link YoungBrothersSearcher#search(Board, Team, int, long, long)}.  The
+	 * search must stop at its budgets and still return a valid move.
+	 */
+	@Test
+	public void testSearchBudget() {
+		Board board = SearcherTest.randomPosition(new SplittableRandom(9), 10);
+		Move move = searcher.search(board, board.getTurn(), Searcher.MAX_DEPTH, 200, 0);
+		assertEquals(true, board.isValidMove(board.getTurn(), move));
+		assertEquals(true, searcher.getTime() < 2000);
+		move = searcher.search(board, board.getTurn(), Searcher.MAX_DEPTH, 0, 20000);
+		assertEquals(true, board.isValidMove(board.getTurn(), move));
+		assertEquals(4, searcher.getThreads());
+	}
+}
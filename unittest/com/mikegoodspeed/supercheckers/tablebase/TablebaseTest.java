@@ -0,0 +1,268 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.tablebase;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.Move;
+import com.mikegoodspeed.supercheckers.datastructures.MoveList;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+import com.mikegoodspeed.supercheckers.players.AlphaBetaPlayer;
+import com.mikegoodspeed.supercheckers.players.Player;
+
+/**
+ * Test the Tablebase and TablebaseGenerator classes.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ * 
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class TablebaseTest {
+
+	private static File directory = null;
+	private static Tablebase tablebase = null;
+
+	/**
+	 * Generate the default tables, of up to four pieces, once for all tests.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@BeforeClass
+	public static void setUpClass() throws Exception {
+		directory = File.createTempFile("tablebase", "");
+		directory.delete();
+		new TablebaseGenerator(TablebaseGenerator.PIECES).generate(directory);
+		tablebase = Tablebase.open(directory);
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@AfterClass
+	public static void tearDownClass() throws Exception {
+		tablebase = null;
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	/**
+	 * Test method for {@link Tablebase#index(long, long, int, int)}.  Indexes must number the
+	 * positions of a table without gaps, and be undone by unranking.
+	 */
+	@Test
+	public void testIndex() {
+		SplittableRandom random = new SplittableRandom(40);
+		for (int i = 0; i < 10000; i++) {
+			int xCount = 1 + random.nextInt(4);
+			int oCount = 1 + random.nextInt(4);
+			long x = randomSpots(random, xCount, 0L);
+			long o = randomSpots(random, oCount, x);
+			long index = Tablebase.index(x, o, xCount, oCount);
+			assertEquals(true, index >= 0 && index < Tablebase.size(xCount, oCount));
+			long oPositions = Tablebase.choose(64 - xCount, oCount);
+			assertEquals(x, Tablebase.unrank(index / oPositions, xCount));
+			assertEquals(o, Tablebase.expand(Tablebase.unrank(index % oPositions, oCount), x));
+		}
+		assertEquals(64L * 63, Tablebase.size(1, 1));
+		assertEquals(Tablebase.choose(64, 3) - 1, Tablebase.rank(0xE000000000000000L));
+	}
+
+	/**
+	 * Test method for {@link Tablebase#probe(Board, Team)}.  Every position of every table must
+	 * agree with its moves: a win must have a move to a loss one ply shorter, a loss must have
+	 * only moves to wins, the longest one ply shorter, and a draw must have no move to a loss and
+	 * a move to a draw, or no move at all.
+	 * <p>
+	 * Every table of three pieces is checked, and the whole x2o2 table, where captures lead to
+	 * positions that are not over yet.
+	 */
+	@Test
+	public void testProbe() {
+		int[] results = new int[3];
+		checkTable(1, 2, results);
+		checkTable(2, 1, results);
+		checkTable(2, 2, results);
+		assertEquals(true, results[Tablebase.WIN] > 0);
+		assertEquals(true, results[Tablebase.LOSS] > 0);
+		assertEquals(true, results[Tablebase.DRAW] > 0);
+	}
+
+	/**
+	 * Check every position of a table against its moves.
+	 *
+	 * @param xCount
+	 * @param oCount
+	 * @param results counts of the results found, indexed by result
+	 */
+	private static void checkTable(int xCount, int oCount, int[] results) {
+		Board board = new Board();
+		MoveList moves = new MoveList();
+		long oPositions = Tablebase.choose(64 - xCount, oCount);
+		for (long index = 0; index < Tablebase.size(xCount, oCount); index++) {
+			long x = Tablebase.unrank(index / oPositions, xCount);
+			long o = Tablebase.expand(Tablebase.unrank(index % oPositions, oCount), x);
+			for (Team team : new Team[] { Team.X, Team.O }) {
+				board.setPosition(x, o, team);
+				int entry = tablebase.probe(board, team);
+				results[Tablebase.getResult(entry)]++;
+				if (board.isGameOver()) {
+					assertEquals(0, Tablebase.getDistance(entry));
+					continue;
+				}
+				moves.clear();
+				board.generateMoves(team, moves);
+				int fastestWin = Integer.MAX_VALUE;
+				int slowestLoss = -1;
+				boolean draw = false;
+				for (int i = 0; i < moves.size(); i++) {
+					long undo = board.doMove(team, moves, i);
+					int child = tablebase.probe(board, team.getOpponent());
+					board.undoMove(undo);
+					int distance = Tablebase.getDistance(child) + 1;
+					if (Tablebase.getResult(child) == Tablebase.LOSS) {
+						fastestWin = Math.min(fastestWin, distance);
+					} else if (Tablebase.getResult(child) == Tablebase.WIN) {
+						slowestLoss = Math.max(slowestLoss, distance);
+					} else {
+						draw = true;
+					}
+				}
+				if (fastestWin != Integer.MAX_VALUE) {
+					assertEquals(Tablebase.entry(Tablebase.WIN, fastestWin), entry);
+				} else if (draw || moves.size() == 0) {
+					assertEquals(Tablebase.entry(Tablebase.DRAW, 0), entry);
+				} else {
+					assertEquals(Tablebase.entry(Tablebase.LOSS, slowestLoss), entry);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link Tablebase#probe(Board, Team)}.  A capture that wins in more plies
+	 * than the quiet moves lose must still make the position a win.
+	 */
+	@Test
+	public void testCaptureWin() {
+		Board board = new Board();
+		board.setPosition(0x40001L, 0x4080000L, Team.X);
+		int entry = tablebase.probe(board, Team.X);
+		assertEquals(Tablebase.WIN, Tablebase.getResult(entry));
+	}
+
+	/**
+	 * Test method for {@link Tablebase#getMove(Board, Team)}.  Playing the tablebase's moves from
+	 * a won position must win in the number of plies it gives.
+	 */
+	@Test
+	public void testGetMove() {
+		SplittableRandom random = new SplittableRandom(41);
+		Board board = new Board();
+		int games = 0;
+		while (games < 100) {
+			long x = randomSpots(random, 2, 0L);
+			long o = randomSpots(random, 1, x);
+			board.setPosition(x, o, Team.X);
+			int entry = tablebase.probe(board, Team.X);
+			if (board.isGameOver() || Tablebase.getResult(entry) != Tablebase.WIN) {
+				continue;
+			}
+			Team team = Team.X;
+			int plies = 0;
+			while (!board.isGameOver()) {
+				Move move = tablebase.getMove(board, team);
+				assertEquals(true, board.isValidMove(team, move));
+				board.doMove(team, move);
+				team = team.getOpponent();
+				plies++;
+			}
+			assertEquals(Team.X, board.getWinner());
+			assertEquals(Tablebase.getDistance(entry), plies);
+			games++;
+		}
+		board.reset();
+		assertEquals(Tablebase.UNKNOWN, tablebase.probe(board, Team.X));
+		assertEquals(null, tablebase.getMove(board, Team.X));
+		assertEquals(TablebaseGenerator.PIECES, tablebase.getMaxPieces());
+	}
+
+	/**
+	 * Test method for {@link Player#setTablebase(Tablebase)}.  Players must play the tablebase's
+	 * moves in positions it holds.
+	 */
+	@Test
+	public void testPlayer() {
+		Board board = new Board();
+		board.setPosition(0x0000000018000000L, 0x0000001000000000L, Team.O);
+		AlphaBetaPlayer player = new AlphaBetaPlayer(board, Team.O, 1, 0, 1);
+		player.setTablebase(tablebase);
+		Move move = player.getMove();
+		assertEquals(true, board.isValidMove(Team.O, move));
+		assertEquals(tablebase.getMove(board, Team.O), move);
+		assertEquals(0L, player.getNodes());
+	}
+
+	/**
+	 * Test method for {@link Tablebase#open(File)}.  Corrupt tables must be refused.
+	 */
+	@Test
+	public void testOpenCorrupt() throws IOException {
+		File empty = File.createTempFile("tablebase", "");
+		empty.delete();
+		empty.mkdir();
+		File bad = new File(empty, "x1o1.sctb");
+		try {
+			bad.createNewFile();
+			boolean refused = false;
+			try {
+				Tablebase.open(empty);
+			} catch (IOException e) {
+				refused = true;
+			}
+			assertEquals(true, refused);
+		} finally {
+			bad.delete();
+			empty.delete();
+		}
+	}
+
+	private static long randomSpots(SplittableRandom random, int count, long taken) {
+		long spots = 0L;
+		while (Long.bitCount(spots) < count) {
+			long spot = 1L << random.nextInt(64);
+			if ((taken & spot) == 0) {
+				spots |= spot;
+			}
+		}
+		return spots;
+	}
+}
@@ -0,0 +1,243 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.tournament;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.SplittableRandom;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mikegoodspeed.supercheckers.datastructures.Board;
+import com.mikegoodspeed.supercheckers.datastructures.Move;
+import com.mikegoodspeed.supercheckers.datastructures.MoveList;
+import com.mikegoodspeed.supercheckers.datastructures.Team;
+import com.mikegoodspeed.supercheckers.players.EasyComputerPlayer;
+import com.mikegoodspeed.supercheckers.players.Player;
+import com.mikegoodspeed.supercheckers.record.GameRecord;
+import com.mikegoodspeed.supercheckers.record.GameRecordReader;
+import com.mikegoodspeed.supercheckers.record.GameRecordWriter;
+
+/**
+ * Test the Tournament and MatchStatistics classes.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ * 
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class TournamentTest {
+	PlayerFactory easy = null;
+	PlayerFactory random = null;
+	Tournament tournament = null;
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		easy = new PlayerFactory() {
+			public Player create(Board board, Team team, SplittableRandom random) {
+				EasyComputerPlayer player = new EasyComputerPlayer(board, team, random);
+				player.setBook(null);
+				player.setTablebase(null);
+				return player;
+			}
+		};
+		random = new PlayerFactory() {
+			public Player create(final Board board, Team team, final SplittableRandom random) {
+				return new Player(board, team) {
+					public Move getMove() {
+						MoveList moves = new MoveList();
+						board.generateMoves(getTeam(), moves);
+						return moves.getMove(random.nextInt(moves.size()));
+					}
+
+					public String toString() {
+						return "Random";
+					}
+				};
+			}
+		};
+		tournament = null;
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@After
+	public void tearDown() throws Exception {
+		if (tournament != null) {
+			tournament.shutdown();
+		}
+	}
+
+	/**
+	 * Test method for {@link MatchStatistics#getElo()}.
+	 */
+	@Test
+	public void testStatistics() {
+		MatchStatistics statistics = new MatchStatistics(60, 20, 20);
+		assertEquals(100, statistics.getGames());
+		assertEquals(0.7, statistics.getScore(), 1e-9);
+		assertEquals(147.2, statistics.getElo(), 0.1);
+		assertEquals(0.7, MatchStatistics.toScore(statistics.getElo()), 1e-9);
+		assertEquals(true, statistics.getEloLow() < statistics.getElo());
+		assertEquals(true, statistics.getEloHigh() > statistics.getElo());
+		assertEquals(true, statistics.getLlr(0, 50) > 0);
+		assertEquals(MatchStatistics.Decision.H1, statistics.test(0, 50, 0.05, 0.05));
+		assertEquals(MatchStatistics.Decision.H0, statistics.test(300, 350, 0.05, 0.05));
+		MatchStatistics even = new MatchStatistics();
+		assertEquals(0.0, even.getElo(), 1e-9);
+		assertEquals(MatchStatistics.Decision.CONTINUE, even.test(0, 50, 0.05, 0.05));
+		even.addWin();
+		even.addLoss();
+		even.addDraw();
+		assertEquals(0.0, even.getElo(), 1e-9);
+		assertEquals(MatchStatistics.Decision.CONTINUE, even.test(-25, 25, 0.05, 0.05));
+	}
+
+	/**
+	 * Test method for {@link Tournament#play()}.  A seeded match must have the same results
+	 * whatever the number of threads.
+	 */
+	@Test
+	public void testPlay() {
+		tournament = new Tournament(easy, random);
+		tournament.setGames(40);
+		tournament.setSeed(5);
+		tournament.setThreads(1);
+		MatchStatistics single = tournament.play();
+		tournament.setThreads(3);
+		MatchStatistics parallel = tournament.play();
+		assertEquals(40, single.getGames());
+		assertEquals(single.getWins(), parallel.getWins());
+		assertEquals(single.getDraws(), parallel.getDraws());
+		assertEquals(single.getLosses(), parallel.getLosses());
+		assertEquals(MatchStatistics.Decision.CONTINUE, tournament.getDecision());
+	}
+
+	/**
+	 * Test method for {@link Tournament#setRecord(GameRecordWriter)}.  Every game must be written
+	 * with its opening, and replay to its result.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testRecord() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		GameRecordWriter writer = new GameRecordWriter(bytes);
+		tournament = new Tournament(easy, random);
+		tournament.setGames(20);
+		tournament.setThreads(2);
+		tournament.setRecord(writer);
+		MatchStatistics statistics = tournament.play();
+		writer.close();
+		GameRecordReader reader = new GameRecordReader(new ByteArrayInputStream(
+			bytes.toByteArray()));
+		int draws = 0;
+		for (GameRecord record = reader.next(); record != null; record = reader.next()) {
+			Board board = new Board();
+			record.replay(board, null);
+			assertEquals(true, record.getPlies() >= 2 * Tournament.OPENING_ROUNDS);
+			if (board.isGameOver()) {
+				assertEquals(board.getWinner(), record.getResult());
+			} else {
+				assertEquals(Team.NOBODY, record.getResult());
+				draws++;
+			}
+		}
+		assertEquals(20L, reader.getCount());
+		assertEquals(statistics.getDraws(), draws);
+	}
+
+	/**
+	 * Test method for {@link Tournament#setSprt(double, double, double, double)}.  A much
+	 * stronger player must be found stronger long before the largest number of games.
+	 */
+	@Test
+	public void testSprt() {
+		tournament = new Tournament(easy, random);
+		tournament.setGames(2000);
+		tournament.setThreads(2);
+		tournament.setSprt(0, 50, Tournament.ALPHA, Tournament.BETA);
+		MatchStatistics statistics = tournament.play();
+		assertEquals(MatchStatistics.Decision.H1, tournament.getDecision());
+		assertEquals(true, statistics.getGames() < 2000);
+		assertEquals(true, statistics.getElo() > 50);
+		tournament = new Tournament(random, easy);
+		tournament.setGames(2000);
+		tournament.setSprt(0, 50, Tournament.ALPHA, Tournament.BETA);
+		tournament.play();
+		assertEquals(MatchStatistics.Decision.H0, tournament.getDecision());
+	}
+
+	/**
+	 * Test method for {@link Tournament#setSprt(double, double, double, double)}.  A seeded match
+	 * must stop at the same game with the same decision whatever the number of threads, as
+	 * results are counted in the order of the games.  The first player wins quickly or plays
+	 * randomly and slowly, so the wins finish ahead of the games before them.
+	 */
+	@Test
+	public void testSprtSeeded() {
+		PlayerFactory uneven = new PlayerFactory() {
+			public Player create(Board board, Team team, SplittableRandom seed) {
+				if (seed.nextBoolean()) {
+					return easy.create(board, team, seed);
+				}
+				final Player weak = random.create(board, team, seed);
+				return new Player(board, team) {
+					public Move getMove() {
+						try {
+							Thread.sleep(1);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+						return weak.getMove();
+					}
+
+					public String toString() {
+						return "Slow Random";
+					}
+				};
+			}
+		};
+		tournament = new Tournament(uneven, random);
+		tournament.setGames(2000);
+		tournament.setSeed(3);
+		tournament.setSprt(0, 50, Tournament.ALPHA, Tournament.BETA);
+		tournament.setThreads(1);
+		MatchStatistics single = tournament.play();
+		MatchStatistics.Decision decision = tournament.getDecision();
+		assertEquals(MatchStatistics.Decision.H1, decision);
+		for (int threads = 2; threads <= 4; threads++) {
+			tournament.setThreads(threads);
+			MatchStatistics parallel = tournament.play();
+			assertEquals(decision, tournament.getDecision());
+			assertEquals(single.getWins(), parallel.getWins());
+			assertEquals(single.getDraws(), parallel.getDraws());
+			assertEquals(single.getLosses(), parallel.getLosses());
+		}
+	}
+}
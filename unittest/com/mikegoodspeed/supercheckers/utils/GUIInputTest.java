@@ -0,0 +1,111 @@
+/*
+ * Supercheckers - the game of Kings Court
+ * Copyright (C) 2002-2007 Mike Goodspeed
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.mikegoodspeed.supercheckers.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mikegoodspeed.supercheckers.datastructures.Move;
+
+/**
+ * Test the GUIInput class.
+ * <p>
+ * project Supercheckers <br />
+ * url http://www.mikegoodspeed.com/blog/projects/supercheckers/
+ * 
+ * @author Mike Goodspeed
+ * @version $Id$
+ */
+public class GUIInputTest {
+	GUIInput input = null;
+
+	/**
+	 * @throws Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		input = new GUIInput();
+	}
+
+	/**
+	 * Test method for {@link GUIInput#waitForMove()}.  A move submitted from another thread must
+	 * reach the waiting thread, and spots added after it belong to the next move.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testWaitForMove() throws Exception {
+		assertEquals(false, input.isWaiting());
+		input.addSpot(0, 0);
+		input.begin();
+		assertEquals(true, input.isWaiting());
+		assertEquals(0, input.getMove().size());
+		Thread submitter = new Thread() {
+			public void run() {
+				input.addSpot(1, 2);
+				input.addSpot(1, 3);
+				input.submit();
+				input.addSpot(4, 4);
+			}
+		};
+		submitter.start();
+		Move move = input.waitForMove();
+		submitter.join();
+		Move expected = new Move();
+		expected.add(1, 2);
+		expected.add(1, 3);
+		assertEquals(expected, move);
+		assertEquals(false, input.isWaiting());
+		assertEquals(1, input.getMove().size());
+		assertEquals(expected, input.waitForMove());
+	}
+
+	/**
+	 * Test method for {@link GUIInput#cancel()}.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testCancel() throws Exception {
+		final AtomicReference<Throwable> thrown = new AtomicReference<Throwable>();
+		input.begin();
+		Thread waiter = new Thread() {
+			public void run() {
+				try {
+					input.waitForMove();
+				} catch (Throwable e) {
+					thrown.set(e);
+				}
+			}
+		};
+		waiter.start();
+		input.addSpot(1, 2);
+		input.cancel();
+		waiter.join();
+		assertEquals(IllegalStateException.class, thrown.get().getClass());
+		assertEquals(false, input.isWaiting());
+		assertEquals(0, input.getMove().size());
+		input.submit();
+		assertEquals(false, input.isWaiting());
+	}
+}